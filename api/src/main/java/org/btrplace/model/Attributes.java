@@ -20,6 +20,7 @@ package org.btrplace.model;
 
 import org.btrplace.Copyable;
 
+import java.util.Collection;
 import java.util.Set;
 
 /**
@@ -118,6 +119,62 @@ public interface Attributes extends Copyable<Attributes> {
      */
     int get(Element e, String k, int def);
 
+    /**
+     * Get the values of an integer attribute for multiple elements.
+     *
+     * @param elems the elements
+     * @param k     the attribute identifier
+     * @param def   the value to use for the elements that do not have the attribute
+     * @return the values, in the iteration order of {@code elems}
+     */
+    default int[] get(Collection<? extends Element> elems, String k, int def) {
+        int[] res = new int[elems.size()];
+        int i = 0;
+        for (Element e : elems) {
+            res[i++] = get(e, k, def);
+        }
+        return res;
+    }
+
+    /**
+     * Get the values of a numerical attribute for multiple elements.
+     *
+     * @param elems the elements
+     * @param k     the attribute identifier
+     * @param def   the value to use for the elements that do not have the attribute
+     * @return the values, in the iteration order of {@code elems}
+     */
+    default double[] get(Collection<? extends Element> elems, String k, double def) {
+        double[] res = new double[elems.size()];
+        int i = 0;
+        for (Element e : elems) {
+            res[i++] = get(e, k, def);
+        }
+        return res;
+    }
+
+    /**
+     * Get a counter of the modifications of the attributes.
+     * The counter changes every time an attribute is put or removed so values computed
+     * from the attributes can be memorised as long as it is unchanged.
+     *
+     * @return the counter. A negative value if the modifications are not tracked
+     */
+    default long version() {
+        return -1;
+    }
+
+    /**
+     * Get the fingerprint of the attributes.
+     * The default implementation browses all the attributes.
+     *
+     * @return a hash of the attributes content
+     * @see Fingerprints
+     */
+    default long fingerprint() {
+        return Fingerprints.of(this);
+    }
+
     /**
      * Check if an attribute is set for a given element.
      *
@@ -18,176 +18,233 @@
 
 package org.btrplace.model;
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
 /**
  * Default implementation for {@link Attributes}.
+ * <p>
+ * The attributes are stored by columns, one per attribute identifier and type of element.
+ * A column stores the values in primitive arrays indexed by the element identifiers so
+ * the typed getters do not allocate.
  *
  * @author Fabien Hermenier
  */
 public class DefaultAttributes implements Attributes {
 
-    private Map<VM, Map<String, Object>> vmAttrs;
-    private Map<Node, Map<String, Object>> nodeAttrs;
+    private Table vmAttrs;
+    private Table nodeAttrs;
+
+    /**
+     * The number of modifications.
+     */
+    private long version;
+
+    /**
+     * The fingerprint of the attributes, maintained incrementally.
+     */
+    private long fingerprint;
 
     /**
      * Make a new empty list of attributes.
      */
     public DefaultAttributes() {
-        vmAttrs = new HashMap<>();
-        nodeAttrs = new HashMap<>();
+        vmAttrs = new Table();
+        nodeAttrs = new Table();
     }
 
-    private boolean putObject(Element e, String k, Object v) {
-        Map<String, Object> m;
+    private Table table(Element e) {
         if (e instanceof VM) {
-            m = vmAttrs.get(e);
-            if (m == null) {
-                m = new HashMap<>();
-                vmAttrs.put((VM) e, m);
-            }
+            return vmAttrs;
         } else if (e instanceof Node) {
-            m = nodeAttrs.get(e);
-            if (m == null) {
-                m = new HashMap<>();
-                nodeAttrs.put((Node) e, m);
-            }
-        } else {
+            return nodeAttrs;
+        }
+        return null;
+    }
+
+    private Column column(Element e, String k) {
+        Table t = table(e);
+        return t == null ? null : t.columns.get(k);
+    }
+
+    private boolean putValue(Element e, String k, byte type, long v, String str) {
+        Table t = table(e);
+        if (t == null) {
             return false;
         }
-        return m.put(k, v) != null;
+        version++;
+        Column c = t.columns.get(k);
+        long before = c == null ? 0 : c.entry(e, k);
+        boolean ret = t.put(e, k, type, v, str);
+        fingerprint += Fingerprints.value(e, k, Column.hash(type, v, str)) - before;
+        return ret;
+    }
+
+    private long entry(Element e, String k) {
+        Column c = column(e, k);
+        return c == null ? 0 : c.entry(e, k);
+    }
+
+    private static ClassCastException badType(String k, String expected) {
+        return new ClassCastException("Attribute '" + k + "' is not a " + expected);
     }
 
     @Override
     public Object get(Element e, String k) {
-        Map<String, Object> m;
-        if (e instanceof Node) {
-            m = nodeAttrs.get(e);
-        } else if (e instanceof VM) {
-            m = vmAttrs.get(e);
-        } else {
-            return null;
-        }
-        return m == null ? null : m.get(k);
+        Column c = column(e, k);
+        return c == null ? null : c.get(e.id());
     }
 
     @Override
     public int get(Element e, String k, int def) {
-        if (isSet(e, k)) {
-            return (int) get(e, k);
-        }
-        return def;
+        return asInt(column(e, k), e.id(), k, def);
     }
 
     @Override
-    @SuppressWarnings("squid:S1166")
     public double get(Element e, String k, double def) {
-        if (isSet(e, k)) {
-            try {
-                return (int) get(e, k);
-            } catch (@SuppressWarnings("unused") ClassCastException ex) {
-                //Not an integer
-            }
-            //Try the double
-            return (double) get(e, k);
+        return asDouble(column(e, k), e.id(), k, def);
+    }
+
+    private static int asInt(Column c, int id, String k, int def) {
+        switch (c == null ? Column.NONE : c.type(id)) {
+            case Column.NONE:
+                return def;
+            case Column.INT:
+                return (int) c.values[id];
+            default:
+                throw badType(k, "integer");
         }
-        return def;
+    }
 
+    private static double asDouble(Column c, int id, String k, double def) {
+        switch (c == null ? Column.NONE : c.type(id)) {
+            case Column.NONE:
+                return def;
+            case Column.INT:
+                return (int) c.values[id];
+            case Column.DOUBLE:
+                return Double.longBitsToDouble(c.values[id]);
+            default:
+                throw badType(k, "number");
+        }
     }
 
     @Override
     public String get(Element e, String k, String def) {
-        if (isSet(e, k)) {
-            return (String) get(e, k);
+        Column c = column(e, k);
+        switch (c == null ? Column.NONE : c.type(e.id())) {
+            case Column.NONE:
+                return def;
+            case Column.STRING:
+                return c.strings[e.id()];
+            default:
+                throw badType(k, "string");
         }
-        return def;
-
     }
 
     @Override
     public boolean get(Element e, String k, boolean def) {
-        if (isSet(e, k)) {
-            return (Boolean) get(e, k);
+        Column c = column(e, k);
+        switch (c == null ? Column.NONE : c.type(e.id())) {
+            case Column.NONE:
+                return def;
+            case Column.BOOLEAN:
+                return c.values[e.id()] != 0;
+            default:
+                throw badType(k, "boolean");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The columns are looked up once for all the elements.
+     */
+    @Override
+    public int[] get(Collection<? extends Element> elems, String k, int def) {
+        Column vms = vmAttrs.columns.get(k);
+        Column nodes = nodeAttrs.columns.get(k);
+        int[] res = new int[elems.size()];
+        int i = 0;
+        for (Element e : elems) {
+            res[i++] = asInt(e instanceof VM ? vms : e instanceof Node ? nodes : null, e.id(), k, def);
         }
-        return def;
+        return res;
+    }
 
+    /**
+     * {@inheritDoc}
+     * The columns are looked up once for all the elements.
+     */
+    @Override
+    public double[] get(Collection<? extends Element> elems, String k, double def) {
+        Column vms = vmAttrs.columns.get(k);
+        Column nodes = nodeAttrs.columns.get(k);
+        double[] res = new double[elems.size()];
+        int i = 0;
+        for (Element e : elems) {
+            res[i++] = asDouble(e instanceof VM ? vms : e instanceof Node ? nodes : null, e.id(), k, def);
+        }
+        return res;
     }
 
     @Override
     public boolean isSet(Element e, String k) {
-        Map<String, Object> m;
-        if (e instanceof Node) {
-            m = nodeAttrs.get(e);
-        } else if (e instanceof VM) {
-            m = vmAttrs.get(e);
-        } else {
-            return false;
-        }
-        return m != null && m.containsKey(k);
+        Column c = column(e, k);
+        return c != null && c.type(e.id()) != Column.NONE;
     }
 
     @Override
     public boolean unset(Element e, String k) {
-        Map<String, Object> m;
-        if (e instanceof Node) {
-            m = nodeAttrs.get(e);
-        } else if (e instanceof VM) {
-            m = vmAttrs.get(e);
-        } else {
-            return false;
+        Table t = table(e);
+        long before = entry(e, k);
+        if (t != null && t.unset(e.id(), k)) {
+            version++;
+            fingerprint -= before;
+            return true;
         }
-        return m != null && m.remove(k) != null;
+        return false;
     }
 
     @Override
-    public Attributes copy() {
-        DefaultAttributes cpy = new DefaultAttributes();
-        for (Map.Entry<VM, Map<String, Object>> e : vmAttrs.entrySet()) {
-            cpy.vmAttrs.put(e.getKey(), new HashMap<>(e.getValue()));
-        }
+    public long version() {
+        return version;
+    }
 
-        for (Map.Entry<Node, Map<String, Object>> e : nodeAttrs.entrySet()) {
-            cpy.nodeAttrs.put(e.getKey(), new HashMap<>(e.getValue()));
-        }
+    /**
+     * {@inheritDoc}
+     * The fingerprint is maintained incrementally so this method runs in O(1).
+     */
+    @Override
+    public long fingerprint() {
+        return fingerprint;
+    }
 
+    @Override
+    public Attributes copy() {
+        DefaultAttributes cpy = new DefaultAttributes();
+        cpy.vmAttrs = vmAttrs.copy();
+        cpy.nodeAttrs = nodeAttrs.copy();
+        cpy.fingerprint = fingerprint;
         return cpy;
     }
 
     @Override
     public String toString() {
         StringBuilder b = new StringBuilder();
-        for (Map.Entry<VM, Map<String, Object>> e : vmAttrs.entrySet()) {
-            b.append(String.format("%s:%s%n", e.getKey(), stringify(e.getValue())));
-        }
-        for (Map.Entry<Node, Map<String, Object>> e : nodeAttrs.entrySet()) {
-            b.append(String.format("%s:%s%n", e.getKey(), stringify(e.getValue())));
-        }
-        return b.toString();
-    }
-
-    private static String stringify(Map<String, Object> map) {
-        StringBuilder b = new StringBuilder();
-        for (Map.Entry<String, Object> attr : map.entrySet()) {
-            b.append(" <").append(attr.getKey()).append(',');
-            Object val = attr.getValue();
-            if (val instanceof String) {
-                b.append('"').append(val).append('"');
-            } else {
-                b.append(val);
-            }
-            b.append('>');
-        }
+        vmAttrs.print(b);
+        nodeAttrs.print(b);
         return b.toString();
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(vmAttrs, nodeAttrs);
+        return Objects.hash(vmAttrs.contentHash(), nodeAttrs.contentHash());
     }
 
     @Override
@@ -202,54 +259,57 @@ public class DefaultAttributes implements Attributes {
             return false;
         }
         DefaultAttributes that = (DefaultAttributes) o;
-        return vmAttrs.equals(that.vmAttrs) && nodeAttrs.equals(that.nodeAttrs);
+        return vmAttrs.sameContent(that.vmAttrs) && nodeAttrs.sameContent(that.nodeAttrs);
     }
 
     @Override
     public Set<Element> getDefined() {
-        Set<Element> s = new HashSet<>(vmAttrs.size() + nodeAttrs.size());
-        s.addAll(vmAttrs.keySet());
-        s.addAll(nodeAttrs.keySet());
+        Set<Element> s = new HashSet<>();
+        vmAttrs.addDefined(s);
+        nodeAttrs.addDefined(s);
         return s;
     }
 
     @Override
     public void clear() {
-        this.vmAttrs.clear();
-        this.nodeAttrs.clear();
+        version++;
+        fingerprint = 0;
+        this.vmAttrs = new Table();
+        this.nodeAttrs = new Table();
     }
 
     @Override
     public boolean put(Element e, String k, boolean b) {
-        return putObject(e, k, b);
+        return putValue(e, k, Column.BOOLEAN, b ? 1 : 0, null);
     }
 
     @Override
     public boolean put(Element e, String k, int n) {
-        return putObject(e, k, n);
+        return putValue(e, k, Column.INT, n, null);
     }
 
     @Override
     public boolean put(Element e, String k, String s) {
-        return putObject(e, k, s);
+        return putValue(e, k, Column.STRING, 0, s);
     }
 
     @Override
     public boolean put(Element e, String k, double d) {
-        return putObject(e, k, d);
+        return putValue(e, k, Column.DOUBLE, Double.doubleToRawLongBits(d), null);
     }
 
     @Override
     public Set<String> getKeys(Element e) {
-        Map<String, Object> m;
-        if (e instanceof Node) {
-            m = nodeAttrs.get(e);
-        } else if (e instanceof VM) {
-            m = vmAttrs.get(e);
-        } else {
-            return Collections.emptySet();
+        Table t = table(e);
+        Set<String> keys = new LinkedHashSet<>();
+        if (t != null) {
+            for (Map.Entry<String, Column> c : t.columns.entrySet()) {
+                if (c.getValue().type(e.id()) != Column.NONE) {
+                    keys.add(c.getKey());
+                }
+            }
         }
-        return m == null ? Collections.emptySet() : m.keySet();
+        return keys;
     }
 
     @Override
@@ -278,10 +338,281 @@ public class DefaultAttributes implements Attributes {
 
     @Override
     public void clear(Element e) {
-        if (e instanceof VM) {
-            this.vmAttrs.remove(e);
-        } else if (e instanceof Node) {
-            this.nodeAttrs.remove(e);
+        Table t = table(e);
+        if (t != null) {
+            version++;
+            for (String k : getKeys(e)) {
+                fingerprint -= entry(e, k);
+            }
+            t.clear(e.id());
+        }
+    }
+
+    /**
+     * The attributes of one type of elements.
+     */
+    private static final class Table {
+
+        /**
+         * The columns, by attribute identifier.
+         */
+        private Map<String, Column> columns;
+
+        /**
+         * The elements having attributes, by identifier.
+         */
+        private Element[] elements;
+
+        /**
+         * The number of attributes for each element.
+         */
+        private int[] counts;
+
+        Table() {
+            columns = new LinkedHashMap<>();
+            elements = new Element[0];
+            counts = new int[0];
+        }
+
+        boolean put(Element e, String k, byte type, long v, String str) {
+            int id = e.id();
+            if (id >= counts.length) {
+                int capa = Math.max(id + 1, counts.length * 2);
+                counts = Arrays.copyOf(counts, capa);
+                elements = Arrays.copyOf(elements, capa);
+            }
+            Column c = columns.computeIfAbsent(k, x -> new Column());
+            boolean overridden = c.set(id, type, v, str);
+            if (!overridden) {
+                counts[id]++;
+                elements[id] = e;
+            }
+            return overridden;
+        }
+
+        boolean unset(int id, String k) {
+            Column c = columns.get(k);
+            if (c != null && c.unset(id)) {
+                if (--counts[id] == 0) {
+                    elements[id] = null;
+                }
+                return true;
+            }
+            return false;
+        }
+
+        void clear(int id) {
+            if (id >= 0 && id < counts.length && counts[id] > 0) {
+                for (Column c : columns.values()) {
+                    c.unset(id);
+                }
+                counts[id] = 0;
+                elements[id] = null;
+            }
+        }
+
+        void addDefined(Set<Element> s) {
+            for (int id = 0; id < counts.length; id++) {
+                if (counts[id] > 0) {
+                    s.add(elements[id]);
+                }
+            }
+        }
+
+        Table copy() {
+            Table t = new Table();
+            for (Map.Entry<String, Column> c : columns.entrySet()) {
+                t.columns.put(c.getKey(), c.getValue().copy());
+            }
+            t.elements = elements.clone();
+            t.counts = counts.clone();
+            return t;
+        }
+
+        int contentHash() {
+            int h = 0;
+            for (Map.Entry<String, Column> e : columns.entrySet()) {
+                Column c = e.getValue();
+                for (int id = 0; id < c.types.length; id++) {
+                    if (c.types[id] != Column.NONE) {
+                        h += (31 * id + e.getKey().hashCode()) ^ Objects.hashCode(c.get(id));
+                    }
+                }
+            }
+            return h;
+        }
+
+        boolean sameContent(Table o) {
+            int max = Math.max(counts.length, o.counts.length);
+            for (int id = 0; id < max; id++) {
+                int mine = id < counts.length ? counts[id] : 0;
+                int other = id < o.counts.length ? o.counts[id] : 0;
+                if (mine != other) {
+                    return false;
+                }
+            }
+            for (Map.Entry<String, Column> e : columns.entrySet()) {
+                Column c = e.getValue();
+                Column oc = o.columns.get(e.getKey());
+                for (int id = 0; id < c.types.length; id++) {
+                    if (c.types[id] != Column.NONE
+                            && (oc == null || !Objects.equals(c.get(id), oc.get(id)))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        void print(StringBuilder b) {
+            for (int id = 0; id < counts.length; id++) {
+                if (counts[id] == 0) {
+                    continue;
+                }
+                b.append(elements[id]).append(':');
+                for (Map.Entry<String, Column> e : columns.entrySet()) {
+                    Object val = e.getValue().get(id);
+                    if (val == null) {
+                        continue;
+                    }
+                    b.append(" <").append(e.getKey()).append(',');
+                    if (val instanceof String) {
+                        b.append('"').append(val).append('"');
+                    } else {
+                        b.append(val);
+                    }
+                    b.append('>');
+                }
+                b.append(String.format("%n"));
+            }
+        }
+    }
+
+    /**
+     * The values of one attribute, indexed by element identifiers.
+     * Integers, booleans and doubles are stored as raw long values.
+     */
+    private static final class Column {
+
+        static final byte NONE = 0;
+        static final byte INT = 1;
+        static final byte DOUBLE = 2;
+        static final byte BOOLEAN = 3;
+        static final byte STRING = 4;
+
+        private byte[] types;
+
+        private long[] values;
+
+        /**
+         * Allocated with the first string value.
+         */
+        private String[] strings;
+
+        Column() {
+            types = new byte[0];
+            values = new long[0];
+        }
+
+        byte type(int id) {
+            return id >= 0 && id < types.length ? types[id] : NONE;
+        }
+
+        /**
+         * Set a value.
+         *
+         * @return {@code true} if a previous value was overridden
+         */
+        boolean set(int id, byte type, long v, String str) {
+            if (id >= types.length) {
+                int capa = Math.max(id + 1, types.length * 2);
+                types = Arrays.copyOf(types, capa);
+                values = Arrays.copyOf(values, capa);
+                if (strings != null) {
+                    strings = Arrays.copyOf(strings, capa);
+                }
+            }
+            if (type == STRING && strings == null) {
+                strings = new String[types.length];
+            }
+            boolean overridden = types[id] != NONE;
+            types[id] = type;
+            values[id] = v;
+            if (strings != null) {
+                strings[id] = str;
+            }
+            return overridden;
+        }
+
+        boolean unset(int id) {
+            if (type(id) == NONE) {
+                return false;
+            }
+            types[id] = NONE;
+            if (strings != null) {
+                strings[id] = null;
+            }
+            return true;
+        }
+
+        /**
+         * Get a value as an object.
+         *
+         * @return the value. {@code null} if the value is not set
+         */
+        Object get(int id) {
+            switch (type(id)) {
+                case INT:
+                    return (int) values[id];
+                case DOUBLE:
+                    return Double.longBitsToDouble(values[id]);
+                case BOOLEAN:
+                    return values[id] != 0;
+                case STRING:
+                    return strings[id];
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Hash an element value the way {@link Object#hashCode()} hashes the boxed value.
+         */
+        static int hash(byte type, long v, String str) {
+            switch (type) {
+                case INT:
+                    return (int) v;
+                case DOUBLE:
+                    return Double.hashCode(Double.longBitsToDouble(v));
+                case BOOLEAN:
+                    return Boolean.hashCode(v != 0);
+                case STRING:
+                    return str.hashCode();
+                default:
+                    return 0;
+            }
+        }
+
+        /**
+         * Get the fingerprint entry of an element value.
+         *
+         * @return the entry hash. {@code 0} if the value is not set
+         */
+        long entry(Element e, String k) {
+            int id = e.id();
+            byte t = type(id);
+            if (t == NONE) {
+                return 0;
+            }
+            return Fingerprints.value(e, k, hash(t, values[id], t == STRING ? strings[id] : null));
+        }
+
+        Column copy() {
+            Column c = new Column();
+            c.types = types.clone();
+            c.values = values.clone();
+            c.strings = strings == null ? null : strings.clone();
+            return c;
         }
     }
 }
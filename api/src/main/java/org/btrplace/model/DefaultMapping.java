@@ -39,11 +39,11 @@ import java.util.Set;
  */
 public class DefaultMapping extends AbstractMapping {
 
-    private static final int RUNNING_STATE = 0;
+    private static final int RUNNING_STATE = Fingerprints.RUNNING;
 
-    private static final int SLEEPING_STATE = 1;
+    private static final int SLEEPING_STATE = Fingerprints.SLEEPING;
 
-    private static final int READY_STATE = 2;
+    private static final int READY_STATE = Fingerprints.READY;
 
     private static final int ONLINE_STATE = 0;
 
@@ -74,6 +74,16 @@ public class DefaultMapping extends AbstractMapping {
      */
     private TIntObjectHashMap<Set<VM>>[] host;
 
+    /**
+     * The fingerprint of the node states.
+     */
+    private long nodesFp;
+
+    /**
+     * The fingerprint of the VM states.
+     */
+    private long vmsFp;
+
     /**
      * Create a new mapping.
      */
@@ -138,6 +148,7 @@ public class DefaultMapping extends AbstractMapping {
         Node old;
 
         int vmId = vm.id();
+        long before = vmEntry(vmId);
         int nId = n.id();
         Set<VM> on = host[RUNNING_STATE].get(nId);
         if (on == null) {
@@ -170,6 +181,7 @@ public class DefaultMapping extends AbstractMapping {
                 st.put(vmId, RUNNING_STATE);
                 break;
         }
+        vmsFp += vmEntry(vmId) - before;
         return true;
     }
 
@@ -180,6 +192,7 @@ public class DefaultMapping extends AbstractMapping {
         }
         int nId = n.id();
         int vmId = vm.id();
+        long before = vmEntry(vmId);
         Set<VM> on = host[SLEEPING_STATE].get(nId);
         if (on == null) {
             on = new THashSet<>();
@@ -216,12 +229,13 @@ public class DefaultMapping extends AbstractMapping {
                 break;
         }
         st.put(vm.id(), SLEEPING_STATE);
+        vmsFp += vmEntry(vmId) - before;
         return true;
     }
 
     @Override
     public boolean addReadyVM(VM vm) {
-
+        long before = vmEntry(vm.id());
         Node n = place.remove(vm.id());
         int state = st.get(vm.id());
         if (state == RUNNING_STATE) {
@@ -233,11 +247,13 @@ public class DefaultMapping extends AbstractMapping {
         }
         st.put(vm.id(), READY_STATE);
         vmReady.add(vm);
+        vmsFp += vmEntry(vm.id()) - before;
         return true;
     }
 
     @Override
     public boolean remove(VM vm) {
+        long before = vmEntry(vm.id());
         if (place.containsKey(vm.id())) {
             Node n = this.place.remove(vm.id());
             //The VM exists and is already placed
@@ -247,11 +263,13 @@ public class DefaultMapping extends AbstractMapping {
                 host[SLEEPING_STATE].get(n.id()).remove(vm);
             }
             st.remove(vm.id());
+            vmsFp -= before;
             return true;
         } else if (st.get(vm.id()) == READY_STATE) {
 
             vmReady.remove(vm);
             st.remove(vm.id());
+            vmsFp -= before;
             return true;
         }
         return false;
@@ -276,16 +294,23 @@ public class DefaultMapping extends AbstractMapping {
                 }
                 host[SLEEPING_STATE].remove(nId);
             }
+            nodesFp -= Fingerprints.node(nId, true);
             return nodeState[ONLINE_STATE].remove(n);
         }
 
-        return nodeState[OFFLINE_STATE].remove(n);
+        if (nodeState[OFFLINE_STATE].remove(n)) {
+            nodesFp -= Fingerprints.node(n.id(), false);
+            return true;
+        }
+        return false;
     }
 
     @Override
     public boolean addOnlineNode(Node n) {
+        nodesFp -= nodeEntry(n);
         nodeState[OFFLINE_STATE].remove(n);
         nodeState[ONLINE_STATE].add(n);
+        nodesFp += Fingerprints.node(n.id(), true);
         return true;
     }
 
@@ -301,12 +326,45 @@ public class DefaultMapping extends AbstractMapping {
             if (on != null && !on.isEmpty()) {
                 return false;
             }
-            nodeState[ONLINE_STATE].remove(n);
         }
+        nodesFp -= nodeEntry(n);
+        nodeState[ONLINE_STATE].remove(n);
         nodeState[OFFLINE_STATE].add(n);
+        nodesFp += Fingerprints.node(nId, false);
         return true;
     }
 
+    private long nodeEntry(Node n) {
+        if (nodeState[ONLINE_STATE].contains(n)) {
+            return Fingerprints.node(n.id(), true);
+        } else if (nodeState[OFFLINE_STATE].contains(n)) {
+            return Fingerprints.node(n.id(), false);
+        }
+        return 0;
+    }
+
+    private long vmEntry(int id) {
+        int s = st.get(id);
+        switch (s) {
+            case RUNNING_STATE:
+            case SLEEPING_STATE:
+                return Fingerprints.vm(id, s, place.get(id).id());
+            case READY_STATE:
+                return Fingerprints.vm(id, s, -1);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The fingerprint is maintained incrementally so this method runs in O(1).
+     */
+    @Override
+    public long fingerprint() {
+        return nodesFp + vmsFp;
+    }
+
     @Override
     public Set<Node> getOnlineNodes() {
         return nodeState[ONLINE_STATE];
@@ -424,6 +482,8 @@ public class DefaultMapping extends AbstractMapping {
         for (TIntObjectHashMap<Set<VM>> h : host) {
             h.clear();
         }
+        nodesFp = 0;
+        vmsFp = 0;
     }
 
     @Override
@@ -433,6 +493,7 @@ public class DefaultMapping extends AbstractMapping {
             Set<VM> s = h.get(u.id());
             if (s != null) {
                 for (VM vm : s) {
+                    vmsFp -= vmEntry(vm.id());
                     place.remove(vm.id());
                     st.remove(vm.id());
                 }
@@ -449,6 +510,7 @@ public class DefaultMapping extends AbstractMapping {
         for (TIntObjectHashMap<Set<VM>> h : host) {
             h.clear();
         }
+        vmsFp = 0;
     }
 
     @Override
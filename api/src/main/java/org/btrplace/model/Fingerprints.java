@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.model;
+
+import org.btrplace.model.view.ModelView;
+
+import java.util.Objects;
+
+/**
+ * Helpers to compute the fingerprint of a model.
+ * <p>
+ * A fingerprint is a 64 bits hash of the content of a model. It is the sum of the hash of every
+ * entry (a node state, a VM placement, an attribute value, ...) so it does not depend on the
+ * iteration order and it can be maintained incrementally: an entry is subtracted when it is
+ * removed or modified, and added when it is inserted. Two models with the same content have the
+ * same fingerprint whatever their implementation.
+ *
+ * @author Fabien Hermenier
+ */
+public final class Fingerprints {
+
+    /**
+     * The state code of a running VM.
+     */
+    public static final int RUNNING = 0;
+
+    /**
+     * The state code of a sleeping VM.
+     */
+    public static final int SLEEPING = 1;
+
+    /**
+     * The state code of a ready VM.
+     */
+    public static final int READY = 2;
+
+    private static final long NODE_KIND = 1;
+
+    private static final long VM_KIND = 2;
+
+    private Fingerprints() {
+    }
+
+    /**
+     * Scramble a value.
+     * This is the finalizer of the SplitMix64 generator.
+     *
+     * @param v the value
+     * @return the scrambled value
+     */
+    public static long mix(long v) {
+        long z = v * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Hash an entry made of three values.
+     *
+     * @param a the first value
+     * @param b the second value
+     * @param c the third value
+     * @return the entry hash
+     */
+    public static long entry(long a, long b, long c) {
+        return mix(mix(mix(a) + b) + c);
+    }
+
+    /**
+     * Hash the state of a node.
+     *
+     * @param id     the node identifier
+     * @param online {@code true} iff the node is online
+     * @return the entry hash
+     */
+    public static long node(int id, boolean online) {
+        return entry(NODE_KIND, id, online ? 0 : 1);
+    }
+
+    /**
+     * Hash the state of a VM.
+     *
+     * @param id    the VM identifier
+     * @param state the state code, either {@link #RUNNING}, {@link #SLEEPING} or {@link #READY}
+     * @param host  the host identifier. {@code -1} for a ready VM
+     * @return the entry hash
+     */
+    public static long vm(int id, int state, int host) {
+        return entry(VM_KIND, id, ((long) state << 32) | (host & 0xFFFFFFFFL));
+    }
+
+    /**
+     * Hash the value of an element property, such as an attribute or a resource consumption.
+     *
+     * @param e the element
+     * @param k the property identifier
+     * @param v the value
+     * @return the entry hash
+     */
+    public static long value(Element e, String k, Object v) {
+        return value(e, k, Objects.hashCode(v));
+    }
+
+    /**
+     * Hash the value of an element property from the hash code of the value.
+     * This prevents from boxing primitive values.
+     *
+     * @param e the element
+     * @param k the property identifier
+     * @param h the hash code of the value, as stated by {@link Objects#hashCode(Object)}
+     * @return the entry hash
+     */
+    public static long value(Element e, String k, int h) {
+        long kind = e instanceof VM ? VM_KIND : NODE_KIND;
+        return entry(kind << 32 | (e.id() & 0xFFFFFFFFL), k.hashCode(), h);
+    }
+
+    /**
+     * Compute the fingerprint of a mapping from scratch.
+     *
+     * @param ma the mapping
+     * @return the fingerprint
+     */
+    public static long of(Mapping ma) {
+        long h = 0;
+        for (Node n : ma.getOnlineNodes()) {
+            h += node(n.id(), true);
+            for (VM v : ma.getRunningVMs(n)) {
+                h += vm(v.id(), RUNNING, n.id());
+            }
+            for (VM v : ma.getSleepingVMs(n)) {
+                h += vm(v.id(), SLEEPING, n.id());
+            }
+        }
+        for (Node n : ma.getOfflineNodes()) {
+            h += node(n.id(), false);
+        }
+        for (VM v : ma.getReadyVMs()) {
+            h += vm(v.id(), READY, -1);
+        }
+        return h;
+    }
+
+    /**
+     * Compute the fingerprint of attributes from scratch.
+     *
+     * @param attrs the attributes
+     * @return the fingerprint
+     */
+    public static long of(Attributes attrs) {
+        long h = 0;
+        for (Element e : attrs.getDefined()) {
+            for (String k : attrs.getKeys(e)) {
+                h += value(e, k, attrs.get(e, k));
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Compute the fingerprint of a model from the fingerprint of its mapping, its attributes and its views.
+     *
+     * @param mo the model
+     * @return the fingerprint
+     */
+    public static long of(Model mo) {
+        long h = entry(0, mo.getMapping().fingerprint(), mo.getAttributes().fingerprint());
+        for (ModelView v : mo.getViews()) {
+            h += mix(v.fingerprint());
+        }
+        return h;
+    }
+}
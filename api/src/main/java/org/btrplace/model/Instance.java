@@ -86,6 +86,23 @@ public class Instance {
         return opt;
     }
 
+    /**
+     * Get the fingerprint of the instance.
+     * It combines the fingerprint of the model with a hash of the constraints that
+     * does not depend on their order.
+     *
+     * @return a hash of the instance content
+     * @throws UnsupportedOperationException if a view does not provide a fingerprint
+     * @see Model#fingerprint()
+     */
+    public long fingerprint() {
+        long h = Fingerprints.entry(mo.fingerprint(), Objects.hashCode(opt), cstrs.size());
+        for (SatConstraint c : cstrs) {
+            h += Fingerprints.mix(c.hashCode());
+        }
+        return h;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
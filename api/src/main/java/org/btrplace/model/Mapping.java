@@ -272,6 +272,17 @@ public interface Mapping extends Copyable<Mapping> {
     int getNbVMs();
 
 
+    /**
+     * Get the fingerprint of the mapping.
+     * The default implementation browses the whole mapping.
+     *
+     * @return a hash of the mapping content
+     * @see Fingerprints
+     */
+    default long fingerprint() {
+        return Fingerprints.of(this);
+    }
+
     /**
      * Get the state of a VM
      *
@@ -99,4 +99,16 @@ public interface Model extends ElementBuilder {
      */
     @Override
     Model copy();
+
+    /**
+     * Get the fingerprint of the model.
+     * It combines the fingerprints of the mapping, the attributes and the views.
+     *
+     * @return a hash of the model content
+     * @throws UnsupportedOperationException if a view does not provide a fingerprint
+     * @see Fingerprints
+     */
+    default long fingerprint() {
+        return Fingerprints.of(this);
+    }
 }
@@ -86,6 +86,17 @@ public class ResourceCapacityChecker extends AllowAllConstraintChecker<ResourceC
         return true;
     }
 
+    @Override
+    public void end(MigrateVM a) {
+        super.end(a);
+        //The VM leaves the nodes once the migration is over
+        if (getConstraint().isContinuous() &&
+                getNodes().contains(a.getSourceNode()) &&
+                !getNodes().contains(a.getDestinationNode())) {
+            leave(rc.getConsumption(a.getVM()), a.getSourceNode());
+        }
+    }
+
     @Override
     public boolean start(ResumeVM a) {
         return arrive(rc.getConsumption(a.getVM()), a.getDestinationNode());
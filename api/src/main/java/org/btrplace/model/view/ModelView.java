@@ -45,4 +45,19 @@ public interface ModelView extends Copyable<ModelView> {
      * @return {@code true} iff the operation succeeded
      */
     boolean substituteVM(VM curId, VM nextId);
+
+    /**
+     * Get the fingerprint of the view.
+     * The fingerprint must change with any content that may alter a computed plan.
+     * Views that can be large should maintain their fingerprint incrementally.
+     * The default implementation does not know the content of the view so it does not
+     * provide any fingerprint.
+     *
+     * @return a hash of the view content
+     * @throws UnsupportedOperationException if the view does not provide a fingerprint
+     * @see org.btrplace.model.Fingerprints
+     */
+    default long fingerprint() {
+        throw new UnsupportedOperationException("View '" + getIdentifier() + "' does not provide a fingerprint");
+    }
 }
@@ -19,26 +19,39 @@
 package org.btrplace.model.view;
 
 import org.btrplace.model.Element;
+import org.btrplace.model.Fingerprints;
 import org.btrplace.model.Model;
 import org.btrplace.model.Node;
 import org.btrplace.model.VM;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
 import java.util.Set;
 import java.util.StringJoiner;
 
 /**
  * A simple service to name VMs or nodes.
  * For a given type of element, the name must be unique
+ * <p>
+ * The names are stored in an array indexed by the element identifiers while the
+ * lookup by name relies on an open-addressing table of element identifiers.
+ * A copy shares the storage with the original service until one of them is modified.
  *
  * @author Fabien Hermenier
  */
 public final class NamingService<E extends Element> implements ModelView {
 
-    private Map<String, E> resolve;
-    private Map<E, String> rev;
+    /**
+     * The registered names.
+     */
+    private Store store;
+
+    /**
+     * {@code true} if the store may be used by another service.
+     */
+    private boolean shared;
 
     /**
      * The root view identifier.
@@ -54,8 +67,8 @@ public final class NamingService<E extends Element> implements ModelView {
      * @param eId {@link VM#TYPE} or {@link Node#TYPE}
      */
     private NamingService(String eId) {
-        resolve = new HashMap<>();
-        rev = new HashMap<>();
+        store = new Store();
+        shared = false;
         this.elemId = eId;
     }
 
@@ -73,6 +86,19 @@ public final class NamingService<E extends Element> implements ModelView {
         return elemId;
     }
 
+    /**
+     * Get a store that can be modified.
+     *
+     * @return the store, copied if it was shared
+     */
+    private Store writable() {
+        if (shared) {
+            store = store.copy();
+            shared = false;
+        }
+        return store;
+    }
+
     /**
      * Register the name of an element.
      *
@@ -82,11 +108,10 @@ public final class NamingService<E extends Element> implements ModelView {
      * for another element
      */
     public boolean register(E e, String name) {
-        if (resolve.containsKey(name)) {
+        if (store.lookup(name) >= 0) {
             return false;
         }
-        resolve.put(name, e);
-        rev.put(e, name);
+        writable().put(e, name);
         return true;
     }
 
@@ -96,8 +121,10 @@ public final class NamingService<E extends Element> implements ModelView {
      * @param name the element name
      * @return the associated element if exists, {@code null} otherwise
      */
+    @SuppressWarnings("unchecked")
     public E resolve(String name) {
-        return resolve.get(name);
+        int id = store.lookup(name);
+        return id < 0 ? null : (E) store.elements[id];
     }
 
     /**
@@ -107,7 +134,7 @@ public final class NamingService<E extends Element> implements ModelView {
      * @return the element unique name if exists. {@code null} otherwise
      */
     public String resolve(E e) {
-        return rev.get(e);
+        return store.name(e.id());
     }
 
     /**
@@ -115,8 +142,15 @@ public final class NamingService<E extends Element> implements ModelView {
      *
      * @return a set of elements that may be empty.
      */
+    @SuppressWarnings("unchecked")
     public Set<E> getNamedElements() {
-        return rev.keySet();
+        Set<E> res = new LinkedHashSet<>(store.size * 4 / 3 + 1);
+        for (int id = 0; id < store.names.length; id++) {
+            if (store.names[id] != null) {
+                res.add((E) store.elements[id]);
+            }
+        }
+        return Collections.unmodifiableSet(res);
     }
 
     /**
@@ -130,16 +164,14 @@ public final class NamingService<E extends Element> implements ModelView {
     @Override
     public boolean substituteVM(VM curId, VM nextId) {
         if (VM.TYPE.equals(elemId)) {
-            if (rev.containsKey(nextId)) {
+            if (store.name(nextId.id()) != null) {
                 //the new id already exists. It is a failure scenario.
                 return false;
             }
 
-            String fqn = rev.remove(curId);
-            if (fqn != null) {
+            if (store.name(curId.id()) != null) {
                 //new resolution, with the substitution of the old one.
-                rev.put((E) nextId, fqn);
-                resolve.put(fqn, (E) nextId);
+                writable().move(curId.id(), nextId);
             }
         }
         return true;
@@ -156,32 +188,43 @@ public final class NamingService<E extends Element> implements ModelView {
 
         NamingService<?> that = (NamingService<?>) o;
 
-        return elemId.equals(that.elemId) && resolve.equals(that.resolve);
+        return elemId.equals(that.elemId) && store.sameNames(that.store);
     }
 
     @Override
     public NamingService<E> copy() {
         NamingService<E> cpy = new NamingService<>(elemId);
-        for (Map.Entry<String, E> e : resolve.entrySet()) {
-            cpy.resolve.put(e.getKey(), e.getValue());
-        }
-        for (Map.Entry<E, String> e : rev.entrySet()) {
-            cpy.rev.put(e.getKey(), e.getValue());
-        }
+        cpy.store = store;
+        cpy.shared = true;
+        shared = true;
         return cpy;
     }
 
 
     @Override
     public int hashCode() {
-        return resolve.hashCode();
+        //Similar to the hashcode of a map from names to elements
+        int h = 0;
+        for (int id = 0; id < store.names.length; id++) {
+            if (store.names[id] != null) {
+                h += store.names[id].hashCode() ^ store.elements[id].hashCode();
+            }
+        }
+        return h;
+    }
+
+    @Override
+    public long fingerprint() {
+        return Fingerprints.entry(elemId.hashCode(), hashCode(), 0);
     }
 
     @Override
     public String toString() {
         StringJoiner joiner = new StringJoiner(", ");
-        for (Entry<E, String> entry : rev.entrySet()) {
-            joiner.add(String.format("%s<->%s", entry.getKey(), entry.getValue()));
+        for (int id = 0; id < store.names.length; id++) {
+            if (store.names[id] != null) {
+                joiner.add(String.format("%s<->%s", store.elements[id], store.names[id]));
+            }
         }
         return joiner.toString();
     }
@@ -225,4 +268,150 @@ public final class NamingService<E extends Element> implements ModelView {
     public static NamingService<Node> getNodeNames(Model mo) {
         return (NamingService<Node>) mo.getView(ID + Node.TYPE);
     }
+
+    /**
+     * The storage of the names.
+     * Elements and names are indexed by the element identifiers.
+     * The lookup table stores the element identifiers shifted by one, {@code 0} denotes a free slot.
+     */
+    private static final class Store {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private Element[] elements;
+
+        private String[] names;
+
+        private int[] table;
+
+        /**
+         * The number of named elements.
+         */
+        private int size;
+
+        /**
+         * The number of used slots in the table.
+         */
+        private int used;
+
+        Store() {
+            elements = new Element[INITIAL_CAPACITY];
+            names = new String[INITIAL_CAPACITY];
+            table = new int[INITIAL_CAPACITY * 2];
+        }
+
+        private Store(Store s) {
+            elements = s.elements.clone();
+            names = s.names.clone();
+            table = s.table.clone();
+            size = s.size;
+            used = s.used;
+        }
+
+        Store copy() {
+            return new Store(this);
+        }
+
+        String name(int id) {
+            return id >= 0 && id < names.length ? names[id] : null;
+        }
+
+        private static int hash(String name) {
+            int h = name.hashCode();
+            return h ^ (h >>> 16);
+        }
+
+        /**
+         * Get the slot associated to a name.
+         *
+         * @return the slot of the name if registered. Otherwise, the free slot to use
+         */
+        private int slot(String name) {
+            int mask = table.length - 1;
+            int i = hash(name) & mask;
+            while (table[i] != 0 && !name.equals(names[table[i] - 1])) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        /**
+         * Get the element identifier associated to a name.
+         *
+         * @return the identifier. {@code -1} if the name is not registered
+         */
+        int lookup(String name) {
+            return table[slot(name)] - 1;
+        }
+
+        private void ensureCapacity(int id) {
+            if (id >= names.length) {
+                int capa = Math.max(id + 1, names.length * 2);
+                names = Arrays.copyOf(names, capa);
+                elements = Arrays.copyOf(elements, capa);
+            }
+        }
+
+        void put(Element e, String name) {
+            int id = e.id();
+            ensureCapacity(id);
+            if (names[id] == null) {
+                size++;
+            }
+            //A previous name of the element is no longer resolvable
+            names[id] = name;
+            elements[id] = e;
+            if ((used + 1) * 2 > table.length) {
+                rehash();
+            }
+            table[slot(name)] = id + 1;
+            used++;
+        }
+
+        void move(int cur, Element next) {
+            String name = names[cur];
+            //The slot of the name is reused
+            int i = slot(name);
+            names[cur] = null;
+            elements[cur] = null;
+            ensureCapacity(next.id());
+            names[next.id()] = name;
+            elements[next.id()] = next;
+            table[i] = next.id() + 1;
+        }
+
+        /**
+         * Rebuild the lookup table, with a larger capacity if needed.
+         */
+        private void rehash() {
+            int capa = table.length;
+            while ((size + 1) * 2 > capa) {
+                capa <<= 1;
+            }
+            table = new int[capa];
+            used = 0;
+            for (int id = 0; id < names.length; id++) {
+                if (names[id] != null) {
+                    table[slot(names[id])] = id + 1;
+                    used++;
+                }
+            }
+        }
+
+        boolean sameNames(Store o) {
+            if (o == this) {
+                return true;
+            }
+            if (size != o.size) {
+                return false;
+            }
+            int max = Math.max(names.length, o.names.length);
+            for (int id = 0; id < max; id++) {
+                if (!Objects.equals(name(id), o.name(id))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
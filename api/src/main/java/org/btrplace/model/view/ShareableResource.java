@@ -20,6 +20,7 @@ package org.btrplace.model.view;
 
 import gnu.trove.impl.Constants;
 import gnu.trove.map.hash.TObjectIntHashMap;
+import org.btrplace.model.Fingerprints;
 import org.btrplace.model.Model;
 import org.btrplace.model.Node;
 import org.btrplace.model.VM;
@@ -67,6 +68,11 @@ public class ShareableResource implements ModelView {
 
     private String rcId;
 
+    /**
+     * The fingerprint of the consumptions and the capacities, maintained incrementally.
+     */
+    private long fingerprint;
+
     public static final int DEFAULT_NO_VALUE = 0;
 
     /**
@@ -150,7 +156,9 @@ public class ShareableResource implements ModelView {
         if (val < 0) {
             throw new IllegalArgumentException(String.format("The '%s' consumption of VM '%s' must be >= 0", rcId, vm));
         }
+        long before = vmsConsumption.containsKey(vm) ? Fingerprints.value(vm, rcId, vmsConsumption.get(vm)) : 0;
         vmsConsumption.put(vm, val);
+        fingerprint += Fingerprints.value(vm, rcId, val) - before;
         return this;
     }
 
@@ -165,7 +173,9 @@ public class ShareableResource implements ModelView {
         if (val < 0) {
             throw new IllegalArgumentException(String.format("The '%s' capacity of node '%s' must be >= 0", rcId, n));
         }
+        long before = nodesCapacity.containsKey(n) ? Fingerprints.value(n, rcId, nodesCapacity.get(n)) : 0;
         nodesCapacity.put(n, val);
+        fingerprint += Fingerprints.value(n, rcId, val) - before;
         return this;
     }
 
@@ -175,7 +185,9 @@ public class ShareableResource implements ModelView {
      * @param vm the VM
      */
     public void unset(VM vm) {
-        vmsConsumption.remove(vm);
+        if (vmsConsumption.containsKey(vm)) {
+            fingerprint -= Fingerprints.value(vm, rcId, vmsConsumption.remove(vm));
+        }
     }
 
     /**
@@ -184,7 +196,9 @@ public class ShareableResource implements ModelView {
      * @param n the node
      */
     public void unset(Node n) {
-        nodesCapacity.remove(n);
+        if (nodesCapacity.containsKey(n)) {
+            fingerprint -= Fingerprints.value(n, rcId, nodesCapacity.remove(n));
+        }
     }
 
     /**
@@ -278,6 +292,15 @@ public class ShareableResource implements ModelView {
         return Objects.hash(rcId, vmsConsumption, nodesCapacity);
     }
 
+    /**
+     * {@inheritDoc}
+     * The fingerprint is maintained incrementally so this method runs in O(1).
+     */
+    @Override
+    public long fingerprint() {
+        return Fingerprints.entry(rcId.hashCode(), getDefaultCapacity(), getDefaultConsumption()) + fingerprint;
+    }
+
     @Override
     public ShareableResource copy() {
         ShareableResource rc = new ShareableResource(rcId, nodesCapacity.getNoEntryValue(), vmsConsumption.getNoEntryValue());
@@ -289,6 +312,7 @@ public class ShareableResource implements ModelView {
             rc.nodesCapacity.put(n, c);
             return true;
         });
+        rc.fingerprint = fingerprint;
         return rc;
     }
 
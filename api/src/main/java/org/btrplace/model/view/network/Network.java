@@ -18,6 +18,7 @@
 
 package org.btrplace.model.view.network;
 
+import org.btrplace.model.Fingerprints;
 import org.btrplace.model.Model;
 import org.btrplace.model.Node;
 import org.btrplace.model.PhysicalElement;
@@ -30,6 +31,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -49,11 +51,20 @@ public class Network implements ModelView {
     private SwitchBuilder swBuilder;
     private LinkBuilder lnBuilder;
 
+    /**
+     * The fingerprint of the switches and the links, maintained incrementally.
+     */
+    private long fingerprint;
+
     /**
      * The global view identifier, assuming that each model must contain a unique NetworkView
      */
     public static final String VIEW_ID = "NetworkView";
 
+    private static final int SWITCH_KIND = 3;
+
+    private static final int LINK_KIND = 4;
+
     /**
      * Make a new default instance that rely on a {@link DefaultRouting}, a {@link DefaultSwitchBuilder} and a
      * {@link DefaultLinkBuilder}.
@@ -139,7 +150,7 @@ public class Network implements ModelView {
      */
     public Switch newSwitch(int id, int capacity) {
         Switch s = swBuilder.newSwitch(id, capacity);
-        switches.add(s);
+        add(s);
         return s;
     }
 
@@ -151,7 +162,7 @@ public class Network implements ModelView {
      */
     public Switch newSwitch(int capacity) {
         Switch s = swBuilder.newSwitch(capacity);
-        switches.add(s);
+        add(s);
         return s;
     }
 
@@ -177,7 +188,7 @@ public class Network implements ModelView {
     public Link connect(int id, int bandwidth, Switch sw, PhysicalElement pe) {
         // Create a new link with a specific id
         Link link = lnBuilder.newLink(id, bandwidth, sw, pe);
-        links.add(link);
+        add(link);
         return link;
     }
 
@@ -193,7 +204,7 @@ public class Network implements ModelView {
     public Link connect(int bandwidth, Switch sw, PhysicalElement pe) {
         // Create a new link
         Link link = lnBuilder.newLink(bandwidth, sw, pe);
-        links.add(link);
+        add(link);
         return link;
     }
 
@@ -244,19 +255,19 @@ public class Network implements ModelView {
     /**
      * Get the full list of links
      *
-     * @return the list of links
+     * @return an unmodifiable list of links
      */
     public List<Link> getLinks() {
-        return links;
+        return Collections.unmodifiableList(links);
     }
 
     /**
      * Get the full list of switches
      *
-     * @return the list of switches
+     * @return an unmodifiable list of switches
      */
     public List<Switch> getSwitches() {
-        return switches;
+        return Collections.unmodifiableList(switches);
     }
 
     /**
@@ -451,6 +462,7 @@ public class Network implements ModelView {
         net.links.addAll(links);
         net.lnBuilder = lnBuilder.copy();
         net.swBuilder = swBuilder.copy();
+        net.fingerprint = fingerprint;
         return net;
     }
 
@@ -473,4 +485,33 @@ public class Network implements ModelView {
     public int hashCode() {
         return VIEW_ID.hashCode();
     }
+
+    /**
+     * {@inheritDoc}
+     * The fingerprint covers the switches, the links and their capacities, and the class of the routing.
+     * It is maintained incrementally so this method runs in O(1).
+     */
+    @Override
+    public long fingerprint() {
+        return Fingerprints.entry(VIEW_ID.hashCode(), routing.getClass().getName().hashCode(), links.size()) + fingerprint;
+    }
+
+    private void add(Switch s) {
+        switches.add(s);
+        fingerprint += Fingerprints.entry(SWITCH_KIND, s.id(), s.getCapacity());
+    }
+
+    private void add(Link l) {
+        links.add(l);
+        long ends = ((long) l.getSwitch().id() << 32) | (endpoint(l.getElement()) & 0xFFFFFFFFL);
+        fingerprint += Fingerprints.entry(((long) LINK_KIND << 32) | (l.id() & 0xFFFFFFFFL), l.getCapacity(), ends);
+    }
+
+    private static int endpoint(PhysicalElement pe) {
+        //Nodes and switches are numbered apart so their identifiers are tagged
+        if (pe instanceof Switch) {
+            return -((Switch) pe).id() - 1;
+        }
+        return pe instanceof Node ? ((Node) pe).id() : pe.hashCode();
+    }
 }
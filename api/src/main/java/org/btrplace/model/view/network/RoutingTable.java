@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.model.view.network;
+
+import org.btrplace.model.Node;
+import org.btrplace.model.PhysicalElement;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled routes of a network.
+ * <p>
+ * A breadth-first search is performed from every switch to get a shortest-path tree
+ * over the switches. A route between two nodes is then the link connecting the source node
+ * to its leaf switch, the path between the two leaf switches in the tree rooted at the source leaf,
+ * and the link connecting the destination leaf to the destination node. The trees are shared
+ * by all the node pairs having the same leaf switches so the memory footprint only depends on the
+ * number of switches.
+ * <p>
+ * Every hop is encoded as an int: the link index shifted by one bit, plus a direction bit
+ * that is set when the link is crossed from its element side to its switch side.
+ * The direction bit is interpreted like the historical boolean flag of {@link DefaultRouting}.
+ *
+ * @author Fabien Hermenier
+ */
+final class RoutingTable {
+
+    private static final int NONE = -1;
+
+    private final Network net;
+
+    private final Link[] links;
+
+    /**
+     * The main switch capacity for each link. {@link Integer#MAX_VALUE} if unbounded.
+     */
+    private final int[] swCapacity;
+
+    /**
+     * Node identifier to the hop going from the node to its leaf switch.
+     */
+    private final int[] nodeUp;
+
+    /**
+     * Node identifier to its leaf switch index.
+     */
+    private final int[] leaf;
+
+    /**
+     * For each root switch, the hop to reach every switch from its parent in the shortest-path tree.
+     */
+    private final int[][] parentHop;
+
+    /**
+     * For each root switch, the parent of every switch in the shortest-path tree.
+     */
+    private final int[][] parent;
+
+    private RoutingTable(Network net, Link[] links, int[] swCapacity, int[] nodeUp, int[] leaf,
+                         int[][] parentHop, int[][] parent) {
+        this.net = net;
+        this.links = links;
+        this.swCapacity = swCapacity;
+        this.nodeUp = nodeUp;
+        this.leaf = leaf;
+        this.parentHop = parentHop;
+        this.parent = parent;
+    }
+
+    /**
+     * Compile the routes of a network.
+     *
+     * @param net the network to compile
+     * @return the resulting table
+     */
+    static RoutingTable compile(Network net) {
+        List<Link> ls = net.getLinks();
+        Link[] links = ls.toArray(new Link[ls.size()]);
+        int[] swCapacity = new int[links.length];
+
+        // Index the switches
+        Map<Switch, Integer> swIdx = new HashMap<>();
+        for (Switch sw : net.getSwitches()) {
+            swIdx.putIfAbsent(sw, swIdx.size());
+        }
+        int maxNodeId = -1;
+        for (Link l : links) {
+            swIdx.putIfAbsent(l.getSwitch(), swIdx.size());
+            PhysicalElement pe = l.getElement();
+            if (pe instanceof Switch) {
+                swIdx.putIfAbsent((Switch) pe, swIdx.size());
+            } else if (pe instanceof Node) {
+                maxNodeId = Math.max(maxNodeId, ((Node) pe).id());
+            }
+        }
+        int nbSwitches = swIdx.size();
+
+        // Node uplinks and switch adjacency
+        int[] nodeUp = new int[maxNodeId + 1];
+        int[] leaf = new int[maxNodeId + 1];
+        Arrays.fill(nodeUp, NONE);
+        Arrays.fill(leaf, NONE);
+        List<List<Integer>> adj = new ArrayList<>(nbSwitches);
+        for (int i = 0; i < nbSwitches; i++) {
+            adj.add(new ArrayList<>());
+        }
+        for (int i = 0; i < links.length; i++) {
+            Link l = links[i];
+            int cap = l.getSwitch().getCapacity();
+            //The >= 0 stays for historical reasons
+            swCapacity[i] = cap >= 0 ? cap : Integer.MAX_VALUE;
+            int s = swIdx.get(l.getSwitch());
+            PhysicalElement pe = l.getElement();
+            if (pe instanceof Node) {
+                int nId = ((Node) pe).id();
+                // Only the first link of a node is used
+                if (nodeUp[nId] == NONE) {
+                    // From the node to the switch
+                    nodeUp[nId] = hop(i, true);
+                    leaf[nId] = s;
+                }
+            } else if (pe instanceof Switch) {
+                adj.get(s).add(i);
+                adj.get(swIdx.get(pe)).add(i);
+            }
+        }
+
+        // One BFS per switch
+        int[][] parentHop = new int[nbSwitches][];
+        int[][] parent = new int[nbSwitches][];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int root = 0; root < nbSwitches; root++) {
+            int[] ph = new int[nbSwitches];
+            int[] p = new int[nbSwitches];
+            Arrays.fill(ph, NONE);
+            Arrays.fill(p, NONE);
+            p[root] = root;
+            queue.add(root);
+            while (!queue.isEmpty()) {
+                int cur = queue.poll();
+                for (int li : adj.get(cur)) {
+                    Link l = links[li];
+                    int main = swIdx.get(l.getSwitch());
+                    int next = main == cur ? swIdx.get(l.getElement()) : main;
+                    if (p[next] == NONE) {
+                        p[next] = cur;
+                        // Crossed from the element side when the current switch is not the main one
+                        ph[next] = hop(li, main != cur);
+                        queue.add(next);
+                    }
+                }
+            }
+            parentHop[root] = ph;
+            parent[root] = p;
+        }
+        return new RoutingTable(net, links, swCapacity, nodeUp, leaf, parentHop, parent);
+    }
+
+    private static int hop(int link, boolean fromElement) {
+        return (link << 1) | (fromElement ? 1 : 0);
+    }
+
+    /**
+     * Check if the table is still valid for a given network.
+     *
+     * @param n the network
+     * @return {@code true} iff the table was compiled for that network and no links were added since
+     */
+    boolean isValidFor(Network n) {
+        return net == n && n.getLinks().size() == links.length;
+    }
+
+    private int upHop(Node n) {
+        int id = n.id();
+        return id >= 0 && id < nodeUp.length ? nodeUp[id] : NONE;
+    }
+
+    /**
+     * Check if there is a route between two distinct nodes.
+     */
+    private boolean routable(Node n1, Node n2) {
+        int u1 = upHop(n1);
+        int u2 = upHop(n2);
+        return u1 != NONE && u2 != NONE && parent[leaf[n1.id()]][leaf[n2.id()]] != NONE;
+    }
+
+    /**
+     * Get the number of hops between two nodes.
+     *
+     * @param n1 the source node
+     * @param n2 the destination node
+     * @return the number of links on the route. {@code 0} if there is no route
+     */
+    int length(Node n1, Node n2) {
+        if (n1.equals(n2) || !routable(n1, n2)) {
+            return 0;
+        }
+        int root = leaf[n1.id()];
+        int[] p = parent[root];
+        int nb = 2;
+        for (int s = leaf[n2.id()]; s != root; s = p[s]) {
+            nb++;
+        }
+        return nb;
+    }
+
+    /**
+     * Get the route between two nodes.
+     *
+     * @param n1 the source node
+     * @param n2 the destination node
+     * @return the ordered hops. An empty array if there is no route
+     */
+    int[] route(Node n1, Node n2) {
+        int nb = length(n1, n2);
+        int[] hops = new int[nb];
+        if (nb == 0) {
+            return hops;
+        }
+        int root = leaf[n1.id()];
+        int[] p = parent[root];
+        int[] ph = parentHop[root];
+        hops[0] = nodeUp[n1.id()];
+        // From the leaf switch to the destination node
+        hops[nb - 1] = nodeUp[n2.id()] & ~1;
+        int i = nb - 2;
+        for (int s = leaf[n2.id()]; s != root; s = p[s]) {
+            hops[i--] = ph[s];
+        }
+        return hops;
+    }
+
+    /**
+     * Get the route between two nodes as a list of links.
+     *
+     * @param n1 the source node
+     * @param n2 the destination node
+     * @return the ordered list of links. An empty list if there is no route
+     */
+    List<Link> getPath(Node n1, Node n2) {
+        int[] hops = route(n1, n2);
+        if (hops.length == 0) {
+            return Collections.emptyList();
+        }
+        List<Link> path = new ArrayList<>(hops.length);
+        for (int h : hops) {
+            path.add(link(h));
+        }
+        return path;
+    }
+
+    /**
+     * Get the link associated to a hop.
+     *
+     * @param hop the hop
+     * @return the link
+     */
+    Link link(int hop) {
+        return links[hop >>> 1];
+    }
+
+    /**
+     * Get the maximal bandwidth between two nodes.
+     * The lowest capacity among the crossed links and their main switch is retained.
+     *
+     * @param n1 the source node
+     * @param n2 the destination node
+     * @return the bandwidth. {@link Integer#MAX_VALUE} if there is no route
+     */
+    int getMaxBW(Node n1, Node n2) {
+        if (n1.equals(n2) || !routable(n1, n2)) {
+            return Integer.MAX_VALUE;
+        }
+        int root = leaf[n1.id()];
+        int[] p = parent[root];
+        int[] ph = parentHop[root];
+        int max = bw(Integer.MAX_VALUE, nodeUp[n1.id()]);
+        max = bw(max, nodeUp[n2.id()]);
+        for (int s = leaf[n2.id()]; s != root; s = p[s]) {
+            max = bw(max, ph[s]);
+        }
+        return max;
+    }
+
+    private int bw(int max, int hop) {
+        int li = hop >>> 1;
+        return Math.min(max, Math.min(links[li].getCapacity(), swCapacity[li]));
+    }
+
+    /**
+     * Get the direction of a link between two nodes.
+     *
+     * @param n1 the source node
+     * @param n2 the destination node
+     * @param l  the link
+     * @return the direction, {@link Routing.LinkDirection#NONE} if the link is not on the route
+     */
+    Routing.LinkDirection getLinkDirection(Node n1, Node n2, Link l) {
+        if (n1.equals(n2) || !routable(n1, n2)) {
+            return Routing.LinkDirection.NONE;
+        }
+        int h = nodeUp[n1.id()];
+        if (link(h).equals(l)) {
+            return direction(h);
+        }
+        h = nodeUp[n2.id()] & ~1;
+        if (link(h).equals(l)) {
+            return direction(h);
+        }
+        int root = leaf[n1.id()];
+        int[] p = parent[root];
+        int[] ph = parentHop[root];
+        for (int s = leaf[n2.id()]; s != root; s = p[s]) {
+            if (link(ph[s]).equals(l)) {
+                return direction(ph[s]);
+            }
+        }
+        return Routing.LinkDirection.NONE;
+    }
+
+    /**
+     * Get the direction of a hop.
+     *
+     * @param hop the hop
+     * @return the link direction
+     */
+    static Routing.LinkDirection direction(int hop) {
+        return (hop & 1) != 0 ? Routing.LinkDirection.DOWNLINK : Routing.LinkDirection.UPLINK;
+    }
+}
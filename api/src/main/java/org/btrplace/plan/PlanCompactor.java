@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.plan;
+
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.ActionVisitor;
+import org.btrplace.plan.event.Allocate;
+import org.btrplace.plan.event.AllocateEvent;
+import org.btrplace.plan.event.BootNode;
+import org.btrplace.plan.event.BootVM;
+import org.btrplace.plan.event.Event;
+import org.btrplace.plan.event.ForgeVM;
+import org.btrplace.plan.event.KillVM;
+import org.btrplace.plan.event.MigrateVM;
+import org.btrplace.plan.event.ResumeVM;
+import org.btrplace.plan.event.ShutdownNode;
+import org.btrplace.plan.event.ShutdownVM;
+import org.btrplace.plan.event.SubstitutedVMEvent;
+import org.btrplace.plan.event.SuspendVM;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Post-processing stage that left-shifts the actions of a reconfiguration plan.
+ * <p>
+ * Every action starts as soon as all the actions that ended before its original start
+ * have ended. The relative order between the actions is then preserved: an action that ended before
+ * another one started still does, simultaneous actions stay simultaneous, and actions that did
+ * not overlap do not overlap. The resource and the node state dependencies of the plan are
+ * consequently still satisfied while the idle periods are removed.
+ * <p>
+ * The compacted plan is checked against the constraints using a {@link ReconfigurationPlanChecker}
+ * and is only retained if it is valid.
+ *
+ * @author Fabien Hermenier
+ */
+public class PlanCompactor {
+
+    private final List<SatConstraint> cstrs;
+
+    /**
+     * New compactor.
+     *
+     * @param cstrs the constraints the compacted plans must satisfy
+     */
+    public PlanCompactor(Collection<? extends SatConstraint> cstrs) {
+        this.cstrs = new ArrayList<>(cstrs);
+    }
+
+    /**
+     * Compact a plan.
+     *
+     * @param p the plan to compact
+     * @return the compacted plan if it is valid. {@code p} if no action can be shifted or
+     * if the compacted plan is not applyable or violates a constraint
+     */
+    @SuppressWarnings("squid:S1166")
+    public ReconfigurationPlan compact(ReconfigurationPlan p) {
+        ReconfigurationPlan c = leftShift(p);
+        if (c == p || !c.isApplyable()) {
+            return p;
+        }
+        ReconfigurationPlanChecker chk = new ReconfigurationPlanChecker();
+        cstrs.forEach(s -> chk.addChecker(s.getChecker()));
+        try {
+            chk.check(c);
+        } catch (@SuppressWarnings("unused") SatConstraintViolationException ex) {
+            return p;
+        }
+        return c;
+    }
+
+    /**
+     * Left-shift the actions of a plan without any validation.
+     *
+     * @param p the plan to compact
+     * @return the compacted plan. {@code p} if no action can be shifted
+     */
+    public static ReconfigurationPlan leftShift(ReconfigurationPlan p) {
+        Action[] as = p.getActions().toArray(new Action[p.getSize()]);
+        Arrays.sort(as, Comparator.comparingInt(Action::getStart));
+        //The shifted ends
+        int[] ends = new int[as.length];
+        //The actions already shifted, by their original end
+        PriorityQueue<Integer> done = new PriorityQueue<>(Comparator.comparingInt(x -> as[x].getEnd()));
+        Action[] shifted = new Action[as.length];
+        boolean moved = false;
+        int earliest = 0;
+        int i = 0;
+        while (i < as.length) {
+            int st = as[i].getStart();
+            while (!done.isEmpty() && as[done.peek()].getEnd() <= st) {
+                earliest = Math.max(earliest, ends[done.poll()]);
+            }
+            int j = i;
+            for (; j < as.length && as[j].getStart() == st; j++) {
+                Action a = as[j];
+                ends[j] = earliest + a.getEnd() - st;
+                if (earliest == st) {
+                    shifted[j] = a;
+                } else {
+                    shifted[j] = Copier.copy(a, earliest, ends[j]);
+                    moved = true;
+                }
+            }
+            for (; i < j; i++) {
+                done.add(i);
+            }
+        }
+        if (!moved) {
+            return p;
+        }
+        ReconfigurationPlan res = new DefaultReconfigurationPlan(p.getOrigin());
+        res.setReconfigurationApplier(p.getReconfigurationApplier());
+        for (Action a : shifted) {
+            res.add(a);
+        }
+        return res;
+    }
+
+    /**
+     * Copy an action with another time period.
+     */
+    private static final class Copier implements ActionVisitor {
+
+        private final int start;
+
+        private final int end;
+
+        private Copier(int st, int ed) {
+            start = st;
+            end = ed;
+        }
+
+        static Action copy(Action a, int st, int ed) {
+            Action c = (Action) a.visit(new Copier(st, ed));
+            for (Action.Hook k : Action.Hook.values()) {
+                for (Event e : a.getEvents(k)) {
+                    c.addEvent(k, e);
+                }
+            }
+            return c;
+        }
+
+        @Override
+        public Object visit(Allocate a) {
+            return new Allocate(a.getVM(), a.getHost(), a.getResourceId(), a.getAmount(), start, end);
+        }
+
+        @Override
+        public Object visit(AllocateEvent a) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object visit(SubstitutedVMEvent a) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object visit(BootNode a) {
+            return new BootNode(a.getNode(), start, end);
+        }
+
+        @Override
+        public Object visit(BootVM a) {
+            return new BootVM(a.getVM(), a.getDestinationNode(), start, end);
+        }
+
+        @Override
+        public Object visit(ForgeVM a) {
+            return new ForgeVM(a.getVM(), start, end);
+        }
+
+        @Override
+        public Object visit(KillVM a) {
+            return new KillVM(a.getVM(), a.getNode(), start, end);
+        }
+
+        @Override
+        public Object visit(MigrateVM a) {
+            return new MigrateVM(a.getVM(), a.getSourceNode(), a.getDestinationNode(), start, end, a.getBandwidth());
+        }
+
+        @Override
+        public Object visit(ResumeVM a) {
+            return new ResumeVM(a.getVM(), a.getSourceNode(), a.getDestinationNode(), start, end);
+        }
+
+        @Override
+        public Object visit(ShutdownNode a) {
+            return new ShutdownNode(a.getNode(), start, end);
+        }
+
+        @Override
+        public Object visit(ShutdownVM a) {
+            return new ShutdownVM(a.getVM(), a.getNode(), start, end);
+        }
+
+        @Override
+        public Object visit(SuspendVM a) {
+            return new SuspendVM(a.getVM(), a.getSourceNode(), a.getDestinationNode(), start, end);
+        }
+    }
+}
@@ -23,6 +23,8 @@ import org.testng.annotations.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -187,4 +189,64 @@ public class DefaultAttributesTest {
         Assert.assertEquals(attrs.getKeys(mo.newVM()).size(), 0);
         Assert.assertEquals(attrs.getKeys(mo.newNode()).size(), 0);
     }
+
+    @Test
+    public void testBulkGet() {
+        Attributes attrs = new DefaultAttributes();
+        attrs.put(vms.get(0), "foo", 3);
+        attrs.put(vms.get(2), "foo", 5);
+        attrs.put(nodes.get(1), "foo", 7);
+        attrs.put(vms.get(1), "bar", 1.5);
+        List<Element> elems = Arrays.asList(vms.get(0), vms.get(1), vms.get(2), nodes.get(1));
+        Assert.assertEquals(attrs.get(elems, "foo", -1), new int[]{3, -1, 5, 7});
+        Assert.assertEquals(attrs.get(elems, "bar", 0.5), new double[]{0.5, 1.5, 0.5, 0.5});
+        Assert.assertEquals(attrs.get(elems, "baz", 2), new int[]{2, 2, 2, 2});
+    }
+
+    @Test(expectedExceptions = {ClassCastException.class})
+    public void testBadType() {
+        Attributes attrs = new DefaultAttributes();
+        attrs.put(vms.get(0), "foo", 1.5);
+        attrs.get(vms.get(0), "foo", 3);
+    }
+
+    @Test
+    public void testDefined() {
+        Attributes attrs = new DefaultAttributes();
+        attrs.put(vms.get(0), "foo", 1.5);
+        attrs.put(vms.get(0), "bar", "baz");
+        attrs.put(nodes.get(0), "foo", false);
+        Assert.assertEquals(attrs.getDefined(), new HashSet<>(Arrays.asList(vms.get(0), nodes.get(0))));
+        Assert.assertEquals(attrs.get(vms.get(0), "foo"), 1.5);
+        Assert.assertEquals(attrs.get(vms.get(0), "bar"), "baz");
+        Assert.assertEquals(attrs.get(nodes.get(0), "foo"), false);
+        Assert.assertTrue(attrs.toString().contains("<bar,\"baz\">"));
+        attrs.unset(vms.get(0), "foo");
+        attrs.unset(vms.get(0), "bar");
+        Assert.assertEquals(attrs.getDefined(), Collections.singleton(nodes.get(0)));
+    }
+
+    @Test(dependsOnMethods = {"testInstantiation"})
+    public void testVersion() {
+        Attributes attrs = new DefaultAttributes();
+        long v = attrs.version();
+        attrs.put(vms.get(0), "foo", 1);
+        Assert.assertNotEquals(attrs.version(), v);
+        v = attrs.version();
+        //Reads and no-op removals do not modify the attributes
+        attrs.get(vms.get(0), "foo", 0);
+        Assert.assertFalse(attrs.unset(vms.get(1), "foo"));
+        Assert.assertEquals(attrs.version(), v);
+        Assert.assertTrue(attrs.unset(vms.get(0), "foo"));
+        Assert.assertNotEquals(attrs.version(), v);
+        v = attrs.version();
+        attrs.put(nodes.get(0), "bar", true);
+        Assert.assertNotEquals(attrs.version(), v);
+        v = attrs.version();
+        attrs.clear(nodes.get(0));
+        Assert.assertNotEquals(attrs.version(), v);
+        v = attrs.version();
+        attrs.clear();
+        Assert.assertNotEquals(attrs.version(), v);
+    }
 }
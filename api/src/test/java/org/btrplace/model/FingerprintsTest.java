@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.model;
+
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.NamingService;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.model.view.network.Network;
+import org.btrplace.model.view.network.StaticRouting;
+import org.btrplace.model.view.network.Switch;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link Fingerprints}.
+ *
+ * @author Fabien Hermenier
+ */
+public class FingerprintsTest {
+
+    @Test
+    public void testIncrementalMapping() {
+        Model mo = new DefaultModel();
+        Mapping ma = mo.getMapping();
+        List<Node> ns = Util.newNodes(mo, 10);
+        List<VM> vms = Util.newVMs(mo, 50);
+        Assert.assertEquals(ma.fingerprint(), 0);
+        Random rnd = new Random(12);
+        for (int i = 0; i < 2000; i++) {
+            Node n = ns.get(rnd.nextInt(ns.size()));
+            VM v = vms.get(rnd.nextInt(vms.size()));
+            switch (rnd.nextInt(9)) {
+                case 0:
+                    ma.addOnlineNode(n);
+                    break;
+                case 1:
+                    ma.addOfflineNode(n);
+                    break;
+                case 2:
+                    ma.addRunningVM(v, n);
+                    break;
+                case 3:
+                    ma.addSleepingVM(v, n);
+                    break;
+                case 4:
+                    ma.addReadyVM(v);
+                    break;
+                case 5:
+                    ma.remove(v);
+                    break;
+                case 6:
+                    ma.remove(n);
+                    break;
+                case 7:
+                    if (rnd.nextInt(20) == 0) {
+                        ma.clearNode(n);
+                    }
+                    break;
+                default:
+                    if (rnd.nextInt(100) == 0) {
+                        ma.clearAllVMs();
+                    }
+                    break;
+            }
+            Assert.assertEquals(ma.fingerprint(), Fingerprints.of(ma));
+        }
+        Mapping cpy = ma.copy();
+        Assert.assertEquals(cpy.fingerprint(), ma.fingerprint());
+        ma.clear();
+        Assert.assertEquals(ma.fingerprint(), 0);
+        Assert.assertNotEquals(cpy.fingerprint(), 0);
+    }
+
+    @Test
+    public void testMappingContent() {
+        Model mo = new DefaultModel();
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        VM v0 = mo.newVM();
+        VM v1 = mo.newVM();
+        Mapping m1 = new DefaultMapping().on(n0, n1).run(n0, v0).run(n1, v1);
+        //Same content, other insertion order
+        Mapping m2 = new DefaultMapping().on(n1, n0).run(n1, v1).run(n0, v0);
+        Assert.assertEquals(m1.fingerprint(), m2.fingerprint());
+        //Swapping the hosts changes the fingerprint
+        Mapping m3 = new DefaultMapping().on(n0, n1).run(n0, v1).run(n1, v0);
+        Assert.assertNotEquals(m1.fingerprint(), m3.fingerprint());
+        m2.addSleepingVM(v0, n0);
+        Assert.assertNotEquals(m1.fingerprint(), m2.fingerprint());
+        m2.addRunningVM(v0, n0);
+        Assert.assertEquals(m1.fingerprint(), m2.fingerprint());
+    }
+
+    @Test
+    public void testIncrementalAttributes() {
+        Model mo = new DefaultModel();
+        List<Node> ns = Util.newNodes(mo, 5);
+        List<VM> vms = Util.newVMs(mo, 5);
+        Attributes attrs = mo.getAttributes();
+        Random rnd = new Random(7);
+        String[] keys = {"boot", "migrate", "name", "ratio"};
+        for (int i = 0; i < 1000; i++) {
+            Element e = rnd.nextBoolean() ? ns.get(rnd.nextInt(ns.size())) : vms.get(rnd.nextInt(vms.size()));
+            String k = keys[rnd.nextInt(keys.length)];
+            switch (rnd.nextInt(7)) {
+                case 0:
+                    attrs.put(e, k, rnd.nextInt(5));
+                    break;
+                case 1:
+                    attrs.put(e, k, rnd.nextInt(5) / 2.0);
+                    break;
+                case 2:
+                    attrs.put(e, k, "v" + rnd.nextInt(3));
+                    break;
+                case 3:
+                    attrs.put(e, k, rnd.nextBoolean());
+                    break;
+                case 4:
+                    attrs.unset(e, k);
+                    break;
+                case 5:
+                    if (rnd.nextInt(10) == 0) {
+                        attrs.clear(e);
+                    }
+                    break;
+                default:
+                    if (rnd.nextInt(200) == 0) {
+                        attrs.clear();
+                    }
+                    break;
+            }
+            Assert.assertEquals(attrs.fingerprint(), Fingerprints.of(attrs));
+        }
+        Assert.assertEquals(attrs.copy().fingerprint(), attrs.fingerprint());
+    }
+
+    @Test
+    public void testShareableResource() {
+        Model mo = new DefaultModel();
+        Node n0 = mo.newNode();
+        VM v0 = mo.newVM();
+        VM v1 = mo.newVM();
+        ShareableResource r1 = new ShareableResource("cpu", 8, 1);
+        ShareableResource r2 = new ShareableResource("cpu", 8, 1);
+        Assert.assertEquals(r1.fingerprint(), r2.fingerprint());
+        Assert.assertNotEquals(r1.fingerprint(), new ShareableResource("mem", 8, 1).fingerprint());
+        Assert.assertNotEquals(r1.fingerprint(), new ShareableResource("cpu", 7, 1).fingerprint());
+        r1.setConsumption(v0, 3).setConsumption(v1, 2).setCapacity(n0, 6);
+        r2.setCapacity(n0, 6).setConsumption(v1, 2).setConsumption(v0, 3);
+        Assert.assertEquals(r1.fingerprint(), r2.fingerprint());
+        r1.setConsumption(v0, 4);
+        Assert.assertNotEquals(r1.fingerprint(), r2.fingerprint());
+        Assert.assertEquals(r1.copy().fingerprint(), r1.fingerprint());
+        r1.setConsumption(v0, 3);
+        Assert.assertEquals(r1.fingerprint(), r2.fingerprint());
+        r1.unset(v1);
+        r1.unset(n0);
+        r2.unset(n0);
+        r2.unset(v1);
+        //Not defined anymore
+        r2.unset(v1);
+        Assert.assertEquals(r1.fingerprint(), r2.fingerprint());
+    }
+
+    @Test
+    public void testModelAndInstance() {
+        Model mo = new DefaultModel();
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        VM v0 = mo.newVM();
+        mo.getMapping().on(n0, n1).run(n0, v0);
+        ShareableResource rc = new ShareableResource("cpu", 4, 2);
+        mo.attach(rc);
+        mo.getAttributes().put(v0, "migrate", 5);
+
+        Model cpy = mo.copy();
+        Assert.assertEquals(cpy.fingerprint(), mo.fingerprint());
+        long fp = mo.fingerprint();
+        rc.setConsumption(v0, 3);
+        Assert.assertNotEquals(mo.fingerprint(), fp);
+        rc.unset(v0);
+        Assert.assertEquals(mo.fingerprint(), fp);
+        mo.getAttributes().put(v0, "migrate", 6);
+        Assert.assertNotEquals(mo.fingerprint(), fp);
+        mo.getAttributes().put(v0, "migrate", 5);
+        Assert.assertEquals(mo.fingerprint(), fp);
+        mo.detach(rc);
+        Assert.assertNotEquals(mo.fingerprint(), fp);
+        mo.attach(rc);
+
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.add(new Fence(v0, Collections.singleton(n1)));
+        cstrs.add(new Running(v0));
+        Instance i1 = new Instance(mo, cstrs, new MinMTTR());
+        Collections.reverse(cstrs);
+        Instance i2 = new Instance(cpy, cstrs, new MinMTTR());
+        Assert.assertEquals(i1.fingerprint(), i2.fingerprint());
+        Assert.assertNotEquals(new Instance(mo, cstrs.subList(0, 1), new MinMTTR()).fingerprint(), i1.fingerprint());
+    }
+
+    @Test
+    public void testNetwork() {
+        Model mo = new DefaultModel();
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        Network net1 = new Network();
+        Network net2 = new Network();
+        Assert.assertEquals(net1.fingerprint(), net2.fingerprint());
+        Switch s1 = net1.newSwitch(0, 1000);
+        net1.connect(100, s1, n0, n1);
+        Switch s2 = net2.newSwitch(0, 1000);
+        net2.connect(100, s2, n0, n1);
+        Assert.assertEquals(net1.fingerprint(), net2.fingerprint());
+        Assert.assertEquals(net1.copy().fingerprint(), net1.fingerprint());
+
+        //Other bandwidths
+        Network net3 = new Network();
+        net3.connect(200, net3.newSwitch(0, 1000), n0, n1);
+        Assert.assertNotEquals(net3.fingerprint(), net1.fingerprint());
+        //Other switch capacity
+        Network net4 = new Network();
+        net4.connect(100, net4.newSwitch(0, 500), n0, n1);
+        Assert.assertNotEquals(net4.fingerprint(), net1.fingerprint());
+        //Other routing
+        Network net5 = new Network(new StaticRouting());
+        net5.connect(100, net5.newSwitch(0, 1000), n0, n1);
+        Assert.assertNotEquals(net5.fingerprint(), net1.fingerprint());
+
+        //Other topology
+        long fp = net1.fingerprint();
+        net1.connect(100, net1.newSwitch(1, 1000), s1);
+        Assert.assertNotEquals(net1.fingerprint(), fp);
+
+        mo.attach(net2);
+        fp = mo.fingerprint();
+        net2.newSwitch(1, 1000);
+        Assert.assertNotEquals(mo.fingerprint(), fp);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testViewWithoutFingerprint() {
+        Model mo = new DefaultModel();
+        NamingService<VM> ns = NamingService.newVMNS();
+        mo.attach(ns);
+        long fp = mo.fingerprint();
+        ns.register(mo.newVM(), "vm0");
+        Assert.assertNotEquals(mo.fingerprint(), fp);
+        mo.attach(new ModelView() {
+            @Override
+            public String getIdentifier() {
+                return "opaque";
+            }
+
+            @Override
+            public boolean substituteVM(VM curId, VM nextId) {
+                return true;
+            }
+
+            @Override
+            public ModelView copy() {
+                return this;
+            }
+        });
+        mo.fingerprint();
+    }
+}
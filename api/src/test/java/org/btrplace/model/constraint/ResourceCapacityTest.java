@@ -146,4 +146,33 @@ public class ResourceCapacityTest {
         Assert.assertEquals(cc.isSatisfied(plan), true);
 
     }
+
+    @Test
+    public void testContinuousMigrationOut() {
+        Model mo = new DefaultModel();
+        List<Node> ns = Util.newNodes(mo, 3);
+        List<VM> vms = Util.newVMs(mo, 3);
+        Mapping map = mo.getMapping();
+        for (Node n : ns) {
+            map.addOnlineNode(n);
+        }
+        map.addRunningVM(vms.get(0), ns.get(0));
+        map.addRunningVM(vms.get(1), ns.get(1));
+        map.addReadyVM(vms.get(2));
+        ShareableResource rc = new ShareableResource("foo", 1, 1);
+        mo.attach(rc);
+
+        ResourceCapacity cc = new ResourceCapacity(new HashSet<>(Arrays.asList(ns.get(0), ns.get(1))), "foo", 2, true);
+        //2/2, then 1/2 once vm#0 left
+        ReconfigurationPlan plan = new DefaultReconfigurationPlan(mo);
+        plan.add(new MigrateVM(vms.get(0), ns.get(0), ns.get(2), 0, 1));
+        plan.add(new BootVM(vms.get(2), ns.get(1), 1, 2));
+        Assert.assertTrue(cc.isSatisfied(plan));
+
+        //3/2 as vm#0 is still there
+        plan = new DefaultReconfigurationPlan(mo);
+        plan.add(new MigrateVM(vms.get(0), ns.get(0), ns.get(2), 0, 1));
+        plan.add(new BootVM(vms.get(2), ns.get(1), 0, 1));
+        Assert.assertFalse(cc.isSatisfied(plan));
+    }
 }
@@ -96,6 +96,39 @@ public class NamingServiceTest {
         Assert.assertNotEquals(ns, ns2);
     }
 
+    @Test(dependsOnMethods = {"testRegisterAndGets", "testResolution", "testSubstitution"})
+    public void testSharedCopies() {
+        NamingService<VM> ns = NamingService.newVMNS();
+        Model mo = new DefaultModel();
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(ns.register(mo.newVM(), "foo.vm" + i));
+        }
+        NamingService<VM> cpy = ns.copy();
+        Assert.assertEquals(cpy, ns);
+        Assert.assertEquals(cpy.hashCode(), ns.hashCode());
+
+        //Modifying the copy does not alter the original
+        VM v = mo.newVM();
+        Assert.assertTrue(cpy.register(v, "bar.vm0"));
+        Assert.assertEquals(cpy.resolve("bar.vm0"), v);
+        Assert.assertNull(ns.resolve("bar.vm0"));
+        Assert.assertNull(ns.resolve(v));
+        Assert.assertNotEquals(cpy, ns);
+
+        //Modifying the original does not alter the copy
+        VM v2 = mo.newVM();
+        VM vm5 = ns.resolve("foo.vm5");
+        Assert.assertTrue(ns.substituteVM(vm5, v2));
+        Assert.assertEquals(ns.resolve("foo.vm5"), v2);
+        Assert.assertNull(ns.resolve(vm5));
+        Assert.assertEquals(cpy.resolve("foo.vm5"), vm5);
+        Assert.assertEquals(ns.getNamedElements().size(), 1000);
+        Assert.assertEquals(cpy.getNamedElements().size(), 1001);
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(cpy.resolve(cpy.resolve("foo.vm" + i)), "foo.vm" + i);
+        }
+    }
+
     @Test
     public void testGetViews() {
         Model mo = new DefaultModel();
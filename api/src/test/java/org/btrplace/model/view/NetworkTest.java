@@ -23,11 +23,13 @@ import org.btrplace.model.Model;
 import org.btrplace.model.Node;
 import org.btrplace.model.view.network.Link;
 import org.btrplace.model.view.network.Network;
+import org.btrplace.model.view.network.Routing;
 import org.btrplace.model.view.network.StaticRouting;
 import org.btrplace.model.view.network.Switch;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -69,6 +71,56 @@ public class NetworkTest {
         Assert.assertTrue(net.getRouting().getPath(n1, n2).containsAll(net.getLinks()));
     }
 
+    /**
+     * Test the default routing on a two-levels tree with a redundant core link.
+     */
+    @Test
+    public void defaultRoutingMultiLevelTest() {
+        Model mo = new DefaultModel();
+        Network net = new Network();
+        Switch core = net.newSwitch();
+        Switch s1 = net.newSwitch(500);
+        Switch s2 = net.newSwitch();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        Node n4 = mo.newNode();
+        Link l1 = net.connect(1000, s1, n1);
+        Link l2 = net.connect(1000, s1, n2);
+        Link l3 = net.connect(1000, s2, n3);
+        Link up1 = net.connect(300, core, s1);
+        Link up2 = net.connect(2000, core, s2);
+        mo.attach(net);
+
+        // Same leaf switch
+        Assert.assertEquals(net.getRouting().getPath(n1, n2), Arrays.asList(l1, l2));
+        Assert.assertEquals(net.getRouting().getMaxBW(n1, n2), 500);
+        Assert.assertEquals(net.getRouting().getLinkDirection(n1, n2, up1), Routing.LinkDirection.NONE);
+
+        // Through the core switch
+        Assert.assertEquals(net.getRouting().getPath(n1, n3), Arrays.asList(l1, up1, up2, l3));
+        Assert.assertEquals(net.getRouting().getPath(n3, n1), Arrays.asList(l3, up2, up1, l1));
+        Assert.assertEquals(net.getRouting().getMaxBW(n1, n3), 300);
+        Assert.assertEquals(net.getRouting().getLinkDirection(n1, n3, l1), Routing.LinkDirection.DOWNLINK);
+        Assert.assertEquals(net.getRouting().getLinkDirection(n1, n3, up1), Routing.LinkDirection.DOWNLINK);
+        Assert.assertEquals(net.getRouting().getLinkDirection(n1, n3, up2), Routing.LinkDirection.UPLINK);
+        Assert.assertEquals(net.getRouting().getLinkDirection(n1, n3, l3), Routing.LinkDirection.UPLINK);
+        Assert.assertEquals(net.getRouting().getLinkDirection(n3, n1, up1), Routing.LinkDirection.UPLINK);
+        Assert.assertEquals(net.getRouting().getLinkDirection(n1, n3, l2), Routing.LinkDirection.NONE);
+
+        // A shortcut makes the path shorter. n4 is not connected yet
+        Assert.assertTrue(net.getRouting().getPath(n1, n4).isEmpty());
+        Link shortcut = net.connect(100, s1, s2);
+        Link l4 = net.connect(1000, s2, n4);
+        Assert.assertEquals(net.getRouting().getPath(n1, n4), Arrays.asList(l1, shortcut, l4));
+        Assert.assertEquals(net.getRouting().getMaxBW(n1, n4), 100);
+        Assert.assertTrue(net.getRouting().getPath(n1, n1).isEmpty());
+
+        // The copy is compiled independently
+        Network cpy = (Network) net.copy();
+        Assert.assertEquals(cpy.getRouting().getPath(n1, n4), Arrays.asList(l1, shortcut, l4));
+    }
+
     /**
      * Test the static routing implementation.
      */
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.plan;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Online;
+import org.btrplace.model.constraint.Ready;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.AllocateEvent;
+import org.btrplace.plan.event.BootNode;
+import org.btrplace.plan.event.MigrateVM;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Unit tests for {@link PlanCompactor}.
+ *
+ * @author Fabien Hermenier
+ */
+public class PlanCompactorTest {
+
+    @Test
+    public void testLeftShift() {
+        Model mo = new DefaultModel();
+        Mapping ma = mo.getMapping();
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        VM vm0 = mo.newVM();
+        VM vm1 = mo.newVM();
+        ma.on(n0, n1).off(n2).run(n0, vm0, vm1);
+        mo.attach(new ShareableResource("cpu", 4, 2));
+
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        BootNode b = new BootNode(n2, 2, 5);
+        MigrateVM m1 = new MigrateVM(vm1, n0, n1, 3, 6);
+        //Needs n2 to be online
+        MigrateVM m0 = new MigrateVM(vm0, n0, n2, 7, 10, 100);
+        AllocateEvent ev = new AllocateEvent(vm0, "cpu", 3);
+        m0.addEvent(Action.Hook.POST, ev);
+        p.add(b);
+        p.add(m1);
+        p.add(m0);
+        Assert.assertEquals(p.getDuration(), 10);
+
+        List<SatConstraint> cstrs = Collections.singletonList(new Online(n2));
+        ReconfigurationPlan c = new PlanCompactor(cstrs).compact(p);
+        Assert.assertNotSame(c, p);
+        Assert.assertEquals(c.getSize(), 3);
+        Assert.assertEquals(c.getDuration(), 6);
+        Assert.assertTrue(c.getActions().contains(new BootNode(n2, 0, 3)));
+        Assert.assertTrue(c.getActions().contains(new MigrateVM(vm1, n0, n1, 0, 3)));
+        MigrateVM s0 = (MigrateVM) c.getActions().stream().filter(a -> a instanceof MigrateVM
+                && ((MigrateVM) a).getVM().equals(vm0)).findFirst().get();
+        Assert.assertEquals(s0.getStart(), 3);
+        Assert.assertEquals(s0.getEnd(), 6);
+        Assert.assertEquals(s0.getBandwidth(), 100);
+        Assert.assertEquals(s0.getEvents(Action.Hook.POST), Collections.singleton(ev));
+        Assert.assertEquals(c.getResult(), p.getResult());
+    }
+
+    @Test
+    public void testSimultaneousStayTogether() {
+        Model mo = new DefaultModel();
+        Mapping ma = mo.getMapping();
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        VM vm0 = mo.newVM();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        ma.on(n0, n1).run(n0, vm0, vm1, vm2);
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        p.add(new MigrateVM(vm0, n0, n1, 1, 4));
+        p.add(new MigrateVM(vm1, n0, n1, 2, 3));
+        p.add(new MigrateVM(vm2, n0, n1, 2, 6));
+        ReconfigurationPlan c = PlanCompactor.leftShift(p);
+        Assert.assertEquals(c.getActions(), new HashSet<>(Arrays.asList(new MigrateVM(vm0, n0, n1, 0, 3),
+                new MigrateVM(vm1, n0, n1, 0, 1),
+                new MigrateVM(vm2, n0, n1, 0, 4))));
+    }
+
+    @Test
+    public void testNothingToShift() {
+        Model mo = new DefaultModel();
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        VM vm0 = mo.newVM();
+        mo.getMapping().on(n0, n1).run(n0, vm0);
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        p.add(new MigrateVM(vm0, n0, n1, 0, 3));
+        Assert.assertSame(new PlanCompactor(Collections.emptyList()).compact(p), p);
+        Assert.assertEquals(PlanCompactor.leftShift(new DefaultReconfigurationPlan(mo)).getSize(), 0);
+    }
+
+    @Test
+    public void testInvalidCompaction() {
+        Model mo = new DefaultModel();
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        VM vm0 = mo.newVM();
+        mo.getMapping().on(n0, n1).run(n0, vm0);
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        p.add(new MigrateVM(vm0, n0, n1, 2, 5));
+        //The compacted plan violates the constraint, the original one is retained
+        ReconfigurationPlan c = new PlanCompactor(Collections.singletonList(new Ready(vm0))).compact(p);
+        Assert.assertSame(c, p);
+        Assert.assertEquals(PlanCompactor.leftShift(p).getDuration(), 3);
+    }
+}
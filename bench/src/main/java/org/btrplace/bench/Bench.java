@@ -18,10 +18,10 @@
 
 package org.btrplace.bench;
 
+import org.apache.commons.io.FileUtils;
 import org.btrplace.json.JSON;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.scheduler.SchedulerException;
-import org.btrplace.scheduler.UnstatableProblemException;
 import org.btrplace.scheduler.choco.ChocoScheduler;
 import org.btrplace.scheduler.choco.DefaultChocoScheduler;
 import org.btrplace.scheduler.choco.Parameters;
@@ -31,12 +31,23 @@ import org.kohsuke.args4j.CmdLineParser;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.StandardOpenOption.APPEND;
@@ -44,6 +55,13 @@ import static java.nio.file.StandardOpenOption.CREATE;
 
 /**
  * Simple benching tool.
+ * <p>
+ * Every instance is solved {@code warmup} times without being measured, then
+ * {@code repeat} times. With a list of instances, the instances are solved by a pool of workers,
+ * possibly in a dedicated JVM each. A summary of the measured durations ends the bench.
+ * With {@code --compare}, two CSV outputs are compared instead to detect the regressions.
+ * With {@code --serve}, a resident scheduler solves the instances it receives, see {@link Server}.
+ *
  * @author Fabien Hermenier
  */
 @SuppressWarnings("squid:S106")
@@ -54,6 +72,11 @@ public class Bench {
      */
     public static final String SCHEDULER_STATS = "scheduler.csv";
 
+    /**
+     * The exit code when the comparison of CSV files reveals regressions.
+     */
+    public static final int REGRESSION_EXIT_CODE = 2;
+
     private static Options opts;
     private Bench() {
     }
@@ -78,52 +101,180 @@ public class Bench {
             System.exit(1);
         }
 
+        if (opts.compare() != null) {
+            if (!compare(opts.compare())) {
+                System.exit(REGRESSION_EXIT_CODE);
+            }
+            return;
+        }
+
+        if (opts.serve()) {
+            serve();
+            return;
+        }
+
         Runtime runtime = Runtime.getRuntime();
         int mb = 1024 * 1024;
         out(1, "Total Memory: %d%n", runtime.totalMemory() / mb);
         out(1, "Max Memory: %d%n", runtime.maxMemory() / mb);
 
-        Parameters ps = opts.parameters();
+        if (opts.single()) {
+            LabelledInstance i = Options.instance(opts.files().findFirst().orElseThrow(IllegalStateException::new));
+            Parameters ps = opts.parameters();
+            for (int x = 0; x < opts.warmup(); x++) {
+                solve(i, ps);
+            }
+            for (int x = 0; x < opts.repeat(); x++) {
+                out(0, "%s%n", solve(i, ps).getStatistics());
+            }
+            return;
+        }
+        List<Measure> measures = batch();
+        if (!measures.isEmpty()) {
+            out(0, "%s", Summary.of(measures));
+        }
+    }
 
-        Iterator<LabelledInstance> ite = opts.instances().iterator();
-        while (ite.hasNext()) {
-            LabelledInstance i = ite.next();
-            solve(i, ps);
+    /**
+     * Run a resident scheduler.
+     * The standard output is reserved to the responses so the messages go to the standard error.
+     */
+    private static void serve() throws IOException {
+        Server s = new Server(opts.parameters(), opts.cache());
+        if (opts.port() < 0) {
+            s.serve(new InputStreamReader(System.in, UTF_8), new OutputStreamWriter(System.out, UTF_8));
+            return;
+        }
+        try (ServerSocket ss = Server.bind(opts.port())) {
+            System.err.printf("Listening on %s:%d%n", ss.getInetAddress().getHostAddress(), ss.getLocalPort());
+            s.serve(ss);
         }
     }
 
-    private static void solve(LabelledInstance i, Parameters ps) throws IOException {
-        ChocoScheduler s = new DefaultChocoScheduler().setParameters(ps);
-        String status = "OK";
+    private static boolean compare(String[] files) throws IOException {
+        if (files.length != 2) {
+            throw new IllegalArgumentException("Expecting a baseline and a candidate CSV file");
+        }
+        List<String> regressions = Comparison.regressions(Paths.get(files[0]), Paths.get(files[1]), opts.threshold());
+        if (regressions.isEmpty()) {
+            out(0, "No regressions%n");
+            return true;
+        }
+        for (String r : regressions) {
+            out(0, "%s%n", r);
+        }
+        return false;
+    }
+
+    /**
+     * Solve the listed instances using a pool of workers.
+     *
+     * @return the measures, by instance order
+     */
+    private static List<Measure> batch() throws IOException {
+        File output = opts.output();
+        ExecutorService exe = Executors.newFixedThreadPool(opts.workers());
+        List<Future<List<Measure>>> futures = new ArrayList<>();
         try {
-            s.solve(i);
-        } catch (@SuppressWarnings("unused") UnstatableProblemException ex) {
-            status = "TO";
-        } catch (@SuppressWarnings("unused") SchedulerException ex) {
-            status = "FAIL";
+            opts.files().forEach(f -> futures.add(exe.submit(() -> opts.fork() ? fork(f, output) : bench(f, output))));
+            List<Measure> measures = new ArrayList<>();
+            for (Future<List<Measure>> f : futures) {
+                measures.addAll(f.get());
+            }
+            return measures;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        } finally {
+            exe.shutdownNow();
         }
-        if (opts.single()) {
-            out(0, "%s%n", s.getStatistics());
-        } else {
-            SolvingStatistics stats = s.getStatistics();
-            if (stats.getSolutions().isEmpty()) {
-                status = "KO*";
+    }
+
+    /**
+     * Solve an instance in the current JVM.
+     */
+    private static List<Measure> bench(File f, File output) throws IOException {
+        LabelledInstance i = Options.instance(f);
+        Parameters ps = opts.parameters();
+        for (int x = 0; x < opts.warmup(); x++) {
+            solve(i, ps);
+        }
+        List<Measure> measures = new ArrayList<>();
+        for (int x = 0; x < opts.repeat(); x++) {
+            SolvingStatistics stats = solve(i, ps).getStatistics();
+            Measure m = store(i, stats, output);
+            if (opts.verbosity() == 0) {
+                out(0, "%s: %s%n", i.label, m.status());
             } else {
-                status = "OK";
-                if (stats.completed()) {
-                    status += "*";
+                out(1, "----- %s -----%n%s%n%n", i.label, stats);
+            }
+            measures.add(m);
+        }
+        return measures;
+    }
+
+    /**
+     * Solve an instance in a dedicated JVM.
+     * The forked JVM stores its results in a temporary folder that are then moved
+     * to the output folder.
+     */
+    private static List<Measure> fork(File f, File output) throws IOException, InterruptedException {
+        Path tmp = Files.createTempDirectory("bench");
+        try {
+            Path list = tmp.resolve("instances");
+            Files.write(list, Collections.singletonList(f.getAbsolutePath()), UTF_8);
+            Path res = tmp.resolve("output");
+            List<String> cmd = new ArrayList<>();
+            cmd.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            //Same heap settings
+            for (String a : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+                if (a.startsWith("-Xm")) {
+                    cmd.add(a);
                 }
             }
-            if (opts.verbosity() == 0) {
-                out(0, "%s: %s%n", i.label, status);
-            } else {
-                out(1, "----- %s -----%n", i.label);
-                out(1, "%s%n", stats);
-                out(1, "%n");
+            cmd.add("-cp");
+            cmd.add(System.getProperty("java.class.path"));
+            cmd.add(Bench.class.getName());
+            cmd.addAll(opts.solverArguments());
+            cmd.addAll(Arrays.asList("-l", list.toString(), "-o", res.toString(),
+                    "-w", Integer.toString(opts.warmup()), "-n", Integer.toString(opts.repeat()), "-v", "0"));
+            Path log = tmp.resolve("log");
+            Process p = new ProcessBuilder(cmd).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+            int code = p.waitFor();
+            if (code != 0) {
+                throw new IOException("Forked JVM for '" + f + "' exited with code " + code + ":\n"
+                        + new String(Files.readAllBytes(log), UTF_8));
             }
-            File output = opts.output();
-            store(i, stats, output);
+            List<Measure> measures = new ArrayList<>();
+            for (String line : Files.readAllLines(res.resolve(SCHEDULER_STATS), UTF_8)) {
+                Measure m = Measure.parse(line);
+                Path plan = toFile(res.toFile(), m.id).toPath();
+                if (plan.toFile().exists()) {
+                    Files.move(plan, toFile(output, m.id).toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                append(output, m.toString());
+                out(0, "%s: %s%n", m.label, m.status());
+                measures.add(m);
+            }
+            return measures;
+        } finally {
+            FileUtils.deleteDirectory(tmp.toFile());
+        }
+    }
+
+    private static ChocoScheduler solve(LabelledInstance i, Parameters ps) {
+        ChocoScheduler s = new DefaultChocoScheduler().setParameters(ps);
+        try {
+            s.solve(i);
+        } catch (@SuppressWarnings("unused") SchedulerException ex) {
+            //The statistics tell the problem was not solved
         }
+        return s;
     }
 
     private static void out(int lvl, String fmt, Object... args) {
@@ -131,24 +282,30 @@ public class Bench {
             System.out.printf(fmt, args);
         }
     }
-    private static void store(LabelledInstance i, SolvingStatistics stats, File base) throws IOException {
+
+    private static Measure store(LabelledInstance i, SolvingStatistics stats, File base) throws IOException {
         Files.createDirectories(base.toPath());
         //Stats about the solving process
-        Path p = Paths.get(base.getAbsolutePath(), SCHEDULER_STATS);
         UUID id = uniqueFile(base);
-        StringBuilder line = new StringBuilder(id.toString()).append(";").append(i.label).append(";").append(stats.toCSV());
-        Files.write(p, Collections.singletonList(line), UTF_8, CREATE, APPEND);
+        String line = id.toString() + ";" + i.label + ";" + stats.toCSV();
         ReconfigurationPlan best = stats.lastSolution();
 
         //The resulting plan
         if (best != null) {
-            File f = toFile(base, id);
+            File f = toFile(base, id.toString());
             JSON.write(best, f);
         }
+        append(base, line);
+        return Measure.parse(line);
+    }
+
+    private static synchronized void append(File base, String line) throws IOException {
+        Path p = Paths.get(base.getAbsolutePath(), SCHEDULER_STATS);
+        Files.write(p, Collections.singletonList(line), UTF_8, CREATE, APPEND);
     }
 
-    private static File toFile(File root, UUID id) {
-        return new File(root.getAbsolutePath() + File.separator + id.toString() + ".gz");
+    private static File toFile(File root, String id) {
+        return new File(root.getAbsolutePath() + File.separator + id + ".gz");
     }
 
     private static UUID uniqueFile(File base) {
@@ -156,7 +313,7 @@ public class Bench {
         File f;
         do {
             u = UUID.randomUUID();
-            f = toFile(base, u);
+            f = toFile(base, u.toString());
         } while (f.exists());
         return u;
     }
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compare two CSV outputs of the bench to detect regressions.
+ * <p>
+ * The measures are grouped by instance label and the median duration of every phase is compared.
+ * An instance regresses when one of its median durations exceeds the baseline by more than a given
+ * percentage, or when it had a solution in the baseline but not anymore.
+ * As durations are measured in milliseconds, a null baseline duration is considered to be 1 ms.
+ * The instances that are missing in one of the outputs are ignored.
+ *
+ * @author Fabien Hermenier
+ */
+public final class Comparison {
+
+    private static final String[] PHASES = {"build", "specialisation", "solving"};
+
+    private Comparison() {
+    }
+
+    /**
+     * Read the measures stored in a CSV file.
+     *
+     * @param csv the file to read
+     * @return the measures, grouped by instance label in the file order
+     * @throws IOException if the file cannot be read
+     */
+    public static Map<String, List<Measure>> read(Path csv) throws IOException {
+        Map<String, List<Measure>> res = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(csv, UTF_8)) {
+            if (!line.trim().isEmpty()) {
+                Measure m = Measure.parse(line);
+                res.computeIfAbsent(m.label, k -> new ArrayList<>()).add(m);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Compare two CSV files.
+     *
+     * @param baseline  the reference file
+     * @param candidate the file to check
+     * @param threshold the tolerated slowdown, in percent
+     * @return a description of every regression. An empty list if there is none
+     * @throws IOException if a file cannot be read
+     */
+    public static List<String> regressions(Path baseline, Path candidate, double threshold) throws IOException {
+        Map<String, List<Measure>> base = read(baseline);
+        Map<String, List<Measure>> cand = read(candidate);
+        List<String> res = new ArrayList<>();
+        for (Map.Entry<String, List<Measure>> e : base.entrySet()) {
+            List<Measure> c = cand.get(e.getKey());
+            if (c == null) {
+                continue;
+            }
+            String label = e.getKey();
+            if (solved(e.getValue()) && !solved(c)) {
+                res.add(String.format("%s: no longer solved", label));
+            }
+            long[] b = medians(e.getValue());
+            long[] m = medians(c);
+            for (int i = 0; i < PHASES.length; i++) {
+                if (m[i] > Math.max(1, b[i]) * (1 + threshold / 100)) {
+                    res.add(String.format("%s: %s %d ms -> %d ms", label, PHASES[i], b[i], m[i]));
+                }
+            }
+        }
+        return res;
+    }
+
+    private static boolean solved(List<Measure> ms) {
+        return ms.stream().anyMatch(m -> m.nbSolutions > 0);
+    }
+
+    private static long[] medians(List<Measure> ms) {
+        return new long[]{
+                Summary.median(ms.stream().mapToLong(m -> m.build).toArray()),
+                Summary.median(ms.stream().mapToLong(m -> m.specialisation).toArray()),
+                Summary.median(ms.stream().mapToLong(m -> m.solving).toArray())
+        };
+    }
+}
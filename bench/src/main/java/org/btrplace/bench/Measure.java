@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.bench;
+
+import java.util.Arrays;
+
+/**
+ * A measured solving process, as stored in a line of the CSV output.
+ * <p>
+ * A line is made of the plan identifier, the instance label, then the fields of
+ * {@link org.btrplace.scheduler.choco.runner.SolvingStatistics#toCSV()}, all separated by a ';'.
+ *
+ * @author Fabien Hermenier
+ */
+public class Measure {
+
+    /**
+     * The number of trailing fields provided by the solving statistics.
+     */
+    private static final int STATS_FIELDS = 6;
+
+    /**
+     * The identifier of the resulting plan file.
+     */
+    public final String id;
+
+    /**
+     * The instance label.
+     */
+    public final String label;
+
+    /**
+     * The number of VMs managed by the scheduler.
+     */
+    public final int nbManagedVMs;
+
+    /**
+     * The duration of the core problem build, in milliseconds.
+     */
+    public final long build;
+
+    /**
+     * The duration of the problem specialisation, in milliseconds.
+     */
+    public final long specialisation;
+
+    /**
+     * The solving duration, in milliseconds.
+     */
+    public final long solving;
+
+    /**
+     * The number of computed solutions.
+     */
+    public final int nbSolutions;
+
+    /**
+     * {@code true} if the search completed.
+     */
+    public final boolean completed;
+
+    /**
+     * New measure.
+     *
+     * @param id             the plan identifier
+     * @param label          the instance label
+     * @param nbManagedVMs   the number of managed VMs
+     * @param build          the core problem build duration
+     * @param specialisation the specialisation duration
+     * @param solving        the solving duration
+     * @param nbSolutions    the number of solutions
+     * @param completed      {@code true} if the search completed
+     */
+    public Measure(String id, String label, int nbManagedVMs, long build, long specialisation, long solving, int nbSolutions, boolean completed) {
+        this.id = id;
+        this.label = label;
+        this.nbManagedVMs = nbManagedVMs;
+        this.build = build;
+        this.specialisation = specialisation;
+        this.solving = solving;
+        this.nbSolutions = nbSolutions;
+        this.completed = completed;
+    }
+
+    /**
+     * Parse a CSV line.
+     *
+     * @param line the line to parse
+     * @return the resulting measure
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    public static Measure parse(String line) {
+        String[] fs = line.split(";");
+        int n = fs.length;
+        if (n < STATS_FIELDS + 2) {
+            throw new IllegalArgumentException("Malformed line '" + line + "'");
+        }
+        try {
+            return new Measure(fs[0],
+                    String.join(";", Arrays.copyOfRange(fs, 1, n - STATS_FIELDS)),
+                    Integer.parseInt(fs[n - 6]),
+                    Long.parseLong(fs[n - 5]),
+                    Long.parseLong(fs[n - 4]),
+                    Long.parseLong(fs[n - 3]),
+                    Integer.parseInt(fs[n - 2]),
+                    "1".equals(fs[n - 1]));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Malformed line '" + line + "'", ex);
+        }
+    }
+
+    /**
+     * Get the total duration.
+     *
+     * @return the sum of the build, specialisation and solving durations
+     */
+    public long total() {
+        return build + specialisation + solving;
+    }
+
+    /**
+     * Get the solving status.
+     *
+     * @return {@code KO*} if there is no solution. {@code OK} otherwise, followed by {@code *} if the search completed
+     */
+    public String status() {
+        if (nbSolutions == 0) {
+            return "KO*";
+        }
+        return completed ? "OK*" : "OK";
+    }
+
+    @Override
+    public String toString() {
+        return id + ";" + label + ";" + nbManagedVMs + ";" + build + ";" + specialisation + ";" + solving + ";" + nbSolutions + ";" + (completed ? 1 : 0);
+    }
+}
@@ -23,13 +23,16 @@ import org.btrplace.scheduler.choco.DefaultParameters;
 import org.btrplace.scheduler.choco.Parameters;
 import org.chocosolver.memory.EnvironmentBuilder;
 import org.kohsuke.args4j.Option;
+import org.kohsuke.args4j.spi.StringArrayOptionHandler;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.stream.Stream;
 
 /**
@@ -64,6 +67,35 @@ public class Options {
     @Option(name = "-v", usage = "Set the verbosity level. With '-i' it controls the solver verbosity. With '-l' the bench progress")
     private int verbosity = 0;
 
+    @Option(name = "-w", aliases = "--warmup", usage = "The number of unmeasured runs per instance, before the measured ones")
+    private int warmup = 0;
+
+    @Option(name = "-n", aliases = "--repeat", usage = "The number of measured runs per instance")
+    private int repeat = 1;
+
+    @Option(name = "-p", aliases = "--workers", usage = "The number of instances solved in parallel", depends = {"-l"})
+    private int workers = 1;
+
+    @Option(name = "-f", aliases = "--fork", usage = "Solve every instance in a dedicated JVM", depends = {"-l"})
+    private boolean fork = false;
+
+    @Option(name = "--compare", usage = "Compare a baseline CSV file with a candidate CSV file", forbids = {"-i", "-l"},
+            handler = StringArrayOptionHandler.class, metaVar = "BASELINE CANDIDATE")
+    private String[] compare;
+
+    @Option(name = "--threshold", usage = "The tolerated slowdown in percent when comparing CSV files", depends = {"--compare"})
+    private double threshold = 10;
+
+    @Option(name = "--serve", usage = "Solve the JSON instances received one per line on the standard input, or on '--port'",
+            forbids = {"-i", "-l", "--compare"})
+    private boolean serve = false;
+
+    @Option(name = "--port", usage = "The local port to listen to in server mode", depends = {"--serve"})
+    private int port = -1;
+
+    @Option(name = "--cache", usage = "The number of plans to cache in server mode", depends = {"--serve"})
+    private int cache = 0;
+
     /**
      * Get the parameters from the options.
      *
@@ -84,6 +116,108 @@ public class Options {
         return ps;
     }
 
+    /**
+     * Get the arguments that reproduce the solver tuning.
+     *
+     * @return a list of CLI arguments
+     */
+    public List<String> solverArguments() {
+        List<String> args = new ArrayList<>();
+        if (repair) {
+            args.add("-r");
+        }
+        if (optimize) {
+            args.add("-m");
+        }
+        if (chunk) {
+            args.add("-c");
+        }
+        args.add("-t");
+        args.add(Integer.toString(timeout));
+        return args;
+    }
+
+    /**
+     * Get the number of unmeasured runs per instance.
+     *
+     * @return a positive number
+     */
+    public int warmup() {
+        return Math.max(0, warmup);
+    }
+
+    /**
+     * Get the number of measured runs per instance.
+     *
+     * @return a number greater than 0
+     */
+    public int repeat() {
+        return Math.max(1, repeat);
+    }
+
+    /**
+     * Get the number of instances to solve in parallel.
+     *
+     * @return a number greater than 0
+     */
+    public int workers() {
+        return Math.max(1, workers);
+    }
+
+    /**
+     * Check if every instance must be solved in a dedicated JVM.
+     *
+     * @return {@code true} to fork a JVM per instance
+     */
+    public boolean fork() {
+        return fork;
+    }
+
+    /**
+     * Get the CSV files to compare.
+     *
+     * @return the baseline then the candidate file. {@code null} if no comparison is asked
+     */
+    public String[] compare() {
+        return compare;
+    }
+
+    /**
+     * Get the tolerated slowdown when comparing CSV files.
+     *
+     * @return a percentage
+     */
+    public double threshold() {
+        return threshold;
+    }
+
+    /**
+     * Check if the bench runs in server mode.
+     *
+     * @return {@code true} to solve the instances received in JSON
+     */
+    public boolean serve() {
+        return serve;
+    }
+
+    /**
+     * Get the port to listen to in server mode.
+     *
+     * @return the port number. A negative number to use the standard input and output instead
+     */
+    public int port() {
+        return port;
+    }
+
+    /**
+     * Get the number of plans to cache in server mode.
+     *
+     * @return a positive number. {@code 0} to disable the cache
+     */
+    public int cache() {
+        return Math.max(0, cache);
+    }
+
     /**
      * Get the verbosity
      *
@@ -108,13 +242,22 @@ public class Options {
      * @throws IOException if it was not possible to get all the instances
      */
     public Stream<LabelledInstance> instances() throws IOException {
+        return files().map(Options::instance);
+    }
+
+    /**
+     * List the files of the instances to solve.
+     * @return a list of files
+     * @throws IOException if it was not possible to read the list of instances
+     */
+    public Stream<File> files() throws IOException {
         if (single()) {
-            return Collections.singletonList(instance(new File(instance))).stream();
+            return Collections.singletonList(new File(instance)).stream();
         }
 
         @SuppressWarnings("resource")
         Stream<String> s = Files.lines(Paths.get(instances), StandardCharsets.UTF_8);
-        return s.map(x -> instance(new File(x)));
+        return s.filter(x -> !x.trim().isEmpty()).map(File::new);
     }
 
 
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.bench;
+
+import net.minidev.json.JSONObject;
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.model.InstanceConverter;
+import org.btrplace.json.plan.ReconfigurationPlanConverter;
+import org.btrplace.model.Instance;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultChocoScheduler;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.runner.Metrics;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A resident scheduler that solves the instances it receives.
+ * <p>
+ * The scheduler and the JSON converters are created once and kept between the requests
+ * so the class loading, the JIT compilation and the constraint mapping are only paid once.
+ * A request is an instance serialised in JSON on a single line. Every request gets a response
+ * on a single line as well: a JSON object with the request number ({@code id}), the resulting
+ * plan ({@code plan}, {@code null} if there is no solution), the solving statistics
+ * ({@code statistics}), the processing duration in milliseconds ({@code duration}) and a possible
+ * {@code error} message.
+ * <p>
+ * The requests are read either from a stream or from the connections of a socket bound to the loopback
+ * interface. The requests are solved one at a time, whatever the number of connections.
+ *
+ * @author Fabien Hermenier
+ */
+public class Server {
+
+    private final DefaultChocoScheduler scheduler;
+
+    private final InstanceConverter instanceConverter;
+
+    private final ReconfigurationPlanConverter planConverter;
+
+    private long served;
+
+    /**
+     * New server.
+     *
+     * @param ps        the solver parameters
+     * @param cacheSize the number of plans to cache. {@code 0} to disable the cache
+     */
+    public Server(Parameters ps, int cacheSize) {
+        scheduler = new DefaultChocoScheduler(ps);
+        scheduler.setSolutionCacheSize(cacheSize);
+        instanceConverter = new InstanceConverter();
+        planConverter = new ReconfigurationPlanConverter();
+    }
+
+    /**
+     * Get the number of requests processed so far.
+     *
+     * @return a positive number
+     */
+    public synchronized long served() {
+        return served;
+    }
+
+    /**
+     * Process a request.
+     *
+     * @param request the instance, in JSON
+     * @return the response, in JSON, on a single line
+     */
+    public synchronized String process(String request) {
+        long st = System.currentTimeMillis();
+        JSONObject res = new JSONObject();
+        res.put("id", ++served);
+        try {
+            Instance i = instanceConverter.fromJSON(request);
+            ReconfigurationPlan p = null;
+            try {
+                p = scheduler.solve(i);
+            } catch (SchedulerException ex) {
+                res.put("error", ex.getMessage());
+            }
+            res.put("plan", p == null ? null : planConverter.toJSON(p));
+            res.put("statistics", toJSON(scheduler.getStatistics()));
+        } catch (JSONConverterException | RuntimeException ex) {
+            //A malformed request must not stop the server
+            res.put("error", ex.toString());
+        }
+        res.put("duration", System.currentTimeMillis() - st);
+        return res.toJSONString();
+    }
+
+    private static JSONObject toJSON(SolvingStatistics stats) {
+        JSONObject o = new JSONObject();
+        o.put("managedVMs", stats.getNbManagedVMs());
+        o.put("coreBuildDuration", stats.getCoreBuildDuration());
+        o.put("specializationDuration", stats.getSpecializationDuration());
+        o.put("solutions", stats.getSolutions().size());
+        o.put("completed", stats.completed());
+        Metrics m = stats.getMetrics();
+        if (m != null) {
+            o.put("solvingDuration", m.timeCount());
+            o.put("nodes", m.nodes());
+            o.put("backtracks", m.backtracks());
+            o.put("fails", m.fails());
+        }
+        return o;
+    }
+
+    /**
+     * Process the requests of a stream until its end.
+     * The blank lines are ignored.
+     *
+     * @param in  the stream to read the requests from
+     * @param out the stream to write the responses to
+     * @throws IOException if an error occurred while reading or writing
+     */
+    public void serve(Reader in, Writer out) throws IOException {
+        BufferedReader r = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        String line;
+        while ((line = r.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            out.write(process(line));
+            out.write('\n');
+            out.flush();
+        }
+    }
+
+    /**
+     * Process the requests coming from the connections of a socket until it is closed.
+     * Every connection is handled by a dedicated thread.
+     *
+     * @param ss the socket to accept the connections from
+     * @throws IOException if the socket failed
+     */
+    @SuppressWarnings("squid:S1166")
+    public void serve(ServerSocket ss) throws IOException {
+        while (!ss.isClosed()) {
+            Socket s;
+            try {
+                s = ss.accept();
+            } catch (IOException ex) {
+                if (ss.isClosed()) {
+                    return;
+                }
+                throw ex;
+            }
+            Thread t = new Thread(() -> {
+                try (Socket c = s) {
+                    serve(new InputStreamReader(c.getInputStream(), UTF_8),
+                            new OutputStreamWriter(c.getOutputStream(), UTF_8));
+                } catch (@SuppressWarnings("unused") IOException ex) {
+                    //The client is gone
+                }
+            }, "server-" + s.getPort());
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    /**
+     * Make a socket bound to the loopback interface, so only the local processes can connect.
+     *
+     * @param port the port to listen on. {@code 0} for any free port
+     * @return the socket
+     * @throws IOException if the socket cannot be bound
+     */
+    public static ServerSocket bind(int port) throws IOException {
+        return new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.bench;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Percentiles of the durations of measured solving processes.
+ *
+ * @author Fabien Hermenier
+ */
+public final class Summary {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 100};
+
+    private Summary() {
+    }
+
+    /**
+     * Get a percentile using the nearest-rank method.
+     *
+     * @param sorted the values, sorted in ascending order
+     * @param p      the percentile, between 0 and 100
+     * @return the percentile. {@code 0} if there is no values
+     */
+    public static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(p / 100 * sorted.length);
+        return sorted[Math.min(sorted.length, Math.max(1, rank)) - 1];
+    }
+
+    /**
+     * Get the median of unsorted values.
+     *
+     * @param values the values
+     * @return the median
+     */
+    public static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return percentile(sorted, 50);
+    }
+
+    /**
+     * Summarize the durations of measured solving processes.
+     *
+     * @param ms the measures
+     * @return a table with the median, the 90th and the 99th percentile and the maximum of every phase
+     */
+    public static String of(List<Measure> ms) {
+        StringBuilder b = new StringBuilder(String.format("%d run(s), durations in ms%n", ms.size()));
+        b.append(String.format("%-15s %8s %8s %8s %8s%n", "", "p50", "p90", "p99", "max"));
+        line(b, "build", ms, m -> m.build);
+        line(b, "specialisation", ms, m -> m.specialisation);
+        line(b, "solving", ms, m -> m.solving);
+        line(b, "total", ms, Measure::total);
+        return b.toString();
+    }
+
+    private static void line(StringBuilder b, String phase, List<Measure> ms, ToLongFunction<Measure> f) {
+        long[] values = ms.stream().mapToLong(f).sorted().toArray();
+        b.append(String.format("%-15s", phase));
+        for (double p : PERCENTILES) {
+            b.append(String.format(" %8d", percentile(values, p)));
+        }
+        b.append(String.format("%n"));
+    }
+}
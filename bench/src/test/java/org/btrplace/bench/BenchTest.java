@@ -18,14 +18,27 @@
 
 package org.btrplace.bench;
 
+import net.minidev.json.JSONObject;
+import net.minidev.json.JSONValue;
 import org.btrplace.json.JSON;
+import org.btrplace.json.plan.ReconfigurationPlanConverter;
 import org.btrplace.model.*;
 import org.btrplace.model.constraint.*;
 import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.choco.DefaultParameters;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
@@ -118,6 +131,153 @@ public class BenchTest {
         }
     }
 
+    private static Path batch(String... opts) throws Exception {
+        List<String> files = new ArrayList<>();
+        for (int x = 0; x < 3; x++) {
+            files.add(store(instance()).getPath());
+        }
+        File list = File.createTempFile("foo", "");
+        list.deleteOnExit();
+        Files.write(list.toPath(), files, UTF_8);
+        Path output = Files.createTempDirectory("instances");
+        List<String> args = new ArrayList<>(Arrays.asList("-l", list.getAbsolutePath(), "-o", output.toString()));
+        args.addAll(Arrays.asList(opts));
+        Bench.main(args.toArray(new String[args.size()]));
+        return output;
+    }
+
+    private static void checkOutput(Path output, int nb) throws Exception {
+        List<String> lines = Files.readAllLines(output.resolve(Bench.SCHEDULER_STATS), UTF_8);
+        Assert.assertEquals(lines.size(), nb);
+        for (String line : lines) {
+            Measure m = Measure.parse(line);
+            Assert.assertEquals(m.status(), "OK*");
+            Assert.assertTrue(output.resolve(m.id + ".gz").toFile().isFile());
+        }
+    }
+
+    /**
+     * Solve instances in parallel, with warmup and repetitions.
+     */
+    @Test
+    public void testBatch() throws Exception {
+        Path output = batch("-p", "2", "-w", "1", "-n", "2");
+        checkOutput(output, 6);
+    }
+
+    /**
+     * Solve instances in dedicated JVMs.
+     */
+    @Test
+    public void testFork() throws Exception {
+        Path output = batch("-f", "-p", "2", "-n", "2");
+        checkOutput(output, 6);
+    }
+
+    @Test
+    public void testMeasure() {
+        Measure m = Measure.parse("id;/foo;bar.json;3;10;20;30;2;1");
+        Assert.assertEquals(m.label, "/foo;bar.json");
+        Assert.assertEquals(m.nbManagedVMs, 3);
+        Assert.assertEquals(m.total(), 60);
+        Assert.assertEquals(m.status(), "OK*");
+        Assert.assertEquals(Measure.parse(m.toString()).toString(), m.toString());
+    }
+
+    @Test
+    public void testPercentiles() {
+        long[] values = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        Assert.assertEquals(Summary.percentile(values, 50), 5);
+        Assert.assertEquals(Summary.percentile(values, 90), 9);
+        Assert.assertEquals(Summary.percentile(values, 99), 10);
+        Assert.assertEquals(Summary.percentile(values, 0), 1);
+        Assert.assertEquals(Summary.median(new long[]{7, 1, 3}), 3);
+        Assert.assertEquals(Summary.percentile(new long[0], 50), 0);
+    }
+
+    @Test
+    public void testCompare() throws Exception {
+        Path base = Files.createTempFile("base", ".csv");
+        Path cand = Files.createTempFile("cand", ".csv");
+        base.toFile().deleteOnExit();
+        cand.toFile().deleteOnExit();
+        Files.write(base, Arrays.asList(
+                "a;i1;3;10;20;100;1;1",
+                "b;i1;3;10;20;110;1;1",
+                "c;i2;3;10;20;100;1;1",
+                "d;i3;3;10;20;100;1;1"), UTF_8);
+        Files.write(cand, Arrays.asList(
+                "e;i1;3;10;20;105;1;1",
+                "f;i2;3;10;20;200;1;1",
+                "g;i3;3;10;20;100;0;1",
+                "h;i4;3;10;20;100;1;1"), UTF_8);
+        List<String> res = Comparison.regressions(base, cand, 10);
+        Assert.assertEquals(res.size(), 2, res.toString());
+        Assert.assertTrue(res.get(0).startsWith("i2: solving"), res.toString());
+        Assert.assertTrue(res.get(1).startsWith("i3: no longer solved"), res.toString());
+        Assert.assertTrue(Comparison.regressions(base, base, 0).isEmpty());
+
+        Bench.main(new String[]{"--compare", base.toString(), base.toString()});
+    }
+
+    private static void checkResponse(String line, long id) throws Exception {
+        JSONObject o = (JSONObject) JSONValue.parseWithException(line);
+        Assert.assertEquals(((Number) o.get("id")).longValue(), id);
+        Assert.assertNull(o.get("error"), line);
+        ReconfigurationPlan p = new ReconfigurationPlanConverter().fromJSON((JSONObject) o.get("plan"));
+        Assert.assertTrue(p.getSize() > 0);
+        JSONObject stats = (JSONObject) o.get("statistics");
+        Assert.assertEquals(stats.get("completed"), Boolean.TRUE);
+        Assert.assertEquals(((Number) stats.get("solutions")).intValue(), 1);
+    }
+
+    /**
+     * Solve instances sent one per line, with a malformed request in the middle.
+     */
+    @Test
+    public void testServe() throws Exception {
+        String i = JSON.toString(instance());
+        Server s = new Server(new DefaultParameters(), 0);
+        StringWriter out = new StringWriter();
+        s.serve(new StringReader(i + "\n\n{\"foo\n" + i + "\n"), out);
+        String[] lines = out.toString().split("\n");
+        Assert.assertEquals(lines.length, 3);
+        checkResponse(lines[0], 1);
+        JSONObject o = (JSONObject) JSONValue.parseWithException(lines[1]);
+        Assert.assertNotNull(o.get("error"));
+        Assert.assertNull(o.get("plan"));
+        checkResponse(lines[2], 3);
+        Assert.assertEquals(s.served(), 3);
+    }
+
+    /**
+     * Solve instances received from a local socket.
+     */
+    @Test
+    public void testServeSocket() throws Exception {
+        Server s = new Server(new DefaultParameters(), 1);
+        try (ServerSocket ss = Server.bind(0)) {
+            Thread t = new Thread(() -> {
+                try {
+                    s.serve(ss);
+                } catch (IOException ex) {
+                    Assert.fail(ex.getMessage(), ex);
+                }
+            });
+            t.setDaemon(true);
+            t.start();
+            try (Socket c = new Socket(ss.getInetAddress(), ss.getLocalPort());
+                 BufferedReader in = new BufferedReader(new InputStreamReader(c.getInputStream(), UTF_8));
+                 Writer out = new OutputStreamWriter(c.getOutputStream(), UTF_8)) {
+                for (int x = 1; x <= 2; x++) {
+                    out.write(JSON.toString(instance()) + "\n");
+                    out.flush();
+                    checkResponse(in.readLine(), x);
+                }
+            }
+        }
+    }
+
     //    @Test
     public void testAllocation() throws Exception {
         String base = "bench/src/test/resources/std-perf/";
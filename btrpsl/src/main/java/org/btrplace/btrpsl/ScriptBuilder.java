@@ -18,8 +18,6 @@
 
 package org.btrplace.btrpsl;
 
-import gnu.trove.map.TIntLongMap;
-import gnu.trove.map.hash.TIntLongHashMap;
 import org.antlr.runtime.*;
 import org.btrplace.btrpsl.antlr.ANTLRBtrplaceSL2Lexer;
 import org.btrplace.btrpsl.antlr.ANTLRBtrplaceSL2Parser;
@@ -40,27 +38,45 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Build scripts from textual descriptions.
  * For file based parsing, a LRU cache is used to prevent useless parsing. If the
- * last modification date of the script has not changed since its last parsing, the cached version
+ * content hash of the script has not changed since its last parsing, the cached version
  * is returned.
+ * <p>
+ * A collection of files can be built using {@link #build(Collection)}. The files are then
+ * parsed in parallel while the resulting trees are evaluated sequentially as the evaluation
+ * may alter the model.
  *
  * @author Fabien Hermenier
  */
 public class ScriptBuilder {
 
+    public static final int DEFAULT_CACHE_SIZE = 100;
+
     /**
-     * The date of last modification for the file. The key is the hashcode of the file path.
+     * The cached scripts, with the content hash of their file. The key is the file path.
      */
-    private TIntLongMap dates;
-
-    public static final int DEFAULT_CACHE_SIZE = 100;
+    private Map<String, Cached> cache;
 
-    private Map<String, Script> cache;
+    /**
+     * The scripts parsed but not evaluated yet. The key is the file path.
+     */
+    private Map<String, Parsed> pending;
 
     public static final Logger LOGGER = LoggerFactory.getLogger("ScriptBuilder");
 
@@ -112,11 +128,11 @@ public class ScriptBuilder {
 
         catalog = DefaultConstraintsCatalog.newBundle();
         this.tpls = new MockTemplateFactory(mo);
-        this.dates = new TIntLongHashMap();
         this.includes = new PathBasedIncludes(this);
-        this.cache = new LinkedHashMap<String, Script>() {
+        this.pending = new HashMap<>();
+        this.cache = new LinkedHashMap<String, Cached>() {
             @Override
-            protected boolean removeEldestEntry(Map.Entry<String, Script> foo) {
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> foo) {
                 return size() == cacheSize;
             }
         };
@@ -148,27 +164,105 @@ public class ScriptBuilder {
      * @throws ScriptBuilderException if an error occurred
      */
     public Script build(File f) throws ScriptBuilderException {
-        int k = f.getAbsolutePath().hashCode();
-        if (dates.containsKey(k) && dates.get(k) == f.lastModified() && cache.containsKey(f.getPath())) {
+        Cached c = unchanged(f);
+        if (c != null) {
             LOGGER.debug("get '" + f.getName() + "' from the cache");
-            return cache.get(f.getPath());
+            return c.script;
+        }
+        try {
+            return build(Source.read(f));
+        } catch (UncheckedIOException e) {
+            throw new ScriptBuilderException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Get the cached script of a file that was not modified since it was cached.
+     * The modification date and the size of the file are checked without reading it.
+     *
+     * @param f the file
+     * @return the cached script, {@code null} if the file must be read
+     */
+    private Cached unchanged(File f) {
+        Cached c = cache.get(f.getPath());
+        if (c != null && c.lastModified == f.lastModified() && c.length == f.length()) {
+            return c;
         }
+        return null;
+    }
 
-        LOGGER.debug(f.getName() + " is built from the file");
-        dates.put(k, f.lastModified());
-        String name = f.getName();
+    /**
+     * Build scripts from files.
+     * The files that are not in the cache are parsed in parallel. The resulting trees are
+     * then evaluated sequentially, in the iteration order of the collection.
+     * The building process continues on errors. The errors are consolidated in one exception at the end.
+     *
+     * @param files the files to parse
+     * @return the resulting scripts, in the iteration order of the collection
+     * @throws ScriptBuilderException if an error occurred for at least one of the files
+     */
+    public List<Script> build(Collection<File> files) throws ScriptBuilderException {
+        //The unchanged files are not read. The cache is only read by the current thread
+        List<File> changed = files.stream().filter(f -> unchanged(f) == null).collect(Collectors.toList());
+        Map<File, Source> sources;
         try {
-            Script v = build(new ANTLRFileStream(f.getAbsolutePath()));
-            if (!name.equals(v.getlocalName() + Script.EXTENSION)) {
-                throw new ScriptBuilderException("Script '" + v.getlocalName()
-                        + "' must be declared in a file named '" + v.getlocalName() + Script.EXTENSION);
+            sources = changed.parallelStream().map(Source::read).collect(Collectors.toMap(src -> src.file, src -> src, (a, b) -> a));
+        } catch (UncheckedIOException e) {
+            throw new ScriptBuilderException(e.getCause().getMessage(), e.getCause());
+        }
+        //Parse in parallel the scripts that are not cached
+        List<Source> toParse = sources.values().stream().filter(src -> !isCached(src)).collect(Collectors.toList());
+        toParse.parallelStream().map(this::parse).collect(Collectors.toList())
+                .forEach(p -> pending.put(p.src.path, p));
+
+        //We need to consolidate the errors in allEx and rethrow it at the end if necessary
+        List<Script> scripts = new ArrayList<>(files.size());
+        ScriptBuilderException allEx = null;
+        for (File f : files) {
+            Source src = sources.get(f);
+            try {
+                scripts.add(src == null ? build(f) : build(src));
+            } catch (ScriptBuilderException ex) {
+                if (allEx == null) {
+                    allEx = ex;
+                } else if (allEx.getErrorReporter() != null && ex.getErrorReporter() != null) {
+                    allEx.getErrorReporter().getErrors().addAll(ex.getErrorReporter().getErrors());
+                }
             }
-            cache.put(f.getPath(), v);
-            return v;
-        } catch (IOException e) {
-            throw new ScriptBuilderException(e.getMessage(), e);
         }
+        if (allEx != null) {
+            throw allEx;
+        }
+        return scripts;
+    }
 
+    private boolean isCached(Source src) {
+        Cached c = cache.get(src.path);
+        return c != null && Arrays.equals(c.digest, src.digest);
+    }
+
+    private Script build(Source src) throws ScriptBuilderException {
+        if (isCached(src)) {
+            LOGGER.debug("get '" + src.file.getName() + "' from the cache");
+            //Same content, only the modification date or the size changed
+            Cached c = cache.get(src.path);
+            cache.put(src.path, new Cached(src, c.script));
+            return c.script;
+        }
+
+        LOGGER.debug(src.file.getName() + " is built from the file");
+        Parsed p = pending.remove(src.path);
+        if (p == null || !Arrays.equals(p.src.digest, src.digest)) {
+            p = parse(src);
+        }
+        String name = src.file.getName();
+        Script v = evaluate(p);
+        if (!name.equals(v.getlocalName() + Script.EXTENSION)) {
+            throw new ScriptBuilderException("Script '" + v.getlocalName()
+                    + "' must be declared in a file named '" + v.getlocalName() + Script.EXTENSION);
+        }
+        cache.put(src.path, new Cached(src, v));
+        return v;
     }
 
     /**
@@ -179,18 +273,22 @@ public class ScriptBuilder {
      * @throws ScriptBuilderException if an error occurred while building the script
      */
     public Script build(String description) throws ScriptBuilderException {
-        return build(new ANTLRStringStream(description));
+        return evaluate(parse(new ANTLRStringStream(description), null));
+    }
+
+    private Parsed parse(Source src) {
+        return parse(new ANTLRStringStream(src.content), src);
     }
 
     /**
-     * Internal method to check a script from a stream.
+     * Internal method to parse a script from a stream.
+     * The parsing does not alter the model so it can be performed concurrently.
      *
-     * @param cs the stream to analyze
-     * @return the built script
-     * @throws ScriptBuilderException in an error occurred while building the script
+     * @param cs  the stream to analyze
+     * @param src the source file. {@code null} if the script is not file based
+     * @return the parsed script
      */
-    @SuppressWarnings("squid:S1166") //For the UnsupportedOperationException
-    private Script build(CharStream cs) throws ScriptBuilderException {
+    private Parsed parse(CharStream cs, Source src) {
 
         Script v = new Script();
 
@@ -208,8 +306,30 @@ public class ScriptBuilder {
 
         parser.setTreeAdaptor(new BtrPlaceTreeAdaptor(v, model, namingServiceNodes, namingServiceVMs, tpls, errorReporter, t, includes, catalog));
 
+        Parsed p = new Parsed(src, v, errorReporter);
+        try {
+            p.tree = (BtrPlaceTree) parser.script_decl().getTree();
+        } catch (RecognitionException e) {
+            p.failure = e;
+        }
+        return p;
+    }
+
+    /**
+     * Internal method to evaluate a parsed script.
+     *
+     * @param p the parsed script
+     * @return the built script
+     * @throws ScriptBuilderException in an error occurred while building the script
+     */
+    @SuppressWarnings("squid:S1166") //For the UnsupportedOperationException
+    private Script evaluate(Parsed p) throws ScriptBuilderException {
+        if (p.failure != null) {
+            throw new ScriptBuilderException(p.failure.getMessage(), p.failure);
+        }
+        BtrPlaceTree tree = p.tree;
+        ErrorReporter errorReporter = p.errors;
         try {
-            BtrPlaceTree tree = (BtrPlaceTree) parser.script_decl().getTree();
             if (tree != null) {
                 if (tree.token != null) {
                         tree.go(tree); //Single instruction
@@ -219,8 +339,6 @@ public class ScriptBuilder {
                         }
                     }
             }
-        } catch (RecognitionException e) {
-            throw new ScriptBuilderException(e.getMessage(), e);
         } catch (UnsupportedOperationException e) {
             //We only keep the error message
             errorReporter.append(0, 0, e.getMessage());
@@ -228,7 +346,7 @@ public class ScriptBuilder {
         if (!errorReporter.getErrors().isEmpty()) {
             throw new ScriptBuilderException(errorReporter);
         }
-        return v;
+        return p.script;
     }
 
     /**
@@ -296,4 +414,101 @@ public class ScriptBuilder {
     public void setConstraintsCatalog(ConstraintsCatalog c) {
         this.catalog = c;
     }
+
+    /**
+     * The content of a script file.
+     */
+    private static final class Source {
+
+        private final File file;
+
+        private final String path;
+
+        private final String content;
+
+        private final byte[] digest;
+
+        private final long lastModified;
+
+        private final long length;
+
+        private Source(File f, long lastModified, long length, byte[] bytes) {
+            file = f;
+            path = f.getPath();
+            this.lastModified = lastModified;
+            this.length = length;
+            content = new String(bytes, Charset.defaultCharset());
+            digest = digest(bytes);
+        }
+
+        /**
+         * Read a script file.
+         *
+         * @param f the file to read
+         * @return the source
+         * @throws UncheckedIOException if the file cannot be read
+         */
+        static Source read(File f) {
+            //Stamped before the reading so a concurrent modification is detected next time
+            long lastModified = f.lastModified();
+            long length = f.length();
+            try {
+                return new Source(f, lastModified, length, Files.readAllBytes(f.toPath()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static byte[] digest(byte[] bytes) {
+            try {
+                return MessageDigest.getInstance("SHA-1").digest(bytes);
+            } catch (NoSuchAlgorithmException e) {
+                //Every Java platform must support SHA-1
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * A script that is parsed but not evaluated yet.
+     */
+    private static final class Parsed {
+
+        private final Source src;
+
+        private final Script script;
+
+        private final ErrorReporter errors;
+
+        private BtrPlaceTree tree;
+
+        private RecognitionException failure;
+
+        private Parsed(Source s, Script scr, ErrorReporter errs) {
+            src = s;
+            script = scr;
+            errors = errs;
+        }
+    }
+
+    /**
+     * A cached script with the modification date, the size and the content hash of its file.
+     */
+    private static final class Cached {
+
+        private final byte[] digest;
+
+        private final long lastModified;
+
+        private final long length;
+
+        private final Script script;
+
+        private Cached(Source src, Script scr) {
+            digest = src.digest;
+            lastModified = src.lastModified;
+            length = src.length;
+            script = scr;
+        }
+    }
 }
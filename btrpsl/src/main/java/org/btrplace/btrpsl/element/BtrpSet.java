@@ -18,12 +18,17 @@
 
 package org.btrplace.btrpsl.element;
 
+import org.btrplace.model.Element;
+
 import java.util.*;
 
 /**
  * Denotes a set of operand.
  * The set is homogeneous: every operand into the set have the same type and the same degree.
  * The degree of a set is then one greater than the operand into it.
+ * <p>
+ * The algebra over sets of VMs or nodes relies on bitsets indexed by the element identifiers
+ * rather than on hash sets of operands.
  *
  * @author Fabien Hermenier
  */
@@ -67,14 +72,20 @@ public class BtrpSet extends DefaultBtrpOperand {
             throw new UnsupportedOperationException("Unable to add a '" + s.prettyType() + "' to a '" + prettyType() + "'");
         }
         BtrpSet res = new BtrpSet(degree, t);
-        Set<BtrpOperand> used = new HashSet<>();
-        for (BtrpOperand x : values) {
-            res.add(x);
-            used.add(x);
-        }
         List<BtrpOperand> other = ((BtrpSet) s).values;
+        res.values.addAll(values);
+        BitSet used = elementIds(values);
+        if (used != null && elementIds(other) != null) {
+            for (BtrpOperand x : other) {
+                if (!used.get(elementId(x))) {
+                    res.values.add(x);
+                }
+            }
+            return res;
+        }
+        Set<BtrpOperand> u = new HashSet<>(values);
         for (BtrpOperand x : other) {
-            if (!used.contains(x)) {
+            if (!u.contains(x)) {
                 res.add(x);
             }
         }
@@ -87,19 +98,59 @@ public class BtrpSet extends DefaultBtrpOperand {
             throw new UnsupportedOperationException("Unable to subtract a '" + s.prettyType() + "' from a '" + prettyType() + "'");
         }
         BtrpSet res = new BtrpSet(degree, t);
-        Set<BtrpOperand> used = new HashSet<>();
-        if (degree == s.degree()) {
-            List<BtrpOperand> other = ((BtrpSet) s).values;
-            used.addAll(other);
+        List<BtrpOperand> other = ((BtrpSet) s).values;
+        BitSet used = elementIds(other);
+        if (used != null && elementIds(values) != null) {
             for (BtrpOperand x : values) {
-                if (!used.contains(x)) {
-                    res.add(x);
+                if (!used.get(elementId(x))) {
+                    res.values.add(x);
                 }
             }
+            return res;
+        }
+        Set<BtrpOperand> u = new HashSet<>(other);
+        for (BtrpOperand x : values) {
+            if (!u.contains(x)) {
+                res.add(x);
+            }
         }
         return res;
     }
 
+    /**
+     * Get the identifier of the element denoted by an operand.
+     *
+     * @param o the operand
+     * @return the element identifier. {@code -1} if the operand does not denote an element
+     */
+    private static int elementId(BtrpOperand o) {
+        if (o instanceof BtrpElement) {
+            Element e = ((BtrpElement) o).getElement();
+            if (e != null) {
+                return e.id();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the identifiers of the elements in a list of operands.
+     *
+     * @param ops the operands
+     * @return a bitset of the identifiers. {@code null} if at least one operand does not denote an element
+     */
+    private static BitSet elementIds(List<BtrpOperand> ops) {
+        BitSet ids = new BitSet();
+        for (BtrpOperand o : ops) {
+            int id = elementId(o);
+            if (id < 0) {
+                return null;
+            }
+            ids.set(id);
+        }
+        return ids;
+    }
+
     /**
      * Get the number of operand in this set.
      *
@@ -259,8 +310,19 @@ public class BtrpSet extends DefaultBtrpOperand {
         }
 
         BtrpSet that = (BtrpSet) o;
-
-        return degree == that.degree && values.containsAll(that.values) && that.values.containsAll(values);
+        if (degree != that.degree) {
+            return false;
+        }
+        if (t == that.t) {
+            BitSet mine = elementIds(values);
+            if (mine != null) {
+                BitSet other = elementIds(that.values);
+                if (other != null) {
+                    return mine.equals(other);
+                }
+            }
+        }
+        return values.containsAll(that.values) && that.values.containsAll(values);
     }
 
     @Override
@@ -80,8 +80,8 @@ public class PathBasedIncludes implements Includes {
 
         } else {
 
-            //We need to consolidate the errors in allEx and rethrow it at the end if necessary
-            ScriptBuilderException allEx = null;
+            //The matching scripts are built at once to be parsed in parallel
+            List<File> toBuild = new ArrayList<>();
             String base = name.substring(0, name.length() - 2).replaceAll("\\.", File.separator);
             for (File path : paths) {
                 File f = new File(path.getPath() + File.separator + base);
@@ -89,23 +89,12 @@ public class PathBasedIncludes implements Includes {
                 if (f.isDirectory() && files != null) {
                     for (File sf : files) {
                         if (sf.getName().endsWith(Script.EXTENSION)) {
-
-                            try {
-                                scripts.add(builder.build(sf));
-                            } catch (ScriptBuilderException ex) {
-                                if (allEx == null) {
-                                    allEx = ex;
-                                } else {
-                                    allEx.getErrorReporter().getErrors().addAll(ex.getErrorReporter().getErrors());
-                                }
-                            }
+                            toBuild.add(sf);
                         }
                     }
                 }
             }
-            if (allEx != null) {
-                throw allEx;
-            }
+            scripts.addAll(builder.build(toBuild));
         }
         return scripts;
     }
@@ -135,7 +135,7 @@ public class EnumElement extends BtrPlaceTree {
                         }
                         return ignoreError(t, "Unknown node '" + id.substring(1) + "'");
                     }
-                    res.getValues().add(new BtrpElement(BtrpOperand.Type.NODE, id, namingServiceNodes.resolve(id)));
+                    res.getValues().add(new BtrpElement(BtrpOperand.Type.NODE, id, el));
                 } else if (type == BtrpOperand.Type.VM) {
                     String fqn = script.id() + '.' + id;
                     Element el = namingServiceVMs.resolve(fqn);
@@ -143,7 +143,7 @@ public class EnumElement extends BtrPlaceTree {
                     if (el == null) {
                         return ignoreError(t, "Unknown VM '" + id + "'");
                     }
-                    res.getValues().add(new BtrpElement(BtrpOperand.Type.VM, fqn, namingServiceVMs.resolve(fqn)));
+                    res.getValues().add(new BtrpElement(BtrpOperand.Type.VM, fqn, el));
                 } else {
                     return ignoreError("Unsupported type '" + type + "' in enumeration");
                 }
@@ -38,6 +38,12 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Unit tests for {@link ScriptBuilder}.
@@ -529,4 +535,70 @@ public class ScriptBuilderTest {
         Assert.assertNotNull(p);
         Assert.assertEquals(p.getSize(), 10);
     }
+
+    public void testBuildFiles() throws Exception {
+        ScriptBuilder b = new ScriptBuilder(new DefaultModel());
+        PathBasedIncludes includes = new PathBasedIncludes(b);
+        includes.addPath(new File(RC_ROOT + "deps"));
+        b.setIncludes(includes);
+
+        List<File> files = Arrays.asList(new File(RC_ROOT + "deps/c.btrp"),
+                new File(RC_ROOT + "deps/a.btrp"),
+                new File(RC_ROOT + "deps/b.btrp"));
+        List<Script> scripts = b.build(files);
+        Assert.assertEquals(scripts.size(), 3);
+        Assert.assertEquals(scripts.get(0).id(), "c");
+        Assert.assertEquals(scripts.get(1).id(), "a");
+        Assert.assertEquals(scripts.get(2).id(), "b");
+        //a depends on the instances of b and c that were built in the same run
+        Assert.assertTrue(scripts.get(1).getDependencies().contains(scripts.get(0)));
+        Assert.assertTrue(scripts.get(1).getDependencies().contains(scripts.get(2)));
+        //From the cache
+        Assert.assertSame(b.build(files.get(1)), scripts.get(1));
+    }
+
+    @Test(expectedExceptions = {ScriptBuilderException.class})
+    public void testBuildFilesWithErrors() throws Exception {
+        ScriptBuilder b = new ScriptBuilder(new DefaultModel());
+        b.build(Arrays.asList(new File(RC_ROOT + "deps/c.btrp"), new File(RC_ROOT + "bads/ins/b1.btrp")));
+    }
+
+    public void testCacheOnContent() throws Exception {
+        Path dir = Files.createTempDirectory("btrpsl");
+        File f = dir.resolve("foo.btrp").toFile();
+        Files.write(f.toPath(), "namespace foo; VM[1..3] : tiny;".getBytes(StandardCharsets.UTF_8));
+        ScriptBuilder b = new ScriptBuilder(new DefaultModel());
+        Script s1 = b.build(f);
+        Assert.assertEquals(s1.getVMs().size(), 3);
+        //Same content, cached whatever the modification date
+        Assert.assertTrue(f.setLastModified(f.lastModified() + 10000));
+        Assert.assertSame(b.build(f), s1);
+        //New content
+        Files.write(f.toPath(), "namespace foo; VM[1..5] : tiny;".getBytes(StandardCharsets.UTF_8));
+        Script s2 = b.build(f);
+        Assert.assertNotSame(s2, s1);
+        Assert.assertEquals(s2.getVMs().size(), 5);
+        Files.delete(f.toPath());
+        Files.delete(dir);
+    }
+
+    public void testCacheOnStamp() throws Exception {
+        Path dir = Files.createTempDirectory("btrpsl");
+        File f = dir.resolve("foo.btrp").toFile();
+        Files.write(f.toPath(), "namespace foo; VM[1..3] : tiny;".getBytes(StandardCharsets.UTF_8));
+        ScriptBuilder b = new ScriptBuilder(new DefaultModel());
+        Script s1 = b.build(f);
+        //Same date and size, the file is not read again
+        long stamp = f.lastModified();
+        Files.write(f.toPath(), "namespace foo; VM[1..4] : tiny;".getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(f.setLastModified(stamp));
+        Assert.assertSame(b.build(f), s1);
+        Assert.assertSame(b.build(Collections.singletonList(f)).get(0), s1);
+        //Another size
+        Files.write(f.toPath(), "namespace foo; VM[1..10] : tiny;".getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(f.setLastModified(stamp));
+        Assert.assertEquals(b.build(f).getVMs().size(), 10);
+        Files.delete(f.toPath());
+        Files.delete(dir);
+    }
 }
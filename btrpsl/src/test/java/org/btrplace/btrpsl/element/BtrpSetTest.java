@@ -23,6 +23,9 @@ import org.btrplace.model.Model;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Unit tests for {@link BtrpSet}
  *
@@ -335,4 +338,44 @@ public class BtrpSetTest {
         s.getValues().add(new BtrpNumber(12, BtrpNumber.Base.BASE_10));
         Assert.assertNotEquals(s, s2);
     }
+
+    public void testElementsAlgebra() {
+        Model mo = new DefaultModel();
+        BtrpSet s1 = new BtrpSet(1, BtrpOperand.Type.VM);
+        BtrpSet s2 = new BtrpSet(1, BtrpOperand.Type.VM);
+        List<BtrpElement> vms = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            BtrpElement e = new BtrpElement(BtrpOperand.Type.VM, "foo.VM" + i, mo.newVM());
+            vms.add(e);
+            if (i < 150) {
+                s1.getValues().add(e);
+            }
+            if (i >= 100) {
+                s2.getValues().add(e);
+            }
+        }
+        BtrpSet union = s1.plus(s2);
+        Assert.assertEquals(union.size(), 200);
+        //The order is preserved
+        Assert.assertEquals(union.getValues(), vms);
+
+        BtrpSet diff = s1.minus(s2);
+        Assert.assertEquals(diff.getValues(), vms.subList(0, 100));
+        Assert.assertEquals(s2.minus(s1).getValues(), vms.subList(150, 200));
+
+        //Equality does not depend on the order
+        BtrpSet rev = new BtrpSet(1, BtrpOperand.Type.VM);
+        for (int i = vms.size() - 1; i >= 0; i--) {
+            rev.getValues().add(vms.get(i));
+        }
+        Assert.assertEquals(rev, union);
+        Assert.assertNotEquals(diff, union);
+
+        //Nodes and VMs with the same identifiers
+        BtrpSet nodes = new BtrpSet(1, BtrpOperand.Type.NODE);
+        nodes.getValues().add(new BtrpElement(BtrpOperand.Type.NODE, "@n0", mo.newNode()));
+        BtrpSet vm0 = new BtrpSet(1, BtrpOperand.Type.VM);
+        vm0.getValues().add(vms.get(0));
+        Assert.assertNotEquals(nodes, vm0);
+    }
 }
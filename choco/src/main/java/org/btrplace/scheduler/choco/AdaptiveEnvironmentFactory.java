@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco;
+
+import org.btrplace.model.Model;
+import org.chocosolver.memory.EnvironmentBuilder;
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.memory.trailing.EnvironmentTrailing;
+import org.chocosolver.memory.trailing.trail.IStoredIntTrail;
+import org.chocosolver.memory.trailing.trail.chunck.ChunckedIntTrail;
+import org.chocosolver.memory.trailing.trail.flatten.StoredIntTrail;
+
+/**
+ * An environment factory that selects and sizes the trail of the solver
+ * from the estimated size of the problem.
+ * <p>
+ * A flat trail stores all the updates in a single array. It is the fastest one but the array is copied
+ * every time it grows. It is then pre-allocated to the estimated number of updates along a search branch,
+ * so most of the problems are solved without any copy. Above a given amount of memory, pre-allocating
+ * becomes wasteful and a copy gets costly. A chunked trail is then used: an array is allocated for each search
+ * level when it is reached so the memory follows the actual search depth.
+ * <p>
+ * Only the integer trail is sized, the other trails are barely used and get the default dimensions of the solver.
+ *
+ * @author Fabien Hermenier
+ */
+public class AdaptiveEnvironmentFactory implements EnvironmentFactory {
+
+    /**
+     * The default memory threshold above which a chunked trail is used, in bytes.
+     */
+    public static final long DEFAULT_FLAT_LIMIT = 64L << 20;
+
+    private final long flatLimit;
+
+    /**
+     * New factory with the default threshold.
+     */
+    public AdaptiveEnvironmentFactory() {
+        this(DEFAULT_FLAT_LIMIT);
+    }
+
+    /**
+     * New factory.
+     *
+     * @param flatLimit the estimated trail size, in bytes, above which a chunked trail is used
+     */
+    public AdaptiveEnvironmentFactory(long flatLimit) {
+        this.flatLimit = flatLimit;
+    }
+
+    /**
+     * Get the memory threshold above which a chunked trail is used.
+     *
+     * @return an amount in bytes
+     */
+    public long getFlatLimit() {
+        return flatLimit;
+    }
+
+    @Override
+    public IEnvironment build(Model mo) {
+        return build(mo, ProblemSizeEstimate.of(mo));
+    }
+
+    @Override
+    public IEnvironment build(Model mo, ProblemSizeEstimate est) {
+        EnvironmentBuilder b = new EnvironmentBuilder().setWorldNumber(est.getDepth());
+        if ((long) ProblemSizeEstimate.UPDATE_BYTES * est.getTrailSize() <= flatLimit) {
+            return b.fromFlat()
+                    .setTrail(new StoredIntTrail(est.getTrailSize(), est.getDepth(), EnvironmentTrailing.LOADFACTOR))
+                    .build();
+        }
+        return b.fromChunk()
+                .setTrail(new ChunckedIntTrail(est.getUpdatesPerLevel(), est.getDepth(), EnvironmentTrailing.LOADFACTOR))
+                .build();
+    }
+
+    /**
+     * Describe the trailing strategy of an environment.
+     *
+     * @param env the environment
+     * @return {@code "flat"}, {@code "chunked"}, or the class name of the environment or its trail
+     */
+    public static String strategy(IEnvironment env) {
+        if (!(env instanceof EnvironmentTrailing)) {
+            return env.getClass().getSimpleName();
+        }
+        IStoredIntTrail t = ((EnvironmentTrailing) env).getIntTrail();
+        if (t instanceof StoredIntTrail) {
+            return "flat";
+        }
+        if (t instanceof ChunckedIntTrail) {
+            return "chunked";
+        }
+        return t.getClass().getSimpleName();
+    }
+}
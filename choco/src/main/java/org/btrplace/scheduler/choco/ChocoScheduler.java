@@ -18,9 +18,11 @@
 
 package org.btrplace.scheduler.choco;
 
+import org.btrplace.model.Instance;
 import org.btrplace.scheduler.Scheduler;
 import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.choco.runner.InstanceSolver;
+import org.btrplace.scheduler.choco.runner.SolvingFuture;
 import org.btrplace.scheduler.choco.runner.SolvingStatistics;
 
 /**
@@ -30,6 +32,17 @@ import org.btrplace.scheduler.choco.runner.SolvingStatistics;
  */
 public interface ChocoScheduler extends Scheduler, Parameters {
 
+    /**
+     * Solve an instance asynchronously.
+     * The solving process runs in a dedicated thread. The returned handle allows to
+     * wait for the result, to stop the process or to be notified of every computed plan.
+     * The statistics are available through {@link SolvingFuture#getStatistics()} once the handle completes.
+     *
+     * @param i the instance to solve
+     * @return a handle over the solving process
+     */
+    SolvingFuture solveAsync(Instance i);
+
     /**
      * Get statistics about the last solved problem.
      *
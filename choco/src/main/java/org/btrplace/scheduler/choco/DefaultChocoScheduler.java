@@ -31,24 +31,33 @@ import org.btrplace.scheduler.InconsistentSolutionException;
 import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.choco.constraint.ChocoMapper;
 import org.btrplace.scheduler.choco.duration.DurationEvaluators;
+import org.btrplace.scheduler.choco.runner.CachedSolvingStatistics;
 import org.btrplace.scheduler.choco.runner.InstanceSolver;
+import org.btrplace.scheduler.choco.runner.Metrics;
+import org.btrplace.scheduler.choco.runner.SolutionCache;
+import org.btrplace.scheduler.choco.runner.SolvingFuture;
 import org.btrplace.scheduler.choco.runner.SolvingStatistics;
 import org.btrplace.scheduler.choco.runner.StagedSolvingStatistics;
 import org.btrplace.scheduler.choco.runner.single.SingleRunner;
 import org.btrplace.scheduler.choco.transition.TransitionFactory;
+import org.btrplace.scheduler.choco.view.CNetwork;
 import org.btrplace.scheduler.choco.view.ChocoView;
+import org.chocosolver.util.criteria.Criterion;
 
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 /**
  * Default implementation of {@link ChocoScheduler}.
- * A same instance cannot be used to solve multiple problems simultaneously.
+ * A same instance cannot be used to solve multiple problems simultaneously, unless
+ * they are solved asynchronously by an instance solver that supports {@link InstanceSolver#fork()}.
  * <p>
  * By default, the algorithm relies on a {@link SingleRunner} solver.
+ * A cache of the computed plans can be enabled using {@link #setSolutionCacheSize(int)}.
  *
  * @author Fabien Hermenier
  */
@@ -58,7 +67,17 @@ public class DefaultChocoScheduler implements ChocoScheduler {
 
     private InstanceSolver runner;
 
-    private StagedSolvingStatistics stages;
+    private SolutionCache cache;
+
+    /**
+     * The state of the last synchronous solving process.
+     */
+    private Solving last;
+
+    /**
+     * Tell if the configured instance solver is in use.
+     */
+    private final AtomicBoolean busy = new AtomicBoolean(false);
 
     /**
      * Make a new algorithm.
@@ -107,6 +126,46 @@ public class DefaultChocoScheduler implements ChocoScheduler {
         return params.doRepair();
     }
 
+    @Override
+    public Parameters doAdaptiveRepair(boolean b) {
+        return params.doAdaptiveRepair(b);
+    }
+
+    @Override
+    public boolean doAdaptiveRepair() {
+        return params.doAdaptiveRepair();
+    }
+
+    @Override
+    public Parameters doSinglePassNetwork(boolean b) {
+        return params.doSinglePassNetwork(b);
+    }
+
+    @Override
+    public boolean doSinglePassNetwork() {
+        return params.doSinglePassNetwork();
+    }
+
+    @Override
+    public Parameters doPlanCompaction(boolean b) {
+        return params.doPlanCompaction(b);
+    }
+
+    @Override
+    public boolean doPlanCompaction() {
+        return params.doPlanCompaction();
+    }
+
+    @Override
+    public Parameters doInstrumentation(boolean b) {
+        return params.doInstrumentation(b);
+    }
+
+    @Override
+    public boolean doInstrumentation() {
+        return params.doInstrumentation();
+    }
+
     @Override
     public ReconfigurationPlan solve(Model mo, Collection<? extends SatConstraint> cstrs) throws SchedulerException {
         return solve(mo, cstrs, new MinMTTR());
@@ -114,18 +173,179 @@ public class DefaultChocoScheduler implements ChocoScheduler {
 
     @Override
     public ReconfigurationPlan solve(Instance i) throws SchedulerException {
+        acquire();
+        try {
+            Solving s = new Solving(runner);
+            last = s;
+            return solve(params, i, s);
+        } finally {
+            busy.set(false);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The instance is solved by a fork of the instance solver so it does not interfere with
+     * the other solving processes. If the instance solver cannot be forked, no other solving process
+     * can run until this one terminates. The statistics are available through {@link SolvingFuture#getStatistics()}.
+     * In the two-pass network mode, the network view is detached from a copy of the model so the
+     * origin of the resulting plan is that copy.
+     * In network mode, only the plans where the migrations are scheduled according to the network are
+     * notified, and a stop asked while the migrations are scheduled takes effect once a plan is computed.
+     *
+     * @throws IllegalStateException if the instance solver cannot be forked and is already in use
+     */
+    @Override
+    public SolvingFuture solveAsync(Instance i) {
+        SolvingFuture f = new SolvingFuture();
+        boolean network = Network.get(i.getModel()) != null;
+        Parameters ps = new DefaultParameters(params)
+                .addStopCriterion(f.criterion())
+                .addSolutionListener((rp, p) -> {
+                    //The placement stage ignores the network
+                    if (!network || isScheduled(rp)) {
+                        f.onSolution(p, new Metrics(rp.getSolver().getMeasures()));
+                    }
+                });
+        InstanceSolver r = runner.fork();
+        boolean shared = r == null;
+        if (shared) {
+            acquire();
+            r = runner;
+        }
+        Instance in = i;
+        if (network && !ps.doSinglePassNetwork()) {
+            //The caller's model must not be modified from another thread
+            in = new Instance(i.getModel().copy(), i.getSatConstraints(), i.getOptConstraint());
+        }
+        Solving s = new Solving(r);
+        Instance target = in;
+        Thread t = new Thread(() -> {
+            ReconfigurationPlan p = null;
+            Exception err = null;
+            try {
+                p = solve(ps, target, s);
+            } catch (Exception e) {
+                err = e;
+            }
+            f.setStatistics(s.statisticsIfAny());
+            //Released before the completion so the scheduler is available for the waiting threads
+            if (shared) {
+                busy.set(false);
+            }
+            if (err == null) {
+                f.complete(p);
+            } else {
+                f.fail(err);
+            }
+        }, "scheduler-" + System.identityHashCode(f));
+        t.setDaemon(true);
+        t.start();
+        return f;
+    }
+
+    /**
+     * Check if the migrations of a problem are scheduled according to the network.
+     *
+     * @param rp the problem
+     * @return {@code false} for the placement stage of the network mode
+     */
+    private static boolean isScheduled(ReconfigurationProblem rp) {
+        ChocoView v = rp.getView(Network.VIEW_ID);
+        return v instanceof CNetwork && !((CNetwork) v).isPlacementStage();
+    }
+
+    /**
+     * Reserve the configured instance solver.
+     *
+     * @throws IllegalStateException if the instance solver is already in use
+     */
+    private void acquire() {
+        if (!busy.compareAndSet(false, true)) {
+            throw new IllegalStateException("The scheduler is already solving an instance");
+        }
+    }
+
+    /**
+     * Set the number of plans to keep in a cache.
+     * Once enabled, the plan computed for an instance is re-used when an instance having the same content
+     * is solved again. The cache is not aware of the parameters so it must be resized or disabled when they
+     * are modified.
+     *
+     * @param n the maximum number of cached plans. {@code 0} to disable the cache
+     * @return the current instance
+     */
+    public DefaultChocoScheduler setSolutionCacheSize(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("The cache size must be positive");
+        }
+        cache = n == 0 ? null : new SolutionCache(n);
+        return this;
+    }
+
+    /**
+     * Get the cache of the computed plans.
+     *
+     * @return the cache. {@code null} if it is disabled
+     */
+    public SolutionCache getSolutionCache() {
+        return cache;
+    }
+
+    /**
+     * Solve an instance using a given set of parameters.
+     * The cache is looked up first, if enabled.
+     *
+     * @param base the parameters to use
+     * @param i    the instance to solve
+     * @param s    the state of the solving process
+     * @return the resulting plan. {@code null} if there is no solution
+     * @throws SchedulerException if an error occurred
+     */
+    private ReconfigurationPlan solve(Parameters base, Instance i, Solving s) throws SchedulerException {
+        SolutionCache c = cache;
+        if (c == null) {
+            return compute(base, i, s);
+        }
+        SolutionCache.Entry e = c.get(i);
+        if (e != null) {
+            ReconfigurationPlan p = e.plan(i.getModel());
+            s.cached = new CachedSolvingStatistics(e.getStatistics(), i, p, true, c.getHits(), c.getMisses());
+            return p;
+        }
+        ReconfigurationPlan p = compute(base, i, s);
+        SolvingStatistics st = s.computed();
+        if (p != null) {
+            c.put(i, p, st);
+        }
+        s.cached = new CachedSolvingStatistics(st, i, p, false, c.getHits(), c.getMisses());
+        return p;
+    }
+
+    /**
+     * Compute the plan of an instance using a given set of parameters.
+     *
+     * @param base the parameters to use
+     * @param i    the instance to solve
+     * @param s    the state of the solving process
+     * @return the resulting plan. {@code null} if there is no solution
+     * @throws SchedulerException if an error occurred
+     */
+    private ReconfigurationPlan compute(Parameters base, Instance i, Solving s) throws SchedulerException {
+        InstanceSolver r = s.runner;
+        long started = System.currentTimeMillis();
         Model mo = i.getModel();
         Collection<SatConstraint> cstrs = i.getSatConstraints();
         // If a network view is attached, ensure that all the migrations' destination node are defined
         Network net = Network.get(mo);
-        stages = null;
-        if (net != null) {
+        if (net != null && !base.doSinglePassNetwork()) {
             // The network view is useless to take placement decisions
             mo.detach(net);
 
             // Solve a first time using placement oriented MinMTTR optimisation constraint
-            ReconfigurationPlan p = runner.solve(params, i);
-            stages = new StagedSolvingStatistics(runner.getStatistics());
+            ReconfigurationPlan p = r.solve(base, i);
+            s.stages = new StagedSolvingStatistics(r.getStatistics());
             if (p == null) {
                 return null;
             }
@@ -151,18 +371,32 @@ public class DefaultChocoScheduler implements ChocoScheduler {
             // Re-attach the network view
             mo.attach(net);
 
-            //New timeout value = elapsed time - initial timeout value
-            Parameters ps = new DefaultParameters(params);
+            //New timeout value = initial timeout value - elapsed time
+            Parameters ps = new DefaultParameters(base);
             if (ps.getTimeLimit() > 0) {
-                //in seconds
-                double timeout = params.getTimeLimit() - runner.getStatistics().getMetrics().timeCount() / 1000;
-                ps.setTimeLimit((int) timeout);
+                //The time limit is in seconds, the deadline keeps the millisecond precision
+                long deadline = started + base.getTimeLimit() * 1000L;
+                long remaining = deadline - System.currentTimeMillis();
+                ps.setTimeLimit((int) Math.max(1, (remaining + 999) / 1000));
+                ps.addStopCriterion(() -> System.currentTimeMillis() >= deadline);
             }
+            //The placement is decided, the stop criteria are only checked once a plan is computed
+            AtomicBoolean scheduled = new AtomicBoolean(false);
+            for (Criterion c : base.stopCriteria()) {
+                ps.removeStopCriterion(c);
+                ps.addStopCriterion(() -> scheduled.get() && c.isMet());
+            }
+            ps.addSolutionListener((rp, sp) -> scheduled.set(true));
 
-            return runner.solve(ps, new Instance(mo, newCstrs, i.getOptConstraint()));
+            try {
+                return r.solve(ps, new Instance(mo, newCstrs, i.getOptConstraint()));
+            } finally {
+                s.stages.append(r.getStatistics());
+            }
         }
-        // Solve and return the computed plan
-        return runner.solve(params, new Instance(mo, cstrs, i.getOptConstraint()));
+        // Solve and return the computed plan.
+        // In single-pass mode, the runner schedules the migrations wrt. the network on the placement problem
+        return r.solve(base, new Instance(mo, cstrs, i.getOptConstraint()));
     }
 
     @Override
@@ -186,13 +420,17 @@ public class DefaultChocoScheduler implements ChocoScheduler {
         return params.getDurationEvaluators();
     }
 
+    /**
+     * {@inheritDoc}
+     * The statistics of the asynchronous solving processes are available through their handle.
+     */
     @Override
     public SolvingStatistics getStatistics() throws SchedulerException {
-        if (stages == null) {
+        Solving s = last;
+        if (s == null) {
             return runner.getStatistics();
         }
-        stages.append(runner.getStatistics());
-        return stages;
+        return s.statistics();
     }
 
     @Override
@@ -290,4 +528,64 @@ public class DefaultChocoScheduler implements ChocoScheduler {
     public List<BiConsumer<ReconfigurationProblem, ReconfigurationPlan>> solutionListeners() {
         return params.solutionListeners();
     }
+
+    @Override
+    public Parameters addStopCriterion(Criterion c) {
+        return params.addStopCriterion(c);
+    }
+
+    @Override
+    public boolean removeStopCriterion(Criterion c) {
+        return params.removeStopCriterion(c);
+    }
+
+    @Override
+    public List<Criterion> stopCriteria() {
+        return params.stopCriteria();
+    }
+
+    /**
+     * The state of a solving process.
+     */
+    private static final class Solving {
+
+        private final InstanceSolver runner;
+
+        private StagedSolvingStatistics stages;
+
+        private CachedSolvingStatistics cached;
+
+        Solving(InstanceSolver r) {
+            runner = r;
+        }
+
+        /**
+         * Get the statistics of the computation, without the cache lookup.
+         */
+        SolvingStatistics computed() throws SchedulerException {
+            if (stages == null) {
+                return runner.getStatistics();
+            }
+            return stages;
+        }
+
+        SolvingStatistics statistics() throws SchedulerException {
+            if (cached != null) {
+                return cached;
+            }
+            return computed();
+        }
+
+        /**
+         * Get the statistics, if they can be computed.
+         */
+        @SuppressWarnings("squid:S1166")
+        SolvingStatistics statisticsIfAny() {
+            try {
+                return statistics();
+            } catch (@SuppressWarnings("unused") RuntimeException ex) {
+                return null;
+            }
+        }
+    }
 }
@@ -27,7 +27,7 @@ import org.btrplace.scheduler.choco.view.DefaultAliasedCumulatives;
 import org.btrplace.scheduler.choco.view.DefaultCumulatives;
 import org.btrplace.scheduler.choco.view.VectorPacking;
 import org.chocosolver.memory.IEnvironment;
-import org.chocosolver.memory.trailing.EnvironmentTrailing;
+import org.chocosolver.util.criteria.Criterion;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -38,6 +38,7 @@ import java.util.function.BiConsumer;
  * Default implementation of {@link Parameters}.
  * <ul>
  * <li>repair mode is disabled</li>
+ * <li>network-aware problems are solved in two passes</li>
  * <li>no time limit</li>
  * <li>a default horizon of 1 hour</li>
  * <li>the transition factory comes from {@link org.btrplace.scheduler.choco.transition.TransitionFactory#newBundle()}</li>
@@ -71,10 +72,20 @@ public class DefaultParameters implements Parameters {
 
     private boolean repair = false;
 
+    private boolean adaptiveRepair = false;
+
+    private boolean singlePassNetwork = false;
+
+    private boolean compaction = false;
+
+    private boolean instrumentation = false;
+
     private DurationEvaluators durationEvaluators;
 
     private List<BiConsumer<ReconfigurationProblem, ReconfigurationPlan>> solutionListeners;
 
+    private List<Criterion> stopCriteria;
+
     /**
      * Default horizon is one hour.
      */
@@ -89,7 +100,7 @@ public class DefaultParameters implements Parameters {
         mapper = ChocoMapper.newBundle();
         durationEvaluators = DurationEvaluators.newBundle();
         amf = TransitionFactory.newBundle();
-        envf = mo -> new EnvironmentTrailing();
+        envf = new AdaptiveEnvironmentFactory();
         //Default solver views
         views = new ArrayList<>();
         views.add(VectorPacking.class);
@@ -97,6 +108,7 @@ public class DefaultParameters implements Parameters {
         views.add(DefaultAliasedCumulatives.class);
 
         solutionListeners = new ArrayList<>();
+        stopCriteria = new ArrayList<>();
     }
 
     /**
@@ -111,13 +123,18 @@ public class DefaultParameters implements Parameters {
         seed = ps.getRandomSeed();
         timeLimit = ps.getTimeLimit();
         repair = ps.doRepair();
+        adaptiveRepair = ps.doAdaptiveRepair();
+        singlePassNetwork = ps.doSinglePassNetwork();
+        compaction = ps.doPlanCompaction();
+        instrumentation = ps.doInstrumentation();
         durationEvaluators = ps.getDurationEvaluators();
         maxEnd = ps.getMaxEnd();
         verbosityLevel = ps.getVerbosity();
         views = ps.getChocoViews();
         mapper = ps.getMapper();
         envf = ps.getEnvironmentFactory();
-        solutionListeners = ps.solutionListeners();
+        solutionListeners = new ArrayList<>(ps.solutionListeners());
+        stopCriteria = new ArrayList<>(ps.stopCriteria());
     }
 
     @Override
@@ -131,6 +148,50 @@ public class DefaultParameters implements Parameters {
         return repair;
     }
 
+    @Override
+    public DefaultParameters doAdaptiveRepair(boolean b) {
+        adaptiveRepair = b;
+        return this;
+    }
+
+    @Override
+    public boolean doAdaptiveRepair() {
+        return adaptiveRepair;
+    }
+
+    @Override
+    public DefaultParameters doSinglePassNetwork(boolean b) {
+        singlePassNetwork = b;
+        return this;
+    }
+
+    @Override
+    public boolean doSinglePassNetwork() {
+        return singlePassNetwork;
+    }
+
+    @Override
+    public DefaultParameters doPlanCompaction(boolean b) {
+        compaction = b;
+        return this;
+    }
+
+    @Override
+    public boolean doPlanCompaction() {
+        return compaction;
+    }
+
+    @Override
+    public DefaultParameters doInstrumentation(boolean b) {
+        instrumentation = b;
+        return this;
+    }
+
+    @Override
+    public boolean doInstrumentation() {
+        return instrumentation;
+    }
+
     @Override
     public DefaultParameters doOptimize(boolean b) {
         optimize = b;
@@ -260,4 +321,20 @@ public class DefaultParameters implements Parameters {
     public List<BiConsumer<ReconfigurationProblem, ReconfigurationPlan>> solutionListeners() {
         return Collections.unmodifiableList(solutionListeners);
     }
+
+    @Override
+    public Parameters addStopCriterion(Criterion c) {
+        this.stopCriteria.add(c);
+        return this;
+    }
+
+    @Override
+    public boolean removeStopCriterion(Criterion c) {
+        return stopCriteria.remove(c);
+    }
+
+    @Override
+    public List<Criterion> stopCriteria() {
+        return Collections.unmodifiableList(stopCriteria);
+    }
 }
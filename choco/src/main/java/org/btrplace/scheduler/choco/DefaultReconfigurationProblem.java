@@ -60,6 +60,7 @@ import org.chocosolver.solver.search.strategy.strategy.SetStrategy;
 import org.chocosolver.solver.search.strategy.strategy.StrategiesSequencer;
 import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.util.ESat;
+import org.chocosolver.util.criteria.Criterion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,10 +73,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 
 /**
@@ -119,6 +118,13 @@ public class DefaultReconfigurationProblem implements ReconfigurationProblem {
 
     private ResolutionPolicy solvingPolicy;
 
+    /**
+     * {@code true} once the problem has been solved a first time.
+     */
+    private boolean prepared = false;
+
+    private List<Criterion> stopCriteria;
+
     private TransitionFactory amFactory;
 
     private Map<String, ChocoView> coreViews;
@@ -146,6 +152,32 @@ public class DefaultReconfigurationProblem implements ReconfigurationProblem {
                                   Set<VM> sleeping,
                                   Set<VM> killed,
                                   Set<VM> preRooted) throws SchedulerException {
+        this(m, ps, ProblemSizeEstimate.of(m, preRooted.size()), ready, running, sleeping, killed, preRooted);
+    }
+
+    /**
+     * Make a new RP where the next state for every VM is indicated.
+     * If the state for a VM is omitted, it is considered as unchanged
+     *
+     * @param m         the initial model
+     * @param ps        parameters to customize the problem
+     * @param est       the estimated size of the problem, to build the memory environment
+     * @param ready     the VMs that must be in the ready state
+     * @param running   the VMs that must be in the running state
+     * @param sleeping  the VMs that must be in the sleeping state
+     * @param killed    the VMs that must be killed
+     * @param preRooted the VMs that can be managed by the solver when they are already running and they must keep running
+     * @throws org.btrplace.scheduler.SchedulerException if an error occurred
+     * @see DefaultReconfigurationProblemBuilder to ease the instantiation process
+     */
+    DefaultReconfigurationProblem(Model m,
+                                  Parameters ps,
+                                  ProblemSizeEstimate est,
+                                  Set<VM> ready,
+                                  Set<VM> running,
+                                  Set<VM> sleeping,
+                                  Set<VM> killed,
+                                  Set<VM> preRooted) throws SchedulerException {
         this.ready = new HashSet<>(ready);
         this.running = new HashSet<>(running);
         this.sleeping = new HashSet<>(sleeping);
@@ -155,8 +187,9 @@ public class DefaultReconfigurationProblem implements ReconfigurationProblem {
         this.amFactory = ps.getTransitionFactory();
         model = m;
         durEval = ps.getDurationEvaluators();
+        stopCriteria = ps.stopCriteria();
 
-        IEnvironment env = ps.getEnvironmentFactory().build(m);
+        IEnvironment env = ps.getEnvironmentFactory().build(m, est);
         csp = new org.chocosolver.solver.Model(env, "");
         solver = csp.getSolver();
         start = fixed(0, "RP.start");
@@ -171,6 +204,8 @@ public class DefaultReconfigurationProblem implements ReconfigurationProblem {
 
         makeCardinalityVariables();
 
+        //The durations are evaluated in one pass, or re-used from a previous problem
+        durEval.prepare(m);
         makeNodeTransitions();
         makeVMTransitions();
 
@@ -197,27 +232,33 @@ public class DefaultReconfigurationProblem implements ReconfigurationProblem {
         if (!optimize) {
             solvingPolicy = ResolutionPolicy.SATISFACTION;
         }
-        linkCardinalityWithSlices();
-        addContinuousResourceCapacities();
-        getView(Packing.VIEW_ID).beforeSolve(this);
-        getView(Cumulatives.VIEW_ID).beforeSolve(this);
-        getView(AliasedCumulatives.VIEW_ID).beforeSolve(this);
+        //The core views are finalized only once, the problem may be solved again after a reset
+        if (!prepared) {
+            linkCardinalityWithSlices();
+            addContinuousResourceCapacities();
+            getView(Packing.VIEW_ID).beforeSolve(this);
+            getView(Cumulatives.VIEW_ID).beforeSolve(this);
+            getView(AliasedCumulatives.VIEW_ID).beforeSolve(this);
+
+            //getLogger().debug("{} constraints; {} integers", csp.getNbCstrs(), csp.getNbIntVar(true));
+            if (solver.getSearch() == null) {
+                defaultHeuristic();
+            }
 
-        //Set the timeout
-        if (timeLimit > 0) {
-            solver.limitTime(timeLimit * 1000L);
+            solver.plugMonitor((IMonitorSolution) () -> {
+                Solution s = new Solution(csp);
+                s.record();
+                solutions.add(s);
+            });
+            prepared = true;
         }
+        solutions.clear();
 
-        //getLogger().debug("{} constraints; {} integers", csp.getNbCstrs(), csp.getNbIntVar(true));
-        if (solver.getSearch() == null) {
-            defaultHeuristic();
+        //Set the timeout and the additional stop criteria
+        if (timeLimit > 0) {
+            solver.limitTime(timeLimit * 1000L);
         }
-
-        solver.plugMonitor((IMonitorSolution) () -> {
-            Solution s = new Solution(csp);
-            s.record();
-            solutions.add(s);
-        });
+        stopCriteria.forEach(solver::addStopCriterion);
 
         if (solvingPolicy == ResolutionPolicy.SATISFACTION) {
             solver.findSolution();
@@ -346,8 +387,8 @@ public class DefaultReconfigurationProblem implements ReconfigurationProblem {
     }
 
     private void linkCardinalityWithSlices() {
-        Stream<Slice> s = vmActions.stream().map(VMTransition::getDSlice).filter(Objects::nonNull);
-        IntVar[] ds = s.map(Slice::getHoster).toArray(IntVar[]::new);
+        //Same order than the other packing dimensions
+        IntVar[] ds = getFutureRunningVMs().stream().map(vm -> getVMAction(vm).getDSlice().getHoster()).toArray(IntVar[]::new);
         int[] usages = new int[ds.length];
         Arrays.fill(usages, 1);
         ChocoView v = getView(Packing.VIEW_ID);
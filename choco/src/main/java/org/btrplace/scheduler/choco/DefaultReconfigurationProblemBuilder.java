@@ -53,6 +53,8 @@ public class DefaultReconfigurationProblemBuilder {
 
     private Parameters ps;
 
+    private ProblemSizeEstimate estimate;
+
     /**
      * Make a new builder for a problem working on a given model.
      *
@@ -105,6 +107,19 @@ public class DefaultReconfigurationProblemBuilder {
         return this;
     }
 
+    /**
+     * Set the estimated size of the problem.
+     * By default, the size is estimated from the model and the manageable VMs.
+     *
+     * @param est the estimation
+     * @return the current builder
+     * @see EnvironmentFactory#build(Model, ProblemSizeEstimate)
+     */
+    public DefaultReconfigurationProblemBuilder setSizeEstimate(ProblemSizeEstimate est) {
+        estimate = est;
+        return this;
+    }
+
     /**
      * Build the problem
      *
@@ -136,7 +151,10 @@ public class DefaultReconfigurationProblemBuilder {
         if (ps == null) {
             ps = new DefaultParameters();
         }
-        return new DefaultReconfigurationProblem(model, ps, waits, runs, sleep, over, manageable);
+        if (estimate == null) {
+            estimate = ProblemSizeEstimate.of(model, manageable.size());
+        }
+        return new DefaultReconfigurationProblem(model, ps, estimate, waits, runs, sleep, over, manageable);
     }
 
 }
@@ -37,4 +37,16 @@ public interface EnvironmentFactory {
      * @return the memory environment
      */
     IEnvironment build(Model mo);
+
+    /**
+     * Build the memory environment for a problem of a given size.
+     * By default, the estimation is ignored.
+     *
+     * @param mo  the model that will be solved
+     * @param est the estimated size of the problem
+     * @return the memory environment
+     */
+    default IEnvironment build(Model mo, ProblemSizeEstimate est) {
+        return build(mo);
+    }
 }
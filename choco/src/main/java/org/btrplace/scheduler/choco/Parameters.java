@@ -23,6 +23,7 @@ import org.btrplace.scheduler.choco.constraint.ChocoMapper;
 import org.btrplace.scheduler.choco.duration.DurationEvaluators;
 import org.btrplace.scheduler.choco.transition.TransitionFactory;
 import org.btrplace.scheduler.choco.view.ChocoView;
+import org.chocosolver.util.criteria.Criterion;
 
 import java.util.List;
 import java.util.function.BiConsumer;
@@ -68,6 +69,26 @@ public interface Parameters {
      */
     boolean doRepair();
 
+    /**
+     * State if the repair mode must widen the set of manageable VMs when the problem
+     * happens to be unsatisfiable. Only meaningful when {@link #doRepair()} is {@code true}.
+     *
+     * @param b {@code true} to widen the set of manageable VMs on failure
+     * @return the current instance
+     */
+    Parameters doAdaptiveRepair(boolean b);
+
+    /**
+     * Indicate if the repair mode widens the set of manageable VMs on failure.
+     * When the problem restricted to the misplaced VMs has no solution, the set
+     * is widened progressively with the VMs sharing a node with a manageable VM, the VMs sharing a constraint
+     * with a manageable VM, the VMs hosted on nodes that are too loaded to accept a manageable VM,
+     * and finally all the VMs. The problem is solved again after every widening.
+     *
+     * @return {@code true} iff the set of manageable VMs is widened on failure
+     */
+    boolean doAdaptiveRepair();
+
     /**
      * State if the algorithm must try to improve the first computed solution.
      *
@@ -130,6 +151,67 @@ public interface Parameters {
      */
     Parameters setDurationEvaluators(DurationEvaluators dev);
 
+    /**
+     * State how a problem with a {@link org.btrplace.model.view.network.Network} view is solved.
+     * By default, a first problem without the network is solved to decide the VM placement. A second
+     * problem is then built from scratch to schedule the migrations according to the network.
+     * In single-pass mode, the first problem is kept: once a placement is computed, it is fixed,
+     * the bandwidth, durations and network cumulatives are added, and the scheduling continues on the
+     * same problem.
+     *
+     * @param b {@code true} to enable the single-pass mode
+     * @return the current instance
+     */
+    Parameters doSinglePassNetwork(boolean b);
+
+    /**
+     * Indicate if a network-aware problem is solved in a single pass.
+     *
+     * @return {@code true} iff the single-pass mode is enabled
+     * @see #doSinglePassNetwork(boolean)
+     */
+    boolean doSinglePassNetwork();
+
+    /**
+     * State if the computed plan must be compacted once the solving process ends.
+     * The actions are then left-shifted to remove the idle periods left by a search
+     * that was stopped early or that did not optimize.
+     *
+     * @param b {@code true} to compact the plan
+     * @return the current instance
+     * @see org.btrplace.plan.PlanCompactor
+     */
+    Parameters doPlanCompaction(boolean b);
+
+    /**
+     * Indicate if the computed plan is compacted once the solving process ends.
+     * The compacted plan is only retained when it still satisfies all the constraints.
+     *
+     * @return {@code true} iff the plan is compacted
+     * @see #doPlanCompaction(boolean)
+     */
+    boolean doPlanCompaction();
+
+    /**
+     * State if the solver activity must be instrumented during the search.
+     * The fails and the domain updates are then attributed to the constraints
+     * and the views that caused them. This slows down the propagation.
+     *
+     * @param b {@code true} to instrument the search
+     * @return the current instance
+     * @see org.btrplace.scheduler.choco.runner.SolvingStatistics#getComponentStatistics()
+     */
+    Parameters doInstrumentation(boolean b);
+
+    /**
+     * Indicate if the solver activity is instrumented during the search.
+     * The building steps are always instrumented.
+     *
+     * @return {@code true} iff the search is instrumented
+     * @see #doInstrumentation(boolean)
+     */
+    boolean doInstrumentation();
+
     /**
      * Set the maximum duration of a reconfiguration plan.
      *
@@ -241,4 +323,29 @@ public interface Parameters {
      * @return a list that may be empty.
      */
     List<BiConsumer<ReconfigurationProblem, ReconfigurationPlan>> solutionListeners();
+
+    /**
+     * Add a criterion to stop the solving process.
+     * The criteria are checked by the solver all along the search. Once a criterion is met,
+     * the search stops and the best solution computed so far is retained.
+     *
+     * @param c the criterion to add
+     * @return {@code this}
+     */
+    Parameters addStopCriterion(Criterion c);
+
+    /**
+     * Remove a stop criterion.
+     *
+     * @param c the criterion to remove
+     * @return {@code true} if the criterion has been removed
+     */
+    boolean removeStopCriterion(Criterion c);
+
+    /**
+     * Returns the stop criteria.
+     *
+     * @return a list that may be empty.
+     */
+    List<Criterion> stopCriteria();
 }
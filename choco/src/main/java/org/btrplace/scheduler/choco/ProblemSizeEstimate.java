@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco;
+
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * An estimation of the size of a reconfiguration problem, computed before the problem is built.
+ * <p>
+ * The number of variables and constraints are derived from the number of elements, the attached views and the
+ * constraints to satisfy. Only the order of magnitude is expected to be correct. The estimation is then used to
+ * size the trail of the solver: the number of updates stored along a search branch, the maximum search depth and
+ * the resulting number of updates per search level.
+ *
+ * @author Fabien Hermenier
+ */
+public final class ProblemSizeEstimate {
+
+    /**
+     * The estimated number of variables and constraints for each element.
+     */
+    private static final int NODE_VARS = 4;
+    private static final int NODE_CSTRS = 4;
+    private static final int MANAGED_VM_VARS = 7;
+    private static final int MANAGED_VM_CSTRS = 6;
+    private static final int STAYING_VM_VARS = 2;
+
+    /**
+     * The estimated size in bytes of a variable, a constraint and a trailed update.
+     */
+    private static final int VAR_BYTES = 160;
+    private static final int CSTR_BYTES = 320;
+    static final int UPDATE_BYTES = 16;
+
+    /**
+     * The minimal trail dimensions, the default ones of the solver.
+     */
+    private static final int MIN_DEPTH = 128;
+    private static final int MIN_UPDATES = 256;
+
+    /**
+     * The estimated number of times a variable or a constraint is trailed along a search branch.
+     */
+    private static final int TRAILS_PER_ITEM = 8;
+
+    private final int nbNodes;
+
+    private final int nbVMs;
+
+    private final int nbManagedVMs;
+
+    private final long nbVariables;
+
+    private final long nbConstraints;
+
+    private final int depth;
+
+    private final int updates;
+
+    private final int trail;
+
+    private ProblemSizeEstimate(int nbNodes, int nbVMs, int nbManagedVMs, long nbVariables, long nbConstraints) {
+        this.nbNodes = nbNodes;
+        this.nbVMs = nbVMs;
+        this.nbManagedVMs = nbManagedVMs;
+        this.nbVariables = nbVariables;
+        this.nbConstraints = nbConstraints;
+        //One decision per managed VM for its host and its start, one per node for its state
+        depth = ceilPow2(Math.max(MIN_DEPTH, 2L * nbManagedVMs + nbNodes));
+        trail = ceilPow2(Math.max((long) MIN_DEPTH * MIN_UPDATES, TRAILS_PER_ITEM * (nbVariables + nbConstraints)));
+        updates = ceilPow2(Math.max(MIN_UPDATES, trail / depth));
+    }
+
+    /**
+     * Estimate the size of the problem associated to a model, without any constraint.
+     * All the VMs are considered as manageable.
+     *
+     * @param mo the model
+     * @return the estimation
+     */
+    public static ProblemSizeEstimate of(Model mo) {
+        return of(mo, mo.getMapping().getNbVMs());
+    }
+
+    /**
+     * Estimate the size of the problem associated to a model, without any constraint.
+     *
+     * @param mo           the model
+     * @param nbManagedVMs the number of VMs the solver will manage. Bounded by the number of VMs
+     * @return the estimation
+     */
+    public static ProblemSizeEstimate of(Model mo, int nbManagedVMs) {
+        return of(mo, Collections.emptyList(), nbManagedVMs);
+    }
+
+    /**
+     * Estimate the size of the problem associated to an instance.
+     *
+     * @param i            the instance
+     * @param nbManagedVMs the number of VMs the solver will manage. Bounded by the number of VMs
+     * @return the estimation
+     */
+    public static ProblemSizeEstimate of(Instance i, int nbManagedVMs) {
+        return of(i.getModel(), i.getSatConstraints(), nbManagedVMs);
+    }
+
+    private static ProblemSizeEstimate of(Model mo, Collection<SatConstraint> cstrs, int managed) {
+        Mapping map = mo.getMapping();
+        int nbNodes = map.getNbNodes();
+        int nbVMs = map.getNbVMs();
+        int nbManaged = Math.max(0, Math.min(managed, nbVMs));
+        long vars = (long) NODE_VARS * nbNodes
+                + (long) MANAGED_VM_VARS * nbManaged
+                + (long) STAYING_VM_VARS * (nbVMs - nbManaged);
+        //The VMs that are not managed only get constants
+        long cs = (long) NODE_CSTRS * nbNodes + (long) MANAGED_VM_CSTRS * nbManaged;
+
+        for (ModelView v : mo.getViews()) {
+            if (v instanceof ShareableResource) {
+                //A load per node, a consumption per VM
+                vars += nbNodes + nbVMs;
+                cs += nbNodes;
+            } else {
+                vars += nbNodes;
+                cs += nbNodes;
+            }
+        }
+
+        for (SatConstraint c : cstrs) {
+            //One constraint per involved element, plus the scheduling part of the continuous ones
+            long nb = 1L + c.getInvolvedVMs().size() + c.getInvolvedNodes().size();
+            cs += c.isContinuous() ? 2 * nb : nb;
+        }
+        return new ProblemSizeEstimate(nbNodes, nbVMs, nbManaged, vars, cs);
+    }
+
+    private static int ceilPow2(long n) {
+        if (n >= 1 << 30) {
+            return 1 << 30;
+        }
+        return Integer.highestOneBit((int) Math.max(1, n - 1)) << 1;
+    }
+
+    /**
+     * Get the number of nodes.
+     *
+     * @return a positive number
+     */
+    public int getNbNodes() {
+        return nbNodes;
+    }
+
+    /**
+     * Get the number of VMs.
+     *
+     * @return a positive number
+     */
+    public int getNbVMs() {
+        return nbVMs;
+    }
+
+    /**
+     * Get the number of VMs that are expected to be managed by the solver.
+     *
+     * @return a positive number
+     */
+    public int getNbManagedVMs() {
+        return nbManagedVMs;
+    }
+
+    /**
+     * Get the estimated number of variables.
+     *
+     * @return a positive number
+     */
+    public long getNbVariables() {
+        return nbVariables;
+    }
+
+    /**
+     * Get the estimated number of constraints.
+     *
+     * @return a positive number
+     */
+    public long getNbConstraints() {
+        return nbConstraints;
+    }
+
+    /**
+     * Get the estimated maximum search depth.
+     *
+     * @return a power of 2
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Get the estimated number of updates stored in the trail per search level.
+     *
+     * @return a power of 2
+     */
+    public int getUpdatesPerLevel() {
+        return updates;
+    }
+
+    /**
+     * Get the estimated number of updates stored in the trail along a search branch.
+     *
+     * @return a power of 2
+     */
+    public int getTrailSize() {
+        return trail;
+    }
+
+    /**
+     * Get the estimated memory footprint of the problem.
+     * It includes the variables, the constraints and the trail along a search branch.
+     *
+     * @return an amount in bytes
+     */
+    public long getFootprint() {
+        return VAR_BYTES * nbVariables + CSTR_BYTES * nbConstraints + (long) UPDATE_BYTES * trail;
+    }
+
+    @Override
+    public String toString() {
+        return "~" + nbVariables + " variable(s); ~" + nbConstraints + " constraint(s); trail: " + trail
+                + " update(s) over " + depth + " level(s); footprint: ~" + (getFootprint() >> 10) + "KB";
+    }
+}
@@ -223,6 +223,8 @@ public interface ReconfigurationProblem {
 
     /**
      * Solve the RP and return a solution if exists.
+     * Once the solver has been reset, the RP can be customized then solved again.
+     * Only the solutions of the last call are then considered.
      *
      * @param timeLimit the timeout in second. Must be superior to 0 to be considered
      * @param optimize  {@code true} to make the solver try to improve the first computed solution.
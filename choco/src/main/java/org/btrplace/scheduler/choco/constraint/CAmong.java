@@ -27,10 +27,11 @@ import org.btrplace.model.constraint.Fence;
 import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.choco.Parameters;
 import org.btrplace.scheduler.choco.ReconfigurationProblem;
-import org.chocosolver.solver.constraints.Constraint;
+import org.btrplace.scheduler.choco.extensions.SameGroup;
 import org.chocosolver.solver.variables.IntVar;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -80,6 +81,7 @@ public class CAmong implements ChocoConstraint {
 
         List<Collection<Node>> groups = new ArrayList<>();
         groups.addAll(cstr.getGroupsOfNodes());
+        int[] grp = indexGroups(rp, groups);
 
         Set<VM> running = new HashSet<>();
         Mapping src = rp.getSourceModel().getMapping();
@@ -91,7 +93,7 @@ public class CAmong implements ChocoConstraint {
                 //If one of the VM is already placed, no need for the constraint, the group will be known
                 if (vAssign.isInstantiated()) {
                     //Get the group of nodes that match the selected node
-                    int g = getGroup(rp.getNode(vAssign.getValue()), groups);
+                    int g = grp[vAssign.getValue()];
                     if (errorReported(rp, vm, nextGrp, g)) {
                         return false;
                     }
@@ -101,8 +103,8 @@ public class CAmong implements ChocoConstraint {
 
             if (cstr.isContinuous() && src.isRunning(vm)) {
                 //The VM is already running, so we get its current group
-                Node curNode = src.getVMLocation(vm);
-                int g = getGroup(curNode, groups);
+                int idx = rp.getNode(src.getVMLocation(vm));
+                int g = idx >= 0 ? grp[idx] : -1;
                 if (errorReported(rp, vm, curGrp, g)) {
                     return false;
                 }
@@ -110,11 +112,33 @@ public class CAmong implements ChocoConstraint {
             }
         }
         if (cstr.isContinuous() && curGrp != -1) {
-            return restrictGroup(ps, rp, running, groups, curGrp);
+            return restrictGroup(ps, rp, running, groups, grp, curGrp);
         } else if (groups.size() == 1) {
-            return restrictGroup(ps, rp, running, groups, 0);
+            return restrictGroup(ps, rp, running, groups, grp, 0);
         }
-        return restrictGroup(ps, rp, running, groups, nextGrp);
+        return restrictGroup(ps, rp, running, groups, grp, nextGrp);
+    }
+
+    /**
+     * Make the table indicating the group each node belongs to.
+     *
+     * @param rp     the problem
+     * @param groups the groups of nodes
+     * @return a table indexed by node index. {@code -1} for the nodes that belong to no group
+     */
+    private static int[] indexGroups(ReconfigurationProblem rp, List<Collection<Node>> groups) {
+        int[] grp = new int[rp.getNodes().size()];
+        Arrays.fill(grp, -1);
+        //The groups are browsed in reverse order so a node belonging to several groups is in the first one
+        for (int g = groups.size() - 1; g >= 0; g--) {
+            for (Node n : groups.get(g)) {
+                int idx = rp.getNode(n);
+                if (idx >= 0) {
+                    grp[idx] = g;
+                }
+            }
+        }
+        return grp;
     }
 
     private boolean errorReported(ReconfigurationProblem rp, VM vm, int futureGroup, int g) {
@@ -132,27 +156,17 @@ public class CAmong implements ChocoConstraint {
         return false;
     }
 
-    private boolean restrictGroup(Parameters ps, ReconfigurationProblem rp, Set<VM> running, List<Collection<Node>> groups, int selected) {
+    private boolean restrictGroup(Parameters ps, ReconfigurationProblem rp, Set<VM> running, List<Collection<Node>> groups, int[] grp, int selected) {
         if (selected == -1) {
             //Now, we create a variable to indicate on which group of nodes the VMs will be
             vmGrpId = rp.getModel().intVar(rp.makeVarLabel(GROUP_LABEL), 0, groups.size() - 1, false);
-            //grp: A table to indicate the group each node belong to, -1 for no group
-            int[] grp = new int[rp.getNodes().size()];
-            for (int i = 0; i < grp.length; i++) {
-                Node n = rp.getNode(i);
-                int idx = getGroup(n, groups);
-                if (idx >= 0) {
-                    grp[i] = idx;
-                } else {
-                    grp[i] = -1;
-                }
-            }
-            //We link the VM placement variable with the group variable
+            //We link the VM placement variables with the group variable
+            IntVar[] hosters = new IntVar[running.size()];
+            int i = 0;
             for (VM vm : running) {
-                IntVar assign = rp.getVMAction(vm).getDSlice().getHoster();
-                Constraint c = rp.getModel().element(vmGrpId, grp, assign, 0/*, "detect"*/);
-                rp.getModel().post(c);
+                hosters[i++] = rp.getVMAction(vm).getDSlice().getHoster();
             }
+            rp.getModel().post(new SameGroup(vmGrpId, grp, hosters));
         } else {
             //As the group is already known, it's now just a fence constraint
             vmGrpId = rp.fixed(selected, GROUP_LABEL);
@@ -139,8 +139,8 @@ public class CResourceCapacity implements ChocoConstraint {
                 cUse.add(rcm.getSourceResource().getConsumption(vmId));
             }
             if (d != null) {
-                int m = rcm.getVMAllocation(rp.getVM(vmId));
-                dUse.add(rp.fixed(m, "vmAllocation('", rcm.getResourceIdentifier(), "', '", vmId, "'"));
+                //The allocation is only known once the views are prepared
+                dUse.add(rcm.getFutureVMAllocation(rp.getVM(vmId)));
             }
         }
         ChocoView v = rp.getView(AliasedCumulatives.VIEW_ID);
@@ -39,6 +39,9 @@ import java.util.Map;
 
 /**
  * Placement heuristic implementing a worst fit.
+ * The capacities are indexed by node and the loads are normalised in a re-used buffer
+ * so browsing the candidate nodes does not allocate.
+ *
  * @author Fabien Hermenier
  */
 public class WorstFit implements IntValueSelector {
@@ -57,7 +60,15 @@ public class WorstFit implements IntValueSelector {
 
     private TIntObjectMap<int[]> usages;
 
-    private TIntObjectMap<int[]> capacities;
+    /**
+     * The capacity of every node, per dimension.
+     */
+    private int[][] capacities;
+
+    /**
+     * Per dimension normalised loads, re-used for every evaluation.
+     */
+    private double[] normalised;
 
     /**
      * New heuristic.
@@ -93,16 +104,16 @@ public class WorstFit implements IntValueSelector {
         }
 
         usages = new TIntObjectHashMap<>();
-        capacities = new TIntObjectHashMap<>();
-      for (Node node : rp.getNodes()) {
-        int nIdx = rp.getNode(node);
-        int[] capa = new int[rcs.size()];
-        for (int i = 0; i < rcs.size(); i++) {
-          capa[i] += rcs.get(i).getVirtualUsage().get(nIdx).getUB() * rcs.get(i).getOverbookRatio(nIdx);
+        capacities = new int[rp.getNodes().size()][];
+        for (Node node : rp.getNodes()) {
+            int nIdx = rp.getNode(node);
+            int[] capa = new int[rcs.size()];
+            for (int i = 0; i < rcs.size(); i++) {
+                capa[i] += rcs.get(i).getVirtualUsage().get(nIdx).getUB() * rcs.get(i).getOverbookRatio(nIdx);
+            }
+            capacities[nIdx] = capa;
         }
-        capacities.put(nIdx, capa);
-
-      }
+        normalised = new double[rcs.size()];
     }
 
     @Override
@@ -115,12 +126,9 @@ public class WorstFit implements IntValueSelector {
         //Get the load
         int leastId = v.getLB();
         double minLoad = 2;
-        IStateInt[] loads = new IStateInt[rcs.size()];
+        int[] usage = usage(rp.getVM(vm));
         for (int nId = v.getLB(); nId <= v.getUB(); nId = v.nextValue(nId)) {
-            for (int d = 0; d < rcs.size(); d++) {
-                loads[d] = packing.assignedLoad()[d][nId];
-            }
-            double global = loadWith(nId, loads, vm);
+            double global = loadWith(nId, usage);
 
             if (global < minLoad) {
                 leastId = nId;
@@ -130,14 +138,6 @@ public class WorstFit implements IntValueSelector {
         return leastId;
     }
 
-    private IStateInt[] load(int nId) {
-        IStateInt[] loads = new IStateInt[rcs.size()];
-        for (int d = 0; d < rcs.size(); d++) {
-            loads[d] = packing.assignedLoad()[d][nId];
-        }
-        return loads;
-    }
-
     private int[] usage(int vId) {
         int[] usage = usages.get(vId);
         if (usage == null) {
@@ -151,12 +151,11 @@ public class WorstFit implements IntValueSelector {
 
     }
 
-    private double loadWith(int nId, IStateInt[] loads, VM vm) {
-      int[] capas = capacities.get(nId);
-        double[] normalised = new double[capas.length];
-        int[] usage = usage(rp.getVM(vm));
+    private double loadWith(int nId, int[] usage) {
+        IStateInt[][] loads = packing.assignedLoad();
+        int[] capas = capacities[nId];
         for (int i = 0; i < capas.length; i++) {
-            normalised[i] = (1.0d * loads[i].get() + usage[i]) / capas[i];
+            normalised[i] = (1.0d * loads[i][nId].get() + usage[i]) / capas[i];
         }
         return globalLoad.getLoad(normalised);
     }
@@ -174,8 +173,7 @@ public class WorstFit implements IntValueSelector {
             if (!rp.getVMAction(vm).getDSlice().getHoster().contains(curPos)) {
                 return false;
             }
-            IStateInt[] loads = load(curPos);
-            return loadWith(curPos, loads, vm) <= 1.0;
+            return loadWith(curPos, usage(rp.getVM(vm))) <= 1.0;
         }
         return false;
     }
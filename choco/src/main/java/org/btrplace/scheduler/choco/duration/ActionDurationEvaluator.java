@@ -21,6 +21,8 @@ package org.btrplace.scheduler.choco.duration;
 import org.btrplace.model.Element;
 import org.btrplace.model.Model;
 
+import java.util.Collection;
+
 
 /**
  * Interface to specify the duration evaluator for a possible action on an element.
@@ -38,4 +40,30 @@ public interface ActionDurationEvaluator<E extends Element> {
      * @return a positive integer
      */
     int evaluate(Model mo, E e);
+
+    /**
+     * Evaluate the duration of the action on multiple elements.
+     *
+     * @param mo    the model to consider
+     * @param elems the elements
+     * @return the durations, in the iteration order of {@code elems}
+     */
+    default int[] evaluate(Model mo, Collection<? extends E> elems) {
+        int[] res = new int[elems.size()];
+        int i = 0;
+        for (E e : elems) {
+            res[i++] = evaluate(mo, e);
+        }
+        return res;
+    }
+
+    /**
+     * Indicate whether the evaluated durations only depend on the attributes of the model.
+     * In that case, the durations can be memorised as long as the attributes are not modified.
+     *
+     * @return {@code false} by default
+     */
+    default boolean dependsOnAttributesOnly() {
+        return false;
+    }
 }
@@ -22,6 +22,10 @@ import org.btrplace.model.Attributes;
 import org.btrplace.model.Element;
 import org.btrplace.model.Model;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * A duration evaluator that try to get a duration from an attribute
  * if exists. Otherwise, it relies on a "parent" evaluator.
@@ -35,6 +39,11 @@ public class ActionDurationFromOptionalAttribute<E extends Element> implements A
 
     private String key;
 
+    /**
+     * The value denoting a missing attribute in a batch evaluation.
+     */
+    private static final int UNSET = Integer.MIN_VALUE;
+
     /**
      * Make a new evaluator.
      *
@@ -55,6 +64,40 @@ public class ActionDurationFromOptionalAttribute<E extends Element> implements A
         return parent.evaluate(mo, e);
     }
 
+    /**
+     * {@inheritDoc}
+     * The attribute is read in one pass. The parent evaluator is then used for the elements
+     * not having the attribute.
+     */
+    @Override
+    public int[] evaluate(Model mo, Collection<? extends E> elems) {
+        Attributes attrs = mo.getAttributes();
+        int[] res = attrs.get(elems, key, UNSET);
+        //The elements without the attribute and their position
+        List<E> others = new ArrayList<>();
+        int[] pos = new int[res.length];
+        int i = 0;
+        for (E e : elems) {
+            if (res[i] == UNSET && !attrs.isSet(e, key)) {
+                pos[others.size()] = i;
+                others.add(e);
+            }
+            i++;
+        }
+        if (!others.isEmpty()) {
+            int[] ds = parent.evaluate(mo, others);
+            for (int j = 0; j < ds.length; j++) {
+                res[pos[j]] = ds[j];
+            }
+        }
+        return res;
+    }
+
+    @Override
+    public boolean dependsOnAttributesOnly() {
+        return parent.dependsOnAttributesOnly();
+    }
+
     /**
      * Get the parent evaluator to use when
      * the attribute is not set.
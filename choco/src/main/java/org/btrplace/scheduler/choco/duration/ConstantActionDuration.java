@@ -21,6 +21,9 @@ package org.btrplace.scheduler.choco.duration;
 import org.btrplace.model.Element;
 import org.btrplace.model.Model;
 
+import java.util.Arrays;
+import java.util.Collection;
+
 
 /**
  * Evaluate an action duration to a constant.
@@ -45,6 +48,18 @@ public class ConstantActionDuration<E extends Element> implements ActionDuration
         return duration;
     }
 
+    @Override
+    public int[] evaluate(Model mo, Collection<? extends E> elems) {
+        int[] res = new int[elems.size()];
+        Arrays.fill(res, duration);
+        return res;
+    }
+
+    @Override
+    public boolean dependsOnAttributesOnly() {
+        return true;
+    }
+
 
     @Override
     public String toString() {
@@ -18,6 +18,7 @@
 
 package org.btrplace.scheduler.choco.duration;
 
+import org.btrplace.model.Attributes;
 import org.btrplace.model.Element;
 import org.btrplace.model.Model;
 import org.btrplace.plan.event.Action;
@@ -27,6 +28,7 @@ import org.btrplace.plan.event.BootVM;
 import org.btrplace.plan.event.ForgeVM;
 import org.btrplace.plan.event.KillVM;
 import org.btrplace.plan.event.MigrateVM;
+import org.btrplace.plan.event.NodeEvent;
 import org.btrplace.plan.event.ResumeVM;
 import org.btrplace.plan.event.ShutdownNode;
 import org.btrplace.plan.event.ShutdownVM;
@@ -34,8 +36,10 @@ import org.btrplace.plan.event.SuspendVM;
 import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.SchedulerModelingException;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class to store the {@link ActionDurationEvaluator} associated to each of the possible actions.
@@ -43,6 +47,9 @@ import java.util.Map;
  * By default, each action is associated to a {@link ActionDurationFromOptionalAttribute} evaluator.
  * See https://github.com/fhermeni/btrplace-solver/wiki/attributes to get the attribute identifiers.
  * If the attribute is not set, a {@link ConstantActionDuration} is used and evaluate the duration to 1 second.
+ * <p>
+ * The durations of a model can be evaluated in one pass using {@link #prepare(Model)}. They are then
+ * kept across the solving processes as long as the model attributes are not modified.
  *
  * @author Fabien Hermenier
  */
@@ -50,12 +57,17 @@ public class DurationEvaluators {
 
     private Map<Class<? extends Action>, ActionDurationEvaluator<Element>> durations;
 
+    /**
+     * The durations memorised by {@link #prepare(Model)}.
+     */
+    private Map<Class<? extends Action>, Memo> memos;
 
     /**
      * Make a new mapper.
      */
     public DurationEvaluators() {
         durations = new HashMap<>();
+        memos = new ConcurrentHashMap<>();
     }
 
     /**
@@ -66,6 +78,7 @@ public class DurationEvaluators {
      * @return {@code false} if this action delete a previous evaluator for that action
      */
     public boolean register(Class<? extends Action> a, ActionDurationEvaluator e) {
+        memos.remove(a);
         return durations.put(a, e) == null;
     }
 
@@ -77,6 +90,7 @@ public class DurationEvaluators {
      * @return {@code true} if a {@link ActionDurationEvaluator} was associated to the action.
      */
     public boolean unRegister(Class<? extends Action> a) {
+        memos.remove(a);
         return durations.remove(a) != null;
     }
 
@@ -102,6 +116,7 @@ public class DurationEvaluators {
 
     /**
      * Evaluate the duration of given action on a given element.
+     * The duration is read from the memorised durations if they are still valid.
      *
      * @param mo the model to consider
      * @param a  the action' class
@@ -113,13 +128,100 @@ public class DurationEvaluators {
         if (ev == null) {
             throw new SchedulerModelingException(null, "Unable to estimate the duration of action '" + a.getSimpleName() + "' related to '" + e + "'");
         }
-        int d = ev.evaluate(mo, e);
+        int d = 0;
+        Memo m = memos.get(a);
+        if (m != null && m.isValidFor(ev, mo.getAttributes()) && e.id() >= 0 && e.id() < m.durations.length) {
+            d = m.durations[e.id()];
+        }
+        if (d == 0) {
+            d = ev.evaluate(mo, e);
+        }
         if (d <= 0) {
             throw new SchedulerModelingException(null, "The duration for action " + a.getSimpleName() + " over '" + e + "' has been evaluated to a negative value (" + d + "). Unsupported");
         }
         return d;
     }
 
+    /**
+     * Evaluate the duration of a given action on all the elements of a model in one pass.
+     * The node actions are evaluated for the nodes of the mapping, the other actions for its VMs.
+     *
+     * @param mo the model to consider
+     * @param a  the action' class
+     * @return the durations, indexed by element identifier. {@code 0} for the identifiers of the elements
+     * that are not in the mapping
+     * @throws SchedulerException if there is no evaluator for the action or if a duration is not strictly positive
+     */
+    public int[] evaluate(Model mo, Class<? extends Action> a) throws SchedulerException {
+        ActionDurationEvaluator<Element> ev = durations.get(a);
+        if (ev == null) {
+            throw new SchedulerModelingException(mo, "Unable to estimate the duration of action '" + a.getSimpleName() + "'");
+        }
+        Memo m = memos.get(a);
+        if (m == null || !m.isValidFor(ev, mo.getAttributes())) {
+            m = memorise(mo, a, ev);
+        }
+        if (!m.positive) {
+            throw new SchedulerModelingException(mo, "The duration for action " + a.getSimpleName() + " has been evaluated to a negative value for some elements. Unsupported");
+        }
+        return m.durations.clone();
+    }
+
+    /**
+     * Evaluate the durations of every action on all the elements of a model, one action at a time.
+     * The durations computed by an evaluator that {@link ActionDurationEvaluator#dependsOnAttributesOnly()}
+     * are memorised and re-used by the subsequent evaluations over that model until its attributes are modified.
+     * The memorised durations of another model are discarded.
+     *
+     * @param mo the model to consider
+     */
+    public void prepare(Model mo) {
+        for (Map.Entry<Class<? extends Action>, ActionDurationEvaluator<Element>> e : durations.entrySet()) {
+            ActionDurationEvaluator<Element> ev = e.getValue();
+            Memo m = memos.get(e.getKey());
+            if (ev.dependsOnAttributesOnly() && (m == null || !m.isValidFor(ev, mo.getAttributes()))) {
+                try {
+                    memorise(mo, e.getKey(), ev);
+                } catch (RuntimeException ex) {
+                    //The faulty elements will be reported when their duration is evaluated
+                    memos.remove(e.getKey());
+                }
+            }
+        }
+    }
+
+    private Memo memorise(Model mo, Class<? extends Action> a, ActionDurationEvaluator<Element> ev) {
+        Attributes attrs = mo.getAttributes();
+        long version = attrs.version();
+        Collection<? extends Element> elems = NodeEvent.class.isAssignableFrom(a)
+                ? mo.getMapping().getAllNodes()
+                : mo.getMapping().getAllVMs();
+        int[] ds = ev.evaluate(mo, elems);
+        int max = -1;
+        for (Element e : elems) {
+            max = Math.max(max, e.id());
+        }
+        int[] byId = new int[max + 1];
+        boolean positive = true;
+        int i = 0;
+        for (Element e : elems) {
+            int d = ds[i++];
+            //Invalid durations are evaluated again to report the error
+            if (d > 0) {
+                byId[e.id()] = d;
+            } else {
+                positive = false;
+            }
+        }
+        Memo m = new Memo(ev, attrs, version, byId, positive);
+        if (ev.dependsOnAttributesOnly() && version >= 0) {
+            memos.put(a, m);
+        } else {
+            memos.remove(a);
+        }
+        return m;
+    }
+
     /**
      * Make a new {@code DurationEvaluators} and fulfill it
      * using default a default evaluator for each action.
@@ -142,4 +244,33 @@ public class DurationEvaluators {
         dev.register(Allocate.class, new ActionDurationFromOptionalAttribute<>("allocate", new ConstantActionDuration<>(1)));
         return dev;
     }
+
+    /**
+     * Durations indexed by element identifiers, valid as long as the evaluator
+     * and the attributes they were computed from are unchanged.
+     */
+    private static final class Memo {
+
+        private final ActionDurationEvaluator<Element> ev;
+
+        private final Attributes attrs;
+
+        private final long version;
+
+        private final int[] durations;
+
+        private final boolean positive;
+
+        Memo(ActionDurationEvaluator<Element> ev, Attributes attrs, long version, int[] durations, boolean positive) {
+            this.ev = ev;
+            this.attrs = attrs;
+            this.version = version;
+            this.durations = durations;
+            this.positive = positive;
+        }
+
+        boolean isValidFor(ActionDurationEvaluator<Element> e, Attributes a) {
+            return ev == e && attrs == a && version >= 0 && version == a.version();
+        }
+    }
 }
@@ -18,8 +18,8 @@
 
 package org.btrplace.scheduler.choco.extensions;
 
+import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.hash.TIntIntHashMap;
-import gnu.trove.set.hash.TIntHashSet;
 import org.chocosolver.memory.IStateInt;
 import org.chocosolver.memory.IStateIntVector;
 import org.chocosolver.solver.constraints.Constraint;
@@ -37,6 +37,10 @@ import java.util.BitSet;
 
 /**
  * A kind of cumulatives constraint where a single resource is shared among multiple identifiers.
+ * <p>
+ * The constraint may restrict several resources at once. In that case, a single propagator
+ * is in charge of all of them: the events are processed once, then all the resources
+ * are filtered in a same sweep.
  *
  * @author Fabien Hermenier
  * @see org.btrplace.scheduler.choco.extensions.TaskScheduler
@@ -66,12 +70,39 @@ public class AliasedCumulatives extends Constraint {
                               IntVar[] dStarts,
                               int[] assocs) {
 
-        super("AliasedCumulatives", new AliasedCumulativesPropagator(alias, capas, cHosters, cUsages, cEnds, dHosters, dUsages, dStarts, assocs));
+        this(new int[][]{alias}, new int[][]{capas}, cHosters, new int[][][]{cUsages}, cEnds, dHosters, new int[][][]{dUsages}, dStarts, assocs);
+    }
+
+    /**
+     * Make a new constraint over multiple resources.
+     * The identifiers of the resources may overlap.
+     *
+     * @param aliases  for each resource, the identifiers that compose the alias
+     * @param capas    for each resource, the capacity for each dimension
+     * @param cHosters the placement variable of each cTask
+     * @param cUsages  for each resource, the usage of each cTask for each dimension
+     * @param cEnds    the moment each cTask ends
+     * @param dHosters the placement variable of each dTask
+     * @param dUsages  for each resource, the usage of each dTask for each dimension
+     * @param dStarts  the moment each dTask starts
+     * @param assocs   indicate association between cTasks and dTasks. Associated tasks cannot overlap on a same resource
+     */
+    public AliasedCumulatives(int[][] aliases,
+                              int[][] capas,
+                              IntVar[] cHosters,
+                              int[][][] cUsages,
+                              IntVar[] cEnds,
+                              IntVar[] dHosters,
+                              int[][][] dUsages,
+                              IntVar[] dStarts,
+                              int[] assocs) {
+
+        super("AliasedCumulatives", new AliasedCumulativesPropagator(aliases, capas, cHosters, cUsages, cEnds, dHosters, dUsages, dStarts, assocs));
     }
 
     static class AliasedCumulativesPropagator extends Propagator<IntVar> {
 
-        private AliasedCumulativesFiltering resource;
+        private AliasedCumulativesFiltering[] resources;
 
         private IntVar[] cHosters;
 
@@ -81,40 +112,51 @@ public class AliasedCumulatives extends Constraint {
 
         private IntVar[] dStarts;
 
-        private int nbDims;
+        private int[][] capacities;
 
-        private int[] capacities;
+        private int[][][] cUsages;
 
-        private int[][] cUsages;
+        private int[][][] dUsages;
 
-        private int[][] dUsages;
+        /**
+         * For each resource, the dTasks hosted on one of its identifiers.
+         */
+        private IStateIntVector[] vIns;
 
-        private IStateIntVector vIns;
+        private IStateInt[] vInsSize;
 
-        private IStateInt vInsSize;
         /**
-         * 0 [0,1,2,4]
-         * 1 [0,1,2,4]
-         * 2 [2]
-         * 3 [3,5]
-         * 4 [0,1,2,4]
-         * 5 [3,5]
+         * For each resource, the cTasks hosted on one of its identifiers.
          */
-        private TIntHashSet alias;
+        private BitSet[] outs;
 
+        /**
+         * For each identifier, the resources it is a part of.
+         * With the aliases {0,1,2,4}, {2}, and {3,5}:
+         * 0 [0]
+         * 1 [0]
+         * 2 [0,1]
+         * 3 [2]
+         * 4 [0]
+         * 5 [2]
+         */
+        private int[][] resourcesOf;
+
+        /**
+         * The number of dTasks that are not placed yet.
+         */
         private IStateInt toInstantiate;
 
-        public AliasedCumulativesPropagator(int[] alias,
-                                            int[] capas,
+        public AliasedCumulativesPropagator(int[][] aliases,
+                                            int[][] capas,
                                             IntVar[] cHosters,
-                                            int[][] cUsages,
+                                            int[][][] cUsages,
                                             IntVar[] cEnds,
                                             IntVar[] dHosters,
-                                            int[][] dUsages,
+                                            int[][][] dUsages,
                                             IntVar[] dStarts,
                                             int[] assocs) {
             super(ArrayUtils.append(dHosters, cHosters, cEnds, dStarts), PropagatorPriority.VERY_SLOW, true);
-            this.alias = new TIntHashSet(alias);
             this.cHosters = cHosters;
             this.dHosters = dHosters;
             this.cEnds = cEnds;
@@ -124,21 +166,10 @@ public class AliasedCumulatives extends Constraint {
             this.cUsages = cUsages;
             this.dUsages = dUsages;
 
-            this.nbDims = capas.length;
+            resourcesOf = makeIndex(aliases);
+            toInstantiate = model.getEnvironment().makeInt(dHosters.length);
 
-            this.vIns = cHosters[0].getModel().getEnvironment().makeIntVector(0, 0);
-            vInsSize = cHosters[0].getModel().getEnvironment().makeInt(0);
-
-            BitSet out = new BitSet(cHosters.length);
-
-            for (int i = 0; i < cHosters.length; i++) {
-                int v = cHosters[i].getValue();
-                if (isIn(v)) {
-                    out.set(i);
-                }
-            }
-
-            int nbCTasks = cUsages[0].length;
+            int nbCTasks = cHosters.length;
 
             int[] revAssociations = new int[nbCTasks];
             for (int i = 0; i < revAssociations.length; i++) {
@@ -151,19 +182,78 @@ public class AliasedCumulatives extends Constraint {
                 }
             }
 
+            outs = new BitSet[aliases.length];
+            for (int r = 0; r < aliases.length; r++) {
+                outs[r] = new BitSet(nbCTasks);
+            }
+            for (int i = 0; i < nbCTasks; i++) {
+                for (int r : resourcesOf(cHosters[i].getValue())) {
+                    outs[r].set(i);
+                }
+            }
+
+            resources = new AliasedCumulativesFiltering[aliases.length];
+            vIns = new IStateIntVector[aliases.length];
+            vInsSize = new IStateInt[aliases.length];
+            for (int r = 0; r < aliases.length; r++) {
+                vIns[r] = model.getEnvironment().makeIntVector(0, 0);
+                vInsSize[r] = model.getEnvironment().makeInt(0);
+                resources[r] = new AliasedCumulativesFiltering(
+                        capas[r],
+                        cUsages[r],
+                        cEnds,
+                        outs[r],
+                        dUsages[r],
+                        dStarts,
+                        vIns[r],
+                        vInsSize[r],
+                        assocs,
+                        revAssociations,
+                        this);
+            }
+        }
+
+        private static int[][] makeIndex(int[][] aliases) {
+            int max = -1;
+            for (int[] alias : aliases) {
+                for (int id : alias) {
+                    max = Math.max(max, id);
+                }
+            }
+            TIntArrayList[] idx = new TIntArrayList[max + 1];
+            for (int r = 0; r < aliases.length; r++) {
+                for (int id : aliases[r]) {
+                    if (idx[id] == null) {
+                        idx[id] = new TIntArrayList();
+                    }
+                    //An identifier may be repeated inside an alias
+                    if (!idx[id].contains(r)) {
+                        idx[id].add(r);
+                    }
+                }
+            }
+            int[][] res = new int[idx.length][];
+            for (int id = 0; id < idx.length; id++) {
+                res[id] = idx[id] == null ? new int[0] : idx[id].toArray();
+            }
+            return res;
+        }
+
+        private int[] resourcesOf(int id) {
+            return id >= 0 && id < resourcesOf.length ? resourcesOf[id] : new int[0];
+        }
 
-            resource = new AliasedCumulativesFiltering(
-                    capacities,
-                    cUsages,
-                    cEnds,
-                    out,
-                    dUsages,
-                    dStarts,
-                    vIns,
-                    vInsSize,
-                    assocs,
-                    revAssociations,
-                    this);
+        /**
+         * Declare a dTask is now placed.
+         *
+         * @param i the dTask index
+         */
+        private void placed(int i) {
+            toInstantiate.add(-1);
+            for (int r : resourcesOf(dHosters[i].getValue())) {
+                vIns[r].add(i);
+                vInsSize[r].add(1);
+            }
         }
 
         @Override
@@ -196,52 +286,57 @@ public class AliasedCumulatives extends Constraint {
         @Override
         public void propagate(int evtmask) throws ContradictionException {
             if (PropagatorEventType.isFullPropagation(evtmask)) {
-                this.toInstantiate = cHosters[0].getModel().getEnvironment().makeInt(dHosters.length);
-
                 //Check whether some hosting variable are already instantiated
                 for (int i = 0; i < dHosters.length; i++) {
                     if (dHosters[i].isInstantiated()) {
-                        int nIdx = dHosters[i].getValue();
-                        if (isIn(nIdx)) {
-                            toInstantiate.add(-1);
-                            vIns.add(i);
-                            vInsSize.add(1);
-                        }
+                        placed(i);
                     }
                 }
-            } else {
-                long size;
+            } else if (toInstantiate.get() == 0) {
+                //A resource is filtered again only if the bounds of one of its tasks were updated
+                //since its last filtering
+                long[] sizes = new long[resources.length];
+                Arrays.fill(sizes, -1);
+                boolean changed;
                 do {
-                    size = 0;
-                    for (IntVar v : vars) {
-                        size += v.getDomainSize();
-                    }
-                    boolean isFull = true;
-                    for (IntVar v : dHosters) {
-                        if (!v.isInstantiated()) {
-                            isFull = false;
-                            break;
+                    changed = false;
+                    for (int r = 0; r < resources.length; r++) {
+                        long size = domainSize(r);
+                        if (size != sizes[r]) {
+                            if (!resources[r].propagate()) {
+                                fails();
+                            }
+                            sizes[r] = size;
+                            changed = true;
                         }
                     }
-                    if (isFull && !resource.propagate()) {
-                        fails();
-                    }
-                    for (IntVar v : vars) {
-                        size -= v.getDomainSize();
-                    }
-                } while (size > 0);
+                } while (changed);
             }
         }
 
+        /**
+         * Get the cumulated domain size of the time variables of the tasks hosted by a resource.
+         * As the domains can only shrink during a propagation, a new size indicates an update.
+         *
+         * @param r the resource
+         * @return the size
+         */
+        private long domainSize(int r) {
+            long size = 0;
+            BitSet out = outs[r];
+            for (int i = out.nextSetBit(0); i >= 0; i = out.nextSetBit(i + 1)) {
+                size += cEnds[i].getDomainSize();
+            }
+            for (int x = 0; x < vInsSize[r].get(); x++) {
+                size += dStarts[vIns[r].quickGet(x)].getDomainSize();
+            }
+            return size;
+        }
+
         @Override
         public void propagate(int idx, int m) throws ContradictionException {
             if (idx < dHosters.length) {
-                toInstantiate.add(-1);
-                int nIdx = vars[idx].getValue();
-                if (isIn(nIdx)) {
-                    vIns.add(idx);
-                    vInsSize.add(1);
-                }
+                placed(idx);
             }
             forcePropagate(PropagatorEventType.CUSTOM_PROPAGATION);
         }
@@ -268,37 +363,56 @@ public class AliasedCumulatives extends Constraint {
         }
 
         private ESat isSatisfied(int[] dHostersVals, int[] dStartsVals, int[] cHostersVals, int[] cEndsVals) {
+            for (int r = 0; r < resources.length; r++) {
+                if (!isSatisfied(r, dHostersVals, dStartsVals, cHostersVals, cEndsVals)) {
+                    return ESat.FALSE;
+                }
+            }
+            return ESat.TRUE;
+        }
+
+        private boolean isSatisfied(int r, int[] dHostersVals, int[] dStartsVals, int[] cHostersVals, int[] cEndsVals) {
+            int nbDims = capacities[r].length;
             //A map to save the changes of the resource (relatives to the previous moment) in the resources distribution
             TIntIntHashMap[] changes = new TIntIntHashMap[nbDims];
-            int[] currentFree = Arrays.copyOf(capacities, capacities.length);
+            int[] currentFree = Arrays.copyOf(capacities[r], nbDims);
 
             for (int i = 0; i < nbDims; i++) {
                 changes[i] = new TIntIntHashMap();
                 for (int j = 0; j < dHostersVals.length; j++) {
                     //for each placed dSlices, we get the used resource and the moment the slice arrives on it
-                    if (isIn(dHostersVals[j])) {
-                        changes[i].put(dStartsVals[j], changes[i].get(dStartsVals[j]) - dUsages[i][j]);
+                    if (isIn(r, dHostersVals[j])) {
+                        changes[i].put(dStartsVals[j], changes[i].get(dStartsVals[j]) - dUsages[r][i][j]);
                     }
                 }
 
                 for (int j = 0; j < cHostersVals.length; j++) {
-                    if (isIn(cHostersVals[j])) {
-                        changes[i].put(cEndsVals[j], changes[i].get(cEndsVals[j]) + cUsages[i][j]);
-                        currentFree[i] -= cUsages[i][j];
+                    if (isIn(r, cHostersVals[j])) {
+                        changes[i].put(cEndsVals[j], changes[i].get(cEndsVals[j]) + cUsages[r][i][j]);
+                        currentFree[i] -= cUsages[r][i][j];
                     }
                 }
 
-                for (int x = 0; x < changes[i].keys().length; x++) {
-                    currentFree[i] += changes[i].get(x);
+                //Replay the changes in chronological order
+                int[] moments = changes[i].keys();
+                Arrays.sort(moments);
+                for (int t : moments) {
+                    currentFree[i] += changes[i].get(t);
                     if (currentFree[i] < 0) {
-                        return ESat.FALSE;
+                        return false;
                     }
                 }
             }
-            return ESat.TRUE;
+            return true;
         }
-        private boolean isIn(int idx) {
-            return alias.contains(idx);
+
+        private boolean isIn(int r, int idx) {
+            for (int x : resourcesOf(idx)) {
+                if (x == r) {
+                    return true;
+                }
+            }
+            return false;
         }
     }
 
@@ -62,8 +62,6 @@ public class AliasedCumulativesFiltering {
 
     private int[] startupFree;
 
-    private static final boolean DEBUG = true;
-
     private int[] associations;
 
     private int[] revAssociations;
@@ -269,7 +267,7 @@ public class AliasedCumulativesFiltering {
     }
 
     private void summary() {
-        if (!DEBUG) {
+        if (!LOGGER.isDebugEnabled()) {
             return;
         }
         LOGGER.debug("--- startup=(" + Arrays.toString(startupFree) + ")"
@@ -342,7 +340,7 @@ public class AliasedCumulativesFiltering {
             int t = sortedMinProfile[x];
             for (int i = 0; i < nbDims; i++) {
                 if (profilesMin[i].get(t) > capacities[i]) {
-                    if (DEBUG) {
+                    if (LOGGER.isDebugEnabled()) {
                         LOGGER.debug("Invalid min profile at " + t + " on dimension " + i
                                 + ": " + profilesMin[i].get(t) + " > " + capacities[i]);
                     }
@@ -421,7 +419,7 @@ public class AliasedCumulativesFiltering {
                     }
                 }
                 if (lastT != -1) {
-                    if (DEBUG) {
+                    if (LOGGER.isDebugEnabled()) {
                         LOGGER.debug(cEnds[i].toString() + " cEndsSup =" + lastT);
                     }
                     cEnds[i].updateUpperBound(lastT, aCause);
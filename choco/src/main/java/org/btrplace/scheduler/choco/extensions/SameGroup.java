@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.scheduler.choco.extensions;
+
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.util.ESat;
+import org.chocosolver.util.tools.ArrayUtils;
+
+/**
+ * A constraint to force a set of variables to take their values inside a same group of values.
+ * The values are partitioned into groups using a table, and a group variable denotes the selected group.
+ * It is equivalent to one {@code element(group, table, var)} constraint per variable,
+ * but the variables are filtered by a single propagator.
+ *
+ * @author Fabien Hermenier
+ */
+public class SameGroup extends Constraint {
+
+    /**
+     * Make a new constraint.
+     *
+     * @param group  the variable denoting the group identifier
+     * @param groups the group of each value. {@code -1} if the value belongs to no group
+     * @param vars   the variables to restrict
+     */
+    public SameGroup(IntVar group, int[] groups, IntVar[] vars) {
+        super("SameGroup", new SameGroupPropagator(group, groups, vars));
+    }
+
+    /**
+     * The propagator of {@link SameGroup}.
+     * The first variable is the group variable.
+     */
+    static class SameGroupPropagator extends Propagator<IntVar> {
+
+        private final int[] groups;
+
+        /**
+         * For each value, the last value of the run of consecutive values in the same group.
+         */
+        private final int[] runEnd;
+
+        /**
+         * For each group, the last stamp it was seen with.
+         */
+        private final int[] seen;
+
+        private int stamp;
+
+        SameGroupPropagator(IntVar group, int[] groups, IntVar[] vars) {
+            super(ArrayUtils.append(new IntVar[]{group}, vars), PropagatorPriority.LINEAR, true);
+            this.groups = groups;
+            int max = -1;
+            for (int g : groups) {
+                max = Math.max(max, g);
+            }
+            seen = new int[max + 1];
+            runEnd = new int[groups.length];
+            for (int v = groups.length - 1; v >= 0; v--) {
+                runEnd[v] = v + 1 < groups.length && groups[v + 1] == groups[v] ? runEnd[v + 1] : v;
+            }
+        }
+
+        private int groupOf(int v) {
+            return v >= 0 && v < groups.length ? groups[v] : -1;
+        }
+
+        private int runEnd(int v) {
+            return v >= 0 && v < groups.length ? runEnd[v] : v;
+        }
+
+        @Override
+        public void propagate(int mask) throws ContradictionException {
+            for (int i = 1; i < vars.length; i++) {
+                filterGroup(i);
+            }
+            //Removing out-of-group values never removes the support of a remaining group
+            filterVariables();
+        }
+
+        @Override
+        public void propagate(int idx, int mask) throws ContradictionException {
+            if (idx == 0) {
+                filterVariables();
+            } else if (!vars[0].isInstantiated() && filterGroup(idx)) {
+                //Once the group is known, the variables are already restricted to it
+                filterVariables();
+            }
+        }
+
+        /**
+         * Remove from every variable the values that are out of the possible groups.
+         * The values are browsed by runs of a same group, and the consecutive runs to remove
+         * are removed at once.
+         */
+        private void filterVariables() throws ContradictionException {
+            IntVar grp = vars[0];
+            for (int i = 1; i < vars.length; i++) {
+                IntVar v = vars[i];
+                int ub = v.getUB();
+                int from = Integer.MIN_VALUE;
+                int to = Integer.MIN_VALUE;
+                for (int val = v.getLB(); val <= ub; val = v.nextValue(runEnd(val))) {
+                    if (grp.contains(groupOf(val))) {
+                        if (from != Integer.MIN_VALUE) {
+                            v.removeInterval(from, to, this);
+                            from = Integer.MIN_VALUE;
+                        }
+                    } else {
+                        if (from == Integer.MIN_VALUE) {
+                            from = val;
+                        }
+                        to = runEnd(val);
+                    }
+                }
+                if (from != Integer.MIN_VALUE) {
+                    v.removeInterval(from, to, this);
+                }
+            }
+        }
+
+        /**
+         * Remove from the group variable the groups a variable cannot take a value in.
+         *
+         * @param idx the variable index
+         * @return {@code true} iff the group variable was modified
+         */
+        private boolean filterGroup(int idx) throws ContradictionException {
+            IntVar grp = vars[0];
+            IntVar v = vars[idx];
+            stamp++;
+            int nb = 0;
+            int ub = v.getUB();
+            for (int val = v.getLB(); val <= ub && nb < grp.getDomainSize(); val = v.nextValue(runEnd(val))) {
+                int g = groupOf(val);
+                if (g >= 0 && seen[g] != stamp) {
+                    seen[g] = stamp;
+                    if (grp.contains(g)) {
+                        nb++;
+                    }
+                }
+            }
+            if (nb == grp.getDomainSize()) {
+                return false;
+            }
+            boolean changed = false;
+            int gUb = grp.getUB();
+            for (int g = grp.getLB(); g <= gUb; g = grp.nextValue(g)) {
+                if (g < 0 || g >= seen.length || seen[g] != stamp) {
+                    changed |= grp.removeValue(g, this);
+                }
+            }
+            return changed;
+        }
+
+        @Override
+        public ESat isEntailed() {
+            IntVar grp = vars[0];
+            boolean all = grp.isInstantiated();
+            for (int i = 1; i < vars.length; i++) {
+                IntVar v = vars[i];
+                if (v.isInstantiated()) {
+                    if (!grp.contains(groupOf(v.getValue()))) {
+                        return ESat.FALSE;
+                    }
+                } else {
+                    all = false;
+                }
+            }
+            return all ? ESat.TRUE : ESat.UNDEFINED;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.runner;
+
+import org.btrplace.model.Instance;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.ProblemSizeEstimate;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics of a solving process made through a {@link SolutionCache}.
+ * The statistics are the one of the process that computed the plan, completed with the counters of the cache.
+ *
+ * @author Fabien Hermenier
+ */
+public class CachedSolvingStatistics implements SolvingStatistics {
+
+    private final SolvingStatistics base;
+
+    private final Instance instance;
+
+    private final ReconfigurationPlan plan;
+
+    private final boolean hit;
+
+    private final long hits;
+
+    private final long misses;
+
+    /**
+     * New statistics.
+     *
+     * @param base   the statistics of the process that computed the plan
+     * @param i      the instance that was solved
+     * @param p      the resulting plan. {@code null} if there is no solution
+     * @param hit    {@code true} iff the plan comes from the cache
+     * @param hits   the number of cache hits
+     * @param misses the number of cache misses
+     */
+    public CachedSolvingStatistics(SolvingStatistics base, Instance i, ReconfigurationPlan p, boolean hit, long hits, long misses) {
+        this.base = base;
+        this.instance = i;
+        this.plan = p;
+        this.hit = hit;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * Indicate if the plan comes from the cache.
+     *
+     * @return {@code true} iff no solving process was run
+     */
+    public boolean isCacheHit() {
+        return hit;
+    }
+
+    /**
+     * Get the statistics of the solving process that computed the plan.
+     *
+     * @return statistics
+     */
+    public SolvingStatistics getBase() {
+        return base;
+    }
+
+    @Override
+    public Instance getInstance() {
+        return instance;
+    }
+
+    @Override
+    public long getCoreBuildDuration() {
+        return base.getCoreBuildDuration();
+    }
+
+    @Override
+    public long getSpecializationDuration() {
+        return base.getSpecializationDuration();
+    }
+
+    @Override
+    public Map<String, Long> getBuildDurations() {
+        return base.getBuildDurations();
+    }
+
+    @Override
+    public long getStart() {
+        return base.getStart();
+    }
+
+    @Override
+    public List<SolutionStatistics> getSolutions() {
+        return base.getSolutions();
+    }
+
+    @Override
+    public int getNbManagedVMs() {
+        return base.getNbManagedVMs();
+    }
+
+    @Override
+    public Parameters getParameters() {
+        return base.getParameters();
+    }
+
+    @Override
+    public Metrics getMetrics() {
+        return base.getMetrics();
+    }
+
+    @Override
+    public boolean completed() {
+        return base.completed();
+    }
+
+    @Override
+    public ReconfigurationPlan lastSolution() {
+        return plan;
+    }
+
+    @Override
+    public int getMakespanReduction() {
+        return base.getMakespanReduction();
+    }
+
+    @Override
+    public ProblemSizeEstimate getSizeEstimate() {
+        return base.getSizeEstimate();
+    }
+
+    @Override
+    public String getEnvironment() {
+        return base.getEnvironment();
+    }
+
+    @Override
+    public List<ComponentStatistics> getComponentStatistics() {
+        return base.getComponentStatistics();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return hits;
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return misses;
+    }
+
+    @Override
+    public String toCSV() {
+        return base.toCSV();
+    }
+
+    @Override
+    public String toString() {
+        return (hit ? "Cached plan" : "Computed plan") + " (cache: " + hits + " hit(s), " + misses + " miss(es))\n" + base;
+    }
+}
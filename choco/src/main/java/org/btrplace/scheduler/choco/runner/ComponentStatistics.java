@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.runner;
+
+/**
+ * Statistics about a component of a reconfiguration problem: the core problem, a view,
+ * a constraint, or the optimisation constraint.
+ * <p>
+ * The building statistics report the time spent to inject the component and the solver elements
+ * it posted. The search statistics are only collected when the search is instrumented
+ * (see {@link org.btrplace.scheduler.choco.Parameters#doInstrumentation(boolean)}). They report
+ * the fails raised and the domain updates made by the propagators of the component.
+ *
+ * @author Fabien Hermenier
+ */
+public class ComponentStatistics {
+
+    /**
+     * The kind of components.
+     */
+    public enum Kind {
+        /**
+         * The core problem, with the elements that are not attributed to another component.
+         */
+        CORE,
+        /**
+         * A solver-side view.
+         */
+        VIEW,
+        /**
+         * A satisfaction constraint.
+         */
+        CONSTRAINT,
+        /**
+         * The optimisation constraint.
+         */
+        OBJECTIVE
+    }
+
+    private final Kind kind;
+
+    private final String name;
+
+    private long buildDuration;
+
+    private int nbVariables;
+
+    private int nbConstraints;
+
+    private int nbPropagators;
+
+    private long fails;
+
+    private long updates;
+
+    /**
+     * New statistics.
+     *
+     * @param k    the component kind
+     * @param name the component name
+     */
+    public ComponentStatistics(Kind k, String name) {
+        this.kind = k;
+        this.name = name;
+    }
+
+    /**
+     * Get the component kind.
+     *
+     * @return the kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Get the component name.
+     * A constraint is named from its class and its position in the instance.
+     *
+     * @return a name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the time spent to build the component.
+     *
+     * @return a duration in nanoseconds
+     */
+    public long getBuildDuration() {
+        return buildDuration;
+    }
+
+    /**
+     * Get the number of variables created by the component.
+     *
+     * @return a positive number
+     */
+    public int getNbVariables() {
+        return nbVariables;
+    }
+
+    /**
+     * Get the number of solver constraints posted by the component.
+     *
+     * @return a positive number
+     */
+    public int getNbConstraints() {
+        return nbConstraints;
+    }
+
+    /**
+     * Get the number of propagators posted by the component.
+     *
+     * @return a positive number
+     */
+    public int getNbPropagators() {
+        return nbPropagators;
+    }
+
+    /**
+     * Get the number of fails raised by the propagators of the component.
+     *
+     * @return a positive number. {@code 0} if the search was not instrumented
+     */
+    public long getFails() {
+        return fails;
+    }
+
+    /**
+     * Get the number of domain updates made by the propagators of the component.
+     *
+     * @return a positive number. {@code 0} if the search was not instrumented
+     */
+    public long getUpdates() {
+        return updates;
+    }
+
+    /**
+     * Account a building step.
+     *
+     * @param d     the step duration in nanoseconds
+     * @param vars  the number of variables created during the step
+     * @param cstrs the number of solver constraints posted during the step
+     */
+    public void addBuildStep(long d, int vars, int cstrs) {
+        buildDuration += d;
+        nbVariables += vars;
+        nbConstraints += cstrs;
+    }
+
+    /**
+     * Account propagators posted by the component.
+     *
+     * @param nb the number of propagators
+     */
+    public void addPropagators(int nb) {
+        nbPropagators += nb;
+    }
+
+    /**
+     * Account fails.
+     *
+     * @param nb the number of fails
+     */
+    public void addFails(long nb) {
+        fails += nb;
+    }
+
+    /**
+     * Account domain updates.
+     *
+     * @param nb the number of updates
+     */
+    public void addUpdates(long nb) {
+        updates += nb;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder(name).append(": ")
+                .append(buildDuration / 1000).append("us, ")
+                .append(nbVariables).append(" var(s), ")
+                .append(nbConstraints).append(" cstr(s), ")
+                .append(nbPropagators).append(" prop(s)");
+        if (fails > 0 || updates > 0) {
+            b.append(", ").append(fails).append(" fail(s), ").append(updates).append(" update(s)");
+        }
+        return b.toString();
+    }
+}
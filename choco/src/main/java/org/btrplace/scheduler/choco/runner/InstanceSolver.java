@@ -47,4 +47,13 @@ public interface InstanceSolver {
      * @throws SchedulerException if an error occurred
      */
     SolvingStatistics getStatistics() throws SchedulerException;
+
+    /**
+     * Make a solver having the same configuration, to solve another instance concurrently.
+     *
+     * @return a new solver. {@code null} if the solver cannot be forked
+     */
+    default InstanceSolver fork() {
+        return null;
+    }
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.runner;
+
+import org.btrplace.model.Instance;
+import org.btrplace.model.Model;
+import org.btrplace.model.constraint.OptConstraint;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.plan.DefaultReconfigurationPlan;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.Action;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A bounded cache of the computed plans.
+ * <p>
+ * The plans are indexed by the fingerprint of their instance (see {@link Instance#fingerprint()}).
+ * The fingerprint of a model is maintained incrementally by its mapping, its attributes and its resources
+ * so a lookup does not browse the whole model. On a matching fingerprint, the constraints of the instances
+ * are compared to get rid of the collisions on the constraints.
+ * The instances holding a view that does not provide a fingerprint (see {@link org.btrplace.model.view.ModelView#fingerprint()})
+ * are never cached.
+ * <p>
+ * The least recently used plan is evicted once the cache is full.
+ * The cached plans do not depend on the parameters of the scheduler, so the cache must be cleared when
+ * they are modified.
+ *
+ * @author Fabien Hermenier
+ */
+public class SolutionCache {
+
+    private final int capacity;
+
+    private final Map<Long, Entry> entries;
+
+    private long hits;
+
+    private long misses;
+
+    /**
+     * New cache.
+     *
+     * @param capacity the maximum number of cached plans
+     */
+    public SolutionCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be strictly positive");
+        }
+        this.capacity = capacity;
+        entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > SolutionCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Look for the plan computed for an instance.
+     *
+     * @param i the instance
+     * @return the cached entry. {@code null} if the plan is not cached
+     */
+    public synchronized Entry get(Instance i) {
+        Long k = key(i);
+        Entry e = k == null ? null : entries.get(k);
+        if (e != null && e.matches(i)) {
+            hits++;
+            return e;
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Cache the plan computed for an instance.
+     * Nothing is cached if the instance cannot be fingerprinted.
+     *
+     * @param i  the solved instance
+     * @param p  the computed plan
+     * @param st the statistics of the solving process
+     */
+    public synchronized void put(Instance i, ReconfigurationPlan p, SolvingStatistics st) {
+        Long k = key(i);
+        if (k != null) {
+            entries.put(k, new Entry(i, p, st));
+        }
+    }
+
+    private static Long key(Instance i) {
+        try {
+            return i.fingerprint();
+        } catch (UnsupportedOperationException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Remove all the cached plans.
+     * The counters are left untouched.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Get the number of cached plans.
+     *
+     * @return a positive number
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the maximum number of cached plans.
+     *
+     * @return a strictly positive number
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the number of lookups that returned a cached plan.
+     *
+     * @return a positive number
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of lookups that did not return a cached plan.
+     *
+     * @return a positive number
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * A cached plan.
+     */
+    public static final class Entry {
+
+        private final Set<SatConstraint> cstrs;
+
+        private final OptConstraint opt;
+
+        private final ReconfigurationPlan plan;
+
+        private final SolvingStatistics stats;
+
+        private Entry(Instance i, ReconfigurationPlan p, SolvingStatistics st) {
+            cstrs = new HashSet<>(i.getSatConstraints());
+            opt = i.getOptConstraint();
+            //A private copy, the computed plan is returned to the caller
+            plan = copy(p, p.getOrigin());
+            stats = st;
+        }
+
+        private boolean matches(Instance i) {
+            return Objects.equals(opt, i.getOptConstraint()) && cstrs.equals(new HashSet<>(i.getSatConstraints()));
+        }
+
+        /**
+         * Get the cached plan, applied on a given model.
+         * The model is expected to have the same content as the origin of the cached plan.
+         * The plan is a new one so it can be modified without altering the cache.
+         *
+         * @param mo the origin of the plan
+         * @return a new plan made of the cached actions
+         */
+        public ReconfigurationPlan plan(Model mo) {
+            return copy(plan, mo);
+        }
+
+        private static ReconfigurationPlan copy(ReconfigurationPlan plan, Model mo) {
+            ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+            p.setReconfigurationApplier(plan.getReconfigurationApplier());
+            for (Action a : plan) {
+                p.add(a);
+            }
+            return p;
+        }
+
+        /**
+         * Get the statistics of the solving process that computed the plan.
+         *
+         * @return statistics
+         */
+        public SolvingStatistics getStatistics() {
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.runner;
+
+import org.btrplace.plan.ReconfigurationPlan;
+import org.chocosolver.util.criteria.Criterion;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+/**
+ * A handle over an asynchronous solving process.
+ * <p>
+ * The solving process can be stopped at any moment using {@link #stop()} or using a deadline
+ * with {@link #stopAt(long)}. The search then terminates as soon as possible and the handle completes
+ * with the best plan computed so far. {@link #cancel(boolean)} also stops the search but the result is
+ * discarded.
+ * <p>
+ * The subscribers registered with {@link #subscribe(BiConsumer)} are notified of every computed
+ * plan, along with the solver metrics at the moment the plan was computed. The statistics of the
+ * solving process are available through {@link #getStatistics()} once the handle completes.
+ * <p>
+ * When a network view is attached to the model, the placement is computed before scheduling the
+ * migrations according to the network. Only the plans of the scheduling stage are notified, and a stop
+ * asked once the placement is known takes effect when the first plan of the scheduling stage is computed.
+ *
+ * @author Fabien Hermenier
+ */
+public class SolvingFuture implements Future<ReconfigurationPlan> {
+
+    private final CompletableFuture<ReconfigurationPlan> result;
+
+    private final List<BiConsumer<ReconfigurationPlan, Metrics>> subscribers;
+
+    private volatile boolean stop;
+
+    private volatile long deadline;
+
+    private ReconfigurationPlan best;
+
+    private Metrics bestMetrics;
+
+    private volatile SolvingStatistics statistics;
+
+    /**
+     * New handle.
+     */
+    public SolvingFuture() {
+        result = new CompletableFuture<>();
+        subscribers = new CopyOnWriteArrayList<>();
+        stop = false;
+        deadline = Long.MAX_VALUE;
+    }
+
+    /**
+     * Get the stop criterion to plug into the solver.
+     * It is met once a stop was asked or the deadline is reached.
+     *
+     * @return a criterion
+     */
+    public Criterion criterion() {
+        return () -> stop || System.currentTimeMillis() >= deadline;
+    }
+
+    /**
+     * Stop the solving process at a given moment.
+     *
+     * @param epoch the deadline, in milliseconds in the epoch format
+     * @return {@code this}
+     */
+    public SolvingFuture stopAt(long epoch) {
+        deadline = epoch;
+        return this;
+    }
+
+    /**
+     * Stop the solving process after a given delay.
+     *
+     * @param ms the delay in milliseconds, starting from now
+     * @return {@code this}
+     */
+    public SolvingFuture stopAfter(long ms) {
+        return stopAt(System.currentTimeMillis() + ms);
+    }
+
+    /**
+     * Ask the solver to stop as soon as possible.
+     * The handle will complete with the best plan computed so far.
+     */
+    public void stop() {
+        stop = true;
+    }
+
+    /**
+     * Register a subscriber to notify every time a plan is computed.
+     * If a plan is already available, the subscriber is notified immediately with it.
+     *
+     * @param s the subscriber
+     * @return {@code this}
+     */
+    public SolvingFuture subscribe(BiConsumer<ReconfigurationPlan, Metrics> s) {
+        ReconfigurationPlan p;
+        Metrics m;
+        synchronized (this) {
+            subscribers.add(s);
+            p = best;
+            m = bestMetrics;
+        }
+        if (p != null) {
+            s.accept(p, m);
+        }
+        return this;
+    }
+
+    /**
+     * Get the last plan computed so far.
+     *
+     * @return a plan. {@code null} if no plan was computed yet
+     */
+    public synchronized ReconfigurationPlan getBestPlan() {
+        return best;
+    }
+
+    /**
+     * Get the solver metrics at the moment the last plan was computed.
+     *
+     * @return metrics. {@code null} if no plan was computed yet
+     */
+    public synchronized Metrics getBestMetrics() {
+        return bestMetrics;
+    }
+
+    /**
+     * Get the statistics of the solving process.
+     *
+     * @return statistics. {@code null} until the solving process terminates
+     */
+    public SolvingStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Set the statistics of the solving process.
+     * Should only be called by the solving process, before completing the handle.
+     *
+     * @param st the statistics
+     */
+    public void setStatistics(SolvingStatistics st) {
+        statistics = st;
+    }
+
+    /**
+     * Notify a computed plan.
+     * Should only be called by the solving process.
+     *
+     * @param p the plan
+     * @param m the solver metrics
+     */
+    public void onSolution(ReconfigurationPlan p, Metrics m) {
+        synchronized (this) {
+            best = p;
+            bestMetrics = m;
+        }
+        subscribers.forEach(s -> s.accept(p, m));
+    }
+
+    /**
+     * Complete the handle with the result of the solving process.
+     * Should only be called by the solving process.
+     *
+     * @param p the resulting plan. {@code null} if there is no solution
+     */
+    public void complete(ReconfigurationPlan p) {
+        result.complete(p);
+    }
+
+    /**
+     * Complete the handle with a failure of the solving process.
+     * Should only be called by the solving process.
+     *
+     * @param t the failure
+     */
+    public void fail(Throwable t) {
+        result.completeExceptionally(t);
+    }
+
+    /**
+     * Stop the solving process and discard its result.
+     *
+     * @param mayInterruptIfRunning unused, the stop is cooperative
+     * @return {@code false} if the solving process already completed
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        stop = true;
+        return result.cancel(mayInterruptIfRunning);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return result.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    @Override
+    public ReconfigurationPlan get() throws InterruptedException, ExecutionException {
+        return result.get();
+    }
+
+    @Override
+    public ReconfigurationPlan get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        return result.get(timeout, unit);
+    }
+}
@@ -21,8 +21,11 @@ package org.btrplace.scheduler.choco.runner;
 import org.btrplace.model.Instance;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.ProblemSizeEstimate;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Simple interface to get statistics about a solving process.
@@ -51,6 +54,17 @@ public interface SolvingStatistics {
      */
     long getSpecializationDuration();
 
+    /**
+     * Get the duration of the building steps reported by the views.
+     * Every step is prefixed by the identifier of the view that reported it.
+     *
+     * @return durations in milliseconds indexed by step name. May be empty
+     * @see org.btrplace.scheduler.choco.view.ChocoView#getBuildDurations()
+     */
+    default Map<String, Long> getBuildDurations() {
+        return Collections.emptyMap();
+    }
+
     /**
      * Get the moment the computation starts.
      *
@@ -100,6 +114,66 @@ public interface SolvingStatistics {
      */
     ReconfigurationPlan lastSolution();
 
+    /**
+     * Get how much the duration of the last computed plan was reduced by its compaction.
+     *
+     * @return a positive duration. {@code 0} if the plan was not compacted
+     * @see Parameters#doPlanCompaction(boolean)
+     */
+    default int getMakespanReduction() {
+        return 0;
+    }
+
+    /**
+     * Get the estimated size of the problem, used to build the memory environment of the solver.
+     *
+     * @return the estimation. {@code null} if the problem was not built
+     */
+    default ProblemSizeEstimate getSizeEstimate() {
+        return null;
+    }
+
+    /**
+     * Get the trailing strategy of the memory environment of the solver.
+     *
+     * @return a description. {@code null} if the problem was not built
+     * @see org.btrplace.scheduler.choco.AdaptiveEnvironmentFactory#strategy(org.chocosolver.memory.IEnvironment)
+     */
+    default String getEnvironment() {
+        return null;
+    }
+
+    /**
+     * Get the statistics of the components of the problem: the core problem, the views,
+     * the constraints and the objective.
+     *
+     * @return the statistics, the core problem first. An empty list if the problem was not built
+     * @see org.btrplace.scheduler.choco.Parameters#doInstrumentation(boolean)
+     */
+    default List<ComponentStatistics> getComponentStatistics() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Get the number of solving processes that were skipped as the plan was already cached.
+     *
+     * @return a positive number. {@code 0} if there is no solution cache
+     * @see SolutionCache#getHits()
+     */
+    default long getCacheHits() {
+        return 0;
+    }
+
+    /**
+     * Get the number of solving processes that were run as the plan was not cached.
+     *
+     * @return a positive number. {@code 0} if there is no solution cache
+     * @see SolutionCache#getMisses()
+     */
+    default long getCacheMisses() {
+        return 0;
+    }
+
     /**
      * Summarizes as a CSV data.
      * Print the statistics as a CSV line.
@@ -21,9 +21,12 @@ package org.btrplace.scheduler.choco.runner;
 import org.btrplace.model.Instance;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.ProblemSizeEstimate;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Aggregate the statistics of a multi-stage resolution.
@@ -100,6 +103,20 @@ public class StagedSolvingStatistics implements SolvingStatistics {
         return stages.stream().mapToLong(SolvingStatistics::getSpecializationDuration).sum();
     }
 
+    /**
+     * Return the aggregated building steps durations.
+     *
+     * @return a map that may be empty
+     */
+    @Override
+    public Map<String, Long> getBuildDurations() {
+        Map<String, Long> res = new LinkedHashMap<>();
+        for (SolvingStatistics st : stages) {
+            st.getBuildDurations().forEach((k, d) -> res.merge(k, d, Long::sum));
+        }
+        return res;
+    }
+
     /**
      * Return the timestamp of the first phase.
      *
@@ -172,6 +189,26 @@ public class StagedSolvingStatistics implements SolvingStatistics {
         return last().lastSolution();
     }
 
+    @Override
+    public int getMakespanReduction() {
+        return last().getMakespanReduction();
+    }
+
+    @Override
+    public ProblemSizeEstimate getSizeEstimate() {
+        return last().getSizeEstimate();
+    }
+
+    @Override
+    public String getEnvironment() {
+        return last().getEnvironment();
+    }
+
+    @Override
+    public List<ComponentStatistics> getComponentStatistics() {
+        return last().getComponentStatistics();
+    }
+
     /**
      * Print the statistics as a CSV line.
      * Statistics are computed wrt. the different stages:
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.runner.single;
+
+/**
+ * Emit the solving statistics as Java Flight Recorder events.
+ * <p>
+ * The events are only emitted when the running JVM provides the flight recorder (Java 8u262 and later)
+ * and when they are enabled in a recording. Otherwise, the methods are no-ops.
+ * The module does not require the flight recorder API to compile, the events are declared at runtime.
+ *
+ * @author Fabien Hermenier
+ * @see SchedulerEvents
+ */
+final class FlightRecorderEvents {
+
+    private static final SchedulerEvents EVENTS = SchedulerEvents.load();
+
+    private FlightRecorderEvents() {
+    }
+
+    /**
+     * Indicate if the flight recorder is available.
+     *
+     * @return {@code true} iff the events can be emitted
+     */
+    static boolean isAvailable() {
+        return EVENTS != null;
+    }
+
+    /**
+     * Start the event associated to a solving process.
+     *
+     * @return the pending event. {@code null} if the flight recorder is not available
+     */
+    static Object begin() {
+        if (EVENTS == null) {
+            return null;
+        }
+        try {
+            return EVENTS.begin();
+        } catch (@SuppressWarnings("unused") ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Commit the event associated to a solving process, and the events of its components.
+     *
+     * @param ev    the pending event, from {@link #begin()}
+     * @param stats the statistics of the solving process
+     */
+    static void commit(Object ev, SingleRunnerStatistics stats) {
+        if (ev != null) {
+            try {
+                EVENTS.commit(ev, stats);
+            } catch (@SuppressWarnings("unused") ReflectiveOperationException e) {
+                //The events are a best effort
+            }
+        }
+    }
+}
@@ -29,19 +29,26 @@ import org.btrplace.model.constraint.Ready;
 import org.btrplace.model.constraint.Running;
 import org.btrplace.model.constraint.SatConstraint;
 import org.btrplace.model.constraint.Sleeping;
+import org.btrplace.plan.PlanCompactor;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.SchedulerModelingException;
+import org.btrplace.scheduler.choco.AdaptiveEnvironmentFactory;
+import org.btrplace.scheduler.choco.DefaultParameters;
 import org.btrplace.scheduler.choco.DefaultReconfigurationProblemBuilder;
 import org.btrplace.scheduler.choco.LifeCycleViolationException;
 import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.ProblemSizeEstimate;
 import org.btrplace.scheduler.choco.ReconfigurationProblem;
 import org.btrplace.scheduler.choco.constraint.CObjective;
 import org.btrplace.scheduler.choco.constraint.ChocoConstraint;
 import org.btrplace.scheduler.choco.constraint.ChocoMapper;
+import org.btrplace.scheduler.choco.runner.ComponentStatistics;
 import org.btrplace.scheduler.choco.runner.Metrics;
 import org.btrplace.scheduler.choco.runner.SolutionStatistics;
 import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+import org.btrplace.scheduler.choco.runner.StagedSolvingStatistics;
+import org.btrplace.scheduler.choco.view.CNetwork;
 import org.btrplace.scheduler.choco.view.ChocoView;
 import org.btrplace.scheduler.choco.view.ChocoViews;
 import org.chocosolver.solver.Cause;
@@ -52,9 +59,11 @@ import org.chocosolver.solver.search.loop.monitors.IMonitorSolution;
 import org.chocosolver.solver.search.measure.Measures;
 import org.chocosolver.solver.search.measure.MeasuresRecorder;
 import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.util.criteria.Criterion;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
@@ -83,6 +92,11 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
 
     private SingleRunnerStatistics stats;
 
+    /**
+     * The statistics of all the stages, if the problem was solved in multiple stages.
+     */
+    private StagedSolvingStatistics staged;
+
     /**
      * Choco version of the constraints.
      */
@@ -90,6 +104,33 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
 
     private List<ChocoView> views;
 
+    /**
+     * The name of the solver-side constraints, for the instrumentation.
+     */
+    private List<String> cNames;
+
+    private Instrumentation instrumentation;
+
+    /**
+     * The last solution computed by the solver.
+     */
+    private Solution lastSolution;
+
+    /**
+     * {@code true} while the migrations are scheduled in single-pass network mode and no plan was computed yet.
+     */
+    private boolean scheduling;
+
+    /**
+     * The VMs made manageable in repair mode.
+     */
+    private Set<VM> manageable;
+
+    /**
+     * The moment the solving process started.
+     */
+    private long start;
+
     /**
      * Make a new runner.
      *
@@ -105,15 +146,84 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
     }
 
     @Override
-    @SuppressWarnings("squid:S1166") //for the LifeCycleViolationException
     public SolvingStatistics call() throws SchedulerException {
+        start = System.currentTimeMillis();
+        staged = null;
+        SolvingStatistics st = solve(Collections.emptySet());
+        if (params.doRepair() && params.doAdaptiveRepair()) {
+            st = widen(st);
+        }
+        if (params.doPlanCompaction()) {
+            compact();
+        }
+        return st;
+    }
+
+    /**
+     * Adaptive repair: widen the manageable VMs while the problem is proved to be unsatisfiable.
+     *
+     * @param st the statistics of the first solving process
+     * @return the statistics of the last solving process
+     * @throws SchedulerException if an error occurred
+     */
+    private SolvingStatistics widen(SolvingStatistics st) throws SchedulerException {
+        RepairWidening widening = new RepairWidening(instance);
+        Set<VM> toManage = manageable;
+        SolvingStatistics res = st;
+        while (res.getSolutions().isEmpty() && res.completed() && !timeout()) {
+            toManage = widening.widen(toManage);
+            if (toManage == null) {
+                break;
+            }
+            if (staged == null) {
+                staged = new StagedSolvingStatistics(stats);
+            }
+            res = solve(toManage);
+        }
+        return res;
+    }
+
+    /**
+     * Compact the last computed plan.
+     * The compacted plan is retained if at least one action was shifted and it still satisfies the constraints.
+     */
+    private void compact() {
+        ReconfigurationPlan p = stats.lastSolution();
+        if (p == null) {
+            return;
+        }
+        long d = -System.currentTimeMillis();
+        ReconfigurationPlan c = new PlanCompactor(cstrs).compact(p);
+        d += System.currentTimeMillis();
+        if (c != p) {
+            stats.setCompactedSolution(c);
+        }
+        if (rp != null) {
+            rp.getLogger().debug("Plan compaction in {}ms: duration {} -> {}", d, p.getDuration(), c.getDuration());
+        }
+    }
+
+    /**
+     * Solve the instance once.
+     *
+     * @param toManage the VMs to manage in addition to the misplaced ones, in repair mode
+     * @return the statistics of the solving process
+     * @throws SchedulerException if an error occurred
+     */
+    @SuppressWarnings("squid:S1166") //for the LifeCycleViolationException
+    private SolvingStatistics solve(Set<VM> toManage) throws SchedulerException {
         stats = new SingleRunnerStatistics(params, instance, System.currentTimeMillis());
+        if (staged != null) {
+            staged.append(stats);
+        }
         rp = null;
+        lastSolution = null;
+        Object jfr = FlightRecorderEvents.begin();
 
         //Build the core problem
         long d = -System.currentTimeMillis();
         try {
-            rp = buildRP();
+            rp = buildRP(toManage);
         } catch (@SuppressWarnings("unused") LifeCycleViolationException ex) {
             //If there is a violation of the cycle it is not a bug that should be propagated
             //it it just indicating there is no solution
@@ -125,17 +235,21 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
             stats.setCoreBuildDuration(d);
         }
         stats.setNbManagedVMs(rp.getManageableVMs().size());
+        instrumentation = new Instrumentation(rp, d);
 
         //Customize the core problem
         d = -System.currentTimeMillis();
-        if (!specialise()) {
-          d += System.currentTimeMillis();
-            stats.setSpecialisationDuration(d);
-          stats.setCompleted(true);
-            return getStatistics();
-        }
+        boolean specialised = specialise();
         d += System.currentTimeMillis();
         stats.setSpecialisationDuration(d);
+        views.forEach(v -> v.getBuildDurations().forEach((k, bd) -> stats.addBuildDuration(v.getIdentifier() + "." + k, bd)));
+        if (!specialised) {
+          stats.setCompleted(true);
+            return report(jfr);
+        }
+        if (params.doInstrumentation()) {
+            instrumentation.instrumentSearch();
+        }
 
         //statistics
         stats.setMetrics(new Metrics(rp.getSolver().getMeasures()));
@@ -145,6 +259,8 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
         rp.getSolver().plugMonitor((IMonitorSolution) () -> {
             Solution solution = new Solution(rp.getModel());
             solution.record();
+            lastSolution = solution;
+            scheduling = false;
 
             ReconfigurationPlan plan = rp.buildReconfigurationPlan(solution, origin);
             views.forEach(v -> v.insertActions(rp, solution, plan));
@@ -163,10 +279,122 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
         setVerbosity();
 
         //The actual solving process
-        rp.solve(params.getTimeLimit(), params.doOptimize());
+        rp.solve(getRemainingTime(), params.doOptimize());
+        report(jfr);
+
+        //Single-pass network mode: the placement is known, schedule the migrations on the same problem
+        Optional<CNetwork> net = views.stream().filter(v -> v instanceof CNetwork).map(v -> (CNetwork) v)
+                .filter(CNetwork::isPlacementStage).findFirst();
+        if (net.isPresent() && lastSolution != null) {
+            return scheduleNetwork(net.get());
+        }
         return getStatistics();
     }
 
+    /**
+     * Collect the statistics of the components and emit the flight recorder events.
+     *
+     * @param jfr the pending flight recorder event
+     * @return the statistics
+     */
+    private SolvingStatistics report(Object jfr) {
+        SolvingStatistics st = getStatistics();
+        stats.setComponentStatistics(instrumentation.collect());
+        FlightRecorderEvents.commit(jfr, stats);
+        return st;
+    }
+
+    /**
+     * Second stage of the single-pass network mode.
+     * The solver is reset, the placement computed during the first stage is fixed and the
+     * migrations are scheduled according to the network.
+     * The stage has its own component statistics and flight recorder event.
+     *
+     * @param net the network view
+     * @return the statistics of both stages
+     * @throws SchedulerException if an error occurred
+     */
+    private SolvingStatistics scheduleNetwork(CNetwork net) throws SchedulerException {
+        getStatistics();
+        SingleRunnerStatistics placement = stats;
+        stats = new SingleRunnerStatistics(params, instance, System.currentTimeMillis());
+        stats.setNbManagedVMs(placement.getNbManagedVMs());
+        stats.setCoreBuildDuration(0);
+        if (staged == null) {
+            staged = new StagedSolvingStatistics(placement);
+        }
+        staged.append(stats);
+        Object jfr = FlightRecorderEvents.begin();
+        instrumentation = new Instrumentation(instrumentation);
+
+        long d = -System.currentTimeMillis();
+        rp.getSolver().reset();
+        ComponentStatistics c = instrumentation.get(ComponentStatistics.Kind.VIEW, net.getIdentifier());
+        boolean scheduled = instrumentation.run(c, () -> net.schedule(rp, lastSolution));
+        d += System.currentTimeMillis();
+        stats.setSpecialisationDuration(d);
+        net.getBuildDurations().forEach((k, bd) -> stats.addBuildDuration(net.getIdentifier() + "." + k, bd));
+        if (!scheduled) {
+            stats.setMetrics(new Metrics());
+            stats.setCompleted(true);
+            stats.setComponentStatistics(instrumentation.collect());
+            FlightRecorderEvents.commit(jfr, stats);
+            return staged;
+        }
+        if (params.doInstrumentation()) {
+            instrumentation.instrumentSearch();
+        }
+
+        scheduling = true;
+        try {
+            rp.solve(getRemainingTime(), params.doOptimize());
+        } finally {
+            scheduling = false;
+        }
+        return report(jfr);
+    }
+
+    /**
+     * Get the parameters of the reconfiguration problem.
+     * In single-pass network mode, the placement is decided once the migrations are scheduled so the stop
+     * criteria are only checked once a plan is computed.
+     *
+     * @return the parameters
+     */
+    private Parameters problemParameters() {
+        if (!params.doSinglePassNetwork() || params.stopCriteria().isEmpty()) {
+            return params;
+        }
+        Parameters ps = new DefaultParameters(params);
+        for (Criterion c : params.stopCriteria()) {
+            ps.removeStopCriterion(c);
+            ps.addStopCriterion(() -> !scheduling && c.isMet());
+        }
+        return ps;
+    }
+
+    /**
+     * Get the time remaining to solve the instance.
+     * The time limit is in seconds so the deadline is also plugged as a stop criterion
+     * to keep the millisecond precision.
+     *
+     * @return a time limit in seconds, at least 1. A negative value if there is no time limit
+     */
+    private int getRemainingTime() {
+        int timeLimit = params.getTimeLimit();
+        if (timeLimit > 0) {
+            long deadline = start + timeLimit * 1000L;
+            long remaining = deadline - System.currentTimeMillis();
+            timeLimit = (int) Math.max(1, (remaining + 999) / 1000);
+            rp.getSolver().addStopCriterion(() -> System.currentTimeMillis() >= deadline);
+        }
+        return timeLimit;
+    }
+
+    private boolean timeout() {
+        return params.getTimeLimit() > 0 && System.currentTimeMillis() - start >= params.getTimeLimit() * 1000L;
+    }
+
 
     private void setVerbosity() {
         if (params.getVerbosity() >= 2) {
@@ -181,21 +409,48 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
         }
     }
 
-    private boolean specialise() {
-        
+    private boolean specialise() throws SchedulerException {
+
         //Resolve the view dependencies, add them and inject them
         views = ChocoViews.resolveDependencies(origin, views, rp.getViews());
         views.forEach(rp::addView);
+        List<ComponentStatistics> vs = new ArrayList<>(views.size());
+        for (ChocoView v : views) {
+            ComponentStatistics c = instrumentation.declare(ComponentStatistics.Kind.VIEW, v.getIdentifier());
+            vs.add(c);
+            if (!instrumentation.run(c, () -> v.inject(params, rp))) {
+                return false;
+            }
+        }
         //Inject the sat constraints, 2nd pass on the view. Then the objective for a late optimisation
-        Optional<ChocoConstraint> o = cConstraints.stream().filter(c -> c instanceof CObjective).findFirst();
-        return views.stream().allMatch(v -> v.inject(params, rp)) &&
-                cConstraints.stream().filter(c -> !(c instanceof CObjective))
-                        .allMatch(c -> c.inject(params, rp)) &&
-                views.stream().allMatch(v -> v.beforeSolve(rp)) &&
-                (!o.isPresent() || o.isPresent() && o.get().inject(params, rp));
+        ChocoConstraint o = null;
+        ComponentStatistics oc = null;
+        for (int i = 0; i < cConstraints.size(); i++) {
+            ChocoConstraint cc = cConstraints.get(i);
+            if (cc instanceof CObjective) {
+                o = cc;
+                oc = instrumentation.declare(ComponentStatistics.Kind.OBJECTIVE, cNames.get(i));
+                continue;
+            }
+            ComponentStatistics c = instrumentation.declare(ComponentStatistics.Kind.CONSTRAINT, cNames.get(i));
+            if (!instrumentation.run(c, () -> cc.inject(params, rp))) {
+                return false;
+            }
+        }
+        for (int i = 0; i < views.size(); i++) {
+            ChocoView v = views.get(i);
+            if (!instrumentation.run(vs.get(i), () -> v.beforeSolve(rp))) {
+                return false;
+            }
+        }
+        if (o != null) {
+            ChocoConstraint obj = o;
+            return instrumentation.run(oc, () -> obj.inject(params, rp));
+        }
+        return true;
     }
 
-    private ReconfigurationProblem buildRP() throws SchedulerException {
+    private ReconfigurationProblem buildRP(Set<VM> extraManageable) throws SchedulerException {
         //Build the RP. As VM state management is not possible
         //We extract VM-state related constraints first.
         //For other constraint, we just create the right choco constraint
@@ -205,6 +460,7 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
         Set<VM> toSleep = new HashSet<>();
 
         cConstraints = new ArrayList<>();
+        cNames = new ArrayList<>();
 
         for (SatConstraint cstr : cstrs) {
             checkNodesExistence(origin, cstr.getInvolvedNodes());
@@ -229,25 +485,35 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
             }
 
             cConstraints.add(build(cstr));
+            cNames.add(cstr.getClass().getSimpleName() + "#" + cNames.size());
         }
         cConstraints.add(build(obj));
+        cNames.add(obj.getClass().getSimpleName());
 
         views = makeViews();
 
         DefaultReconfigurationProblemBuilder rpb = new DefaultReconfigurationProblemBuilder(origin)
                 .setNextVMsStates(toForge, toRun, toSleep, toKill)
-                .setParams(params);
+                .setParams(problemParameters());
 
+        int nbManaged = origin.getMapping().getNbVMs();
         if (params.doRepair()) {
-            Set<VM> toManage = new HashSet<>();
+            Set<VM> toManage = new HashSet<>(extraManageable);
             cConstraints.forEach(c -> toManage.addAll(c.getMisPlacedVMs(instance)));
             views.forEach(v -> toManage.addAll(v.getMisPlacedVMs(instance)));
+            manageable = toManage;
             rpb.setManageableVMs(toManage);
+            nbManaged = toManage.size();
         }
+        //Estimate the problem size to pick the memory environment
+        ProblemSizeEstimate est = ProblemSizeEstimate.of(instance, nbManaged);
+        rpb.setSizeEstimate(est);
+        stats.setSizeEstimate(est);
 
         //The core views have been instantiated and available through rp.getViews()
         //Set the maximum duration
         ReconfigurationProblem p = rpb.build();
+        stats.setEnvironment(AdaptiveEnvironmentFactory.strategy(p.getModel().getEnvironment()));
         try {
             p.getEnd().updateUpperBound(params.getMaxEnd(), Cause.Null);
         } catch (ContradictionException e) {
@@ -309,9 +575,9 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
     /**
      * Get the statistics about the solving process.
      *
-     * @return the statistics
+     * @return the statistics. Staged statistics if the problem was solved in multiple stages
      */
-    public SingleRunnerStatistics getStatistics() {
+    public SolvingStatistics getStatistics() {
         if (rp != null) {
             Measures m = rp.getSolver().getMeasures();
             stats.setMetrics(new Metrics(m));
@@ -319,6 +585,6 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
                   || m.getSearchState().equals(SearchState.NEW)
           );
         }
-        return stats;
+        return staged != null ? staged : stats;
     }
 }
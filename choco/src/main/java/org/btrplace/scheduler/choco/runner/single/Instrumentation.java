@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.runner.single;
+
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.runner.ComponentStatistics;
+import org.chocosolver.solver.ICause;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.exception.SolverException;
+import org.chocosolver.solver.propagation.IPropagationEngine;
+import org.chocosolver.solver.propagation.PropagationEngineFactory;
+import org.chocosolver.solver.search.loop.monitors.IMonitorContradiction;
+import org.chocosolver.solver.variables.Variable;
+import org.chocosolver.solver.variables.events.IEventType;
+import org.chocosolver.solver.variables.events.PropagatorEventType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instrument the components of a reconfiguration problem.
+ * <p>
+ * Every building step is timed and the solver constraints it posted are recorded as a range of indices
+ * in the solver model. Once the search is over, the propagators of each range are attributed to their component.
+ * The elements that are posted outside a building step are attributed to the core problem.
+ * <p>
+ * When the search is instrumented, the fails are counted for the propagator that raised them
+ * and a delegating propagation engine counts the domain updates made by each propagator.
+ * Choco does not count the propagator executions so the domain updates are the measure of the propagation activity.
+ *
+ * @author Fabien Hermenier
+ */
+class Instrumentation {
+
+    /**
+     * A building step.
+     *
+     * @param <T> the step result
+     */
+    @FunctionalInterface
+    interface Step<T> {
+        T run() throws SchedulerException;
+    }
+
+    private final Model csp;
+
+    private final ComponentStatistics core;
+
+    private final List<ComponentStatistics> components;
+
+    /**
+     * For each component, the ranges of solver constraints indices, by pairs.
+     */
+    private final Map<ComponentStatistics, int[]> ranges;
+
+    /**
+     * The fails and the domain updates, indexed by propagator identifier.
+     */
+    private long[] fails;
+
+    private long[] updates;
+
+    /**
+     * New instrumentation.
+     *
+     * @param rp                the problem to instrument, once the core problem is built
+     * @param coreBuildDuration the time spent to build the core problem, in milliseconds
+     */
+    Instrumentation(ReconfigurationProblem rp, long coreBuildDuration) {
+        csp = rp.getModel();
+        core = new ComponentStatistics(ComponentStatistics.Kind.CORE, "core");
+        core.addBuildStep(coreBuildDuration * 1000000L, csp.getNbVars(), csp.getNbCstrs());
+        components = new ArrayList<>();
+        components.add(core);
+        ranges = new IdentityHashMap<>();
+        ranges.put(core, new int[]{0, csp.getNbCstrs()});
+    }
+
+    /**
+     * New instrumentation for another search over the same problem.
+     * The components keep their solver constraints, their variables and their constraints but
+     * not their building duration.
+     *
+     * @param prev the instrumentation of the previous search, once collected
+     */
+    Instrumentation(Instrumentation prev) {
+        csp = prev.csp;
+        components = new ArrayList<>(prev.components.size());
+        ranges = new IdentityHashMap<>();
+        for (ComponentStatistics c : prev.components) {
+            ComponentStatistics n = new ComponentStatistics(c.getKind(), c.getName());
+            n.addBuildStep(0, c.getNbVariables(), c.getNbConstraints());
+            components.add(n);
+            int[] r = prev.ranges.get(c);
+            if (r != null) {
+                ranges.put(n, r.clone());
+            }
+        }
+        core = components.get(0);
+    }
+
+    /**
+     * Get a declared component.
+     *
+     * @param k    the component kind
+     * @param name the component name
+     * @return the component. The core problem if there is no such component
+     */
+    ComponentStatistics get(ComponentStatistics.Kind k, String name) {
+        for (ComponentStatistics c : components) {
+            if (c.getKind() == k && c.getName().equals(name)) {
+                return c;
+            }
+        }
+        return core;
+    }
+
+    /**
+     * Declare a component.
+     *
+     * @param k    the component kind
+     * @param name the component name
+     * @return the component statistics
+     */
+    ComponentStatistics declare(ComponentStatistics.Kind k, String name) {
+        ComponentStatistics c = new ComponentStatistics(k, name);
+        components.add(c);
+        return c;
+    }
+
+    /**
+     * Run a building step of a component.
+     *
+     * @param c    the component, from {@link #declare(ComponentStatistics.Kind, String)}
+     * @param step the step to run
+     * @param <T>  the step result
+     * @return the step result
+     * @throws SchedulerException if the step failed
+     */
+    <T> T run(ComponentStatistics c, Step<T> step) throws SchedulerException {
+        int vars = csp.getNbVars();
+        int cstrs = csp.getNbCstrs();
+        long st = System.nanoTime();
+        try {
+            return step.run();
+        } finally {
+            long d = System.nanoTime() - st;
+            int to = csp.getNbCstrs();
+            c.addBuildStep(d, csp.getNbVars() - vars, to - cstrs);
+            if (to > cstrs) {
+                int[] r = ranges.getOrDefault(c, new int[0]);
+                r = Arrays.copyOf(r, r.length + 2);
+                r[r.length - 2] = cstrs;
+                r[r.length - 1] = to;
+                ranges.put(c, r);
+            }
+        }
+    }
+
+    /**
+     * Instrument the search.
+     * Must be called once the problem is built and before the search starts.
+     */
+    void instrumentSearch() {
+        fails = new long[csp.getNbCstrs() * 2 + 16];
+        updates = new long[fails.length];
+        csp.getSolver().plugMonitor((IMonitorContradiction) cex -> {
+            if (cex.c instanceof Propagator) {
+                int id = ((Propagator<?>) cex.c).getId();
+                fails = grow(fails, id);
+                fails[id]++;
+            }
+        });
+        csp.getSolver().setEngine(new CountingEngine(PropagationEngineFactory.DEFAULT.make(csp)));
+    }
+
+    private static long[] grow(long[] a, int id) {
+        if (id < a.length) {
+            return a;
+        }
+        return Arrays.copyOf(a, Math.max(id + 1, a.length * 2));
+    }
+
+    /**
+     * Get the statistics of every component.
+     * The propagators are attributed to the components at this moment, with their fails and domain updates.
+     * Must be called once.
+     *
+     * @return the statistics, the core problem first
+     */
+    List<ComponentStatistics> collect() {
+        //What was posted outside the building steps belongs to the core problem
+        int vars = csp.getNbVars();
+        int nbCstrs = csp.getNbCstrs();
+        for (ComponentStatistics c : components) {
+            vars -= c.getNbVariables();
+            nbCstrs -= c.getNbConstraints();
+        }
+        core.addBuildStep(0, vars, nbCstrs);
+
+        Constraint[] cstrs = csp.getCstrs();
+        ComponentStatistics[] byCstr = new ComponentStatistics[cstrs.length];
+        for (Map.Entry<ComponentStatistics, int[]> e : ranges.entrySet()) {
+            int[] r = e.getValue();
+            for (int j = 0; j < r.length; j += 2) {
+                //Constraints may have been removed since
+                for (int k = r[j]; k < Math.min(r[j + 1], cstrs.length); k++) {
+                    byCstr[k] = e.getKey();
+                }
+            }
+        }
+        for (int i = 0; i < cstrs.length; i++) {
+            ComponentStatistics owner = byCstr[i] == null ? core : byCstr[i];
+            Propagator<?>[] ps = cstrs[i].getPropagators();
+            owner.addPropagators(ps.length);
+            if (fails != null) {
+                for (Propagator<?> p : ps) {
+                    int id = p.getId();
+                    if (id < fails.length && fails[id] > 0) {
+                        owner.addFails(fails[id]);
+                    }
+                    if (id < updates.length && updates[id] > 0) {
+                        owner.addUpdates(updates[id]);
+                    }
+                }
+            }
+        }
+        return Collections.unmodifiableList(components);
+    }
+
+    /**
+     * A propagation engine that counts the domain updates made by each propagator.
+     */
+    private class CountingEngine implements IPropagationEngine {
+
+        private final IPropagationEngine engine;
+
+        CountingEngine(IPropagationEngine e) {
+            engine = e;
+        }
+
+        @Override
+        public void onVariableUpdate(Variable v, IEventType t, ICause c) {
+            if (c instanceof Propagator) {
+                int id = ((Propagator<?>) c).getId();
+                updates = grow(updates, id);
+                updates[id]++;
+            }
+            engine.onVariableUpdate(v, t, c);
+        }
+
+        @Override
+        public void initialize() throws SolverException {
+            engine.initialize();
+        }
+
+        @Override
+        public boolean isInitialized() {
+            return engine.isInitialized();
+        }
+
+        @Override
+        public void propagate() throws ContradictionException {
+            engine.propagate();
+        }
+
+        @Override
+        public void flush() {
+            engine.flush();
+        }
+
+        @Override
+        public void reset() {
+            engine.reset();
+        }
+
+        @Override
+        public void clear() {
+            engine.clear();
+        }
+
+        @Override
+        public void delayedPropagation(Propagator p, PropagatorEventType t) throws ContradictionException {
+            engine.delayedPropagation(p, t);
+        }
+
+        @Override
+        public void onPropagatorExecution(Propagator p) {
+            engine.onPropagatorExecution(p);
+        }
+
+        @Override
+        public void desactivatePropagator(Propagator p) {
+            engine.desactivatePropagator(p);
+        }
+
+        @Override
+        public void dynamicAddition(boolean permanent, Propagator... ps) throws SolverException {
+            engine.dynamicAddition(permanent, ps);
+        }
+
+        @Override
+        public void updateInvolvedVariables(Propagator p) {
+            engine.updateInvolvedVariables(p);
+        }
+
+        @Override
+        public void propagateOnBacktrack(Propagator p) {
+            engine.propagateOnBacktrack(p);
+        }
+
+        @Override
+        public void dynamicDeletion(Propagator... ps) {
+            engine.dynamicDeletion(ps);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.runner.single;
+
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ShareableResource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Widen progressively the set of manageable VMs of a repaired problem.
+ * <p>
+ * The candidates are picked by stages, from the closest to the farthest from the current set:
+ * <ol>
+ * <li>the VMs hosted on a node that also hosts a manageable VM</li>
+ * <li>the VMs involved in a constraint that also involves a manageable VM</li>
+ * <li>the running VMs hosted on a node that cannot accept any more manageable VM as one of its resources is too loaded</li>
+ * <li>all the VMs</li>
+ * </ol>
+ * The indexes over the instance are computed once and shared by all the stages.
+ *
+ * @author Fabien Hermenier
+ */
+final class RepairWidening {
+
+    private static final int NB_STAGES = 4;
+
+    private final Mapping map;
+
+    private final Map<VM, List<SatConstraint>> constraintsOf;
+
+    private final List<ShareableResource> resources;
+
+    private int stage;
+
+    /**
+     * New widening.
+     *
+     * @param i the instance to solve
+     */
+    RepairWidening(Instance i) {
+        map = i.getModel().getMapping();
+        constraintsOf = new HashMap<>();
+        for (SatConstraint c : i.getSatConstraints()) {
+            for (VM v : c.getInvolvedVMs()) {
+                constraintsOf.computeIfAbsent(v, k -> new ArrayList<>()).add(c);
+            }
+        }
+        resources = new ArrayList<>();
+        i.getModel().getViews().stream()
+                .filter(v -> v instanceof ShareableResource)
+                .forEach(v -> resources.add((ShareableResource) v));
+        stage = 0;
+    }
+
+    /**
+     * Widen a set of manageable VMs.
+     * Every call moves to the next stage until the set grows.
+     *
+     * @param cur the current set of manageable VMs
+     * @return a strictly larger set of VMs. {@code null} if the set cannot be widened anymore
+     */
+    Set<VM> widen(Set<VM> cur) {
+        Set<VM> next = new HashSet<>(cur);
+        while (stage < NB_STAGES) {
+            switch (stage++) {
+                case 0:
+                    addNeighbours(cur, next);
+                    break;
+                case 1:
+                    addCoConstrained(cur, next);
+                    break;
+                case 2:
+                    addUnderPressure(cur, next);
+                    break;
+                default:
+                    next.addAll(map.getAllVMs());
+            }
+            if (next.size() > cur.size()) {
+                return next;
+            }
+        }
+        return null;
+    }
+
+    private void addNeighbours(Set<VM> cur, Set<VM> next) {
+        Set<Node> hosts = new HashSet<>();
+        for (VM v : cur) {
+            Node n = map.getVMLocation(v);
+            if (n != null && hosts.add(n)) {
+                next.addAll(map.getRunningVMs(n));
+                next.addAll(map.getSleepingVMs(n));
+            }
+        }
+    }
+
+    private void addCoConstrained(Set<VM> cur, Set<VM> next) {
+        for (VM v : cur) {
+            for (SatConstraint c : constraintsOf.getOrDefault(v, Collections.emptyList())) {
+                next.addAll(c.getInvolvedVMs());
+            }
+        }
+    }
+
+    private void addUnderPressure(Set<VM> cur, Set<VM> next) {
+        for (ShareableResource rc : resources) {
+            int biggest = 0;
+            for (VM v : cur) {
+                biggest = Math.max(biggest, rc.getConsumption(v));
+            }
+            for (Node n : map.getOnlineNodes()) {
+                Set<VM> running = map.getRunningVMs(n);
+                if (rc.getCapacity(n) - rc.sumConsumptions(running, true) < biggest) {
+                    next.addAll(running);
+                }
+            }
+        }
+    }
+}
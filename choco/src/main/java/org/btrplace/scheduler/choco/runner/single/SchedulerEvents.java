@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.btrplace.scheduler.choco.runner.single;
+
+import org.btrplace.model.Mapping;
+import org.btrplace.scheduler.choco.runner.ComponentStatistics;
+import org.btrplace.scheduler.choco.runner.Metrics;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The flight recorder events of the scheduler.
+ * Must only be used through {@link FlightRecorderEvents}.
+ * <p>
+ * The sources do not refer to the {@code jdk.jfr} API so they compile on JDKs that do not provide it.
+ * The event types are declared at runtime through {@code jdk.jfr.EventFactory}.
+ *
+ * @author Fabien Hermenier
+ */
+final class SchedulerEvents {
+
+    private static final String JFR = "jdk.jfr.";
+
+    private final Constructor<?> annotation;
+
+    private final Constructor<?> field;
+
+    private final Method newEvent;
+
+    private final Method begin;
+
+    private final Method end;
+
+    private final Method shouldCommit;
+
+    private final Method isEnabled;
+
+    private final Method set;
+
+    private final Method commit;
+
+    /**
+     * The factory of the solving events.
+     */
+    private final Object solving;
+
+    /**
+     * The factory of the component events.
+     */
+    private final Object component;
+
+    private SchedulerEvents() throws ReflectiveOperationException {
+        Class<?> anno = Class.forName(JFR + "AnnotationElement");
+        annotation = anno.getConstructor(Class.class, Object.class);
+        field = Class.forName(JFR + "ValueDescriptor").getConstructor(Class.class, String.class, List.class);
+        Class<?> factory = Class.forName(JFR + "EventFactory");
+        Method create = factory.getMethod("create", List.class, List.class);
+        newEvent = factory.getMethod("newEvent");
+        Class<?> event = Class.forName(JFR + "Event");
+        begin = event.getMethod("begin");
+        end = event.getMethod("end");
+        shouldCommit = event.getMethod("shouldCommit");
+        isEnabled = event.getMethod("isEnabled");
+        set = event.getMethod("set", int.class, Object.class);
+        commit = event.getMethod("commit");
+
+        //The values are set by index so the fields must not be re-ordered
+        solving = create.invoke(null,
+                type("org.btrplace.scheduler.Solving", "Solving",
+                        "A solving process, from the construction of the problem to the end of the search"),
+                Arrays.asList(
+                        field(int.class, "nodes", "Nodes", null),
+                        field(int.class, "vms", "VMs", null),
+                        field(int.class, "managedVMs", "Managed VMs", null),
+                        field(int.class, "constraints", "Constraints", null),
+                        field(long.class, "coreBuild", "Core Problem Building", "MILLISECONDS"),
+                        field(long.class, "specialisation", "Specialisation", "MILLISECONDS"),
+                        field(long.class, "search", "Search", "MILLISECONDS"),
+                        field(long.class, "searchNodes", "Search Nodes", null),
+                        field(long.class, "fails", "Fails", null),
+                        field(int.class, "solutions", "Solutions", null),
+                        field(boolean.class, "completed", "Completed", null)));
+
+        component = create.invoke(null,
+                type("org.btrplace.scheduler.Component", "Problem Component",
+                        "The cost of a component of the problem: the core problem, a view, a constraint or the objective"),
+                Arrays.asList(
+                        field(String.class, "kind", "Kind", null),
+                        field(String.class, "name", "Name", null),
+                        field(long.class, "build", "Building", "NANOSECONDS"),
+                        field(int.class, "variables", "Variables", null),
+                        field(int.class, "solverConstraints", "Solver Constraints", null),
+                        field(int.class, "propagators", "Propagators", null),
+                        field(long.class, "fails", "Fails", null),
+                        field(long.class, "updates", "Domain Updates", null)));
+    }
+
+    /**
+     * Declare the event types.
+     *
+     * @return the events. {@code null} if the flight recorder is not available
+     */
+    static SchedulerEvents load() {
+        try {
+            Object available = Class.forName(JFR + "FlightRecorder").getMethod("isAvailable").invoke(null);
+            return Boolean.TRUE.equals(available) ? new SchedulerEvents() : null;
+        } catch (@SuppressWarnings("unused") ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private Object annotation(String type, Object value) throws ReflectiveOperationException {
+        return annotation.newInstance(Class.forName(JFR + type), value);
+    }
+
+    private List<Object> type(String name, String label, String description) throws ReflectiveOperationException {
+        return Arrays.asList(
+                annotation("Name", name),
+                annotation("Label", label),
+                annotation("Category", new String[]{"BtrPlace", "Scheduler"}),
+                annotation("Description", description));
+    }
+
+    private Object field(Class<?> type, String name, String label, String timespan) throws ReflectiveOperationException {
+        List<Object> annotations = new ArrayList<>();
+        annotations.add(annotation("Label", label));
+        if (timespan != null) {
+            annotations.add(annotation("Timespan", timespan));
+        }
+        return field.newInstance(type, name, Collections.unmodifiableList(annotations));
+    }
+
+    Object begin() throws ReflectiveOperationException {
+        Object ev = newEvent.invoke(solving);
+        begin.invoke(ev);
+        return ev;
+    }
+
+    void commit(Object ev, SingleRunnerStatistics stats) throws ReflectiveOperationException {
+        end.invoke(ev);
+        if ((Boolean) shouldCommit.invoke(ev)) {
+            Mapping map = stats.getInstance().getModel().getMapping();
+            Metrics m = stats.getMetrics();
+            commit(ev,
+                    map.getNbNodes(),
+                    map.getNbVMs(),
+                    stats.getNbManagedVMs(),
+                    stats.getInstance().getSatConstraints().size(),
+                    stats.getCoreBuildDuration(),
+                    stats.getSpecializationDuration(),
+                    m == null ? 0L : m.timeCount(),
+                    m == null ? 0L : m.nodes(),
+                    m == null ? 0L : m.fails(),
+                    stats.getSolutions().size(),
+                    stats.completed());
+        }
+        if (!(Boolean) isEnabled.invoke(newEvent.invoke(component))) {
+            return;
+        }
+        for (ComponentStatistics c : stats.getComponentStatistics()) {
+            commit(newEvent.invoke(component),
+                    c.getKind().name(),
+                    c.getName(),
+                    c.getBuildDuration(),
+                    c.getNbVariables(),
+                    c.getNbConstraints(),
+                    c.getNbPropagators(),
+                    c.getFails(),
+                    c.getUpdates());
+        }
+    }
+
+    private void commit(Object ev, Object... values) throws ReflectiveOperationException {
+        for (int i = 0; i < values.length; i++) {
+            set.invoke(ev, i, values[i]);
+        }
+        commit.invoke(ev);
+    }
+}
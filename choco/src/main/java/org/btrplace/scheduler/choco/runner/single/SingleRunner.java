@@ -47,4 +47,9 @@ public class SingleRunner implements InstanceSolver {
         }
         return r.getStatistics();
     }
+
+    @Override
+    public InstanceSolver fork() {
+        return new SingleRunner();
+    }
 }
@@ -21,12 +21,17 @@ package org.btrplace.scheduler.choco.runner.single;
 import org.btrplace.model.Instance;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.ProblemSizeEstimate;
+import org.btrplace.scheduler.choco.runner.ComponentStatistics;
 import org.btrplace.scheduler.choco.runner.Metrics;
 import org.btrplace.scheduler.choco.runner.SolutionStatistics;
 import org.btrplace.scheduler.choco.runner.SolvingStatistics;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Statistics related to a solving process on one instance.
@@ -45,6 +50,8 @@ public class SingleRunnerStatistics implements SolvingStatistics {
 
     private long start;
 
+    private Map<String, Long> buildDurations;
+
     private boolean completed;
 
     /**
@@ -54,8 +61,19 @@ public class SingleRunnerStatistics implements SolvingStatistics {
 
     private List<SolutionStatistics> solutions;
 
+    /**
+     * The compacted version of the last solution. {@code null} if it was not compacted.
+     */
+    private ReconfigurationPlan compacted;
+
     private Metrics metrics;
 
+    private ProblemSizeEstimate estimate;
+
+    private String environment;
+
+    private List<ComponentStatistics> components;
+
     /**
      * Make new statistics.
      *
@@ -67,6 +85,8 @@ public class SingleRunnerStatistics implements SolvingStatistics {
         this.params = ps;
         this.start = st;
         solutions = new ArrayList<>();
+        buildDurations = new LinkedHashMap<>();
+        components = Collections.emptyList();
         this.nbManagedVMs = -1;
         this.coreRPBuildDuration = -1;
         this.speRPDuration = -1;
@@ -103,6 +123,21 @@ public class SingleRunnerStatistics implements SolvingStatistics {
         return speRPDuration;
     }
 
+    @Override
+    public Map<String, Long> getBuildDurations() {
+        return buildDurations;
+    }
+
+    /**
+     * Add the duration of a building step.
+     *
+     * @param step the step name
+     * @param d    an amount in milliseconds
+     */
+    public void addBuildDuration(String step, long d) {
+        buildDurations.put(step, d);
+    }
+
     /**
      * Add a solution to the statistics.
      *
@@ -175,6 +210,17 @@ public class SingleRunnerStatistics implements SolvingStatistics {
             b.append("; timeout: ").append(params.getTimeLimit()).append("s");
         }
         b.append("\nBuilding duration: ").append(coreRPBuildDuration).append("ms (core) + ").append(speRPDuration).append("ms (specialization)");
+        for (Map.Entry<String, Long> e : buildDurations.entrySet()) {
+            b.append("\n\t").append(e.getKey()).append(": ").append(e.getValue()).append("ms");
+        }
+        if (estimate != null) {
+            b.append("\nEnvironment: ").append(environment).append(" (").append(estimate).append(')');
+        }
+        if (params.doInstrumentation()) {
+            for (ComponentStatistics c : components) {
+                b.append("\n\t").append(c);
+            }
+        }
         b.append("\nAfter ").append(metrics.timeCount()).append("ms of search");
 
         if (completed) {
@@ -197,17 +243,93 @@ public class SingleRunnerStatistics implements SolvingStatistics {
             b.append('\t').append(i).append(')').append(st.toString()).append("\n");
             i++;
         }
+        if (compacted != null) {
+            b.append("Compacted plan: duration ").append(compacted.getDuration())
+                    .append(" (-").append(getMakespanReduction()).append(")\n");
+        }
         return b.toString();
     }
 
+    /**
+     * Get the last computed reconfiguration plan.
+     * If the plan was compacted, the compacted version is returned.
+     *
+     * @return a plan. {@code null} if there was no solution
+     */
     @Override
     public ReconfigurationPlan lastSolution() {
+        if (compacted != null) {
+            return compacted;
+        }
+        return lastComputed();
+    }
+
+    private ReconfigurationPlan lastComputed() {
         if (solutions.isEmpty()) {
             return null;
         }
         return solutions.get(solutions.size() - 1).getReconfigurationPlan();
     }
 
+    /**
+     * Set the compacted version of the last solution.
+     *
+     * @param p the compacted plan
+     */
+    public void setCompactedSolution(ReconfigurationPlan p) {
+        compacted = p;
+    }
+
+    @Override
+    public int getMakespanReduction() {
+        if (compacted == null) {
+            return 0;
+        }
+        return lastComputed().getDuration() - compacted.getDuration();
+    }
+
+    @Override
+    public ProblemSizeEstimate getSizeEstimate() {
+        return estimate;
+    }
+
+    /**
+     * Set the estimated size of the problem.
+     *
+     * @param est the estimation
+     */
+    public void setSizeEstimate(ProblemSizeEstimate est) {
+        estimate = est;
+    }
+
+    @Override
+    public String getEnvironment() {
+        return environment;
+    }
+
+    /**
+     * Set the trailing strategy of the memory environment.
+     *
+     * @param env the strategy description
+     */
+    public void setEnvironment(String env) {
+        environment = env;
+    }
+
+    @Override
+    public List<ComponentStatistics> getComponentStatistics() {
+        return components;
+    }
+
+    /**
+     * Set the statistics of the components of the problem.
+     *
+     * @param cs the statistics
+     */
+    public void setComponentStatistics(List<ComponentStatistics> cs) {
+        components = cs;
+    }
+
     @Override
     public Parameters getParameters() {
         return params;
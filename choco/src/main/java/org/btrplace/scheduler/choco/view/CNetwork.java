@@ -26,20 +26,28 @@ import org.btrplace.model.view.network.Link;
 import org.btrplace.model.view.network.Network;
 import org.btrplace.model.view.network.Routing.LinkDirection;
 import org.btrplace.model.view.network.Switch;
+import org.btrplace.plan.event.MigrateVM;
 import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.SchedulerModelingException;
 import org.btrplace.scheduler.choco.Parameters;
 import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.Slice;
 import org.btrplace.scheduler.choco.transition.RelocatableVM;
 import org.btrplace.scheduler.choco.transition.VMTransition;
 import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.constraints.Constraint;
 import org.chocosolver.solver.exception.ContradictionException;
 import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.solver.variables.Task;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The solver part of the network view.
@@ -60,6 +68,26 @@ public class CNetwork implements ChocoView {
     private org.chocosolver.solver.Model csp;
     private Model source;
 
+    /**
+     * The migrations crossing each link, by direction.
+     */
+    private Map<Link, List<RelocatableVM>> upLinks;
+    private Map<Link, List<RelocatableVM>> downLinks;
+
+    /**
+     * The migrations crossing each limited switch.
+     */
+    private Map<Switch, List<RelocatableVM>> switches;
+
+    private long indexDuration = -1;
+
+    private boolean singlePass;
+
+    /**
+     * The temporary migration estimates of the single-pass mode.
+     */
+    private List<Constraint> estimates;
+
     /**
      * Make a new network view.
      *
@@ -73,7 +101,7 @@ public class CNetwork implements ChocoView {
     public boolean inject(Parameters ps, ReconfigurationProblem rp) throws SchedulerException {
         csp = rp.getModel();
         source = rp.getSourceModel();
-
+        singlePass = ps.doSinglePassNetwork();
         return true;
     }
 
@@ -84,6 +112,85 @@ public class CNetwork implements ChocoView {
 
     @Override
     public boolean beforeSolve(ReconfigurationProblem rp) throws SchedulerException {
+        if (singlePass) {
+            estimateMigrations(rp);
+            return true;
+        }
+        return scheduleMigrations(rp);
+    }
+
+    /**
+     * Check if the view is waiting for a placement to schedule the migrations.
+     *
+     * @return {@code true} iff the migrations are currently estimated
+     * @see #schedule(ReconfigurationProblem, Solution)
+     */
+    public boolean isPlacementStage() {
+        return estimates != null;
+    }
+
+    /**
+     * Placement stage of the single-pass mode.
+     * The network is ignored, the migration durations are the ones provided by the duration evaluators.
+     * The estimates are temporary constraints that will be removed once the placement is known.
+     *
+     * @param rp the reconfiguration problem
+     */
+    private void estimateMigrations(ReconfigurationProblem rp) throws SchedulerException {
+        estimates = new ArrayList<>();
+        for (VMTransition a : rp.getVMActions()) {
+            if (!(a instanceof RelocatableVM) || !a.isManaged()) {
+                continue;
+            }
+            RelocatableVM mig = (RelocatableVM) a;
+            int d = rp.getDurationEvaluators().evaluate(source, MigrateVM.class, a.getVM());
+            // duration = d unless the VM stays. Re-instantiable VMs keep their own duration
+            if (mig.getRelocationMethod().isInstantiatedTo(0)) {
+                estimates.add(csp.scalar(new IntVar[]{mig.getDuration(), mig.isStaying()}, new int[]{1, d}, "=", d));
+            }
+            estimates.add(csp.arithm(mig.getBandwidth(), "=", 0));
+        }
+        estimates.forEach(Constraint::post);
+    }
+
+    /**
+     * Scheduling stage of the single-pass mode.
+     * The estimates are removed, the VM placement is fixed according to a solution, then
+     * the bandwidth, the durations and the network cumulatives are added.
+     * The solver must have been reset beforehand.
+     *
+     * @param rp        the reconfiguration problem
+     * @param placement the solution computed during the placement stage
+     * @return {@code false} iff there will be no solution to the RP.
+     * @throws SchedulerException if an error occurred while building the problem
+     */
+    public boolean schedule(ReconfigurationProblem rp, Solution placement) throws SchedulerException {
+        csp.unpost(estimates.toArray(new Constraint[estimates.size()]));
+        estimates = null;
+        for (VMTransition a : rp.getVMActions()) {
+            Slice d = a.getDSlice();
+            if (d == null || d.getHoster().isInstantiated()) {
+                continue;
+            }
+            try {
+                d.getHoster().instantiateTo(placement.getIntVal(d.getHoster()), Cause.Null);
+            } catch (ContradictionException e) {
+                rp.getLogger().error("Unable to fix the placement of " + a.getVM(), e);
+                return false;
+            }
+        }
+        return scheduleMigrations(rp);
+    }
+
+    /**
+     * Compute the bandwidth and the duration of each migration, then add the network constraints.
+     * The destination node of each migration must be known.
+     *
+     * @param rp the reconfiguration problem
+     * @return {@code false} iff there will be no solution to the RP.
+     * @throws SchedulerException if an error occurred while building the problem
+     */
+    private boolean scheduleMigrations(ReconfigurationProblem rp) throws SchedulerException {
 
         Model mo = rp.getSourceModel();
         Attributes attrs = mo.getAttributes();
@@ -172,136 +279,113 @@ public class CNetwork implements ChocoView {
         }
 
         // Add links and switches constraints
-        addLinkConstraints(rp);        
-        addSwitchConstraints(rp);
+        indexDuration = -System.currentTimeMillis();
+        indexMigrations(rp);
+        indexDuration += System.currentTimeMillis();
+        addLinkConstraints();
+        addSwitchConstraints();
 
         return true;
     }
 
     /**
-     * Add the cumulative constraints for each link.
-     *
-     * Full-duplex links are considered, two cumulative constraints are defined per link by looking at
-     * the migration direction for each link on the migration path.
+     * Index the migrations by the network elements they cross.
+     * The path of every migration is walked once. Each crossed link receives the migration
+     * in its uplink or its downlink task list depending on the direction,
+     * and each limited switch connected to a crossed link receives the migration once.
      *
      * @param rp the reconfiguration problem
      */
-    private void addLinkConstraints(ReconfigurationProblem rp) {
-
-        // Links limitation
-        List<Task> tasksListUp = new ArrayList<>();
-        List<Task> tasksListDown = new ArrayList<>();
-        List<IntVar> heightsListUp = new ArrayList<>();
-        List<IntVar> heightsListDown = new ArrayList<>();
-
-        for (Link l : net.getLinks()) {
-
-            for (VM vm : rp.getVMs()) {
-                VMTransition a = rp.getVMAction(vm);
-
-                if (a instanceof RelocatableVM
-                        && !a.getDSlice().getHoster().isInstantiatedTo(a.getCSlice().getHoster().getValue())) {
-
-                    Node src = source.getMapping().getVMLocation(vm);
-                    Node dst = rp.getNode(a.getDSlice().getHoster().getValue());
-                    List<Link> path = net.getRouting().getPath(src, dst);
-
-                    // Check first if the link is on migration path
-                    if (path.contains(l)) {
-                        // Get link direction
-                        LinkDirection linkDirection = net.getRouting().getLinkDirection(src, dst, l);
-                        // UpLink
-                        if (linkDirection == LinkDirection.UPLINK) {
-                            tasksListUp.add(((RelocatableVM) a).getMigrationTask());
-                            heightsListUp.add(((RelocatableVM) a).getBandwidth());
-                        }
-                        // DownLink
-                        else {
-                            tasksListDown.add(((RelocatableVM) a).getMigrationTask());
-                            heightsListDown.add(((RelocatableVM) a).getBandwidth());
-                        }
-                    }
+    private void indexMigrations(ReconfigurationProblem rp) {
+        upLinks = new HashMap<>();
+        downLinks = new HashMap<>();
+        switches = new HashMap<>();
+        Set<Switch> crossed = new HashSet<>();
+
+        for (VMTransition a : rp.getVMActions()) {
+            if (!(a instanceof RelocatableVM)
+                    || a.getDSlice().getHoster().isInstantiatedTo(a.getCSlice().getHoster().getValue())) {
+                continue;
+            }
+            RelocatableVM mig = (RelocatableVM) a;
+            Node src = source.getMapping().getVMLocation(a.getVM());
+            Node dst = rp.getNode(a.getDSlice().getHoster().getValue());
+            crossed.clear();
+            for (Link l : net.getRouting().getPath(src, dst)) {
+                LinkDirection linkDirection = net.getRouting().getLinkDirection(src, dst, l);
+                if (linkDirection == LinkDirection.UPLINK) {
+                    upLinks.computeIfAbsent(l, k -> new ArrayList<>()).add(mig);
+                } else {
+                    downLinks.computeIfAbsent(l, k -> new ArrayList<>()).add(mig);
+                }
+                crossed.add(l.getSwitch());
+                if (l.getElement() instanceof Switch) {
+                    crossed.add((Switch) l.getElement());
                 }
             }
-            if (!tasksListUp.isEmpty()) {
+            for (Switch sw : crossed) {
+                // Only if the capacity is limited
+                if (sw.getCapacity() != Integer.MAX_VALUE) {
+                    switches.computeIfAbsent(sw, k -> new ArrayList<>()).add(mig);
+                }
+            }
+        }
+    }
 
+    /**
+     * Add the cumulative constraints for each link.
+     *
+     * Full-duplex links are considered, two cumulative constraints are defined per link by looking at
+     * the migration direction for each link on the migration path.
+     */
+    private void addLinkConstraints() {
+        for (Link l : net.getLinks()) {
+            List<RelocatableVM> up = upLinks.get(l);
+            if (up != null) {
                 // Post the cumulative constraint for the current UpLink
-                csp.post(csp.cumulative(
-                        tasksListUp.toArray(new Task[tasksListUp.size()]),
-                        heightsListUp.toArray(new IntVar[heightsListUp.size()]),
-                        csp.intVar(l.getCapacity()),
-                        true
-                ));
-
-                tasksListUp.clear();
-                heightsListUp.clear();
+                postCumulative(up, l.getCapacity(), true);
             }
-            if (!tasksListDown.isEmpty()) {
-
+            List<RelocatableVM> down = downLinks.get(l);
+            if (down != null) {
                 // Post the cumulative constraint for the current DownLink
-                csp.post(csp.cumulative(
-                        tasksListDown.toArray(new Task[tasksListDown.size()]),
-                        heightsListDown.toArray(new IntVar[heightsListDown.size()]),
-                        csp.intVar(l.getCapacity()),
-                        true
-                ));
-
-                tasksListDown.clear();
-                heightsListDown.clear();
+                postCumulative(down, l.getCapacity(), true);
             }
         }
     }
+
     /**
      * Add the cumulative constraints for each blocking switch (having limited capacity)
-     *
-     * @param rp the reconfiguration problem
      */
-    private void addSwitchConstraints(ReconfigurationProblem rp) {
-        
-        // Switches capacity limitation
-        List<Task> tasksList = new ArrayList<>();
-        List<IntVar> heightsList = new ArrayList<>();
-        
-        for(Switch sw : net.getSwitches()) {
-
-
-            // Only if the capacity is limited
-            if (sw.getCapacity() != Integer.MAX_VALUE) {
-
-                for (VM vm : rp.getVMs()) {
-                    VMTransition a = rp.getVMAction(vm);
-
-                    if (a != null && a instanceof RelocatableVM) {
-
-                        if (a.getDSlice().getHoster().isInstantiated()) {
-
-                            if (a.getCSlice().getHoster().getValue() != a.getDSlice().getHoster().getValue()) {
-
-                                Node src = source.getMapping().getVMLocation(vm);
-                                Node dst = rp.getNode(a.getDSlice().getHoster().getValue());
-
-                                if (!Collections.disjoint(net.getConnectedLinks(sw), net.getRouting().getPath(src, dst))) {
-                                    tasksList.add(new Task(a.getStart(), a.getDuration(), a.getEnd()));
-                                    heightsList.add(((RelocatableVM) a).getBandwidth());
-                                }
-                            }
-                        }
-                    }
-                }
-
-                if (!tasksList.isEmpty()) {
-                    // Post the cumulative constraint for the current switch
-                    csp.post(csp.cumulative(
-                            tasksList.toArray(new Task[tasksList.size()]),
-                            heightsList.toArray(new IntVar[heightsList.size()]),
-                            csp.intVar(sw.getCapacity()),
-                            true
-                    ));
-
-                    tasksList.clear();
-                    heightsList.clear();
-                }
+    private void addSwitchConstraints() {
+        for (Switch sw : net.getSwitches()) {
+            List<RelocatableVM> migs = switches.get(sw);
+            if (migs != null) {
+                // Post the cumulative constraint for the current switch
+                postCumulative(migs, sw.getCapacity(), false);
             }
         }
     }
+
+    /**
+     * Post a cumulative constraint over migrations.
+     *
+     * @param migs          the migrations
+     * @param capacity      the capacity of the shared element
+     * @param migrationTask {@code true} to rely on the migration tasks, {@code false} to rely on the action tasks
+     */
+    private void postCumulative(List<RelocatableVM> migs, int capacity, boolean migrationTask) {
+        Task[] tasks = new Task[migs.size()];
+        IntVar[] heights = new IntVar[migs.size()];
+        for (int i = 0; i < tasks.length; i++) {
+            RelocatableVM a = migs.get(i);
+            tasks[i] = migrationTask ? a.getMigrationTask() : new Task(a.getStart(), a.getDuration(), a.getEnd());
+            heights[i] = a.getBandwidth();
+        }
+        csp.post(csp.cumulative(tasks, heights, csp.intVar(capacity), true));
+    }
+
+    @Override
+    public Map<String, Long> getBuildDurations() {
+        return Collections.singletonMap("migrationIndex", indexDuration);
+    }
 }
@@ -80,6 +80,8 @@ public class CShareableResource implements ChocoView {
 
     private TIntList vmAllocation;
 
+    private Map<VM, IntVar> allocationVars;
+
     private TDoubleList ratios;
 
     private ReconfigurationProblem rp;
@@ -138,6 +140,7 @@ public class CShareableResource implements ChocoView {
         //Bin packing for the node vmAllocation
 
         vmAllocation = new TIntArrayList();
+        allocationVars = new HashMap<>();
         for (VM vmId : p.getVMs()) {
             VMTransition a = p.getVMAction(vmId);
             Slice slice = a.getDSlice();
@@ -211,6 +214,24 @@ public class CShareableResource implements ChocoView {
         return vmAllocation.get(vmIdx);
     }
 
+    /**
+     * Get a variable denoting the amount of resource to allocate to a VM.
+     * The allocation is only known once all the constraints stated their requirements
+     * so the variable is instantiated to {@link #getVMAllocation(int)} in {@link #beforeSolve(ReconfigurationProblem)}.
+     *
+     * @param vmIdx the VM identifier
+     * @return the variable denoting the virtual resources to allocate to the VM
+     */
+    public IntVar getFutureVMAllocation(int vmIdx) {
+        VM vm = rp.getVM(vmIdx);
+        IntVar v = allocationVars.get(vm);
+        if (v == null) {
+            v = csp.intVar(rp.makeVarLabel("vmAllocation('", getResourceIdentifier(), "', '", vm, "'"), 0, Integer.MAX_VALUE / 100, true);
+            allocationVars.put(vm, v);
+        }
+        return v;
+    }
+
     /**
      * Change the VM resource allocation.
      *
@@ -278,6 +299,16 @@ public class CShareableResource implements ChocoView {
 
         }
 
+        for (Map.Entry<VM, IntVar> e : allocationVars.entrySet()) {
+            int alloc = getVMAllocation(p.getVM(e.getKey()));
+            try {
+                e.getValue().instantiateTo(alloc, Cause.Null);
+            } catch (ContradictionException ex) {
+                rp.getLogger().error("Unable to set the '" + getResourceIdentifier() + "' allocation of " + e.getKey() + " to " + alloc, ex);
+                return false;
+            }
+        }
+
         ChocoView v = rp.getView(Packing.VIEW_ID);
         if (v == null) {
             throw SchedulerModelingException.missingView(rp.getSourceModel(), Packing.VIEW_ID);
@@ -30,6 +30,7 @@ import org.chocosolver.solver.Solution;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 
@@ -95,6 +96,16 @@ public interface ChocoView extends Injectable, MisplacedVMsEstimator {
         return Collections.emptyList();
     }
 
+    /**
+     * Get the duration of the view-specific building steps.
+     * The durations are reported in the solving statistics.
+     *
+     * @return durations in milliseconds indexed by step name. An empty map by default
+     */
+    default Map<String, Long> getBuildDurations() {
+        return Collections.emptyMap();
+    }
+
     /**
      * {@inheritDoc}
      *
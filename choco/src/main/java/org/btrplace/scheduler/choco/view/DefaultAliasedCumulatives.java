@@ -19,6 +19,7 @@
 package org.btrplace.scheduler.choco.view;
 
 import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.set.hash.TIntHashSet;
 import org.btrplace.model.VM;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.scheduler.SchedulerException;
@@ -29,7 +30,9 @@ import org.chocosolver.solver.Solution;
 import org.chocosolver.solver.variables.IntVar;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Builder to create constraints where slices have to be placed on nodes
@@ -74,28 +77,53 @@ public class DefaultAliasedCumulatives extends AbstractCumulatives implements or
     }
 
     /**
-     * Get the generated constraints.
+     * Post the constraint.
+     * The dimensions sharing a same alias are aggregated into a single resource,
+     * then all the resources are restricted by a single constraint.
      *
-     * @return a list of constraint that may be empty.
+     * @return {@code true}
      */
     @Override
     public boolean beforeSolve(ReconfigurationProblem r) {
         super.beforeSolve(r);
+        if (aliases.isEmpty()) {
+            return true;
+        }
+        //The dimensions of each distinct alias, in order of appearance
+        Map<TIntHashSet, TIntArrayList> resources = new LinkedHashMap<>();
         for (int i = 0; i < aliases.size(); i++) {
-            int capa = capacities.get(i);
-            int[] alias = aliases.get(i);
-            int[] cUse = cUsages.get(i);
-            int[] dUses = new int[dUsages.get(i).length];
-            for (IntVar dUseDim : dUsages.get(i)) {
-                dUses[i++] = dUseDim.getLB();
-            }
-            r.getModel().post(new AliasedCumulatives(alias,
-                    new int[]{capa},
-                    cHosts, new int[][]{cUse}, cEnds,
-                    dHosts, new int[][]{dUses}, dStarts,
-                    associations));
+            resources.computeIfAbsent(new TIntHashSet(aliases.get(i)), k -> new TIntArrayList()).add(i);
+        }
 
+        int nbRes = resources.size();
+        int[][] as = new int[nbRes][];
+        int[][] capas = new int[nbRes][];
+        int[][][] cUses = new int[nbRes][][];
+        int[][][] dUses = new int[nbRes][][];
+        int x = 0;
+        for (Map.Entry<TIntHashSet, TIntArrayList> e : resources.entrySet()) {
+            TIntArrayList dims = e.getValue();
+            as[x] = e.getKey().toArray();
+            capas[x] = new int[dims.size()];
+            cUses[x] = new int[dims.size()][];
+            dUses[x] = new int[dims.size()][];
+            for (int d = 0; d < dims.size(); d++) {
+                int i = dims.get(d);
+                capas[x][d] = capacities.get(i);
+                cUses[x][d] = cUsages.get(i);
+                IntVar[] dUse = dUsages.get(i);
+                dUses[x][d] = new int[dUse.length];
+                for (int j = 0; j < dUse.length; j++) {
+                    dUses[x][d][j] = dUse[j].getLB();
+                }
+            }
+            x++;
         }
+        r.getModel().post(new AliasedCumulatives(as,
+                capas,
+                cHosts, cUses, cEnds,
+                dHosts, dUses, dStarts,
+                associations));
         return true;
     }
 
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.memory.trailing.EnvironmentTrailing;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit tests for {@link AdaptiveEnvironmentFactory}.
+ *
+ * @author Fabien Hermenier
+ */
+public class AdaptiveEnvironmentFactoryTest {
+
+    private static Model model() {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        mo.getMapping().on(n1, n2).run(n1, mo.newVM(), mo.newVM());
+        return mo;
+    }
+
+    @Test
+    public void testStrategies() {
+        Model mo = model();
+        ProblemSizeEstimate est = ProblemSizeEstimate.of(mo);
+        AdaptiveEnvironmentFactory f = new AdaptiveEnvironmentFactory();
+        Assert.assertEquals(f.getFlatLimit(), AdaptiveEnvironmentFactory.DEFAULT_FLAT_LIMIT);
+        Assert.assertEquals(AdaptiveEnvironmentFactory.strategy(f.build(mo)), "flat");
+        Assert.assertEquals(AdaptiveEnvironmentFactory.strategy(f.build(mo, est)), "flat");
+        Assert.assertEquals(AdaptiveEnvironmentFactory.strategy(new EnvironmentTrailing()), "flat");
+
+        //Below the estimated trail size
+        f = new AdaptiveEnvironmentFactory(16L * est.getTrailSize() - 1);
+        Assert.assertEquals(AdaptiveEnvironmentFactory.strategy(f.build(mo, est)), "chunked");
+    }
+
+    @Test
+    public void testSolving() {
+        Model mo = model();
+        VM v = mo.getMapping().getAllVMs().iterator().next();
+        Node n = mo.getMapping().getOnlineNodes().stream().filter(x -> mo.getMapping().getRunningVMs(x).isEmpty()).findFirst().get();
+        List<SatConstraint> cstrs = Collections.singletonList(new Fence(v, Collections.singleton(n)));
+        for (long limit : new long[]{AdaptiveEnvironmentFactory.DEFAULT_FLAT_LIMIT, 0}) {
+            ChocoScheduler s = new DefaultChocoScheduler();
+            Assert.assertTrue(s.getEnvironmentFactory() instanceof AdaptiveEnvironmentFactory);
+            s.setEnvironmentFactory(new AdaptiveEnvironmentFactory(limit));
+            ReconfigurationPlan p = s.solve(mo, cstrs);
+            Assert.assertEquals(p.getSize(), 1);
+            SolvingStatistics st = s.getStatistics();
+            Assert.assertEquals(st.getEnvironment(), limit == 0 ? "chunked" : "flat");
+            Assert.assertEquals(st.getSizeEstimate().getNbVMs(), 2);
+            Assert.assertTrue(st.toString().contains("Environment: " + st.getEnvironment()), st.toString());
+        }
+        //A custom factory
+        ChocoScheduler s = new DefaultChocoScheduler();
+        s.setEnvironmentFactory(m -> new EnvironmentTrailing());
+        Assert.assertNotNull(s.solve(mo, cstrs));
+        Assert.assertEquals(s.getStatistics().getEnvironment(), "flat");
+    }
+
+    @Test
+    public void testDefaultBuild() {
+        EnvironmentFactory f = m -> new EnvironmentTrailing();
+        IEnvironment env = f.build(model(), null);
+        Assert.assertTrue(env instanceof EnvironmentTrailing);
+    }
+}
@@ -25,6 +25,7 @@ import org.btrplace.model.Model;
 import org.btrplace.model.Node;
 import org.btrplace.model.VM;
 import org.btrplace.model.VMState;
+import org.btrplace.model.constraint.Fence;
 import org.btrplace.model.constraint.MinMTTR;
 import org.btrplace.model.constraint.Offline;
 import org.btrplace.model.constraint.Online;
@@ -32,12 +33,23 @@ import org.btrplace.model.constraint.Preserve;
 import org.btrplace.model.constraint.Ready;
 import org.btrplace.model.constraint.Running;
 import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ModelView;
 import org.btrplace.model.view.ShareableResource;
+import org.btrplace.model.view.network.Network;
+import org.btrplace.model.view.network.Switch;
 import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.ShutdownNode;
 import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.runner.InstanceSolver;
+import org.btrplace.scheduler.choco.runner.SolvingFuture;
 import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+import org.btrplace.scheduler.choco.runner.StagedSolvingStatistics;
+import org.btrplace.scheduler.choco.runner.single.SingleRunner;
+import org.btrplace.scheduler.choco.transition.RelocatableVM;
 import org.btrplace.scheduler.choco.transition.TransitionFactory;
 import org.btrplace.scheduler.choco.transition.VMTransitionBuilder;
+import org.btrplace.scheduler.choco.view.CNetwork;
+import org.btrplace.scheduler.choco.view.ChocoView;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -45,6 +57,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -72,6 +88,12 @@ public class DefaultChocoSchedulerTest {
         cra.doRepair(true);
         Assert.assertEquals(cra.doRepair(), true);
 
+        cra.doAdaptiveRepair(true);
+        Assert.assertEquals(cra.doAdaptiveRepair(), true);
+
+        cra.doPlanCompaction(true);
+        Assert.assertEquals(cra.doPlanCompaction(), true);
+
         cra.setVerbosity(3);
         Assert.assertEquals(cra.getVerbosity(), 3);
     }
@@ -330,4 +352,411 @@ public class DefaultChocoSchedulerTest {
         Assert.assertEquals(plan, onSolutions.get(0));
 
     }
+
+    @Test
+    public void testSolveAsync() throws Exception {
+        ChocoScheduler cra = new DefaultChocoScheduler();
+        Model mo = new DefaultModel();
+        VM vm = mo.newVM();
+        Node node = mo.newNode();
+        mo.getMapping().on(node).run(node, vm);
+        Instance i = new Instance(mo, Running.newRunning(Arrays.asList(vm)), new MinMTTR());
+        List<ReconfigurationPlan> onSolutions = new ArrayList<>();
+
+        SolvingFuture f = cra.solveAsync(i);
+        ReconfigurationPlan plan = f.get(10, TimeUnit.SECONDS);
+        Assert.assertNotNull(plan);
+        Assert.assertTrue(f.isDone());
+        Assert.assertFalse(f.isCancelled());
+        Assert.assertEquals(plan, f.getBestPlan());
+        Assert.assertNotNull(f.getBestMetrics());
+        //Late subscribers get the best plan
+        f.subscribe((p, m) -> onSolutions.add(p));
+        Assert.assertEquals(onSolutions, Collections.singletonList(plan));
+        //Too late to cancel
+        Assert.assertFalse(f.cancel(true));
+        //The scheduler parameters are left untouched
+        Assert.assertTrue(cra.stopCriteria().isEmpty());
+        Assert.assertTrue(cra.solutionListeners().isEmpty());
+    }
+
+    /**
+     * An instance with a given number of VMs to relocate.
+     */
+    private static Instance simpleInstance(int nbVMs) {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        mo.getMapping().on(n1, n2);
+        List<SatConstraint> cstrs = new ArrayList<>();
+        for (int x = 0; x < nbVMs; x++) {
+            VM vm = mo.newVM();
+            mo.getMapping().run(n1, vm);
+            mo.getAttributes().put(vm, "memUsed", 1000);
+            cstrs.add(new Fence(vm, n2));
+        }
+        return new Instance(mo, cstrs, new MinMTTR());
+    }
+
+    /**
+     * A solution listener that blocks the first solving process reaching a solution.
+     */
+    private static BiConsumer<ReconfigurationProblem, ReconfigurationPlan> blocker(CountDownLatch entered, CountDownLatch release) {
+        AtomicBoolean first = new AtomicBoolean(false);
+        return (rp, p) -> {
+            if (first.compareAndSet(false, true)) {
+                entered.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    /**
+     * Solving processes running simultaneously on a same scheduler have their own statistics.
+     */
+    @Test
+    public void testSolveAsyncIsolation() throws Exception {
+        ChocoScheduler cra = new DefaultChocoScheduler();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        cra.addSolutionListener(blocker(entered, release));
+
+        Instance i1 = simpleInstance(1);
+        SolvingFuture f1 = cra.solveAsync(i1);
+        Assert.assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+        //A network in the two-pass mode. The caller's model is left untouched
+        Instance i2 = simpleInstance(2);
+        Network net = new Network();
+        i2.getModel().attach(net);
+        net.connect(1000, net.newSwitch(), new ArrayList<>(i2.getModel().getMapping().getAllNodes()));
+        SolvingFuture f2 = cra.solveAsync(i2);
+        ReconfigurationPlan p2 = f2.get(10, TimeUnit.SECONDS);
+        Assert.assertNotNull(p2);
+        Assert.assertNotSame(p2.getOrigin(), i2.getModel());
+        Assert.assertSame(Network.get(i2.getModel()), net);
+
+        Instance i3 = simpleInstance(3);
+        Assert.assertNotNull(cra.solve(i3));
+
+        release.countDown();
+        Assert.assertNotNull(f1.get(10, TimeUnit.SECONDS));
+        Assert.assertEquals(f1.getStatistics().getInstance(), i1);
+        Assert.assertEquals(f2.getStatistics().getInstance().getModel().getMapping(), i2.getModel().getMapping());
+        Assert.assertEquals(cra.getStatistics().getInstance(), i3);
+    }
+
+    /**
+     * In network mode, a stop asked during the placement stage lets the migrations be scheduled
+     * and only the scheduled plans are notified.
+     */
+    @Test
+    public void testSolveAsyncNetworkStop() throws Exception {
+        for (boolean singlePass : new boolean[]{false, true}) {
+            ChocoScheduler cra = new DefaultChocoScheduler();
+            cra.doSinglePassNetwork(singlePass);
+            CountDownLatch entered = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            cra.addSolutionListener(blocker(entered, release));
+            List<ReconfigurationPlan> scheduled = new ArrayList<>();
+            cra.addSolutionListener((rp, p) -> {
+                ChocoView v = rp.getView(Network.VIEW_ID);
+                if (v != null && !((CNetwork) v).isPlacementStage()) {
+                    scheduled.add(p);
+                }
+            });
+
+            Instance i = simpleInstance(2);
+            Network net = new Network();
+            i.getModel().attach(net);
+            net.connect(1000, net.newSwitch(), new ArrayList<>(i.getModel().getMapping().getAllNodes()));
+            SolvingFuture f = cra.solveAsync(i);
+            List<ReconfigurationPlan> notified = new ArrayList<>();
+            f.subscribe((p, m) -> notified.add(p));
+            //Stopped once the placement is known
+            Assert.assertTrue(entered.await(10, TimeUnit.SECONDS));
+            f.stop();
+            release.countDown();
+            ReconfigurationPlan p = f.get(10, TimeUnit.SECONDS);
+            Assert.assertNotNull(p, "single pass: " + singlePass);
+            Assert.assertFalse(scheduled.isEmpty());
+            Assert.assertEquals(notified, scheduled);
+            Assert.assertEquals(f.getBestPlan(), p);
+        }
+    }
+
+    /**
+     * An instance solver that cannot be forked is used by a single solving process at a time.
+     */
+    @Test
+    public void testSolveAsyncBusy() throws Exception {
+        ChocoScheduler cra = new DefaultChocoScheduler();
+        InstanceSolver single = new SingleRunner();
+        cra.setInstanceSolver(new InstanceSolver() {
+            @Override
+            public ReconfigurationPlan solve(Parameters ps, Instance i) {
+                return single.solve(ps, i);
+            }
+
+            @Override
+            public SolvingStatistics getStatistics() {
+                return single.getStatistics();
+            }
+        });
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        cra.addSolutionListener(blocker(entered, release));
+        Instance i = simpleInstance(1);
+        SolvingFuture f = cra.solveAsync(i);
+        Assert.assertTrue(entered.await(10, TimeUnit.SECONDS));
+        try {
+            cra.solve(simpleInstance(2));
+            Assert.fail("The instance solver is already in use");
+        } catch (IllegalStateException ex) {
+            //Expected
+        }
+        try {
+            cra.solveAsync(simpleInstance(2));
+            Assert.fail("The instance solver is already in use");
+        } catch (IllegalStateException ex) {
+            //Expected
+        }
+        release.countDown();
+        Assert.assertNotNull(f.get(10, TimeUnit.SECONDS));
+        Assert.assertEquals(f.getStatistics().getInstance(), i);
+        //Available again
+        Assert.assertNotNull(cra.solve(simpleInstance(2)));
+    }
+
+    @Test
+    public void testStopCriterion() {
+        ChocoScheduler cra = new DefaultChocoScheduler();
+        Model mo = new DefaultModel();
+        VM vm = mo.newVM();
+        Node node = mo.newNode();
+        mo.getMapping().on(node).run(node, vm);
+        Instance i = new Instance(mo, Running.newRunning(Arrays.asList(vm)), new MinMTTR());
+        cra.addStopCriterion(() -> true);
+        Assert.assertEquals(cra.stopCriteria().size(), 1);
+        //Stopped before any solution
+        try {
+            cra.solve(i);
+            Assert.fail("The solver should not be able to state about the instance");
+        } catch (SchedulerException ex) {
+            Assert.assertTrue(cra.getStatistics().getSolutions().isEmpty());
+        }
+    }
+
+    @Test
+    public void testAdaptiveRepair() {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        VM vm3 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        mo.getMapping().on(n1, n2, n3).run(n1, vm1, vm2).run(n2, vm3);
+        ShareableResource rc = new ShareableResource("cpu", 2, 1);
+        rc.setConsumption(vm3, 2);
+        mo.attach(rc);
+        //vm3 is the only misplaced VM but n1 must be freed first
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.add(new Fence(vm3, Collections.singleton(n1)));
+        cstrs.addAll(Running.newRunning(mo.getMapping().getAllVMs()));
+        ChocoScheduler cra = new DefaultChocoScheduler();
+        cra.doRepair(true);
+        Assert.assertNull(cra.solve(mo, cstrs));
+
+        cra.doAdaptiveRepair(true);
+        ReconfigurationPlan p = cra.solve(mo, cstrs);
+        Assert.assertNotNull(p);
+        Assert.assertEquals(p.getResult().getMapping().getVMLocation(vm3), n1);
+        SolvingStatistics stats = cra.getStatistics();
+        Assert.assertTrue(stats instanceof StagedSolvingStatistics);
+        Assert.assertTrue(((StagedSolvingStatistics) stats).getNbStages() > 1);
+        Assert.assertEquals(((StagedSolvingStatistics) stats).getStage(0).getNbManagedVMs(), 1);
+        Assert.assertEquals(stats.getNbManagedVMs(), 3);
+    }
+
+    /**
+     * A solver-only view that delays the migrations.
+     */
+    public static class Delay implements ChocoView {
+
+        @Override
+        public String getIdentifier() {
+            return "delay";
+        }
+
+        @Override
+        public boolean inject(Parameters ps, ReconfigurationProblem rp) {
+            rp.getVMActions().stream().filter(t -> t instanceof RelocatableVM).map(t -> (RelocatableVM) t)
+                    .forEach(t -> rp.getModel().ifThen(rp.getModel().arithm(t.isStaying(), "=", 0),
+                            rp.getModel().arithm(t.getStart(), ">=", 5)));
+            return true;
+        }
+    }
+
+    @Test
+    public void testPlanCompaction() {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        mo.getMapping().on(n1, n2).run(n1, vm1, vm2);
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.add(new Fence(vm1, Collections.singleton(n2)));
+        cstrs.add(new Fence(vm2, Collections.singleton(n1)));
+        cstrs.addAll(Running.newRunning(mo.getMapping().getAllVMs()));
+
+        ChocoScheduler cra = new DefaultChocoScheduler();
+        cra.addChocoView(Delay.class);
+        ReconfigurationPlan p = cra.solve(mo, cstrs);
+        Assert.assertEquals(p.getSize(), 1);
+        Assert.assertEquals(p.getActions().iterator().next().getStart(), 5);
+        Assert.assertEquals(cra.getStatistics().getMakespanReduction(), 0);
+
+        cra.doPlanCompaction(true);
+        ReconfigurationPlan c = cra.solve(mo, cstrs);
+        Assert.assertEquals(c.getSize(), 1);
+        Assert.assertEquals(c.getActions().iterator().next().getStart(), 0);
+        Assert.assertEquals(c.getDuration(), p.getDuration() - 5);
+        Assert.assertEquals(c.getResult(), p.getResult());
+        SolvingStatistics stats = cra.getStatistics();
+        Assert.assertEquals(stats.getMakespanReduction(), 5);
+        Assert.assertEquals(stats.lastSolution(), c);
+        //The solver solution is left untouched
+        Assert.assertEquals(stats.getSolutions().get(stats.getSolutions().size() - 1).getReconfigurationPlan().getDuration(), p.getDuration());
+    }
+
+    private static Instance cacheInstance() {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        mo.getMapping().on(n1, n2).run(n1, vm1, vm2);
+        ShareableResource rc = new ShareableResource("cpu", 4, 1);
+        mo.attach(rc);
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.add(new Fence(vm1, Collections.singleton(n2)));
+        cstrs.addAll(Running.newRunning(mo.getMapping().getAllVMs()));
+        return new Instance(mo, cstrs, new MinMTTR());
+    }
+
+    @Test
+    public void testSolutionCache() {
+        DefaultChocoScheduler cra = new DefaultChocoScheduler();
+        Assert.assertNull(cra.getSolutionCache());
+        Assert.assertEquals(cra.setSolutionCacheSize(2), cra);
+        Assert.assertEquals(cra.getSolutionCache().capacity(), 2);
+
+        Instance i = cacheInstance();
+        ReconfigurationPlan p = cra.solve(i);
+        Assert.assertEquals(p.getSize(), 1);
+        SolvingStatistics stats = cra.getStatistics();
+        Assert.assertEquals(stats.getCacheHits(), 0);
+        Assert.assertEquals(stats.getCacheMisses(), 1);
+        Assert.assertEquals(stats.lastSolution(), p);
+
+        //Same instance, a new plan
+        ReconfigurationPlan same = cra.solve(i);
+        Assert.assertNotSame(same, p);
+        Assert.assertEquals(same.getActions(), p.getActions());
+        Assert.assertEquals(cra.getStatistics().getCacheHits(), 1);
+
+        //Same content but another model
+        Instance j = cacheInstance();
+        ReconfigurationPlan q = cra.solve(j);
+        Assert.assertEquals(cra.getStatistics().getCacheHits(), 2);
+        Assert.assertSame(q.getOrigin(), j.getModel());
+        Assert.assertEquals(q.getActions(), p.getActions());
+        Assert.assertEquals(q.getResult(), p.getResult());
+        Assert.assertEquals(cra.getStatistics().getInstance(), j);
+
+        //Another content
+        ShareableResource.get(j.getModel(), "cpu").setConsumption(j.getModel().getMapping().getAllVMs().iterator().next(), 2);
+        cra.solve(j);
+        Assert.assertEquals(cra.getStatistics().getCacheHits(), 2);
+        Assert.assertEquals(cra.getStatistics().getCacheMisses(), 2);
+
+        //Other constraints
+        j.getSatConstraints().clear();
+        cra.solve(j);
+        Assert.assertEquals(cra.getStatistics().getCacheMisses(), 3);
+        //Only the 2 most recent plans are kept
+        Assert.assertEquals(cra.getSolutionCache().size(), 2);
+        cra.solve(i);
+        Assert.assertEquals(cra.getStatistics().getCacheMisses(), 4);
+
+        cra.setSolutionCacheSize(0);
+        Assert.assertNull(cra.getSolutionCache());
+        cra.solve(i);
+        Assert.assertEquals(cra.getStatistics().getCacheMisses(), 0);
+    }
+
+    @Test
+    public void testSolutionCacheIsolation() {
+        DefaultChocoScheduler cra = new DefaultChocoScheduler().setSolutionCacheSize(2);
+        Instance i = cacheInstance();
+        ReconfigurationPlan p = cra.solve(i);
+        //Altering a returned plan must not alter the cached one
+        Node n = i.getModel().getMapping().getOnlineNodes().iterator().next();
+        Assert.assertTrue(p.add(new ShutdownNode(n, 5, 6)));
+        ReconfigurationPlan q = cra.solve(i);
+        Assert.assertEquals(cra.getStatistics().getCacheHits(), 1);
+        Assert.assertEquals(q.getSize(), 1);
+    }
+
+    @Test
+    public void testSolutionCacheViews() {
+        DefaultChocoScheduler cra = new DefaultChocoScheduler().setSolutionCacheSize(2);
+        Instance i = cacheInstance();
+        Model mo = i.getModel();
+        for (VM v : mo.getMapping().getAllVMs()) {
+            mo.getAttributes().put(v, "memUsed", 1000);
+        }
+        Network net = new Network();
+        Switch sw = net.newSwitch();
+        net.connect(1000, sw, new ArrayList<>(mo.getMapping().getAllNodes()));
+        mo.attach(net);
+        cra.solve(i);
+        cra.solve(i);
+        Assert.assertEquals(cra.getStatistics().getCacheHits(), 1);
+        //Another topology
+        net.connect(1000, net.newSwitch(), sw);
+        cra.solve(i);
+        Assert.assertEquals(cra.getStatistics().getCacheHits(), 1);
+        Assert.assertEquals(cra.getStatistics().getCacheMisses(), 2);
+
+        //A view without fingerprint prevents from caching
+        Instance j = cacheInstance();
+        j.getModel().attach(new ModelView() {
+            @Override
+            public String getIdentifier() {
+                return "opaque";
+            }
+
+            @Override
+            public boolean substituteVM(VM curId, VM nextId) {
+                return true;
+            }
+
+            @Override
+            public ModelView copy() {
+                return this;
+            }
+        });
+        cra.solve(j);
+        cra.solve(j);
+        Assert.assertEquals(cra.getStatistics().getCacheHits(), 1);
+        Assert.assertEquals(cra.getStatistics().getCacheMisses(), 4);
+        Assert.assertEquals(cra.getSolutionCache().size(), 2);
+    }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.Offline;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ShareableResource;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit tests for {@link ProblemSizeEstimate}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ProblemSizeEstimateTest {
+
+    private static Model model(int nbNodes, int nbVMs) {
+        Model mo = new DefaultModel();
+        List<Node> ns = new ArrayList<>();
+        for (int i = 0; i < nbNodes; i++) {
+            Node n = mo.newNode();
+            ns.add(n);
+            mo.getMapping().on(n);
+        }
+        for (int i = 0; i < nbVMs; i++) {
+            mo.getMapping().run(ns.get(i % nbNodes), mo.newVM());
+        }
+        return mo;
+    }
+
+    @Test
+    public void testSmall() {
+        ProblemSizeEstimate e = ProblemSizeEstimate.of(model(10, 40));
+        Assert.assertEquals(e.getNbNodes(), 10);
+        Assert.assertEquals(e.getNbVMs(), 40);
+        Assert.assertEquals(e.getNbManagedVMs(), 40);
+        Assert.assertTrue(e.getNbVariables() > 0);
+        Assert.assertTrue(e.getNbConstraints() > 0);
+        //The default dimensions of the solver
+        Assert.assertEquals(e.getDepth(), 128);
+        Assert.assertEquals(e.getUpdatesPerLevel(), 256);
+        Assert.assertEquals(e.getTrailSize(), 128 * 256);
+        Assert.assertTrue(e.getFootprint() > 16L * e.getTrailSize());
+        Assert.assertTrue(e.toString().contains("footprint"));
+    }
+
+    @Test
+    public void testGrowth() {
+        Model mo = model(200, 1000);
+        ProblemSizeEstimate all = ProblemSizeEstimate.of(mo);
+        ProblemSizeEstimate few = ProblemSizeEstimate.of(mo, 10);
+        Assert.assertEquals(few.getNbManagedVMs(), 10);
+        Assert.assertTrue(few.getNbVariables() < all.getNbVariables());
+        Assert.assertTrue(few.getDepth() < all.getDepth());
+        Assert.assertEquals(ProblemSizeEstimate.of(mo, 5000).getNbManagedVMs(), 1000);
+
+        //Views and constraints increase the estimation
+        mo.attach(new ShareableResource("cpu", 4, 1));
+        ProblemSizeEstimate withView = ProblemSizeEstimate.of(mo);
+        Assert.assertEquals(withView.getNbVariables(), all.getNbVariables() + 1200);
+        List<SatConstraint> cstrs = new ArrayList<>(Offline.newOffline(mo.getMapping().getAllNodes()));
+        ProblemSizeEstimate withCstrs = ProblemSizeEstimate.of(new Instance(mo, cstrs, new MinMTTR()), 1000);
+        Assert.assertEquals(withCstrs.getNbConstraints(), withView.getNbConstraints() + 2 * 200);
+        Assert.assertEquals(ProblemSizeEstimate.of(new Instance(mo, Collections.emptyList(), new MinMTTR()), 1000).getNbConstraints(),
+                withView.getNbConstraints());
+
+        //Powers of 2
+        Assert.assertEquals(Integer.bitCount(all.getDepth()), 1);
+        Assert.assertEquals(Integer.bitCount(all.getUpdatesPerLevel()), 1);
+        Assert.assertEquals(Integer.bitCount(all.getTrailSize()), 1);
+        Assert.assertTrue(all.getTrailSize() > 128 * 256);
+    }
+}
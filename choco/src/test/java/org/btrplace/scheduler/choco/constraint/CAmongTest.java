@@ -259,6 +259,46 @@ public class CAmongTest {
         Assert.assertNull(p);
     }
 
+    /**
+     * Thousands of VMs over racks of nodes.
+     * The VMs of the constraint are spread over several racks and must be gathered into a single one.
+     */
+    @Test
+    public void testRackStructured() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        List<Node> nodes = new ArrayList<>();
+        Collection<Collection<Node>> racks = new ArrayList<>();
+        for (int r = 0; r < 10; r++) {
+            Set<Node> rack = new HashSet<>();
+            for (int i = 0; i < 20; i++) {
+                Node n = mo.newNode();
+                map.on(n);
+                nodes.add(n);
+                rack.add(n);
+            }
+            racks.add(rack);
+        }
+        List<VM> vms = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            VM v = mo.newVM();
+            map.run(nodes.get(i % nodes.size()), v);
+            if (i % 10 == 0) {
+                vms.add(v);
+            }
+        }
+        Among a = new Among(vms, racks);
+        ChocoScheduler cra = new DefaultChocoScheduler();
+        cra.doRepair(true);
+        ReconfigurationPlan p = cra.solve(mo, Collections.singletonList(a));
+        Assert.assertNotNull(p);
+        Mapping res = p.getResult().getMapping();
+        Collection<Node> rack = racks.stream().filter(r -> r.contains(res.getVMLocation(vms.get(0)))).findFirst().get();
+        for (VM v : vms) {
+            Assert.assertTrue(rack.contains(res.getVMLocation(v)));
+        }
+    }
+
     /*
     @Test
     public void testContinuousWithOneRunningAndChange() throws SchedulerException {
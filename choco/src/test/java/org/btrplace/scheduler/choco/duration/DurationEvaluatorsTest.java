@@ -107,4 +107,68 @@ public class DurationEvaluatorsTest {
         d.register(org.btrplace.plan.event.MigrateVM.class, new ConstantActionDuration<>(-5));
         d.evaluate(mo, org.btrplace.plan.event.MigrateVM.class, vm1);
     }
+
+    @Test
+    public void testPrepare() throws SchedulerException {
+        Model m = new DefaultModel();
+        Node n = m.newNode();
+        VM v1 = m.newVM();
+        VM v2 = m.newVM();
+        m.getMapping().on(n).run(n, v1, v2);
+        m.getAttributes().put(v1, "migrate", 4);
+        m.getAttributes().put(n, "boot", 6);
+
+        int[] evals = new int[1];
+        DurationEvaluators d = DurationEvaluators.newBundle();
+        ActionDurationFromOptionalAttribute<Element> ev = (ActionDurationFromOptionalAttribute<Element>) d.getEvaluator(MigrateVM.class);
+        ev.setParent(new ConstantActionDuration<Element>(2) {
+            @Override
+            public int evaluate(Model mo, Element e) {
+                evals[0]++;
+                return super.evaluate(mo, e);
+            }
+        });
+        d.prepare(m);
+        Assert.assertEquals(d.evaluate(m, MigrateVM.class), new int[]{4, 2});
+        Assert.assertEquals(d.evaluate(m, BootNode.class), new int[]{6});
+        //Memorised durations
+        Assert.assertEquals(d.evaluate(m, MigrateVM.class, v1), 4);
+        Assert.assertEquals(d.evaluate(m, MigrateVM.class, v2), 2);
+        Assert.assertEquals(evals[0], 0);
+
+        //Modified attributes
+        m.getAttributes().put(v2, "migrate", 5);
+        Assert.assertEquals(d.evaluate(m, MigrateVM.class, v2), 5);
+        d.prepare(m);
+        Assert.assertEquals(d.evaluate(m, MigrateVM.class), new int[]{4, 5});
+
+        //An element unknown at the moment of the preparation
+        VM v3 = m.newVM();
+        Assert.assertEquals(d.evaluate(m, MigrateVM.class, v3), 2);
+        Assert.assertEquals(evals[0], 1);
+
+        //Another evaluator
+        d.register(MigrateVM.class, new ConstantActionDuration<>(8));
+        Assert.assertEquals(d.evaluate(m, MigrateVM.class, v1), 8);
+
+        //Evaluators that depend on something else are not memorised
+        d.register(MigrateVM.class, (mo, e) -> {
+            evals[0]++;
+            return 3;
+        });
+        d.prepare(m);
+        Assert.assertEquals(evals[0], 1);
+        Assert.assertEquals(d.evaluate(m, MigrateVM.class, v1), 3);
+        Assert.assertEquals(evals[0], 2);
+    }
+
+    @Test(expectedExceptions = {SchedulerException.class})
+    public void testBatchWithError() throws SchedulerException {
+        Model m = new DefaultModel();
+        m.getMapping().ready(m.newVM());
+        DurationEvaluators d = new DurationEvaluators();
+        d.register(BootVM.class, new ConstantActionDuration<>(-5));
+        d.prepare(m);
+        d.evaluate(m, BootVM.class);
+    }
 }
@@ -25,6 +25,8 @@ import org.btrplace.model.VM;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+
 /**
  * Unit tests for {@link ActionDurationFromOptionalAttribute}.
  *
@@ -56,4 +58,22 @@ public class DurationFromOptionalAttributeTest {
         Assert.assertFalse(dev.toString().contains("null"));
 
     }
+
+    @Test
+    public void testBatch() {
+        Model mo = new DefaultModel();
+        Attributes attrs = mo.getAttributes();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        VM vm3 = mo.newVM();
+        ActionDurationFromOptionalAttribute<VM> dev = new ActionDurationFromOptionalAttribute<>("boot", new ConstantActionDuration<>(15));
+        attrs.put(vm2, "boot", 7);
+        attrs.put(vm3, "boot", Integer.MIN_VALUE);
+        int[] ds = dev.evaluate(mo, Arrays.asList(vm3, vm1, vm2, vm1));
+        Assert.assertEquals(ds, new int[]{Integer.MIN_VALUE, 15, 7, 15});
+        Assert.assertTrue(dev.dependsOnAttributesOnly());
+        dev.setParent((m, v) -> 3);
+        Assert.assertFalse(dev.dependsOnAttributesOnly());
+        Assert.assertEquals(dev.evaluate(mo, Arrays.asList(vm1, vm2)), new int[]{3, 7});
+    }
 }
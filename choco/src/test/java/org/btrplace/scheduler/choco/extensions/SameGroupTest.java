@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.scheduler.choco.extensions;
+
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.variables.IntVar;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+/**
+ * Unit tests for {@link SameGroup}.
+ *
+ * @author Fabien Hermenier
+ */
+public class SameGroupTest {
+
+    private static long nbSolutions(boolean global, int[] groups, int nbGroups, int[][] domains) {
+        Model csp = new Model();
+        IntVar g = csp.intVar("g", 0, nbGroups - 1, false);
+        IntVar[] vs = new IntVar[domains.length];
+        for (int i = 0; i < vs.length; i++) {
+            vs[i] = csp.intVar("v" + i, domains[i]);
+        }
+        if (global) {
+            csp.post(new SameGroup(g, groups, vs));
+        } else {
+            for (IntVar v : vs) {
+                csp.post(csp.element(g, groups, v, 0));
+            }
+        }
+        return csp.getSolver().findAllSolutions().size();
+    }
+
+    @Test
+    public void testSimple() {
+        //Values 0..5 in 2 groups, the value 6 in no group
+        int[] groups = {0, 0, 0, 1, 1, 1, -1};
+        Assert.assertEquals(nbSolutions(true, groups, 2, new int[][]{{0, 1, 2, 3, 4, 5, 6}, {0, 1, 2, 3, 4, 5, 6}}), 18);
+        Assert.assertEquals(nbSolutions(true, groups, 2, new int[][]{{0, 3}, {4, 5}}), 2);
+        Assert.assertEquals(nbSolutions(true, groups, 2, new int[][]{{0, 6}, {4, 5}}), 0);
+    }
+
+    @Test
+    public void testAgainstElements() {
+        Random rnd = new Random(12345);
+        for (int k = 0; k < 50; k++) {
+            int nbGroups = 1 + rnd.nextInt(4);
+            int[] groups = new int[2 + rnd.nextInt(8)];
+            for (int i = 0; i < groups.length; i++) {
+                //Not contiguous, some values in no groups
+                groups[i] = rnd.nextInt(nbGroups + 1) - 1;
+            }
+            int[][] domains = new int[1 + rnd.nextInt(4)][];
+            for (int i = 0; i < domains.length; i++) {
+                domains[i] = rnd.ints(1 + rnd.nextInt(groups.length), 0, groups.length).distinct().sorted().toArray();
+            }
+            Assert.assertEquals(nbSolutions(true, groups, nbGroups, domains), nbSolutions(false, groups, nbGroups, domains));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.runner.single;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.constraint.Spread;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.model.view.network.Network;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.choco.ChocoScheduler;
+import org.btrplace.scheduler.choco.DefaultChocoScheduler;
+import org.btrplace.scheduler.choco.runner.ComponentStatistics;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+import org.btrplace.scheduler.choco.runner.StagedSolvingStatistics;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Unit tests for {@link Instrumentation}.
+ *
+ * @author Fabien Hermenier
+ */
+public class InstrumentationTest {
+
+    private static ChocoScheduler solve(boolean search, int[] totals) {
+        Model mo = new DefaultModel();
+        List<Node> ns = new ArrayList<>();
+        List<VM> vms = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Node n = mo.newNode();
+            ns.add(n);
+            mo.getMapping().on(n);
+        }
+        for (int i = 0; i < 8; i++) {
+            VM v = mo.newVM();
+            vms.add(v);
+            mo.getMapping().run(ns.get(i % 2), v);
+        }
+        mo.attach(new ShareableResource("cpu", 4, 1));
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.add(new Spread(new HashSet<>(vms.subList(0, 2))));
+        cstrs.add(new Fence(vms.get(0), Collections.singleton(ns.get(3))));
+        cstrs.addAll(Running.newRunning(vms));
+
+        ChocoScheduler s = new DefaultChocoScheduler();
+        s.doInstrumentation(search);
+        s.getParameters().addSolutionListener((rp, p) -> {
+            totals[0] = rp.getModel().getNbVars();
+            totals[1] = rp.getModel().getNbCstrs();
+        });
+        ReconfigurationPlan p = s.solve(mo, cstrs);
+        Assert.assertNotNull(p);
+        return s;
+    }
+
+    @Test
+    public void testBuildSteps() {
+        int[] totals = new int[2];
+        ChocoScheduler s = solve(false, totals);
+        Assert.assertFalse(s.doInstrumentation());
+        SolvingStatistics st = s.getStatistics();
+        List<ComponentStatistics> cs = st.getComponentStatistics();
+        Map<String, ComponentStatistics> byName = cs.stream().collect(Collectors.toMap(ComponentStatistics::getName, Function.identity()));
+        //core, 1 view, 10 constraints, the objective
+        Assert.assertEquals(cs.size(), 13, cs.toString());
+        Assert.assertEquals(cs.get(0).getKind(), ComponentStatistics.Kind.CORE);
+        Assert.assertEquals(byName.get("ShareableResource.cpu").getKind(), ComponentStatistics.Kind.VIEW);
+        Assert.assertEquals(byName.get("Spread#0").getKind(), ComponentStatistics.Kind.CONSTRAINT);
+        Assert.assertEquals(byName.get("Fence#1").getKind(), ComponentStatistics.Kind.CONSTRAINT);
+        Assert.assertEquals(byName.get("MinMTTR").getKind(), ComponentStatistics.Kind.OBJECTIVE);
+
+        //The elements are all attributed
+        Assert.assertEquals(cs.stream().mapToInt(ComponentStatistics::getNbVariables).sum(), totals[0]);
+        Assert.assertEquals(cs.stream().mapToInt(ComponentStatistics::getNbConstraints).sum(), totals[1]);
+        Assert.assertTrue(cs.get(0).getNbVariables() > 0);
+        Assert.assertTrue(cs.get(0).getNbPropagators() > 0);
+        Assert.assertTrue(byName.get("Spread#0").getNbPropagators() > 0);
+        Assert.assertTrue(byName.get("ShareableResource.cpu").getNbVariables() > 0);
+        Assert.assertTrue(byName.get("MinMTTR").getBuildDuration() > 0);
+        //Not instrumented
+        Assert.assertEquals(cs.stream().mapToLong(ComponentStatistics::getUpdates).sum(), 0);
+        Assert.assertEquals(cs.stream().mapToLong(ComponentStatistics::getFails).sum(), 0);
+    }
+
+    @Test
+    public void testSearch() {
+        ChocoScheduler ref = solve(false, new int[2]);
+        ChocoScheduler s = solve(true, new int[2]);
+        SolvingStatistics st = s.getStatistics();
+        List<ComponentStatistics> cs = st.getComponentStatistics();
+        //Same search
+        Assert.assertEquals(st.getMetrics().nodes(), ref.getStatistics().getMetrics().nodes());
+        Assert.assertEquals(st.getMetrics().fails(), ref.getStatistics().getMetrics().fails());
+        Assert.assertTrue(cs.stream().mapToLong(ComponentStatistics::getUpdates).sum() > 0);
+        //Not all the fails are raised by a propagator
+        Assert.assertTrue(cs.stream().mapToLong(ComponentStatistics::getFails).sum() <= st.getMetrics().fails());
+        Assert.assertTrue(st.toString().contains("Spread#0"), st.toString());
+    }
+
+    /**
+     * The scheduling stage of the single-pass network mode has its own component statistics.
+     */
+    @Test
+    public void testSinglePassNetwork() {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        mo.getMapping().on(n1, n2);
+        List<SatConstraint> cstrs = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            VM v = mo.newVM();
+            mo.getMapping().run(n1, v);
+            mo.getAttributes().put(v, "memUsed", 1000);
+            cstrs.add(new Fence(v, Collections.singleton(n2)));
+        }
+        Network net = new Network();
+        mo.attach(net);
+        net.connect(1000, net.newSwitch(), n1, n2);
+
+        ChocoScheduler s = new DefaultChocoScheduler();
+        s.doSinglePassNetwork(true);
+        s.doInstrumentation(true);
+        Assert.assertNotNull(s.solve(mo, cstrs));
+        StagedSolvingStatistics st = (StagedSolvingStatistics) s.getStatistics();
+        Assert.assertEquals(st.getNbStages(), 2);
+        List<ComponentStatistics> placement = st.getStage(0).getComponentStatistics();
+        List<ComponentStatistics> scheduling = st.getStage(1).getComponentStatistics();
+        Assert.assertEquals(scheduling.size(), placement.size());
+        Assert.assertNotSame(scheduling.get(0), placement.get(0));
+        ComponentStatistics c = scheduling.stream().filter(x -> x.getName().equals(Network.VIEW_ID)).findFirst().get();
+        Assert.assertEquals(c.getKind(), ComponentStatistics.Kind.VIEW);
+        Assert.assertTrue(c.getBuildDuration() > 0);
+        Assert.assertTrue(scheduling.stream().mapToLong(ComponentStatistics::getUpdates).sum() > 0);
+    }
+
+    @Test
+    public void testFlightRecorder() {
+        //Nothing is recorded but the events are built
+        Assert.assertTrue(FlightRecorderEvents.isAvailable());
+        Object ev = FlightRecorderEvents.begin();
+        Assert.assertNotNull(ev);
+        ChocoScheduler s = solve(false, new int[2]);
+        FlightRecorderEvents.commit(ev, (SingleRunnerStatistics) s.getStatistics());
+        FlightRecorderEvents.commit(null, (SingleRunnerStatistics) s.getStatistics());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.runner.single;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Gather;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ShareableResource;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Unit tests for {@link RepairWidening}.
+ *
+ * @author Fabien Hermenier
+ */
+public class RepairWideningTest {
+
+    @Test
+    public void testStages() {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        VM vm3 = mo.newVM();
+        VM vm4 = mo.newVM();
+        VM vm5 = mo.newVM();
+        VM vm6 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        Node n4 = mo.newNode();
+        mo.getMapping().on(n1, n2, n3, n4)
+                .run(n1, vm1, vm2)
+                .run(n2, vm3)
+                .run(n3, vm4)
+                .ready(vm5, vm6);
+        ShareableResource rc = new ShareableResource("cpu", 3, 1);
+        rc.setConsumption(vm4, 3);
+        mo.attach(rc);
+        List<SatConstraint> cstrs = Collections.singletonList(new Gather(Arrays.asList(vm2, vm3)));
+        RepairWidening w = new RepairWidening(new Instance(mo, cstrs, new MinMTTR()));
+
+        //The neighbours of vm1
+        Set<VM> s = w.widen(Collections.singleton(vm1));
+        Assert.assertEquals(s, new HashSet<>(Arrays.asList(vm1, vm2)));
+        //The VMs sharing a constraint with vm2
+        s = w.widen(s);
+        Assert.assertEquals(s, new HashSet<>(Arrays.asList(vm1, vm2, vm3)));
+        //n3 is too loaded to host any of the manageable VMs
+        s = w.widen(s);
+        Assert.assertEquals(s, new HashSet<>(Arrays.asList(vm1, vm2, vm3, vm4)));
+        //Everything
+        s = w.widen(s);
+        Assert.assertEquals(s, mo.getMapping().getAllVMs());
+        Assert.assertNull(w.widen(s));
+    }
+
+    @Test
+    public void testSkipUselessStages() {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        mo.getMapping().on(n1, n2).run(n1, vm1).run(n2, vm2);
+        RepairWidening w = new RepairWidening(new Instance(mo, Collections.emptyList(), new MinMTTR()));
+        //No neighbours, no constraints, no resources
+        Set<VM> s = w.widen(Collections.singleton(vm1));
+        Assert.assertEquals(s, mo.getMapping().getAllVMs());
+        Assert.assertNull(w.widen(s));
+    }
+}
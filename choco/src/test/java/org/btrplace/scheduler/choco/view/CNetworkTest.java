@@ -28,8 +28,11 @@ import org.btrplace.model.view.network.Switch;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.plan.event.MigrateVM;
 import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.UnstatableProblemException;
 import org.btrplace.scheduler.choco.ChocoScheduler;
 import org.btrplace.scheduler.choco.DefaultChocoScheduler;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+import org.btrplace.scheduler.choco.runner.StagedSolvingStatistics;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -132,6 +135,88 @@ public class CNetworkTest {
         ChocoScheduler s = new DefaultChocoScheduler();
         ReconfigurationPlan p = s.solve(mo, Collections.singletonList(new Fence(v, n2)));
         Assert.assertNotNull(p);
+        Assert.assertTrue(s.getStatistics().getBuildDurations().containsKey("NetworkView.migrationIndex"));
 
     }
+
+    /**
+     * Two migrations towards the same node share its link.
+     * The single-pass mode must compute the same schedule than the two-pass mode.
+     */
+    @Test
+    public void testSinglePass() {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        VM v1 = mo.newVM();
+        VM v2 = mo.newVM();
+        mo.getMapping().on(n1, n2, n3).run(n1, v1).run(n2, v2);
+        Network net = new Network();
+        mo.attach(net);
+        Switch sw = net.newSwitch();
+        net.connect(1000, sw, n1, n2, n3);
+        mo.getAttributes().put(v1, "memUsed", 2000);
+        mo.getAttributes().put(v2, "memUsed", 4000);
+
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.add(new Fence(v1, n3));
+        cstrs.add(new Fence(v2, n3));
+
+        ChocoScheduler twoPass = new DefaultChocoScheduler();
+        ReconfigurationPlan p2 = twoPass.solve(mo, cstrs, new MinMTTRMig());
+        Assert.assertNotNull(p2);
+
+        ChocoScheduler singlePass = new DefaultChocoScheduler();
+        singlePass.doSinglePassNetwork(true);
+        ReconfigurationPlan p1 = singlePass.solve(mo, cstrs, new MinMTTRMig());
+        Assert.assertNotNull(p1);
+        Assert.assertEquals(p1.getSize(), 2);
+        Assert.assertEquals(p1.getDuration(), p2.getDuration());
+
+        // The migrations are sequential as they share the downlink of n3
+        List<MigrateVM> migs = new ArrayList<>();
+        p1.getActions().forEach(a -> migs.add((MigrateVM) a));
+        Assert.assertEquals(migs.get(0).getBandwidth(), 1000);
+        Assert.assertEquals(migs.get(1).getBandwidth(), 1000);
+        Assert.assertTrue(migs.get(0).getEnd() <= migs.get(1).getStart() || migs.get(1).getEnd() <= migs.get(0).getStart());
+
+        SolvingStatistics stats = singlePass.getStatistics();
+        Assert.assertTrue(stats instanceof StagedSolvingStatistics);
+        Assert.assertEquals(((StagedSolvingStatistics) stats).getNbStages(), 2);
+        Assert.assertEquals(stats.lastSolution(), p1);
+    }
+
+    /**
+     * The placement stage consumes the whole time limit.
+     * The network stage must not be granted an extra second.
+     */
+    @Test(expectedExceptions = UnstatableProblemException.class)
+    public void testSinglePassTimeLimit() {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        VM v1 = mo.newVM();
+        mo.getMapping().on(n1, n2).run(n1, v1);
+        Network net = new Network();
+        mo.attach(net);
+        net.connect(1000, net.newSwitch(), n1, n2);
+        mo.getAttributes().put(v1, "memUsed", 2000);
+
+        ChocoScheduler s = new DefaultChocoScheduler();
+        s.doSinglePassNetwork(true);
+        s.setTimeLimit(1);
+        boolean[] slept = {false};
+        s.addSolutionListener((rp, p) -> {
+            if (!slept[0]) {
+                slept[0] = true;
+                try {
+                    Thread.sleep(1100);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        s.solve(mo, Collections.singletonList(new Fence(v1, n2)), new MinMTTRMig());
+    }
 }
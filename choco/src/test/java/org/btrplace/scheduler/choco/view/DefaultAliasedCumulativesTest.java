@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.scheduler.choco.view;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Ban;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.ResourceCapacity;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.RunningCapacity;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.BootVM;
+import org.btrplace.plan.event.MigrateVM;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.ChocoScheduler;
+import org.btrplace.scheduler.choco.DefaultChocoScheduler;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Unit tests for {@link DefaultAliasedCumulatives}.
+ *
+ * @author Fabien Hermenier
+ */
+public class DefaultAliasedCumulativesTest {
+
+    /**
+     * Every continuous constraint must be restricted, not only the first one.
+     *
+     * @throws SchedulerException should not occur
+     */
+    @Test
+    public void testAllTheDimensions() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        Node n4 = mo.newNode();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        VM vm3 = mo.newVM();
+        mo.getMapping().on(n1, n2, n3, n4)
+                .run(n1, vm1)
+                .run(n3, vm2)
+                .run(n4, vm3);
+
+        List<SatConstraint> cstrs = new ArrayList<>();
+        RunningCapacity rc1 = new RunningCapacity(new HashSet<>(Arrays.asList(n1, n2)), 5);
+        rc1.setContinuous(true);
+        cstrs.add(rc1);
+        RunningCapacity rc2 = new RunningCapacity(new HashSet<>(Arrays.asList(n3, n4)), 2);
+        rc2.setContinuous(true);
+        cstrs.add(rc2);
+        //vm2 must go to n4, vm3 must leave n4
+        cstrs.add(new Ban(vm2, new HashSet<>(Arrays.asList(n1, n2, n3))));
+        cstrs.add(new Ban(vm3, new HashSet<>(Arrays.asList(n3, n4))));
+
+        ChocoScheduler s = new DefaultChocoScheduler();
+        ReconfigurationPlan p = s.solve(mo, cstrs);
+        Assert.assertNotNull(p);
+        Assert.assertTrue(rc2.isSatisfied(p));
+        //vm2 is hosted on n3 and n4 during its migration so vm3 must have left n4 before
+        Action m2 = p.getActions().stream().filter(a -> a instanceof MigrateVM && ((MigrateVM) a).getVM().equals(vm2)).findFirst().get();
+        Action m3 = p.getActions().stream().filter(a -> a instanceof MigrateVM && ((MigrateVM) a).getVM().equals(vm3)).findFirst().get();
+        Assert.assertTrue(m3.getEnd() <= m2.getStart(), p.toString());
+    }
+
+    /**
+     * Many continuous constraints over overlapping groups of nodes.
+     * The two constraints over a same group are restricted as a single resource.
+     *
+     * @throws SchedulerException should not occur
+     */
+    @Test
+    public void testOverlappingGroups() throws SchedulerException {
+        Model mo = new DefaultModel();
+        ShareableResource cpu = new ShareableResource("cpu", 16, 1);
+        mo.attach(cpu);
+        List<Node> nodes = new ArrayList<>();
+        List<SatConstraint> cstrs = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            Node n = mo.newNode();
+            nodes.add(n);
+            mo.getMapping().on(n);
+            for (int j = 0; j < 3; j++) {
+                VM v = mo.newVM();
+                mo.getMapping().run(n, v);
+                cpu.setConsumption(v, 1 + (i + j) % 3);
+                if ((i + j) % 4 == 0) {
+                    cstrs.add(new Ban(v, Collections.singleton(n)));
+                }
+            }
+            VM v = mo.newVM();
+            mo.getMapping().ready(v);
+            cpu.setConsumption(v, 2);
+            if (i % 2 == 0) {
+                cstrs.add(new Running(v));
+            }
+        }
+        int width = 5;
+        for (int i = 0; i + width <= nodes.size(); i++) {
+            Set<Node> group = new HashSet<>(nodes.subList(i, i + width));
+            RunningCapacity rc = new RunningCapacity(group, 4 * width);
+            rc.setContinuous(true);
+            cstrs.add(rc);
+            ResourceCapacity c = new ResourceCapacity(group, "cpu", 10 * width);
+            c.setContinuous(true);
+            cstrs.add(c);
+        }
+        ChocoScheduler s = new DefaultChocoScheduler();
+        s.setTimeLimit(10);
+        ReconfigurationPlan p = s.solve(mo, cstrs);
+        Assert.assertNotNull(p);
+        for (SatConstraint c : cstrs) {
+            Assert.assertTrue(c.isSatisfied(p), c.toString());
+        }
+    }
+
+    /**
+     * The two overlapping groups are at their capacity in the source model.
+     * {@code vm#3} must leave for a node outside the groups and {@code vm#5}
+     * can only boot on a node of both groups, so the boot must wait for the end
+     * of the migration.
+     *
+     * @throws SchedulerException should not occur
+     */
+    @Test
+    public void testContinuousCapacityAtFullLoad() throws SchedulerException {
+        Model mo = new DefaultModel();
+        ShareableResource cpu = new ShareableResource("cpu", 16, 1);
+        mo.attach(cpu);
+        //The consumption of the running VMs of each node
+        int[][] running = {{5}, {6}, {4, 5}, {5}, {}};
+        List<Node> nodes = new ArrayList<>();
+        List<VM> vms = new ArrayList<>();
+        for (int[] cs : running) {
+            Node n = mo.newNode();
+            nodes.add(n);
+            mo.getMapping().on(n);
+            for (int c : cs) {
+                VM v = mo.newVM();
+                vms.add(v);
+                mo.getMapping().run(n, v);
+                cpu.setConsumption(v, c);
+            }
+        }
+        VM ready = mo.newVM();
+        mo.getMapping().ready(ready);
+        cpu.setConsumption(ready, 5);
+
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.add(new Running(ready));
+        cstrs.add(new Fence(ready, Collections.singleton(nodes.get(1))));
+        cstrs.add(new Fence(vms.get(3), Collections.singleton(nodes.get(4))));
+        //20 and 20
+        for (int i = 0; i < 2; i++) {
+            ResourceCapacity c = new ResourceCapacity(new HashSet<>(nodes.subList(i, i + 3)), "cpu", 20);
+            c.setContinuous(true);
+            cstrs.add(c);
+        }
+        ChocoScheduler s = new DefaultChocoScheduler();
+        s.setTimeLimit(10);
+        ReconfigurationPlan p = s.solve(mo, cstrs);
+        Assert.assertNotNull(p);
+        for (SatConstraint c : cstrs) {
+            Assert.assertTrue(c.isSatisfied(p), c + "\n" + p);
+        }
+        Action boot = null;
+        Action mig = null;
+        for (Action a : p.getActions()) {
+            if (a instanceof BootVM) {
+                boot = a;
+            } else if (a instanceof MigrateVM) {
+                mig = a;
+            }
+        }
+        Assert.assertNotNull(boot);
+        Assert.assertNotNull(mig);
+        Assert.assertTrue(boot.getStart() >= mig.getEnd(), p.toString());
+    }
+}
@@ -19,8 +19,13 @@
 package org.btrplace.safeplace.spec;
 
 import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.safeplace.spec.prop.ForAll;
+import org.btrplace.safeplace.spec.prop.Not;
 import org.btrplace.safeplace.spec.prop.Proposition;
+import org.btrplace.safeplace.spec.prop.ProtectedProposition;
+import org.btrplace.safeplace.spec.term.Compiled;
 import org.btrplace.safeplace.spec.term.Constant;
+import org.btrplace.safeplace.spec.term.Scope;
 import org.btrplace.safeplace.spec.term.UserVar;
 import org.btrplace.safeplace.spec.term.func.Function;
 import org.btrplace.safeplace.spec.type.BoolType;
@@ -29,27 +34,55 @@ import org.btrplace.safeplace.testing.verification.spec.Context;
 
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
+ * The specification of a constraint.
+ * A constraint is immutable so the scanned specifications can be shared.
+ *
  * @author Fabien Hermenier
  */
 public class Constraint implements Function<Boolean> {
 
-    private String name;
+    private final String name;
+
+    private final Proposition prop;
+
+    private final List<UserVar> args;
 
-    private Proposition prop;
+    private final Class<? extends SatConstraint> impl;
 
-    private List<UserVar> args;
+    private volatile Code code;
 
-    private Class<? extends SatConstraint> impl;
+    private volatile Instances instances;
 
+    /**
+     * New constraint without arguments nor implementation.
+     *
+     * @param name the constraint name
+     * @param prop the proposition
+     */
     public Constraint(String name, Proposition prop) {
+        this(name, prop, Collections.emptyList(), null);
+    }
+
+    /**
+     * New constraint.
+     *
+     * @param name the constraint name
+     * @param prop the proposition
+     * @param args the arguments
+     * @param impl the implementation. {@code null} if there is none
+     */
+    public Constraint(String name, Proposition prop, List<UserVar> args, Class<? extends SatConstraint> impl) {
         this.name = name;
         this.prop = prop;
-        args = new ArrayList<>();
+        this.args = Collections.unmodifiableList(new ArrayList<>(args));
+        this.impl = impl;
     }
 
     @Override
@@ -80,26 +113,109 @@ public class Constraint implements Function<Boolean> {
         return Stream.of(signature()).map(Type::toString).collect(Collectors.joining(", ", id() + "(", ")"));
     }
 
+    /**
+     * Evaluate the compiled proposition.
+     * The frame of the context is replaced by a frame holding the argument values.
+     *
+     * @param mo     the context
+     * @param values the argument values
+     * @return the evaluation result
+     */
     @Override
     public Boolean eval(Context mo, Object... values) {
-        for (int i = 0; i < this.args.size(); i++) {
-            UserVar v = this.args.get(i);
-            mo.setValue(v.label(), values[i]);
+        Code c = compiled();
+        Object[] f = new Object[c.size];
+        System.arraycopy(values, 0, f, 0, args.size());
+        mo.frame(f);
+        return c.prop.eval(mo);
+    }
+
+    private Code compiled() {
+        Code c = code;
+        if (c == null) {
+            Scope s = new Scope();
+            //The arguments go first
+            args.forEach(s::bind);
+            c = new Code(prop.compile(s), s.size());
+            code = c;
         }
-        return proposition().eval(mo);
+        return c;
     }
 
     public Proposition proposition() {
         return prop;
     }
 
-    public List<UserVar> args() {
-        return args;
+    /**
+     * Get the compiled proposition of the constraint for given arguments.
+     *
+     * @param values the argument values
+     * @return a proposition
+     */
+    public Proposition proposition(List<Constant> values) {
+        Object[] vs = values.stream().map(v -> v.eval(null)).toArray();
+        return new Proposition() {
+            @Override
+            public Proposition not() {
+                return new Not(this);
+            }
+
+            @Override
+            public Boolean eval(Context m) {
+                return Constraint.this.eval(m, vs);
+            }
+
+            @Override
+            public String toString() {
+                return Constraint.this.toString(values);
+            }
+        };
+    }
+
+    /**
+     * Get the compiled proposition of the constraint for given arguments, to evaluate
+     * repeatedly over a context that evolves.
+     * When the constraint is a universal quantification over a single variable, the instances
+     * of the quantified proposition that read no element modified since the last evaluation
+     * are not evaluated again.
+     *
+     * @param values the argument values
+     * @return a proposition
+     */
+    public Proposition invariant(List<Constant> values) {
+        Instances i = instances();
+        if (i.body == null) {
+            return proposition(values);
+        }
+        Object[] vs = values.stream().map(v -> v.eval(null)).toArray();
+        return new Invariant(toString(values), vs, i.from, i.slot, i.body, i.size);
+    }
+
+    private Instances instances() {
+        Instances i = instances;
+        if (i == null) {
+            Proposition p = prop;
+            while (p instanceof ProtectedProposition) {
+                p = ((ProtectedProposition) p).proposition();
+            }
+            if (p instanceof ForAll && ((ForAll) p).vars().size() == 1) {
+                UserVar v = ((ForAll) p).vars().get(0);
+                Scope s = new Scope();
+                args.forEach(s::bind);
+                Compiled<Collection<Object>> from = v.getBackend().compile(s);
+                //No loop so nothing is memorized from one instance to another
+                int slot = s.bind(v);
+                i = new Instances(from, slot, ((ForAll) p).proposition().compile(s), s.size());
+            } else {
+                i = new Instances(null, -1, null, 0);
+            }
+            instances = i;
+        }
+        return i;
     }
 
-    public Constraint args(List<UserVar> args) {
-        this.args = args;
-        return this;
+    public List<UserVar> args() {
+        return args;
     }
 
     @Override
@@ -112,11 +228,6 @@ public class Constraint implements Function<Boolean> {
 
     }
 
-    public Constraint impl(Class<? extends SatConstraint> impl) {
-        this.impl = impl;
-        return this;
-    }
-
     public Class<? extends SatConstraint> impl() {
         return impl;
     }
@@ -157,4 +268,41 @@ public class Constraint implements Function<Boolean> {
         } while (c != null);
         return false;
     }
+
+    /**
+     * A compiled proposition and its frame size.
+     */
+    private static class Code {
+
+        private final Compiled<Boolean> prop;
+
+        private final int size;
+
+        Code(Compiled<Boolean> prop, int size) {
+            this.prop = prop;
+            this.size = size;
+        }
+    }
+
+    /**
+     * The compiled instances of a universal quantification over a single variable.
+     * The body is {@code null} if the constraint has another shape.
+     */
+    private static class Instances {
+
+        private final Compiled<Collection<Object>> from;
+
+        private final int slot;
+
+        private final Compiled<Boolean> body;
+
+        private final int size;
+
+        Instances(Compiled<Collection<Object>> from, int slot, Compiled<Boolean> body, int size) {
+            this.from = from;
+            this.slot = slot;
+            this.body = body;
+            this.size = size;
+        }
+    }
 }
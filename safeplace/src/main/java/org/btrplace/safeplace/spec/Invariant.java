@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.safeplace.spec;
+
+import org.btrplace.safeplace.spec.prop.Not;
+import org.btrplace.safeplace.spec.prop.Proposition;
+import org.btrplace.safeplace.spec.term.Compiled;
+import org.btrplace.safeplace.testing.verification.spec.Context;
+import org.btrplace.safeplace.testing.verification.spec.SpecMapping;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A universal quantification that is re-evaluated incrementally over a same context.
+ * <p>
+ * Every instance of the quantified proposition is evaluated while the elements it reads
+ * in the mapping are recorded. On the next evaluation, only the instances that read an element
+ * modified in the meantime are evaluated again. The whole quantification is evaluated
+ * again when the context changes or when the domain may have changed.
+ * <p>
+ * All the instances are evaluated but the result is the one of the regular universal
+ * quantifier: the first instance, in the domain order, that is not satisfied or that fails
+ * decides the result.
+ *
+ * @author Fabien Hermenier
+ */
+class Invariant implements Proposition {
+
+    private final String label;
+
+    private final Compiled<Collection<Object>> from;
+
+    private final Compiled<Boolean> body;
+
+    private final Object[] frame;
+
+    private final int slot;
+
+    private Context context;
+
+    private int version;
+
+    private Set<Object> domainReads;
+
+    /**
+     * The instance results, in the domain order. Either a boolean, {@code null} or the raised exception.
+     */
+    private final Map<Object, Object> results;
+
+    private final Map<Object, Set<Object>> reads;
+
+    /**
+     * The instances reading each element.
+     */
+    private final Map<Object, Set<Object>> readers;
+
+    /**
+     * New invariant.
+     *
+     * @param label the proposition label
+     * @param args  the argument values, stored at the beginning of the frame
+     * @param from  the compiled domain
+     * @param slot  the slot of the quantified variable
+     * @param body  the compiled quantified proposition
+     * @param size  the frame size
+     */
+    Invariant(String label, Object[] args, Compiled<Collection<Object>> from, int slot, Compiled<Boolean> body, int size) {
+        this.label = label;
+        this.from = from;
+        this.body = body;
+        this.slot = slot;
+        frame = new Object[size];
+        System.arraycopy(args, 0, frame, 0, args.length);
+        results = new LinkedHashMap<>();
+        reads = new HashMap<>();
+        readers = new HashMap<>();
+    }
+
+    @Override
+    public Proposition not() {
+        return new Not(this);
+    }
+
+    @Override
+    public Boolean eval(Context mo) {
+        SpecMapping sm = mo.getMapping();
+        Object[] saved = mo.frame();
+        mo.frame(frame);
+        try {
+            if (mo != context || sm.version() < version
+                    || !Collections.disjoint(domainReads, sm.changes(version))) {
+                if (!evalAll(mo, sm)) {
+                    return null;
+                }
+            } else {
+                Set<Object> dirty = new LinkedHashSet<>();
+                for (Object o : sm.changes(version)) {
+                    dirty.addAll(readers.getOrDefault(o, Collections.emptySet()));
+                }
+                for (Object o : dirty) {
+                    evalInstance(mo, sm, o);
+                }
+            }
+            version = sm.version();
+        } catch (RuntimeException | Error e) {
+            //The partial results cannot be trusted anymore
+            context = null;
+            throw e;
+        } finally {
+            mo.frame(saved);
+        }
+        return verdict();
+    }
+
+    /**
+     * Evaluate all the instances.
+     *
+     * @return {@code false} iff the domain cannot be evaluated
+     */
+    private boolean evalAll(Context mo, SpecMapping sm) {
+        context = null;
+        results.clear();
+        reads.clear();
+        readers.clear();
+        domainReads = new HashSet<>();
+        Collection<Object> col;
+        sm.record(domainReads);
+        try {
+            col = from.eval(mo);
+        } finally {
+            sm.record(null);
+        }
+        if (col == null) {
+            return false;
+        }
+        for (Object o : col) {
+            evalInstance(mo, sm, o);
+        }
+        context = mo;
+        return true;
+    }
+
+    private void evalInstance(Context mo, SpecMapping sm, Object o) {
+        Set<Object> old = reads.get(o);
+        if (old != null) {
+            for (Object r : old) {
+                readers.get(r).remove(o);
+            }
+        }
+        Set<Object> rs = new HashSet<>();
+        sm.record(rs);
+        frame[slot] = o;
+        Object res;
+        try {
+            res = body.eval(mo);
+        } catch (RuntimeException ex) {
+            res = ex;
+        } finally {
+            sm.record(null);
+        }
+        results.put(o, res);
+        reads.put(o, rs);
+        for (Object r : rs) {
+            readers.computeIfAbsent(r, k -> new HashSet<>()).add(o);
+        }
+    }
+
+    private Boolean verdict() {
+        for (Object r : results.values()) {
+            if (r instanceof RuntimeException) {
+                throw (RuntimeException) r;
+            }
+            if (r == null) {
+                return null;
+            }
+            if (!(Boolean) r) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
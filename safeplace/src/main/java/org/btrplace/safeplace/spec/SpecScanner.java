@@ -36,30 +36,75 @@ import org.btrplace.scheduler.CoreConstraints;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
+ * Scan the classpath to extract the specification of the constraints.
+ * <p>
+ * Only the packages given at instantiation are scanned, {@code org.btrplace} by default.
+ * The resulting constraints are cached for the lifetime of the JVM so only the first scan
+ * of given packages pays for the classpath scanning and the parsing of the specifications.
+ *
  * @author Fabien Hermenier
  */
 public class SpecScanner {
 
+    /**
+     * The default package to scan.
+     */
+    public static final String DEFAULT_PACKAGE = "org.btrplace";
+
+    private static final Map<List<String>, List<Constraint>> CACHE = new ConcurrentHashMap<>();
+
+    private final List<String> packages;
+
     private FastClasspathScanner scanner;
 
     private List<Side> sides;
     private List<Function> functions;
 
+    /**
+     * New scanner for the {@link #DEFAULT_PACKAGE} package.
+     */
     public SpecScanner() {
+        this(DEFAULT_PACKAGE);
+    }
 
+    /**
+     * New scanner.
+     *
+     * @param packages the packages to scan, along with their sub-packages
+     */
+    public SpecScanner(String... packages) {
+        this.packages = Arrays.asList(packages);
         functions = Collections.synchronizedList(new ArrayList<>());
         sides = Collections.synchronizedList(new ArrayList<>());
 
-        scanner = new FastClasspathScanner();
+        scanner = new FastClasspathScanner(packages);
     }
 
     /**
+     * Get the specified constraints.
+     * The classpath is only scanned if the packages were not scanned before.
+     *
+     * @return the constraints. The core constraints first, then the side constraints by order of dependency
      * @throws SpecException
      */
     public List<org.btrplace.safeplace.spec.Constraint> scan() throws IllegalAccessException, InstantiationException, IOException {
+        List<Constraint> l = CACHE.get(packages);
+        if (l == null) {
+            l = Collections.unmodifiableList(doScan());
+            //Concurrent scans retain the first result
+            List<Constraint> prev = CACHE.putIfAbsent(packages, l);
+            if (prev != null) {
+                l = prev;
+            }
+        }
+        return new ArrayList<>(l);
+    }
+
+    private List<Constraint> doScan() throws IllegalAccessException, InstantiationException, IOException {
         List<CoreConstraint> coreAnnots = Collections.synchronizedList(new ArrayList<>());
         List<Class<? extends Function>> funcs = Collections.synchronizedList(new ArrayList<>());
         scanner.matchClassesImplementing(Function.class, funcs::add);
@@ -75,7 +120,7 @@ public class SpecScanner {
         scanner.matchClassesWithAnnotation(SideConstraint.class,
                 c -> sides.add(new Side(c.getAnnotation(SideConstraint.class), (Class<? extends SatConstraint>) c)));
 
-        scanner.scan(Runtime.getRuntime().availableProcessors() - 1);
+        scanner.scan(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
 
         for (Class<? extends Function> f : funcs) {
             if (!f.equals(Constraint.class)) {
@@ -169,7 +214,7 @@ public class SpecScanner {
         ParseTree tree = parser.formula();
         MyCstrSpecVisitor v = new MyCstrSpecVisitor().library(functions).args(args).constraints(known);
         Proposition p = v.getProposition(s.impl.getSimpleName(), tree);
-        return new org.btrplace.safeplace.spec.Constraint(s.impl.getSimpleName(), p).args(args).impl(s.impl);
+        return new org.btrplace.safeplace.spec.Constraint(s.impl.getSimpleName(), p, args, s.impl);
     }
 
     private CommonTokenStream getTokens(String source) throws IOException {
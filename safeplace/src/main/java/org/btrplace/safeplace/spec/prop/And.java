@@ -18,6 +18,8 @@
 
 package org.btrplace.safeplace.spec.prop;
 
+import org.btrplace.safeplace.spec.term.Compiled;
+import org.btrplace.safeplace.spec.term.Scope;
 import org.btrplace.safeplace.testing.verification.spec.Context;
 
 /**
@@ -55,6 +57,20 @@ public class And extends BinaryProp {
         return r2;
     }
 
+    @Override
+    public Compiled<Boolean> compile(Scope s) {
+        Compiled<Boolean> c1 = p1.compile(s);
+        Compiled<Boolean> c2 = p2.compile(s);
+        return mo -> {
+            Boolean r1 = c1.eval(mo);
+            Boolean r2 = c2.eval(mo);
+            if (r1 == null || r2 == null) {
+                return null;
+            }
+            return r1 ? r2 : Boolean.FALSE;
+        };
+    }
+
     @Override
     public String toString() {
         if (p1 == Proposition.True) {
@@ -18,7 +18,10 @@
 
 package org.btrplace.safeplace.spec.prop;
 
+import org.btrplace.safeplace.spec.term.Compiled;
+import org.btrplace.safeplace.spec.term.Scope;
 import org.btrplace.safeplace.spec.term.Term;
+import org.btrplace.safeplace.testing.verification.spec.Context;
 
 /**
  * @author Fabien Hermenier
@@ -36,6 +39,27 @@ public abstract class AtomicProp implements Proposition {
         this.op = op;
     }
 
+    @Override
+    public Boolean eval(Context m) {
+        return apply(a.eval(m), b.eval(m));
+    }
+
+    @Override
+    public Compiled<Boolean> compile(Scope s) {
+        Compiled ca = a.compile(s);
+        Compiled cb = b.compile(s);
+        return mo -> apply(ca.eval(mo), cb.eval(mo));
+    }
+
+    /**
+     * Evaluate the proposition.
+     *
+     * @param vA the value of the left operand
+     * @param vB the value of the right operand
+     * @return the evaluation result
+     */
+    protected abstract Boolean apply(Object vA, Object vB);
+
     @Override
     public String toString() {
         return a.toString() + " " + op + " " + b.toString();
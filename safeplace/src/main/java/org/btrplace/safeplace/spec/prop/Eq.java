@@ -19,7 +19,6 @@
 package org.btrplace.safeplace.spec.prop;
 
 import org.btrplace.safeplace.spec.term.Term;
-import org.btrplace.safeplace.testing.verification.spec.Context;
 
 /**
  * @author Fabien Hermenier
@@ -36,9 +35,7 @@ public class Eq extends AtomicProp {
     }
 
     @Override
-    public Boolean eval(Context m) {
-        Object vA = a.eval(m);
-        Object vB = b.eval(m);
+    protected Boolean apply(Object vA, Object vB) {
         if (vA == null && vB == null) {
             return true;
         }
@@ -18,6 +18,8 @@
 
 package org.btrplace.safeplace.spec.prop;
 
+import org.btrplace.safeplace.spec.term.Compiled;
+import org.btrplace.safeplace.spec.term.Scope;
 import org.btrplace.safeplace.spec.term.Term;
 import org.btrplace.safeplace.spec.term.UserVar;
 import org.btrplace.safeplace.spec.term.Var;
@@ -75,6 +77,11 @@ public class Exists implements Proposition {
         return false;
     }
 
+    @Override
+    public Compiled<Boolean> compile(Scope s) {
+        return Quantifier.compile(s, vars, from, prop, true);
+    }
+
     @Override
     public String toString() {
         StringBuilder b = new StringBuilder("?(");
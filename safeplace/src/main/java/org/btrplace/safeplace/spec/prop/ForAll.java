@@ -18,6 +18,8 @@
 
 package org.btrplace.safeplace.spec.prop;
 
+import org.btrplace.safeplace.spec.term.Compiled;
+import org.btrplace.safeplace.spec.term.Scope;
 import org.btrplace.safeplace.spec.term.Term;
 import org.btrplace.safeplace.spec.term.UserVar;
 import org.btrplace.safeplace.spec.term.Var;
@@ -43,6 +45,24 @@ public class ForAll implements Proposition {
         prop = p;
     }
 
+    /**
+     * Get the quantified variables.
+     *
+     * @return a non-empty list
+     */
+    public List<UserVar> vars() {
+        return vars;
+    }
+
+    /**
+     * Get the quantified proposition.
+     *
+     * @return a proposition
+     */
+    public Proposition proposition() {
+        return prop;
+    }
+
     @Override
     public Proposition not() {
         return new Exists(vars, prop.not());
@@ -75,6 +95,11 @@ public class ForAll implements Proposition {
         return true;
     }
 
+    @Override
+    public Compiled<Boolean> compile(Scope s) {
+        return Quantifier.compile(s, vars, from, prop, false);
+    }
+
     @Override
     public String toString() {
         StringBuilder b = new StringBuilder("!(");
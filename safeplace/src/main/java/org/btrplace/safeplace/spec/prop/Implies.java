@@ -18,6 +18,8 @@
 
 package org.btrplace.safeplace.spec.prop;
 
+import org.btrplace.safeplace.spec.term.Compiled;
+import org.btrplace.safeplace.spec.term.Scope;
 import org.btrplace.safeplace.testing.verification.spec.Context;
 
 /**
@@ -46,4 +48,9 @@ public class Implies extends BinaryProp {
     public Boolean eval(Context m) {
         return o.eval(m);
     }
+
+    @Override
+    public Compiled<Boolean> compile(Scope s) {
+        return o.compile(s);
+    }
 }
@@ -19,7 +19,6 @@
 package org.btrplace.safeplace.spec.prop;
 
 import org.btrplace.safeplace.spec.term.Term;
-import org.btrplace.safeplace.testing.verification.spec.Context;
 
 import java.util.Collection;
 
@@ -38,9 +37,8 @@ public class In extends AtomicProp {
     }
 
     @Override
-    public Boolean eval(Context m) {
-        Object o = a.eval(m);
-        Collection o2 = ((Term<? extends Collection>) b).eval(m);
+    protected Boolean apply(Object o, Object oB) {
+        Collection o2 = (Collection) oB;
         return o2.contains(o);
     }
 }
@@ -19,7 +19,6 @@
 package org.btrplace.safeplace.spec.prop;
 
 import org.btrplace.safeplace.spec.term.Term;
-import org.btrplace.safeplace.testing.verification.spec.Context;
 
 import java.util.Collection;
 
@@ -38,9 +37,9 @@ public class Inc extends AtomicProp {
     }
 
     @Override
-    public Boolean eval(Context m) {
-        Collection o = (Collection) a.eval(m);
-        Collection c = (Collection) b.eval(m);
+    protected Boolean apply(Object oA, Object oB) {
+        Collection o = (Collection) oA;
+        Collection c = (Collection) oB;
         if (o != null && c != null) {
             return c.containsAll(o);
         }
@@ -19,7 +19,6 @@
 package org.btrplace.safeplace.spec.prop;
 
 import org.btrplace.safeplace.spec.term.Term;
-import org.btrplace.safeplace.testing.verification.spec.Context;
 
 /**
  * @author Fabien Hermenier
@@ -36,9 +35,9 @@ public class Leq extends AtomicProp {
     }
 
     @Override
-    public Boolean eval(Context m) {
-        Integer iA = (Integer) a.eval(m);
-        Integer iB = (Integer) b.eval(m);
+    protected Boolean apply(Object oA, Object oB) {
+        Integer iA = (Integer) oA;
+        Integer iB = (Integer) oB;
         if (iA == null || iB == null) {
             return null;
         }
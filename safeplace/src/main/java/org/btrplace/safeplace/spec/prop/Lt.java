@@ -19,7 +19,6 @@
 package org.btrplace.safeplace.spec.prop;
 
 import org.btrplace.safeplace.spec.term.Term;
-import org.btrplace.safeplace.testing.verification.spec.Context;
 
 /**
  * @author Fabien Hermenier
@@ -36,9 +35,9 @@ public class Lt extends AtomicProp {
     }
 
     @Override
-    public Boolean eval(Context m) {
-        Integer vA = (Integer) a.eval(m);
-        Integer vB = (Integer) b.eval(m);
+    protected Boolean apply(Object oA, Object oB) {
+        Integer vA = (Integer) oA;
+        Integer vB = (Integer) oB;
         if (vA == null || vB == null) {
             return null;
         }
@@ -19,7 +19,6 @@
 package org.btrplace.safeplace.spec.prop;
 
 import org.btrplace.safeplace.spec.term.Term;
-import org.btrplace.safeplace.testing.verification.spec.Context;
 
 /**
  * @author Fabien Hermenier
@@ -36,9 +35,7 @@ public class NEq extends AtomicProp {
     }
 
     @Override
-    public Boolean eval(Context mo) {
-        Object vA = a.eval(mo);
-        Object vB = b.eval(mo);
+    protected Boolean apply(Object vA, Object vB) {
         if ((vA == null && vB != null) || (vA != null && vB == null)) {
             return true;
         }
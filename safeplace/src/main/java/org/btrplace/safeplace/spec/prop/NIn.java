@@ -19,7 +19,6 @@
 package org.btrplace.safeplace.spec.prop;
 
 import org.btrplace.safeplace.spec.term.Term;
-import org.btrplace.safeplace.testing.verification.spec.Context;
 
 import java.util.Collection;
 
@@ -38,9 +37,8 @@ public class NIn extends AtomicProp {
     }
 
     @Override
-    public Boolean eval(Context m) {
-        Object o = a.eval(m);
-        Collection c = (Collection) b.eval(m);
+    protected Boolean apply(Object o, Object oB) {
+        Collection c = (Collection) oB;
         if (c == null) {
             return null;
         }
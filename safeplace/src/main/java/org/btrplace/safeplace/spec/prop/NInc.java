@@ -19,7 +19,6 @@
 package org.btrplace.safeplace.spec.prop;
 
 import org.btrplace.safeplace.spec.term.Term;
-import org.btrplace.safeplace.testing.verification.spec.Context;
 
 import java.util.Collection;
 
@@ -38,9 +37,9 @@ public class NInc extends AtomicProp {
     }
 
     @Override
-    public Boolean eval(Context m) {
-        Collection cA = (Collection) a.eval(m);
-        Collection cB = (Collection) b.eval(m);
+    protected Boolean apply(Object oA, Object oB) {
+        Collection cA = (Collection) oA;
+        Collection cB = (Collection) oB;
         if (cB == null) {
             return null;
         }
@@ -19,7 +19,6 @@
 package org.btrplace.safeplace.spec.prop;
 
 import org.btrplace.safeplace.spec.term.Term;
-import org.btrplace.safeplace.testing.verification.spec.Context;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -34,11 +33,11 @@ public class NoPackings extends AtomicProp {
     }
 
     @Override
-    public Boolean eval(Context ctx) {
+    protected Boolean apply(Object oA, Object oB) {
         Set left = new HashSet<>();
-        Set right = (Set) b.eval(ctx);
+        Set right = (Set) oB;
         int nb = 0;
-        for (Set s : (Set<Set>) a.eval(ctx)) {
+        for (Set s : (Set<Set>) oA) {
             nb += s.size();
             left.addAll(s);
         }
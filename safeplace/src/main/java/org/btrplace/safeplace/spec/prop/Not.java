@@ -18,6 +18,8 @@
 
 package org.btrplace.safeplace.spec.prop;
 
+import org.btrplace.safeplace.spec.term.Compiled;
+import org.btrplace.safeplace.spec.term.Scope;
 import org.btrplace.safeplace.testing.verification.spec.Context;
 
 /**
@@ -41,6 +43,12 @@ public class Not implements Proposition {
         return !p.eval(m);
     }
 
+    @Override
+    public Compiled<Boolean> compile(Scope s) {
+        Compiled<Boolean> c = p.compile(s);
+        return mo -> !c.eval(mo);
+    }
+
     @Override
     public String toString() {
         return "~" + p;
@@ -18,6 +18,8 @@
 
 package org.btrplace.safeplace.spec.prop;
 
+import org.btrplace.safeplace.spec.term.Compiled;
+import org.btrplace.safeplace.spec.term.Scope;
 import org.btrplace.safeplace.testing.verification.spec.Context;
 
 /**
@@ -51,6 +53,22 @@ public class Or extends BinaryProp {
         return p2.eval(m);
     }
 
+    @Override
+    public Compiled<Boolean> compile(Scope s) {
+        Compiled<Boolean> c1 = p1.compile(s);
+        Compiled<Boolean> c2 = p2.compile(s);
+        return mo -> {
+            Boolean r1 = c1.eval(mo);
+            if (r1 == null) {
+                return null;
+            }
+            if (r1) {
+                return true;
+            }
+            return c2.eval(mo);
+        };
+    }
+
     @Override
     public String toString() {
         if (p1 == Proposition.False) {
@@ -18,6 +18,8 @@
 
 package org.btrplace.safeplace.spec.prop;
 
+import org.btrplace.safeplace.spec.term.Compiled;
+import org.btrplace.safeplace.spec.term.Scope;
 import org.btrplace.safeplace.testing.verification.spec.Context;
 
 /**
@@ -64,4 +66,16 @@ public interface Proposition {
     Proposition not();
 
     Boolean eval(Context m);
+
+    /**
+     * Compile the proposition.
+     * By default, the proposition is interpreted. Propositions that contain terms
+     * or other propositions must compile them.
+     *
+     * @param s the compilation scope
+     * @return the compiled proposition
+     */
+    default Compiled<Boolean> compile(Scope s) {
+        return this::eval;
+    }
 }
@@ -18,6 +18,8 @@
 
 package org.btrplace.safeplace.spec.prop;
 
+import org.btrplace.safeplace.spec.term.Compiled;
+import org.btrplace.safeplace.spec.term.Scope;
 import org.btrplace.safeplace.testing.verification.spec.Context;
 
 /**
@@ -31,11 +33,25 @@ public class ProtectedProposition implements Proposition {
         this.p = p;
     }
 
+    /**
+     * Get the protected proposition.
+     *
+     * @return a proposition
+     */
+    public Proposition proposition() {
+        return p;
+    }
+
     @Override
     public Boolean eval(Context m) {
         return p.eval(m);
     }
 
+    @Override
+    public Compiled<Boolean> compile(Scope s) {
+        return p.compile(s);
+    }
+
     @Override
     public Proposition not() {
         return p.not();
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.safeplace.spec.prop;
+
+import org.btrplace.safeplace.spec.term.Compiled;
+import org.btrplace.safeplace.spec.term.Scope;
+import org.btrplace.safeplace.spec.term.Term;
+import org.btrplace.safeplace.spec.term.UserVar;
+import org.btrplace.safeplace.testing.verification.spec.Context;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compilation of the quantifiers.
+ * The domain is evaluated once and the tuples are enumerated without copying it.
+ * The enumeration order is the one of {@link org.btrplace.safeplace.util.AllTuplesGenerator}.
+ *
+ * @author Fabien Hermenier
+ */
+final class Quantifier {
+
+    private Quantifier() {
+    }
+
+    /**
+     * Compile a quantifier.
+     *
+     * @param s    the compilation scope
+     * @param vars the quantified variables
+     * @param from the domain of the variables
+     * @param prop the proposition to evaluate for every tuple
+     * @param stop the result that stops the enumeration. {@code false} for a universal quantifier
+     * @return the compiled quantifier
+     */
+    static Compiled<Boolean> compile(Scope s, List<UserVar> vars, Term<Set> from, Proposition prop, boolean stop) {
+        Compiled<Set> dom = from.compile(s);
+        s.enter();
+        int[] slots = new int[vars.size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = s.bind(vars.get(i));
+        }
+        Compiled<Boolean> body = prop.compile(s);
+        int[] memo = s.leave();
+        if (slots.length == 1) {
+            int slot = slots[0];
+            return mo -> {
+                Collection<Object> col = dom.eval(mo);
+                if (col == null) {
+                    return null;
+                }
+                Object[] f = Scope.reset(mo, memo);
+                for (Object o : col) {
+                    f[slot] = o;
+                    Boolean r = body.eval(mo);
+                    if (r == null) {
+                        return null;
+                    }
+                    if (r == stop) {
+                        return stop;
+                    }
+                }
+                return !stop;
+            };
+        }
+        return mo -> {
+            Collection<Object> col = dom.eval(mo);
+            if (col == null) {
+                return null;
+            }
+            return tuples(mo, col.toArray(), slots, memo, body, stop);
+        };
+    }
+
+    private static Boolean tuples(Context mo, Object[] values, int[] slots, int[] memo, Compiled<Boolean> body, boolean stop) {
+        if (values.length == 0) {
+            return !stop;
+        }
+        Object[] f = Scope.reset(mo, memo);
+        int[] indexes = new int[slots.length];
+        while (true) {
+            for (int x = 0; x < slots.length; x++) {
+                f[slots[x]] = values[indexes[x]];
+            }
+            Boolean r = body.eval(mo);
+            if (r == null) {
+                return null;
+            }
+            if (r == stop) {
+                return stop;
+            }
+            int x = 0;
+            while (x < indexes.length && ++indexes[x] == values.length) {
+                indexes[x++] = 0;
+            }
+            if (x == indexes.length) {
+                return !stop;
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.safeplace.spec.term;
+
+import org.btrplace.safeplace.testing.verification.spec.Context;
+
+/**
+ * A term or a proposition compiled by a {@link Scope}.
+ * The variables are read from the frame of the context instead of being looked up by their label.
+ *
+ * @author Fabien Hermenier
+ */
+@FunctionalInterface
+public interface Compiled<T> {
+
+    /**
+     * Evaluate the compiled code.
+     *
+     * @param mo the context. Its frame stores the variable values
+     * @return the resulting value
+     */
+    T eval(Context mo);
+}
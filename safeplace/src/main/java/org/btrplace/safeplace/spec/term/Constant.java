@@ -89,4 +89,9 @@ public class Constant implements Term {
     public Object eval(Context mo, Object... terms) {
         return o;
     }
+
+    @Override
+    public Compiled compile(Scope s) {
+        return mo -> o;
+    }
 }
@@ -53,4 +53,16 @@ public class ConstraintCall extends FunctionCall<Boolean> implements Proposition
         m.restoreStack();
         return ret;
     }
+
+    @Override
+    public Compiled<Boolean> compile(Scope s) {
+        Compiled[] cs = compileArgs(s);
+        return mo -> {
+            Object[] ins = evalArgs(cs, mo);
+            mo.saveStack();
+            Boolean ret = c.eval(mo, ins);
+            mo.restoreStack();
+            return ret;
+        };
+    }
 }
@@ -45,6 +45,19 @@ public class ExplodedSet implements Term<Set> {
         return terms.stream().map(x -> x.eval(mo)).collect(Collectors.toSet());
     }
 
+    @Override
+    public Compiled<Set> compile(Scope s) {
+        if (terms.stream().allMatch(x -> x instanceof Constant)) {
+            //Evaluated once for all
+            Set res = eval(null);
+            return mo -> res;
+        }
+        return s.hoist(() -> {
+            List<Compiled> cs = terms.stream().map(x -> x.compile(s)).collect(Collectors.toList());
+            return mo -> cs.stream().map(x -> x.eval(mo)).collect(Collectors.toSet());
+        });
+    }
+
     @Override
     public Type type() {
         return t;
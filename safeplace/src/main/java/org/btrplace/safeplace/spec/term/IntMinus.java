@@ -18,8 +18,6 @@
 
 package org.btrplace.safeplace.spec.term;
 
-import org.btrplace.safeplace.testing.verification.spec.Context;
-
 /**
  * @author Fabien Hermenier
  */
@@ -30,12 +28,10 @@ public class IntMinus extends Minus<Integer> {
     }
 
     @Override
-    public Integer eval(Context mo, Object... args) {
-        Integer o1 = a.eval(mo);
-        Integer o2 = b.eval(mo);
+    protected Integer apply(Object o1, Object o2) {
         if (o1 == null || o2 == null) {
             return null;
         }
-        return o1 - o2;
+        return (Integer) o1 - (Integer) o2;
     }
 }
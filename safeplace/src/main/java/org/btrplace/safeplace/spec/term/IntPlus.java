@@ -18,8 +18,6 @@
 
 package org.btrplace.safeplace.spec.term;
 
-import org.btrplace.safeplace.testing.verification.spec.Context;
-
 /**
  * @author Fabien Hermenier
  */
@@ -31,9 +29,7 @@ public class IntPlus extends Plus<Integer> {
     }
 
     @Override
-    public Integer eval(Context mo, Object... args) {
-        Integer o1 = a.eval(mo);
-        Integer o2 = b.eval(mo);
-        return o1 + o2;
+    protected Integer apply(Object o1, Object o2) {
+        return (Integer) o1 + (Integer) o2;
     }
 }
@@ -24,6 +24,7 @@ import org.btrplace.safeplace.spec.type.Type;
 import org.btrplace.safeplace.testing.verification.spec.Context;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -68,6 +69,30 @@ public class ListBuilder<T> implements Term<List<T>> {
         return res;
     }
 
+    @Override
+    public Compiled<List<T>> compile(Scope s) {
+        return s.hoist(() -> {
+            Compiled<Collection<Object>> dom = v.getBackend().compile(s);
+            s.enter();
+            int slot = s.bind(v);
+            Compiled<Boolean> cp = p.compile(s);
+            Compiled<T> ct = t.compile(s);
+            int[] memo = s.leave();
+            return mo -> {
+                List res = new ArrayList();
+                Collection<Object> values = v.values(dom.eval(mo));
+                Object[] f = Scope.reset(mo, memo);
+                for (Object o : values) {
+                    f[slot] = o;
+                    if (cp.eval(mo)) {
+                        res.add(ct.eval(mo));
+                    }
+                }
+                return res;
+            };
+        });
+    }
+
     @Override
     public String toString() {
         StringBuilder b = new StringBuilder("[").append(t).append(". ");
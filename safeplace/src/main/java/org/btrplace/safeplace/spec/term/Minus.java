@@ -19,6 +19,7 @@
 package org.btrplace.safeplace.spec.term;
 
 import org.btrplace.safeplace.spec.type.Type;
+import org.btrplace.safeplace.testing.verification.spec.Context;
 
 /**
  * @author Fabien Hermenier
@@ -42,4 +43,25 @@ public abstract class Minus<T> implements Term<T> {
     public Type type() {
         return a.type();
     }
+
+    @Override
+    public T eval(Context mo, Object... args) {
+        return apply(a.eval(mo), b.eval(mo));
+    }
+
+    @Override
+    public Compiled<T> compile(Scope s) {
+        Compiled<T> ca = a.compile(s);
+        Compiled<T> cb = b.compile(s);
+        return mo -> apply(ca.eval(mo), cb.eval(mo));
+    }
+
+    /**
+     * Apply the operator.
+     *
+     * @param o1 the value of the first operand
+     * @param o2 the value of the second operand
+     * @return the result
+     */
+    protected abstract T apply(Object o1, Object o2);
 }
@@ -36,8 +36,17 @@ public class Mult implements Term {
 
     @Override
     public Object eval(Context mo, Object... args) {
-        Object o1 = a.eval(mo);
-        Object o2 = b.eval(mo);
+        return apply(a.eval(mo), b.eval(mo));
+    }
+
+    @Override
+    public Compiled compile(Scope s) {
+        Compiled ca = a.compile(s);
+        Compiled cb = b.compile(s);
+        return mo -> apply(ca.eval(mo), cb.eval(mo));
+    }
+
+    private static Object apply(Object o1, Object o2) {
         if (o1 == null || o2 == null) {
             return null;
         }
@@ -37,6 +37,11 @@ public class ProtectedTerm<T> implements Term<T> {
         return t.eval(mo);
     }
 
+    @Override
+    public Compiled<T> compile(Scope s) {
+        return t.compile(s);
+    }
+
     @Override
     public Type type() {
         return t.type();
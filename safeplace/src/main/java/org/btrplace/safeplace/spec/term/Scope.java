@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.safeplace.spec.term;
+
+import org.btrplace.safeplace.testing.verification.spec.Context;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The compilation scope of a proposition.
+ * <p>
+ * Every variable is bound to a slot in the frame of the evaluation context.
+ * The variables bound by a quantifier, or a set builder, belong to a loop. The scope tracks the loops
+ * each compiled term depends on, so that a term that does not depend on the variables of a loop is
+ * evaluated at most once per execution of that loop. Its value is then memorized inside a slot of the frame.
+ *
+ * @author Fabien Hermenier
+ */
+public class Scope {
+
+    /**
+     * The content of a memorized slot that must be evaluated.
+     */
+    private static final Object UNSET = new Object();
+
+    private final Map<Var, Binding> bindings;
+
+    private final List<Loop> loops;
+
+    private int size;
+
+    /**
+     * The deepest loop the term under compilation depends on. {@code -1} if none.
+     */
+    private int depth;
+
+    /**
+     * New scope.
+     */
+    public Scope() {
+        bindings = new IdentityHashMap<>();
+        loops = new ArrayList<>();
+        size = 0;
+        depth = -1;
+    }
+
+    /**
+     * Get the number of slots required by the compiled code.
+     *
+     * @return a positive number
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Bind a variable to a new slot.
+     * The variable belongs to the current loop if any.
+     *
+     * @param v the variable
+     * @return the slot index
+     */
+    public int bind(Var v) {
+        int slot = size++;
+        Binding prev = bindings.put(v, new Binding(slot, loops.size() - 1));
+        if (!loops.isEmpty()) {
+            loops.get(loops.size() - 1).shadowed.putIfAbsent(v, prev);
+        }
+        return slot;
+    }
+
+    /**
+     * Get the slot of a variable that is used by the term under compilation.
+     *
+     * @param v the variable
+     * @return the slot index. {@code -1} if the variable is not bound
+     */
+    public int use(Var v) {
+        Binding b = bindings.get(v);
+        if (b == null) {
+            return -1;
+        }
+        depth = Math.max(depth, b.loop);
+        return b.slot;
+    }
+
+    /**
+     * Open a loop. The variables bound until the loop is closed belong to it.
+     */
+    public void enter() {
+        loops.add(new Loop());
+    }
+
+    /**
+     * Close the current loop and unbind its variables.
+     *
+     * @return the slots that memorize values and must be reset every time the loop starts
+     */
+    public int[] leave() {
+        Loop l = loops.remove(loops.size() - 1);
+        for (Map.Entry<Var, Binding> e : l.shadowed.entrySet()) {
+            if (e.getValue() == null) {
+                bindings.remove(e.getKey());
+            } else {
+                bindings.put(e.getKey(), e.getValue());
+            }
+        }
+        depth = Math.min(depth, loops.size() - 1);
+        return l.memorized.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Compile a term that can be evaluated once per execution of the loops it does not depend on.
+     *
+     * @param c the compilation of the term
+     * @param <T> the term type
+     * @return the compiled code, with memorization if the term is invariant for one of the current loops
+     */
+    public <T> Compiled<T> hoist(Supplier<Compiled<T>> c) {
+        int outer = depth;
+        depth = -1;
+        Compiled<T> code = c.get();
+        int d = depth;
+        depth = Math.max(outer, d);
+        if (d + 1 >= loops.size()) {
+            //Depends on the innermost loop
+            return code;
+        }
+        int slot = size++;
+        loops.get(d + 1).memorized.add(slot);
+        return mo -> {
+            Object[] f = mo.frame();
+            Object o = f[slot];
+            if (o == UNSET) {
+                o = code.eval(mo);
+                f[slot] = o;
+            }
+            return (T) o;
+        };
+    }
+
+    /**
+     * Reset memorized slots.
+     *
+     * @param mo   the evaluation context
+     * @param memo the slots to reset
+     * @return the frame of the context
+     */
+    public static Object[] reset(Context mo, int[] memo) {
+        Object[] f = mo.frame();
+        for (int m : memo) {
+            f[m] = UNSET;
+        }
+        return f;
+    }
+
+    private static class Binding {
+
+        private final int slot;
+
+        private final int loop;
+
+        Binding(int slot, int loop) {
+            this.slot = slot;
+            this.loop = loop;
+        }
+    }
+
+    private static class Loop {
+
+        /**
+         * The bindings hidden by the variables of the loop.
+         */
+        private final Map<Var, Binding> shadowed = new IdentityHashMap<>();
+
+        private final List<Integer> memorized = new ArrayList<>();
+    }
+}
@@ -23,6 +23,7 @@ import org.btrplace.safeplace.spec.type.SetType;
 import org.btrplace.safeplace.spec.type.Type;
 import org.btrplace.safeplace.testing.verification.spec.Context;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -69,6 +70,30 @@ public class SetBuilder<T> implements Term<Set<T>> {
         return res;
     }
 
+    @Override
+    public Compiled<Set<T>> compile(Scope s) {
+        return s.hoist(() -> {
+            Compiled<Collection<Object>> dom = v.getBackend().compile(s);
+            s.enter();
+            int slot = s.bind(v);
+            Compiled<Boolean> cp = p.compile(s);
+            Compiled<T> ct = t.compile(s);
+            int[] memo = s.leave();
+            return mo -> {
+                Set res = new HashSet();
+                Collection<Object> values = v.values(dom.eval(mo));
+                Object[] f = Scope.reset(mo, memo);
+                for (Object o : values) {
+                    f[slot] = o;
+                    if (cp.eval(mo)) {
+                        res.add(ct.eval(mo));
+                    }
+                }
+                return res;
+            };
+        });
+    }
+
     @Override
     public String toString() {
         StringBuilder b = new StringBuilder("{").append(t).append(". ");
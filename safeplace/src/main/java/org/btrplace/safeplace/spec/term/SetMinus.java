@@ -18,8 +18,6 @@
 
 package org.btrplace.safeplace.spec.term;
 
-import org.btrplace.safeplace.testing.verification.spec.Context;
-
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
@@ -37,12 +35,11 @@ public class SetMinus extends Minus<Set> {
     }
 
     @Override
-    public Set eval(Context mo, Object... args) {
-        Collection o1 = a.eval(mo, args);
-        Collection o2 = b.eval(mo, args);
-
+    protected Set apply(Object o1, Object o2) {
+        Collection c1 = (Collection) o1;
+        Collection c2 = (Collection) o2;
         Set l = new HashSet();
-        o1.stream().filter(o -> !o2.contains(o)).forEach(l::add);
+        c1.stream().filter(o -> !c2.contains(o)).forEach(l::add);
         return l;
     }
 }
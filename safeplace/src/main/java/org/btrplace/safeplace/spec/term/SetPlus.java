@@ -18,8 +18,7 @@
 
 package org.btrplace.safeplace.spec.term;
 
-import org.btrplace.safeplace.testing.verification.spec.Context;
-
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -36,11 +35,9 @@ public class SetPlus extends Plus<Set<?>> {
     }
 
     @Override
-    public Set eval(Context mo, Object... args) {
-        Set o1 = a.eval(mo);
-        Set o2 = b.eval(mo);
-        Set<?> l = new HashSet(o1);
-        l.addAll(o2);
+    protected Set<?> apply(Object o1, Object o2) {
+        Set l = new HashSet((Collection) o1);
+        l.addAll((Collection) o2);
         return l;
     }
 }
@@ -29,4 +29,16 @@ public interface Term<T> {
     T eval(Context mo, Object... args);
 
     Type type();
+
+    /**
+     * Compile the term.
+     * By default, the term is interpreted and considered as independent from the variables.
+     * Terms that contain other terms must compile them.
+     *
+     * @param s the compilation scope
+     * @return the compiled term
+     */
+    default Compiled<T> compile(Scope s) {
+        return s.hoist(() -> mo -> eval(mo));
+    }
 }
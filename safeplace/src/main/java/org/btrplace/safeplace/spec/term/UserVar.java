@@ -83,30 +83,50 @@ public class UserVar<T> implements Var<T> {
         return (T) m.getValue(label());
     }
 
+    @Override
+    public Compiled<T> compile(Scope s) {
+        int slot = s.use(this);
+        if (slot < 0) {
+            //Not bound by the compiled proposition
+            return mo -> (T) mo.getValue(lbl);
+        }
+        return mo -> (T) mo.frame()[slot];
+    }
+
     @Override
     public String toString() {
         return label();
     }
 
     public List<Constant> domain(Context mo) {
-        Collection col = (Collection) backend.eval(mo);
+        Type t = type();
+        Collection<Object> col = (Collection<Object>) backend.eval(mo);
+        List<Constant> s = new ArrayList<>();
+        for (Object o : values(col)) {
+            s.add(new Constant(o, t));
+        }
+        return s;
+    }
+
+    /**
+     * Get the values the variable can take.
+     *
+     * @param col the evaluated backend
+     * @return the values
+     */
+    public Collection<Object> values(Collection<Object> col) {
         if ("<:".equals(op) || "/<:".equals(op)) {
             List<Object> s = new ArrayList<>(col);
             List<List<Object>> tuples = s.stream().map(o -> s).collect(Collectors.toList());
             AllTuplesGenerator<Object> tg = new AllTuplesGenerator<>(Object.class, tuples);
-            Set<Constant> res = new HashSet<>();
+            Set<Object> res = new HashSet<>();
             while (tg.hasNext()) {
                 Object[] tuple = tg.next();
-                res.add(new Constant(new HashSet(Arrays.asList(tuple)), backend.type()));
-            }
-            return new ArrayList<>(res);
-        } else {
-            List<Constant> s = new ArrayList<>();
-            for (Object o : col) {
-                s.add(new Constant(o, type()));
+                res.add(new HashSet(Arrays.asList(tuple)));
             }
-            return s;
+            return res;
         }
+        return col;
     }
 
     public Object pick(Domain d) {
@@ -18,6 +18,8 @@
 
 package org.btrplace.safeplace.spec.term.func;
 
+import org.btrplace.safeplace.spec.term.Compiled;
+import org.btrplace.safeplace.spec.term.Scope;
 import org.btrplace.safeplace.spec.term.Term;
 import org.btrplace.safeplace.spec.type.Type;
 import org.btrplace.safeplace.testing.verification.spec.Context;
@@ -82,6 +84,46 @@ public class FunctionCall<T> implements Term<T> {
         return c.eval(m, values);
     }
 
+    @Override
+    public Compiled<T> compile(Scope s) {
+        return s.hoist(() -> {
+            Compiled[] cs = compileArgs(s);
+            if (moment.equals(Moment.BEGIN)) {
+                return mo -> c.eval(mo.getRootContext(), evalArgs(cs, mo));
+            }
+            return mo -> c.eval(mo, evalArgs(cs, mo));
+        });
+    }
+
+    /**
+     * Compile the arguments of the call.
+     *
+     * @param s the compilation scope
+     * @return the compiled arguments
+     */
+    protected Compiled[] compileArgs(Scope s) {
+        Compiled[] cs = new Compiled[args.size()];
+        for (int i = 0; i < cs.length; i++) {
+            cs[i] = args.get(i).compile(s);
+        }
+        return cs;
+    }
+
+    /**
+     * Evaluate compiled arguments.
+     *
+     * @param cs the compiled arguments
+     * @param mo the evaluation context
+     * @return the values
+     */
+    protected static Object[] evalArgs(Compiled[] cs, Context mo) {
+        Object[] values = new Object[cs.length];
+        for (int i = 0; i < cs.length; i++) {
+            values[i] = cs[i].eval(mo);
+        }
+        return values;
+    }
+
     @Override
     public String toString() {
         return args.stream().map(Object::toString)
@@ -39,8 +39,15 @@ import org.btrplace.scheduler.choco.Parameters;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -69,6 +76,8 @@ public class DefaultTestCampaign implements Tester, TestCampaign {
 
     private String name;
 
+    private int workers = 1;
+
     public DefaultTestCampaign(String name, List<Constraint> cstrs) {
         this.name = name;
         limits = new Limits();
@@ -102,43 +111,147 @@ public class DefaultTestCampaign implements Tester, TestCampaign {
         return limits;
     }
 
+    @Override
+    public TestCampaign workers(int nb) {
+        if (nb < 1) {
+            throw new IllegalArgumentException("At least one worker is required");
+        }
+        workers = nb;
+        return this;
+    }
+
     @Override
     @SuppressWarnings("squid:S106")
     public Report go() {
+        System.out.println(this.name + ":");
+        int nb = workers == 1 ? goSequential() : goParallel();
+        if (printProgress && nb % 80 != 0) {
+            System.out.println();
+        }
+        return report;
+    }
+
+    private int goSequential() {
         TestCaseResult res;
         int nb = 1;
-        boolean first = true;
-        System.out.println(this.name + ":");
         do {
-            if (first) {
-
-                first = false;
-            }
-            TestCase tc = tcFuzzer.get();
-            if (tc == null) {
+            Fuzzed f = fuzz(nb);
+            if (f == null) {
                 //We are done
                 break;
             }
-            long d = -System.currentTimeMillis();
-            res = test(tc);
-            d += System.currentTimeMillis();
-            if (res.result() != Result.SUCCESS) {
-                defectHook.accept(res);
-            }
-            printProgress(res.result(), nb);
-
-            res.metrics().testing(d);
-            res.metrics().validation(tcFuzzer.lastValidationDuration());
-            // - validation because it is embedded
-            res.metrics().fuzzing(Math.max(0, tcFuzzer.lastFuzzingDuration() - res.metrics().validation()));
-            res.metrics().fuzzingIterations(tcFuzzer.lastFuzzingIterations());
-            report.with(res);
+            res = run(f);
+            commit(res, nb);
             nb++;
         } while (limits.test(res.result()));
-        if (printProgress && nb % 80 != 0) {
-            System.out.println();
+        return nb;
+    }
+
+    /**
+     * Run the campaign using several workers.
+     * The test cases are still generated one at a time by the fuzzer, so the sequence
+     * of test cases is the same as in a sequential campaign. They are then tested concurrently
+     * but the results are committed to the report and the limits in the fuzzing order.
+     * The resulting report is then identical to the one of a sequential campaign.
+     *
+     * @return the number of committed results, plus one
+     */
+    private int goParallel() {
+        Parallel state = new Parallel();
+        ExecutorService exe = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                running.add(exe.submit(() -> work(state)));
+            }
+            for (Future<?> f : running) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            exe.shutdownNow();
         }
-        return report;
+        return state.committed;
+    }
+
+    private void work(Parallel state) {
+        try {
+            while (!state.stop) {
+                Fuzzed f;
+                synchronized (state) {
+                    if (state.stop) {
+                        return;
+                    }
+                    f = fuzz(state.fuzzed);
+                    if (f == null) {
+                        //We are done
+                        state.stop = true;
+                        return;
+                    }
+                    state.fuzzed++;
+                }
+                TestCaseResult res = run(f);
+                synchronized (state) {
+                    state.pending.put(f.seq, res);
+                    // Commit in the fuzzing order, until the limits are reached
+                    while (!state.stop && state.pending.containsKey(state.committed)) {
+                        TestCaseResult r = state.pending.remove(state.committed);
+                        commit(r, state.committed);
+                        state.committed++;
+                        state.stop = !limits.test(r.result());
+                    }
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            state.stop = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Get the next test case from the fuzzer.
+     *
+     * @param seq the test case sequence number
+     * @return the test case and its fuzzing metrics. {@code null} if the fuzzer is exhausted
+     */
+    private Fuzzed fuzz(int seq) {
+        TestCase tc = tcFuzzer.get();
+        if (tc == null) {
+            return null;
+        }
+        long validation = tcFuzzer.lastValidationDuration();
+        // - validation because it is embedded
+        long fuzzing = Math.max(0, tcFuzzer.lastFuzzingDuration() - validation);
+        return new Fuzzed(seq, tc, fuzzing, validation, tcFuzzer.lastFuzzingIterations());
+    }
+
+    private TestCaseResult run(Fuzzed f) {
+        long d = -System.currentTimeMillis();
+        TestCaseResult res = test(f.tc);
+        d += System.currentTimeMillis();
+        res.metrics().testing(d);
+        res.metrics().validation(f.validation);
+        res.metrics().fuzzing(f.fuzzing);
+        res.metrics().fuzzingIterations(f.iterations);
+        return res;
+    }
+
+    private void commit(TestCaseResult res, int nb) {
+        if (res.result() != Result.SUCCESS) {
+            defectHook.accept(res);
+        }
+        printProgress(res.result(), nb);
+        report.with(res);
     }
 
     @SuppressWarnings("squid:S106")
@@ -234,4 +347,51 @@ public class DefaultTestCampaign implements Tester, TestCampaign {
             throw new IllegalArgumentException(e);
         }
     }
+
+    /**
+     * A test case and its fuzzing metrics.
+     */
+    private static class Fuzzed {
+
+        private final int seq;
+
+        private final TestCase tc;
+
+        private final long fuzzing;
+
+        private final long validation;
+
+        private final int iterations;
+
+        Fuzzed(int seq, TestCase tc, long fuzzing, long validation, int iterations) {
+            this.seq = seq;
+            this.tc = tc;
+            this.fuzzing = fuzzing;
+            this.validation = validation;
+            this.iterations = iterations;
+        }
+    }
+
+    /**
+     * The state shared by the workers of a parallel campaign.
+     */
+    private static class Parallel {
+
+        private volatile boolean stop = false;
+
+        /**
+         * Sequence number of the next test case to fuzz.
+         */
+        private int fuzzed = 1;
+
+        /**
+         * Sequence number of the next result to commit.
+         */
+        private int committed = 1;
+
+        /**
+         * The tested results waiting for their predecessors to be committed.
+         */
+        private final Map<Integer, TestCaseResult> pending = new HashMap<>();
+    }
 }
@@ -50,5 +50,15 @@ public interface TestCampaign {
 
     TestCampaign onDefect(Consumer<TestCaseResult> res);
 
+    /**
+     * Set the number of workers testing the fuzzed test cases concurrently.
+     * The test cases are generated and reported in the same order whatever the number of workers,
+     * so a campaign with a given fuzzer seed and limits always leads to the same report.
+     *
+     * @param nb the number of workers. {@code 1} by default
+     * @return {@code this}
+     */
+    TestCampaign workers(int nb);
+
     Report go();
 }
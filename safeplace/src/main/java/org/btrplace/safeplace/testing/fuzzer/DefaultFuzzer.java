@@ -133,6 +133,7 @@ public class DefaultFuzzer implements ConfigurableFuzzer {
         lastValidationDuration = 0;
         iterations = 0;
         TestCase tc;
+        // The plans are valid by construction so the validation is a safety net
         do {
             lastValidationDuration  += predicates.lastDuration();
             p = fuzzer.get();
@@ -164,6 +164,10 @@ public class ReconfigurationPlanFuzzer implements Supplier<ReconfigurationPlan>
         return this;
     }
 
+    private <E> E pick(List<E> l) {
+        return l.get(rnd.nextInt(l.size()));
+    }
+
     private <E extends Element> E pick(Collection<E> ns) {
         int x = rnd.nextInt(ns.size());
         Iterator<E> ite = ns.iterator();
@@ -175,68 +179,107 @@ public class ReconfigurationPlanFuzzer implements Supplier<ReconfigurationPlan>
         return n;
     }
 
-    private boolean addNode(Node n, ReconfigurationPlan p) {
+    private Host addNode(Node n, ReconfigurationPlan p) {
         double src = rnd.nextDouble();
         double dst = rnd.nextDouble();
-        int[] bounds = schedule();
+        Host h = new Host(n);
         if (src < srcOffNodes) {
             p.getOrigin().getMapping().addOfflineNode(n);
             if (dst > dstOffNodes) {
+                int[] bounds = schedule();
                 p.add(new BootNode(n, bounds[0], bounds[1]));
                 p.getOrigin().getAttributes().put(n, "boot", bounds[1] - bounds[0]);
-                return true;
+                // Able to host VMs once booted
+                h.from = bounds[1];
             }
         } else {
             p.getOrigin().getMapping().addOnlineNode(n);
-            if (dst < srcOffNodes) {
-                p.add(new ShutdownNode(n, bounds[0], bounds[1]));
-                p.getOrigin().getAttributes().put(n, "shutdown", bounds[1] - bounds[0]);
-            }
+            h.from = 0;
+            // The shutdown is scheduled once the VMs left
+            h.halting = dst < dstOffNodes;
         }
-        return false;
+        return h;
     }
 
-    private void addVM(VM v, ReconfigurationPlan p) {
+    private void addVM(VM v, ReconfigurationPlan p, Host[] hosts, List<Host> dsts) {
         setInitialState(p, v);
-        setDestinationState(p, v);
+        setDestinationState(p, v, hosts, dsts);
     }
 
-    private void setDestinationState(ReconfigurationPlan p, VM v) {
+    /**
+     * Pick the destination state of a VM among the transitions allowed by the core constraints
+     * and schedule its action so that it never stays on a node that is not online.
+     */
+    private void setDestinationState(ReconfigurationPlan p, VM v, Host[] hosts, List<Host> dsts) {
         Mapping map = p.getOrigin().getMapping();
         Node host = map.getVMLocation(v);
-
-        int n = rnd.nextInt(dstReadyVMs + dstRunningVMs + dstSleepingVMs);
+        Host src = host == null ? null : hosts[host.id()];
+
+        int n;
+        if (map.isSleeping(v)) {
+            // A sleeping VM can only be resumed or stay asleep
+            if (dstRunningVMs + dstSleepingVMs == 0) {
+                stay(src, dsts);
+                return;
+            }
+            n = dstReadyVMs + rnd.nextInt(dstRunningVMs + dstSleepingVMs);
+        } else {
+            n = rnd.nextInt(dstReadyVMs + dstRunningVMs + dstSleepingVMs);
+        }
         int[] bounds = schedule();
         int duration = bounds[1] - bounds[0];
         if (n < dstReadyVMs) {
-            if (host != null) {
+            if (src != null) {
                 p.add(new ShutdownVM(v, host, bounds[0], bounds[1]));
                 p.getOrigin().getAttributes().put(v, "shutdown", duration);
+                src.leave(bounds[1]);
             }
         } else if (n < dstReadyVMs + dstRunningVMs) {
-            if (host == null) {
-                p.add(new BootVM(v, pick(map.getAllNodes()), bounds[0], bounds[1]));
+            if (src == null) {
+                if (dsts.isEmpty()) {
+                    //Nowhere to boot
+                    return;
+                }
+                Host dst = pick(dsts);
+                p.add(new BootVM(v, dst.node, dst.from + bounds[0], dst.from + bounds[1]));
                 p.getOrigin().getAttributes().put(v, "boot", duration);
-            } else {
+            } else if (map.isRunning(v)) {
                 //was running -> migrate
-                if (map.isRunning(v)) {
-                    Node dst = pick(map.getAllNodes());
-                    if (!host.equals(dst)) {
-                        p.add(new MigrateVM(v, host, dst, bounds[0], bounds[1]));
-                        p.getOrigin().getAttributes().put(v, "migrate", duration);
-                    }
-                } else {
-                    //was sleeping -> resume
-                    p.add(new ResumeVM(v, host, pick(map.getAllNodes()), bounds[0], bounds[1]));
-                    p.getOrigin().getAttributes().put(v, "resume", duration);
+                if (src.halting && dsts.isEmpty()) {
+                    //Nowhere to go
+                    stay(src, dsts);
+                    return;
+                }
+                Host dst = pick(dsts);
+                if (dst != src) {
+                    p.add(new MigrateVM(v, host, dst.node, dst.from + bounds[0], dst.from + bounds[1]));
+                    p.getOrigin().getAttributes().put(v, "migrate", duration);
+                    src.leave(dst.from + bounds[1]);
                 }
+            } else {
+                //was sleeping -> resume. The VM stays hosted on its source node
+                stay(src, dsts);
+                Host dst = pick(dsts);
+                p.add(new ResumeVM(v, host, dst.node, dst.from + bounds[0], dst.from + bounds[1]));
+                p.getOrigin().getAttributes().put(v, "resume", duration);
             }
-        } else {
+        } else if (src != null) {
             //moving to sleeping state
             if (map.isRunning(v)) {
                 p.add(new SuspendVM(v, host, host, bounds[0], bounds[1]));
-                p.getOrigin().getAttributes().put(v, "sleeping", duration);
+                p.getOrigin().getAttributes().put(v, "suspend", duration);
             }
+            stay(src, dsts);
+        }
+    }
+
+    /**
+     * Keep a node online as a VM stays on it.
+     */
+    private static void stay(Host h, List<Host> dsts) {
+        if (h.halting) {
+            h.halting = false;
+            dsts.add(h);
         }
     }
 
@@ -258,28 +301,77 @@ public class ReconfigurationPlanFuzzer implements Supplier<ReconfigurationPlan>
         }
     }
 
-
+    /**
+     * Generate a plan.
+     * The plan is valid by construction with regards to the core constraints:
+     * the VMs only go through the allowed state transitions, and a node hosts VMs only while online.
+     * A VM then starts to arrive on a booting node once the node is booted, and a node is shut down
+     * once all its VMs left. A node hosting a VM that stays on it is not shut down.
+     *
+     * @return the generated plan
+     */
     @Override
     public ReconfigurationPlan get() {
         Model mo = new DefaultModel();
         ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
 
+        Host[] hosts = new Host[nbNodes];
+        List<Host> dsts = new ArrayList<>();
         for (int i = 0; i < nbNodes; i++) {
             Node n = mo.newNode();
-            addNode(n, p);
+            hosts[i] = addNode(n, p);
+            if (hosts[i].from >= 0 && !hosts[i].halting) {
+                dsts.add(hosts[i]);
+            }
         }
         for (int i = 0; i < nbVMs; i++) {
-            addVM(mo.newVM(), p);
+            addVM(mo.newVM(), p, hosts, dsts);
+        }
+        for (Host h : hosts) {
+            if (h.halting) {
+                int[] bounds = schedule();
+                p.add(new ShutdownNode(h.node, h.leave + bounds[0], h.leave + bounds[1]));
+                p.getOrigin().getAttributes().put(h.node, "shutdown", bounds[1] - bounds[0]);
+            }
         }
 
         exts.forEach(d -> d.decorate(p));
         return p;
     }
 
-
     public ReconfigurationPlanFuzzer with(FuzzerDecorator f) {
         exts.add(f);
         return this;
     }
 
+    /**
+     * The fate of a node along the generated plan.
+     */
+    private static class Host {
+
+        private final Node node;
+
+        /**
+         * The moment the node can host VMs. {@code -1} if it stays offline.
+         */
+        private int from = -1;
+
+        /**
+         * {@code true} if the node must be shut down.
+         */
+        private boolean halting = false;
+
+        /**
+         * The moment the last VM left the node.
+         */
+        private int leave = 0;
+
+        Host(Node n) {
+            node = n;
+        }
+
+        void leave(int t) {
+            leave = Math.max(leave, t);
+        }
+    }
 }
@@ -50,6 +50,10 @@ public class Context {
 
     private Context root;
 
+    private Object[] frame;
+
+    private LinkedList<Object[]> frames;
+
     public Context() {
         this(new DefaultModel());
     }
@@ -60,6 +64,8 @@ public class Context {
         vDoms = new HashMap<>();
         stack = new LinkedList<>();
         stack.add(new HashMap<>());
+        frame = new Object[0];
+        frames = new LinkedList<>();
         //default domains
         add(new ConstantDomain<>("nodes", NodeType.getInstance(), new ArrayList<>(mo.getMapping().getAllNodes())));
         add(new ConstantDomain<>("vms", VMType.getInstance(), new ArrayList<>(mo.getMapping().getAllVMs())));
@@ -93,6 +99,24 @@ public class Context {
         return stack.getFirst().get(label);
     }
 
+    /**
+     * Get the frame storing the values of the variables of compiled propositions.
+     *
+     * @return an array indexed by the variable slots
+     */
+    public Object[] frame() {
+        return frame;
+    }
+
+    /**
+     * Set the frame storing the values of the variables of compiled propositions.
+     *
+     * @param f an array indexed by the variable slots
+     */
+    public void frame(Object[] f) {
+        frame = f;
+    }
+
     public void add(Domain d) {
         vDoms.put(d.name(), d);
     }
@@ -109,10 +133,12 @@ public class Context {
 
     public void saveStack() {
         stack.push(new HashMap<>());
+        frames.push(frame);
     }
 
     public void restoreStack() {
         stack.pop();
+        frame = frames.pop();
     }
 
     @Override
@@ -84,6 +84,9 @@ public class ReconfigurationSimulator implements ActionVisitor {
 
     /**
      * Evaluate the proposition over a reconfiguration, at any timestamp.
+     * The proposition is evaluated over a same context. An invariant compiled using
+     * {@link org.btrplace.safeplace.spec.Constraint#invariant(List)} then only re-evaluates
+     * what depends on the elements modified by the actions.
      * @param prop the proposition to evaluate
      * @return the moment the proposition is not valid. {@code -1} if the proposition is correct
      */
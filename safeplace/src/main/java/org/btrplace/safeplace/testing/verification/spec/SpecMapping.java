@@ -24,17 +24,36 @@ import org.btrplace.model.VM;
 import org.btrplace.safeplace.spec.type.NodeStateType;
 import org.btrplace.safeplace.spec.type.VMStateType;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
+ * The state of the elements in a specification context.
+ * <p>
+ * The mapping keeps a log of the elements it modifies and can record the elements read
+ * between two moments. This allows to re-evaluate only the propositions that read
+ * a modified element. The state of all the VMs, read when the ready VMs are asked, is
+ * denoted by {@link #VMS}.
+ *
  * @author Fabien Hermenier
  */
 public class SpecMapping {
 
+    /**
+     * The element standing for the state of all the VMs.
+     */
+    public static final Object VMS = new Object() {
+        @Override
+        public String toString() {
+            return "VMS";
+        }
+    };
+
     private Map<VM, VMStateType.Type> vmState;
 
     private Map<Node, NodeStateType.Type> nodeState;
@@ -43,11 +62,16 @@ public class SpecMapping {
 
     private Map<Node, Set<VM>> host;
 
+    private List<Object> changes;
+
+    private Set<Object> reads;
+
     public SpecMapping(Mapping ma) {
         vmState = new HashMap<>(ma.getNbVMs());
         activeOn = new HashMap<>(ma.getNbVMs());
         nodeState = new HashMap<>(ma.getNbNodes());
         host = new HashMap<>();
+        changes = new ArrayList<>();
         for (Node n : ma.getOnlineNodes()) {
             nodeState.put(n, NodeStateType.Type.ONLINE);
             host.put(n, new HashSet<>());
@@ -71,19 +95,59 @@ public class SpecMapping {
         }
     }
 
+    /**
+     * Record the elements that are read from now.
+     *
+     * @param to the set to fill. {@code null} to stop recording
+     */
+    public void record(Set<Object> to) {
+        reads = to;
+    }
+
+    private void read(Object o) {
+        if (reads != null) {
+            reads.add(o);
+        }
+    }
+
+    /**
+     * Get the current version of the mapping.
+     * It is increased every time an element is modified.
+     *
+     * @return a positive number
+     */
+    public int version() {
+        return changes.size();
+    }
+
+    /**
+     * Get the elements modified since a given version.
+     *
+     * @param version the version, as returned by {@link #version()}
+     * @return the modified elements, possibly with duplicates
+     */
+    public List<Object> changes(int version) {
+        return changes.subList(version, changes.size());
+    }
+
     public VMStateType.Type state(VM vm) {
+        read(vm);
         return vmState.get(vm);
     }
 
     public NodeStateType.Type state(Node n) {
+        read(n);
         return nodeState.get(n);
     }
 
     public void state(Node n, NodeStateType.Type t) {
+        changes.add(n);
         nodeState.put(n, t);
     }
 
     public void state(VM v, VMStateType.Type t) {
+        changes.add(v);
+        changes.add(VMS);
         vmState.put(v, t);
     }
 
@@ -96,39 +160,47 @@ public class SpecMapping {
     }
 
     public Node host(VM v) {
+        read(v);
         return activeOn.get(v);
     }
 
     public void unhost(Node n, VM v) {
+        changes.add(n);
         host.get(n).remove(v);
     }
 
     public void host(VM v, Node n) {
+        changes.add(n);
         host.get(n).add(v);
     }
 
     public void activateOn(VM v, Node n) {
         host(v, n);
+        changes.add(v);
         activeOn.put(v, n);
     }
 
     public void desactivate(VM v) {
+        changes.add(v);
         activeOn.remove(v);
     }
 
     public Set<VM> runnings(Node n) {
+        read(n);
         return host.get(n).stream()
                 .filter(v -> state(v).equals(VMStateType.Type.RUNNING) /*|| state(v).equals(VMStateType.Type.MIGRATING*)*/)
                 .collect(Collectors.toSet());
     }
 
     public Set<VM> sleeping(Node n) {
+        read(n);
         return host.get(n).stream()
                 .filter(v -> state(v).equals(VMStateType.Type.SLEEPING))
                 .collect(Collectors.toSet());
     }
 
     public Set<VM> ready() {
+        read(VMS);
         return vmState.entrySet().stream()
                 .filter(e -> e.getValue() == VMStateType.Type.READY)
                 .map(Map.Entry::getKey)
@@ -136,8 +208,8 @@ public class SpecMapping {
     }
 
     public Set<VM> hosted(Node n) {
+        read(n);
         return host.get(n);
-
     }
 
     @Override
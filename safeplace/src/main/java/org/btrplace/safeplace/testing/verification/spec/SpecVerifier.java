@@ -55,9 +55,9 @@ public class SpecVerifier implements Verifier {
 
     @Override
     public VerifierResult verify(TestCase tc) {
-        Proposition good = tc.constraint().proposition();
-
         if (tc.continuous()) {
+            //The simulator re-evaluates the proposition after every timestamp
+            Proposition good = tc.constraint().invariant(tc.args());
 
             Context mo = new Context(tc.instance().getModel());
             mo.setRootContext(new Context(tc.instance().getModel().copy()));
@@ -83,7 +83,7 @@ public class SpecVerifier implements Verifier {
         mo.setRootContext(new Context(tc.instance().getModel().copy()));
         fillArguments(mo, tc);
 
-        Boolean bOk = good.eval(mo);
+        Boolean bOk = tc.constraint().proposition(tc.args()).eval(mo);
         if (bOk == null) {
             return VerifierResult.newError(new Exception("Runtime error in the spec"));
         }
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.safeplace.spec;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.safeplace.spec.prop.Exists;
+import org.btrplace.safeplace.spec.prop.ForAll;
+import org.btrplace.safeplace.spec.prop.Leq;
+import org.btrplace.safeplace.spec.prop.Proposition;
+import org.btrplace.safeplace.spec.prop.ProtectedProposition;
+import org.btrplace.safeplace.spec.term.Compiled;
+import org.btrplace.safeplace.spec.term.Constant;
+import org.btrplace.safeplace.spec.term.Primitive;
+import org.btrplace.safeplace.spec.term.Scope;
+import org.btrplace.safeplace.spec.term.Term;
+import org.btrplace.safeplace.spec.term.UserVar;
+import org.btrplace.safeplace.spec.term.func.Card;
+import org.btrplace.safeplace.spec.term.func.FunctionCall;
+import org.btrplace.safeplace.spec.term.func.Hosted;
+import org.btrplace.safeplace.spec.type.IntType;
+import org.btrplace.safeplace.spec.type.NodeType;
+import org.btrplace.safeplace.spec.type.Type;
+import org.btrplace.safeplace.testing.verification.spec.Context;
+import org.btrplace.safeplace.testing.verification.spec.SpecMapping;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+
+/**
+ * @author Fabien Hermenier
+ */
+public class InvariantTest {
+
+    private static Model model() {
+        Model mo = new DefaultModel();
+        Mapping ma = mo.getMapping();
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        ma.on(n0, n1, n2);
+        ma.run(n0, mo.newVM(), mo.newVM());
+        ma.run(n1, mo.newVM());
+        ma.ready(mo.newVM(), mo.newVM());
+        return mo;
+    }
+
+    /**
+     * The number of VMs hosted by a node, counting its evaluations.
+     */
+    private static Term<Integer> card(UserVar n, int[] evals) {
+        Term hosted = new FunctionCall<>(new Hosted(), Collections.singletonList(n), FunctionCall.Moment.ANY);
+        Term<Integer> card = new FunctionCall<>(new Card(), Collections.singletonList(hosted), FunctionCall.Moment.ANY);
+        return new Term<Integer>() {
+            @Override
+            public Integer eval(Context mo, Object... args) {
+                evals[0]++;
+                return card.eval(mo);
+            }
+
+            @Override
+            public Compiled<Integer> compile(Scope s) {
+                Compiled<Integer> c = card.compile(s);
+                return mo -> {
+                    evals[0]++;
+                    return c.eval(mo);
+                };
+            }
+
+            @Override
+            public Type type() {
+                return IntType.getInstance();
+            }
+        };
+    }
+
+    @Test
+    public void testIncremental() {
+        Model m = model();
+        Context mo = new Context(m);
+        SpecMapping sm = mo.getMapping();
+        UserVar n = new UserVar("n", ":", new Primitive("nodes", NodeType.getInstance()));
+        int[] evals = new int[1];
+        //At most 2 VMs per node
+        Constraint c = new Constraint("c", new ProtectedProposition(new ForAll(Collections.singletonList(n),
+                new Leq(card(n, evals), new Constant(2, IntType.getInstance())))));
+        Proposition inv = c.invariant(Collections.emptyList());
+        Proposition ref = c.proposition(Collections.emptyList());
+        Assert.assertEquals(inv.toString(), ref.toString());
+
+        Assert.assertEquals(inv.eval(mo), Boolean.TRUE);
+        Assert.assertEquals(evals[0], 3);
+        //Nothing changed
+        Assert.assertEquals(inv.eval(mo), Boolean.TRUE);
+        Assert.assertEquals(evals[0], 3);
+
+        Node n1 = m.getMapping().getOnlineNodes().stream().filter(x -> x.id() == 1).findFirst().get();
+        VM v = m.getMapping().getReadyVMs().iterator().next();
+        sm.host(v, n1);
+        Assert.assertEquals(inv.eval(mo), Boolean.TRUE);
+        Assert.assertEquals(evals[0], 4);
+
+        VM w = m.getMapping().getReadyVMs().stream().filter(x -> !x.equals(v)).findFirst().get();
+        sm.host(w, n1);
+        Assert.assertEquals(inv.eval(mo), Boolean.FALSE);
+        Assert.assertEquals(evals[0], 5);
+        Assert.assertEquals(ref.eval(mo), Boolean.FALSE);
+
+        sm.unhost(n1, w);
+        evals[0] = 0;
+        Assert.assertEquals(inv.eval(mo), Boolean.TRUE);
+        Assert.assertEquals(evals[0], 1);
+
+        //Another context, all the instances are evaluated
+        evals[0] = 0;
+        Assert.assertEquals(inv.eval(new Context(m)), Boolean.TRUE);
+        Assert.assertEquals(evals[0], 3);
+    }
+
+    @Test
+    public void testOtherShapes() {
+        Model m = model();
+        Context mo = new Context(m);
+        UserVar n = new UserVar("n", ":", new Primitive("nodes", NodeType.getInstance()));
+        int[] evals = new int[1];
+        //A node hosts no VMs
+        Constraint c = new Constraint("c", new Exists(Collections.singletonList(n),
+                new Leq(card(n, evals), new Constant(0, IntType.getInstance()))));
+        Proposition inv = c.invariant(Collections.emptyList());
+        Assert.assertEquals(inv.eval(mo), Boolean.TRUE);
+        Assert.assertEquals(inv.eval(mo), Boolean.TRUE);
+        //No tracking, the proposition is evaluated every time
+        Assert.assertEquals(evals[0], 6);
+    }
+}
@@ -38,4 +38,26 @@ public class SpecScannerTest {
         System.out.println(l.stream().map(Constraint::pretty).collect(Collectors.joining("\n")));
         System.out.println(System.currentTimeMillis() - from + " ms");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCache() throws Exception {
+        List<Constraint> l1 = new SpecScanner().scan();
+        List<Constraint> l2 = new SpecScanner(SpecScanner.DEFAULT_PACKAGE).scan();
+        Assert.assertNotSame(l1, l2);
+        Assert.assertEquals(l1.size(), l2.size());
+        for (int i = 0; i < l1.size(); i++) {
+            //The parsed constraints are re-used
+            Assert.assertSame(l1.get(i), l2.get(i));
+        }
+        //The shared constraints cannot be altered
+        Constraint c = l1.stream().filter(x -> !x.args().isEmpty()).findFirst().get();
+        try {
+            c.args().clear();
+            Assert.fail("The arguments of '" + c.id() + "' should not be modifiable");
+        } catch (UnsupportedOperationException ex) {
+            Assert.assertFalse(l2.get(l1.indexOf(c)).args().isEmpty());
+        }
+        //No btrplace specifications outside of the btrplace packages
+        Assert.assertTrue(new SpecScanner("org.chocosolver").scan().isEmpty());
+    }
+}
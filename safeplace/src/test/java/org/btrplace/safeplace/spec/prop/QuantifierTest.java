@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.safeplace.spec.prop;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.safeplace.spec.term.Compiled;
+import org.btrplace.safeplace.spec.term.Constant;
+import org.btrplace.safeplace.spec.term.IntPlus;
+import org.btrplace.safeplace.spec.term.Primitive;
+import org.btrplace.safeplace.spec.term.Scope;
+import org.btrplace.safeplace.spec.term.Term;
+import org.btrplace.safeplace.spec.term.UserVar;
+import org.btrplace.safeplace.spec.term.func.Card;
+import org.btrplace.safeplace.spec.term.func.FunctionCall;
+import org.btrplace.safeplace.spec.term.func.Hosted;
+import org.btrplace.safeplace.spec.type.IntType;
+import org.btrplace.safeplace.spec.type.NodeType;
+import org.btrplace.safeplace.spec.type.Type;
+import org.btrplace.safeplace.testing.verification.spec.Context;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * @author Fabien Hermenier
+ */
+public class QuantifierTest {
+
+    private static Model model() {
+        Model mo = new DefaultModel();
+        Mapping ma = mo.getMapping();
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        ma.on(n0, n1, n2);
+        ma.run(n0, mo.newVM(), mo.newVM());
+        ma.run(n1, mo.newVM());
+        return mo;
+    }
+
+    private static Boolean compiled(Proposition p, Context mo) {
+        Scope s = new Scope();
+        Compiled<Boolean> c = p.compile(s);
+        mo.frame(new Object[s.size()]);
+        return c.eval(mo);
+    }
+
+    private static Term<Integer> card(UserVar n) {
+        Term hosted = new FunctionCall<>(new Hosted(), Collections.singletonList(n), FunctionCall.Moment.ANY);
+        return new FunctionCall<>(new Card(), Collections.singletonList(hosted), FunctionCall.Moment.ANY);
+    }
+
+    @Test
+    public void testCompiledMatchesInterpreted() {
+        Context mo = new Context(model());
+        UserVar n = new UserVar("n", ":", new Primitive("nodes", NodeType.getInstance()));
+        for (int i = 0; i < 4; i++) {
+            Proposition all = new ForAll(Collections.singletonList(n), new Leq(card(n), new Constant(i, IntType.getInstance())));
+            Proposition one = new Exists(Collections.singletonList(n), new Eq(card(n), new Constant(i, IntType.getInstance())));
+            Assert.assertEquals(compiled(all, mo), all.eval(mo), all.toString());
+            Assert.assertEquals(compiled(all.not(), mo), all.not().eval(mo), all.not().toString());
+            Assert.assertEquals(compiled(one, mo), one.eval(mo), one.toString());
+        }
+    }
+
+    @Test
+    public void testTuples() {
+        Context mo = new Context(model());
+        Primitive nodes = new Primitive("nodes", NodeType.getInstance());
+        UserVar n = new UserVar("n", ":", nodes);
+        UserVar m = new UserVar("m", ":", nodes);
+        //Every pair of distinct nodes hosts at least one VM
+        Proposition p = new ForAll(Arrays.asList(n, m),
+                new Or(new Eq(n, m), new Lt(new Constant(0, IntType.getInstance()), new IntPlus(card(n), card(m)))));
+        Assert.assertEquals(compiled(p, mo), Boolean.TRUE);
+        Assert.assertEquals(p.eval(mo), Boolean.TRUE);
+        Proposition q = new Exists(Arrays.asList(n, m), new And(new NEq(n, m), new Eq(card(n), card(m))));
+        Assert.assertEquals(compiled(q, mo), Boolean.FALSE);
+        Assert.assertEquals(q.eval(mo), Boolean.FALSE);
+    }
+
+    /**
+     * A term that does not depend on a quantified variable must be evaluated once per execution
+     * of the quantifier.
+     */
+    @Test
+    public void testHoisting() {
+        Context mo = new Context(model());
+        Primitive nodes = new Primitive("nodes", NodeType.getInstance());
+        UserVar n = new UserVar("n", ":", nodes);
+        UserVar m = new UserVar("m", ":", nodes);
+        int[] evals = new int[1];
+        Term<Integer> zero = new Term<Integer>() {
+            @Override
+            public Integer eval(Context ctx, Object... args) {
+                evals[0]++;
+                return 0;
+            }
+
+            @Override
+            public Type type() {
+                return IntType.getInstance();
+            }
+        };
+        Proposition p = new ForAll(Collections.singletonList(n),
+                new ForAll(Collections.singletonList(m), new Leq(zero, card(m))));
+        Assert.assertEquals(compiled(p, mo), Boolean.TRUE);
+        Assert.assertEquals(evals[0], 1);
+
+        evals[0] = 0;
+        Assert.assertEquals(p.eval(mo), Boolean.TRUE);
+        Assert.assertEquals(evals[0], 9);
+    }
+}
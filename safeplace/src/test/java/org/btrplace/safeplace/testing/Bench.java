@@ -39,6 +39,7 @@ public class Bench {
     public static int scale = 1;
 
     public static int population = 100;
+    public static int workers = 1;
     public static boolean transitions = true;
 
     public enum Mode {SAVE, REPLAY, DEFAULT}
@@ -57,6 +58,7 @@ public class Bench {
 
         tc.reportTo(report);
         tc.verifyWith(v);
+        tc.workers(workers);
 
         if (mode == Mode.REPLAY) {
             tc.replay(Paths.get(source, cstr + ".json"));
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.safeplace.testing;
+
+import org.btrplace.safeplace.spec.Constraint;
+import org.btrplace.safeplace.spec.SpecScanner;
+import org.btrplace.safeplace.testing.reporting.Counting;
+import org.btrplace.safeplace.testing.verification.Verifier;
+import org.btrplace.safeplace.testing.verification.VerifierResult;
+import org.btrplace.safeplace.testing.verification.spec.SpecVerifier;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * @author Fabien Hermenier
+ */
+public class DefaultTestCampaignTest {
+
+    /**
+     * A verifier that contradicts the specification for some test cases, depending on their content,
+     * to get defects.
+     */
+    private static class Contradicting implements Verifier {
+
+        private final Verifier spec = new SpecVerifier();
+
+        @Override
+        public VerifierResult verify(TestCase tc) {
+            VerifierResult res = spec.verify(tc);
+            if (Boolean.TRUE.equals(res.getStatus()) && Math.floorMod(tc.toString().hashCode(), 3) == 0) {
+                return VerifierResult.newKo("contradiction");
+            }
+            return res;
+        }
+
+        @Override
+        public String id() {
+            return "contradicting";
+        }
+    }
+
+    private static Counting campaign(List<Constraint> cstrs, int workers, Consumer<TestCampaign> limits, List<String> defects) {
+        TestCampaign c = new DefaultTestCampaign("fence", cstrs);
+        c.check("fence").vms(5).nodes(3).srcOffNodes(0.1).srcVMs(1, 9, 0);
+        c.verifyWith(new Contradicting());
+        c.onDefect(r -> defects.add(r.testCase().toString()));
+        Counting report = new Counting();
+        c.reportTo(report);
+        c.workers(workers);
+        limits.accept(c);
+        c.go();
+        return report;
+    }
+
+    private static void checkSame(List<Constraint> cstrs, Consumer<TestCampaign> limits, int expected) {
+        List<String> seqDefects = new ArrayList<>();
+        Counting seq = campaign(cstrs, 1, limits, seqDefects);
+        List<String> parDefects = new ArrayList<>();
+        Counting par = campaign(cstrs, 4, limits, parDefects);
+        Assert.assertEquals(par.success() + par.defects(), expected);
+        Assert.assertEquals(par.success(), seq.success());
+        Assert.assertEquals(par.underFiltering(), seq.underFiltering());
+        Assert.assertEquals(par.overFiltering(), seq.overFiltering());
+        Assert.assertEquals(par.failures(), seq.failures());
+        Assert.assertEquals(parDefects, seqDefects);
+    }
+
+    /**
+     * The parallel campaign commits exactly the results of the sequential one.
+     */
+    @Test
+    public void testParallelMaxTests() throws Exception {
+        List<Constraint> cstrs = new SpecScanner().scan();
+        checkSame(cstrs, c -> c.limits().tests(30), 30);
+    }
+
+    /**
+     * The campaign stops on the third defect, while other test cases are still in flight.
+     */
+    @Test
+    public void testParallelMaxDefects() throws Exception {
+        List<Constraint> cstrs = new SpecScanner().scan();
+        List<String> defects = new ArrayList<>();
+        Counting seq = campaign(cstrs, 1, c -> c.limits().tests(200).failures(3), defects);
+        Assert.assertEquals(defects.size(), 3);
+        checkSame(cstrs, c -> c.limits().tests(200).failures(3), seq.success() + seq.defects());
+    }
+}
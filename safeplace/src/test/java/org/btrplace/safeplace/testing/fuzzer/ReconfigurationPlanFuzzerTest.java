@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.btrplace.safeplace.testing.fuzzer;
+
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.BootNode;
+import org.btrplace.plan.event.BootVM;
+import org.btrplace.plan.event.MigrateVM;
+import org.btrplace.plan.event.ResumeVM;
+import org.btrplace.plan.event.ShutdownNode;
+import org.btrplace.plan.event.ShutdownVM;
+import org.btrplace.plan.event.SuspendVM;
+import org.btrplace.plan.event.VMEvent;
+import org.btrplace.safeplace.testing.verification.btrplace.CSchedule;
+import org.btrplace.safeplace.testing.verification.btrplace.Schedule;
+import org.btrplace.scheduler.choco.DefaultChocoScheduler;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * @author Fabien Hermenier
+ */
+public class ReconfigurationPlanFuzzerTest {
+
+    /**
+     * Check the generated plans satisfy the core constraints.
+     */
+    @Test
+    public void testCoreConstraints() {
+        ReconfigurationPlanFuzzer f = new ReconfigurationPlanFuzzer(new Random(0))
+                .nodes(4).vms(8)
+                .srcOffNodes(0.3).dstOffNodes(0.3)
+                .srcVMs(2, 6, 2).dstVMs(3, 4, 3);
+        for (int i = 0; i < 500; i++) {
+            ReconfigurationPlan p = f.get();
+            Assert.assertNotNull(p.getResult(), p.toString());
+            checkNodeStates(p);
+            checkTransitions(p);
+        }
+    }
+
+    /**
+     * Check the scheduler accepts the generated plans as they are.
+     */
+    @Test
+    public void testSchedulable() {
+        ReconfigurationPlanFuzzer f = new ReconfigurationPlanFuzzer(new Random(1))
+                .nodes(3).vms(5)
+                .srcOffNodes(0.3).dstOffNodes(0.3)
+                .srcVMs(2, 6, 2).dstVMs(3, 4, 3);
+        DefaultChocoScheduler sched = new DefaultChocoScheduler();
+        sched.getMapper().mapConstraint(Schedule.class, CSchedule.class);
+        for (int i = 0; i < 50; i++) {
+            ReconfigurationPlan p = f.get();
+            ReconfigurationPlan got = sched.solve(InstanceConverter.toInstance(p));
+            Assert.assertNotNull(got, p.toString());
+            Assert.assertEquals(got, p);
+        }
+    }
+
+    /**
+     * A node hosts VMs only when it is online.
+     */
+    private static void checkNodeStates(ReconfigurationPlan p) {
+        Mapping src = p.getOrigin().getMapping();
+        Map<Node, Integer> on = new HashMap<>();
+        Map<Node, Integer> off = new HashMap<>();
+        for (Node n : src.getOnlineNodes()) {
+            on.put(n, 0);
+        }
+        for (Action a : p) {
+            if (a instanceof BootNode) {
+                on.put(((BootNode) a).getNode(), a.getEnd());
+            } else if (a instanceof ShutdownNode) {
+                off.put(((ShutdownNode) a).getNode(), a.getStart());
+            }
+        }
+        Set<VM> leaving = new HashSet<>();
+        for (Action a : p) {
+            Node dst = null;
+            if (a instanceof BootVM) {
+                dst = ((BootVM) a).getDestinationNode();
+            } else if (a instanceof MigrateVM) {
+                dst = ((MigrateVM) a).getDestinationNode();
+                Node from = ((MigrateVM) a).getSourceNode();
+                Assert.assertTrue(a.getEnd() <= off.getOrDefault(from, Integer.MAX_VALUE), a.toString());
+                leaving.add(((MigrateVM) a).getVM());
+            } else if (a instanceof ResumeVM) {
+                dst = ((ResumeVM) a).getDestinationNode();
+            } else if (a instanceof ShutdownVM) {
+                Node from = ((ShutdownVM) a).getNode();
+                Assert.assertTrue(a.getEnd() <= off.getOrDefault(from, Integer.MAX_VALUE), a.toString());
+                leaving.add(((ShutdownVM) a).getVM());
+            }
+            if (dst != null) {
+                Assert.assertTrue(on.containsKey(dst) && a.getStart() >= on.get(dst), a.toString());
+                Assert.assertFalse(off.containsKey(dst), a.toString());
+            }
+        }
+        //The VMs staying on a node prevent its shutdown
+        for (VM v : src.getAllVMs()) {
+            Node n = src.getVMLocation(v);
+            if (n != null && !leaving.contains(v)) {
+                Assert.assertFalse(off.containsKey(n), v + " stays on " + n);
+            }
+        }
+    }
+
+    /**
+     * A sleeping VM is never shut down, a ready VM is never suspended.
+     */
+    private static void checkTransitions(ReconfigurationPlan p) {
+        Mapping src = p.getOrigin().getMapping();
+        for (Action a : p) {
+            if (!(a instanceof VMEvent)) {
+                continue;
+            }
+            VM v = ((VMEvent) a).getVM();
+            if (a instanceof ShutdownVM) {
+                Assert.assertTrue(src.isRunning(v), a.toString());
+            } else if (a instanceof SuspendVM) {
+                Assert.assertTrue(src.isRunning(v), a.toString());
+            } else if (a instanceof ResumeVM) {
+                Assert.assertTrue(src.isSleeping(v), a.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,581 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.scheduler.runner.disjoint;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.set.hash.THashSet;
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.SynchronizedElementBuilder;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Among;
+import org.btrplace.model.constraint.Ban;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.Gather;
+import org.btrplace.model.constraint.Killed;
+import org.btrplace.model.constraint.Offline;
+import org.btrplace.model.constraint.Online;
+import org.btrplace.model.constraint.Ready;
+import org.btrplace.model.constraint.Root;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.constraint.Sleeping;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.DefaultReconfigurationPlan;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.ReconfigurationPlanChecker;
+import org.btrplace.plan.SatConstraintViolationException;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.BootVM;
+import org.btrplace.plan.event.Event;
+import org.btrplace.plan.event.MigrateVM;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.duration.DurationEvaluators;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+import org.btrplace.scheduler.choco.runner.single.InstanceSolverRunner;
+import org.btrplace.scheduler.runner.disjoint.model.SubModel;
+import org.btrplace.scheduler.runner.disjoint.splitter.ConstraintSplitterMapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A partitioning algorithm that solves an instance in two levels.
+ * <p>
+ * The nodes are first partitioned into groups. The groups are the values of a node attribute, if
+ * any, refined so every group of nodes stated in an {@link Among} constraint and every set of nodes
+ * stated in a {@link Fence} constraint is a union of groups.
+ * A coarse instance, where each group is aggregated into a single node whose capacities are the sum of the
+ * {@link ShareableResource} capacities of its nodes, is then solved to decide the group that hosts each VM.
+ * Only {@link Among}, {@link Fence}, {@link Ban}, {@link Gather} and the VM state constraints are considered
+ * at this level. The running VMs that are not involved in the first ones stay in their group, so they are not part of
+ * the coarse instance and their consumption is removed from the capacity of their group.
+ * <p>
+ * Finally, the placement inside each group is solved independently and in parallel.
+ * A running VM that goes to another group is booted in its destination group while it keeps
+ * its resources in its source group until the end of the reconfiguration. The boot lasts as long
+ * as the migration (the {@code boot} attribute of the VM is set to its migration duration in the
+ * working model) and it is replaced by a migration in the resulting plan.
+ * <p>
+ * When there is a single group or when the coarse instance has no solution, the instance is solved as a whole.
+ * The coarse capacities are a relaxation: they ignore the fragmentation of the resources among the nodes of a group
+ * and the sleeping VMs that are not involved in the constraints above. A group may then have no solution while the
+ * whole instance has one. The merged plan may also violate a constraint as the ghost that holds the resources of
+ * a moved VM in its source group is not involved in the constraints. In both cases, the instance is solved again as a
+ * whole within the remaining time.
+ * <p>
+ * With a time limit, the coarse instance is solved within a fifth of the limit and the groups within half of
+ * the remaining time. The other half is kept to solve the instance again as a whole.
+ *
+ * @author Fabien Hermenier
+ */
+public class HierarchicalPartitioning extends StaticPartitioning {
+
+    private String groupAttribute;
+
+    private ConstraintSplitterMapper cstrMapper;
+
+    private List<Collection<Node>> groups;
+
+    private SolvingStatistics coarseStats;
+
+    /**
+     * The VMs that are moved to another group, with their current host.
+     */
+    private Map<VM, Node> moves;
+
+    /**
+     * {@code true} to solve the instance as a whole.
+     */
+    private boolean flat;
+
+    /**
+     * The moment the time limit is reached. {@code 0} if there is no time limit.
+     */
+    private long deadline;
+
+    /**
+     * Make a new partitioning algorithm.
+     * The groups are only derived from the constraints.
+     * By default, the partition algorithm use the {@link ConstraintSplitterMapper}
+     * returned by {@link ConstraintSplitterMapper#newBundle()}.
+     */
+    public HierarchicalPartitioning() {
+        this(null);
+    }
+
+    /**
+     * Make a new partitioning algorithm.
+     *
+     * @param attr the node attribute identifying the groups. {@code null} to only derive the groups from the constraints
+     */
+    public HierarchicalPartitioning(String attr) {
+        groupAttribute = attr;
+        cstrMapper = ConstraintSplitterMapper.newBundle();
+        groups = Collections.emptyList();
+        moves = Collections.emptyMap();
+    }
+
+    /**
+     * Get the node attribute identifying the groups.
+     *
+     * @return the attribute identifier. {@code null} if the groups are only derived from the constraints
+     */
+    public String getGroupAttribute() {
+        return groupAttribute;
+    }
+
+    /**
+     * Set the node attribute identifying the groups.
+     * The nodes without this attribute are grouped together.
+     *
+     * @param attr the attribute identifier. {@code null} to only derive the groups from the constraints
+     */
+    public void setGroupAttribute(String attr) {
+        groupAttribute = attr;
+    }
+
+    /**
+     * Get the mapper that is used to split the constraints.
+     *
+     * @return a mapper
+     */
+    public ConstraintSplitterMapper getSplitterMapper() {
+        return cstrMapper;
+    }
+
+    /**
+     * Set the mapper to use to split constraints.
+     *
+     * @param m the mapper
+     */
+    public void setSplitterMapper(ConstraintSplitterMapper m) {
+        this.cstrMapper = m;
+    }
+
+    /**
+     * Get the groups of nodes computed for the last solved instance.
+     *
+     * @return disjoint groups of nodes
+     */
+    public List<Collection<Node>> getGroups() {
+        return groups;
+    }
+
+    /**
+     * Get the statistics of the coarse solving process for the last solved instance.
+     *
+     * @return the statistics. {@code null} if the coarse instance was not solved
+     */
+    public SolvingStatistics getCoarseStatistics() {
+        return coarseStats;
+    }
+
+    /**
+     * {@inheritDoc}
+     * If a group has no solution, the instance is solved again as a whole.
+     */
+    @Override
+    public ReconfigurationPlan solve(Parameters ps, Instance i) throws SchedulerException {
+        deadline = ps.getTimeLimit() > 0 ? System.currentTimeMillis() + ps.getTimeLimit() * 1000L : 0;
+        try {
+            ReconfigurationPlan p = super.solve(ps, i);
+            if (p != null || getStatistics().getNbParts() <= 1) {
+                return p;
+            }
+            //The coarse level was too optimistic
+            Parameters flatPs = ps;
+            if (deadline > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining < 1000) {
+                    return null;
+                }
+                flatPs = new DefaultParameters(ps).setTimeLimit((int) (remaining / 1000));
+            }
+            flat = true;
+            return super.solve(flatPs, i);
+        } finally {
+            flat = false;
+            deadline = 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * With a time limit, the groups are solved within half of the remaining time.
+     */
+    @Override
+    protected Parameters getPartitionParameters(Parameters ps, List<Instance> parts) {
+        if (deadline == 0 || flat) {
+            return ps;
+        }
+        long remaining = deadline - System.currentTimeMillis();
+        if (parts.size() > 1) {
+            //Keep time to solve the instance as a whole
+            remaining /= 2;
+        }
+        return new DefaultParameters(ps).setTimeLimit((int) Math.max(1, remaining / 1000));
+    }
+
+    @Override
+    public List<Instance> split(Parameters ps, Instance i) throws SchedulerException {
+        moves = Collections.emptyMap();
+        if (flat) {
+            return Collections.singletonList(i);
+        }
+        coarseStats = null;
+        groups = makeGroups(i);
+        if (groups.size() <= 1) {
+            return Collections.singletonList(i);
+        }
+        Mapping src = i.getModel().getMapping();
+        Map<Node, Integer> groupOf = new HashMap<>();
+        for (int g = 0; g < groups.size(); g++) {
+            for (Node n : groups.get(g)) {
+                groupOf.put(n, g);
+            }
+        }
+
+        //Solve the coarse instance
+        List<Node> coarseNodes = new ArrayList<>(groups.size());
+        Instance coarse = coarsen(i, groupOf, coarseNodes);
+        Parameters coarsePs = ps;
+        if (ps.getTimeLimit() > 0) {
+            coarsePs = new DefaultParameters(ps).setTimeLimit(Math.max(1, ps.getTimeLimit() / 5));
+        }
+        coarseStats = new InstanceSolverRunner(coarsePs, coarse).call();
+        ReconfigurationPlan cp = coarseStats.lastSolution();
+        if (cp == null) {
+            //Let the flat solving process state about the instance
+            return Collections.singletonList(i);
+        }
+        Mapping dst = cp.getResult().getMapping();
+        Map<Node, Integer> coarseGroup = new HashMap<>();
+        for (int g = 0; g < coarseNodes.size(); g++) {
+            coarseGroup.put(coarseNodes.get(g), g);
+        }
+
+        //The working model, where the VMs to move are ready and let a ghost on their host
+        Model mo = i.getModel().copy();
+        Mapping map = mo.getMapping();
+        List<Set<VM>> ready = new ArrayList<>(groups.size());
+        List<Set<SatConstraint>> extra = new ArrayList<>(groups.size());
+        for (int g = 0; g < groups.size(); g++) {
+            ready.add(new HashSet<>());
+            extra.add(new HashSet<>());
+        }
+        moves = new HashMap<>();
+        DurationEvaluators dev = ps.getDurationEvaluators();
+        for (VM v : src.getAllVMs()) {
+            Node to = dst.getVMLocation(v);
+            if (src.isReady(v)) {
+                //Stay ready, unless the coarse level decided a group
+                ready.get(dst.isRunning(v) ? coarseGroup.get(to) : 0).add(v);
+            } else if (src.isRunning(v) && dst.isRunning(v)) {
+                Node host = src.getVMLocation(v);
+                int from = groupOf.get(host);
+                int g = coarseGroup.get(to);
+                if (from != g) {
+                    VM ghost = mo.newVM();
+                    for (ModelView view : mo.getViews()) {
+                        if (view instanceof ShareableResource) {
+                            ShareableResource rc = (ShareableResource) view;
+                            rc.setConsumption(ghost, rc.getConsumption(v));
+                        }
+                    }
+                    map.remove(v);
+                    map.addReadyVM(v);
+                    map.addRunningVM(ghost, host);
+                    extra.get(from).add(new Root(ghost));
+                    ready.get(g).add(v);
+                    extra.get(g).add(new Running(v));
+                    moves.put(v, host);
+                    //The boot stands for the migration
+                    int d = dev.evaluate(i.getModel(), MigrateVM.class, v);
+                    mo.getAttributes().put(v, "boot", d);
+                    if (dev.evaluate(mo, BootVM.class, v) != d) {
+                        //The boot duration does not rely on the attribute
+                        moves = Collections.emptyMap();
+                        return Collections.singletonList(i);
+                    }
+                }
+            }
+        }
+
+        //The detailed instances
+        SynchronizedElementBuilder eb = new SynchronizedElementBuilder(mo);
+        List<Instance> parts = new ArrayList<>(groups.size());
+        TIntIntHashMap vmPosition = new TIntIntHashMap(map.getNbVMs());
+        TIntIntHashMap nodePosition = new TIntIntHashMap(map.getNbNodes());
+        for (int g = 0; g < groups.size(); g++) {
+            SubModel partModel = new SubModel(mo, eb, groups.get(g), ready.get(g));
+            parts.add(new Instance(partModel, new THashSet<>(), i.getOptConstraint()));
+            partModel.getMapping().fillVMIndex(vmPosition, g);
+            for (Node n : groups.get(g)) {
+                nodePosition.put(n.id(), g);
+            }
+        }
+        Instance work = new Instance(mo, i.getSatConstraints(), i.getOptConstraint());
+        for (SatConstraint cstr : i.getSatConstraints()) {
+            if (!cstrMapper.split(cstr, work, parts, vmPosition, nodePosition)) {
+                throw new SplitException(i.getModel(), "Unable to split " + cstr);
+            }
+        }
+        for (int g = 0; g < groups.size(); g++) {
+            parts.get(g).getSatConstraints().addAll(extra.get(g));
+        }
+        return parts;
+    }
+
+    /**
+     * Make the groups of nodes.
+     * Two nodes are in a same group iff they have the same value for the group attribute, and
+     * they belong to the same groups of the {@link Among} constraints and to the same sets of the
+     * {@link Fence} constraints.
+     *
+     * @param i the instance
+     * @return disjoint groups of nodes
+     */
+    private List<Collection<Node>> makeGroups(Instance i) {
+        List<Collection<Node>> sets = new ArrayList<>();
+        for (SatConstraint c : i.getSatConstraints()) {
+            if (c instanceof Among) {
+                sets.addAll(((Among) c).getGroupsOfNodes());
+            } else if (c instanceof Fence) {
+                sets.add(c.getInvolvedNodes());
+            }
+        }
+        List<Node> nodes = new ArrayList<>(i.getModel().getMapping().getAllNodes());
+        nodes.sort(Comparator.comparingInt(Node::id));
+        Map<List<Object>, Collection<Node>> signatures = new LinkedHashMap<>();
+        for (Node n : nodes) {
+            List<Object> sig = new ArrayList<>();
+            if (groupAttribute != null) {
+                sig.add(i.getModel().getAttributes().get(n, groupAttribute));
+            }
+            for (int s = 0; s < sets.size(); s++) {
+                if (sets.get(s).contains(n)) {
+                    sig.add(s);
+                }
+            }
+            signatures.computeIfAbsent(sig, k -> new ArrayList<>()).add(n);
+        }
+        return new ArrayList<>(signatures.values());
+    }
+
+    /**
+     * Make the coarse instance, where every group is a node.
+     *
+     * @param i           the instance
+     * @param groupOf     the group of each node
+     * @param coarseNodes the list to fill with the node associated to each group
+     * @return the coarse instance
+     */
+    private Instance coarsen(Instance i, Map<Node, Integer> groupOf, List<Node> coarseNodes) {
+        Model src = i.getModel();
+        Mapping map = src.getMapping();
+        Model mo = new DefaultModel();
+        Mapping cm = mo.getMapping();
+        for (int g = 0; g < groups.size(); g++) {
+            Node n = mo.newNode();
+            cm.addOnlineNode(n);
+            coarseNodes.add(n);
+        }
+        //The VMs that may change of group
+        Set<VM> free = new HashSet<>();
+        for (SatConstraint c : i.getSatConstraints()) {
+            if (c instanceof Among || c instanceof Fence || c instanceof Ban || c instanceof Gather) {
+                free.addAll(c.getInvolvedVMs());
+            }
+        }
+        List<VM> pinned = new ArrayList<>();
+        for (Node n : map.getOnlineNodes()) {
+            Node cn = coarseNodes.get(groupOf.get(n));
+            for (VM v : map.getRunningVMs(n)) {
+                if (free.contains(v)) {
+                    cm.addRunningVM(v, cn);
+                } else {
+                    pinned.add(v);
+                }
+            }
+            for (VM v : map.getSleepingVMs(n)) {
+                if (free.contains(v)) {
+                    cm.addSleepingVM(v, cn);
+                }
+            }
+        }
+        for (VM v : map.getReadyVMs()) {
+            cm.addReadyVM(v);
+        }
+
+        //The nodes that will provide resources
+        Set<Node> providers = new HashSet<>(map.getOnlineNodes());
+        for (SatConstraint c : i.getSatConstraints()) {
+            if (c instanceof Online) {
+                providers.addAll(c.getInvolvedNodes());
+            } else if (c instanceof Offline) {
+                providers.removeAll(c.getInvolvedNodes());
+            }
+        }
+        for (ModelView view : src.getViews()) {
+            if (view instanceof ShareableResource) {
+                ShareableResource rc = (ShareableResource) view;
+                ShareableResource crc = new ShareableResource(rc.getResourceIdentifier(), 0, rc.getDefaultConsumption());
+                int[] capas = new int[groups.size()];
+                for (Node n : providers) {
+                    capas[groupOf.get(n)] += rc.getCapacity(n);
+                }
+                for (VM v : pinned) {
+                    capas[groupOf.get(map.getVMLocation(v))] -= rc.getConsumption(v);
+                }
+                for (int g = 0; g < capas.length; g++) {
+                    crc.setCapacity(coarseNodes.get(g), Math.max(0, capas[g]));
+                }
+                for (VM v : cm.getAllVMs()) {
+                    crc.setConsumption(v, rc.getConsumption(v));
+                }
+                mo.attach(crc);
+            }
+        }
+
+        Instance coarse = new Instance(mo, new ArrayList<>(), i.getOptConstraint());
+        Set<VM> vms = cm.getAllVMs();
+        for (SatConstraint c : i.getSatConstraints()) {
+            SatConstraint cc = vms.containsAll(c.getInvolvedVMs()) ? coarsen(c, groupOf, coarseNodes) : null;
+            if (cc != null) {
+                coarse.getSatConstraints().add(cc);
+            }
+        }
+        return coarse;
+    }
+
+    /**
+     * Translate a constraint for the coarse instance.
+     *
+     * @return the translated constraint. {@code null} if it is not considered at the coarse level
+     */
+    private SatConstraint coarsen(SatConstraint c, Map<Node, Integer> groupOf, List<Node> coarseNodes) {
+        if (c instanceof Running || c instanceof Ready || c instanceof Sleeping
+                || c instanceof Killed || c instanceof Root || c instanceof Gather) {
+            return c;
+        }
+        VM v = c.getInvolvedVMs().isEmpty() ? null : c.getInvolvedVMs().iterator().next();
+        if (c instanceof Among) {
+            Among a = (Among) c;
+            Collection<Collection<Node>> parts = new ArrayList<>();
+            for (Collection<Node> ns : a.getGroupsOfNodes()) {
+                parts.add(coarsen(ns, groupOf, coarseNodes));
+            }
+            return new Among(a.getInvolvedVMs(), parts, a.isContinuous());
+        } else if (c instanceof Fence) {
+            return new Fence(v, coarsen(c.getInvolvedNodes(), groupOf, coarseNodes), c.isContinuous());
+        } else if (c instanceof Ban) {
+            //Only the groups that are banned entirely
+            Map<Integer, Integer> banned = new HashMap<>();
+            for (Node n : c.getInvolvedNodes()) {
+                banned.merge(groupOf.get(n), 1, Integer::sum);
+            }
+            Set<Node> ns = new HashSet<>();
+            for (Map.Entry<Integer, Integer> e : banned.entrySet()) {
+                if (e.getValue() == groups.get(e.getKey()).size()) {
+                    ns.add(coarseNodes.get(e.getKey()));
+                }
+            }
+            return ns.isEmpty() ? null : new Ban(v, ns, c.isContinuous());
+        }
+        return null;
+    }
+
+    private static Set<Node> coarsen(Collection<Node> ns, Map<Node, Integer> groupOf, List<Node> coarseNodes) {
+        Set<Node> s = new HashSet<>();
+        for (Node n : ns) {
+            Integer g = groupOf.get(n);
+            if (g != null) {
+                s.add(coarseNodes.get(g));
+            }
+        }
+        return s;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The merged plan is checked against the constraints using a {@link ReconfigurationPlanChecker}.
+     *
+     * @return the merged plan. {@code null} if one of the sub-instances has no solution or if the plan violates
+     * a constraint
+     */
+    @Override
+    @SuppressWarnings("squid:S1166")
+    protected ReconfigurationPlan merge(Instance i, Collection<SolvingStatistics> results) throws SplitException {
+        ReconfigurationPlan p = super.merge(i, results);
+        if (p == null || results.size() <= 1) {
+            return p;
+        }
+        ReconfigurationPlan plan = moves.isEmpty() ? p : restoreMigrations(i, p);
+        ReconfigurationPlanChecker chk = new ReconfigurationPlanChecker();
+        i.getSatConstraints().forEach(s -> chk.addChecker(s.getChecker()));
+        try {
+            chk.check(plan);
+        } catch (@SuppressWarnings("unused") SatConstraintViolationException ex) {
+            return null;
+        }
+        return plan;
+    }
+
+    /**
+     * Replace the boot of the VMs moved to another group by their migration.
+     *
+     * @param i the original instance
+     * @param p the merged plan
+     * @return the resulting plan
+     * @throws SplitException if an action cannot be added
+     */
+    private ReconfigurationPlan restoreMigrations(Instance i, ReconfigurationPlan p) throws SplitException {
+        ReconfigurationPlan plan = new DefaultReconfigurationPlan(i.getModel());
+        for (Action a : p) {
+            Action b = a;
+            if (a instanceof BootVM && moves.containsKey(((BootVM) a).getVM())) {
+                BootVM boot = (BootVM) a;
+                b = new MigrateVM(boot.getVM(), moves.get(boot.getVM()), boot.getDestinationNode(), a.getStart(), a.getEnd());
+                for (Action.Hook k : Action.Hook.values()) {
+                    for (Event e : a.getEvents(k)) {
+                        b.addEvent(k, e);
+                    }
+                }
+            }
+            if (!plan.add(b)) {
+                throw new SplitException(i.getModel(), "Unable to add action '" + b + "' while merging the sub-plans");
+            }
+        }
+        return plan;
+    }
+}
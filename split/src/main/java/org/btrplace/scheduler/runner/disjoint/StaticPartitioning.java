@@ -96,8 +96,9 @@ public abstract class StaticPartitioning implements InstanceSolver {
 
 
         long duration = -System.currentTimeMillis();
+        Parameters ps = getPartitionParameters(cra, partitions);
         for (Instance partition : partitions) {
-            completionService.submit(new InstanceSolverRunner(cra, partition));
+            completionService.submit(new InstanceSolverRunner(ps, partition));
         }
 
         for (int i = 0; i < partitions.size(); i++) {
@@ -120,7 +121,15 @@ public abstract class StaticPartitioning implements InstanceSolver {
         return merge(orig, results);
     }
 
-    private ReconfigurationPlan merge(Instance i, Collection<SolvingStatistics> results) throws SplitException {
+    /**
+     * Merge the sub-plans computed for the sub-instances.
+     *
+     * @param i       the original instance
+     * @param results the statistics of the solved sub-instances
+     * @return the merged plan. {@code null} if one of the sub-instances has no solution
+     * @throws SplitException if a sub-plan cannot be merged
+     */
+    protected ReconfigurationPlan merge(Instance i, Collection<SolvingStatistics> results) throws SplitException {
         ReconfigurationPlan plan = new DefaultReconfigurationPlan(i.getModel());
         //Only if there is a solution
         for (SolvingStatistics result : results) {
@@ -144,6 +153,17 @@ public abstract class StaticPartitioning implements InstanceSolver {
         return stats;
     }
 
+    /**
+     * Get the parameters to solve the partitions.
+     *
+     * @param ps    the parameters for the solver
+     * @param parts the partitions to solve
+     * @return {@code ps} by default
+     */
+    protected Parameters getPartitionParameters(Parameters ps, List<Instance> parts) {
+        return ps;
+    }
+
     /**
      * Split an instance into several disjoint instances.
      *
@@ -26,7 +26,9 @@ import org.btrplace.scheduler.choco.runner.SolutionStatistics;
 import org.btrplace.scheduler.choco.runner.SolvingStatistics;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Statistics for a solving process partitioned statically.
@@ -96,6 +98,20 @@ public class StaticPartitioningStatistics implements SolvingStatistics {
         return spe;
     }
 
+    /**
+     * Return the building steps durations aggregated over the partitions.
+     *
+     * @return a map that may be empty
+     */
+    @Override
+    public Map<String, Long> getBuildDurations() {
+        Map<String, Long> res = new LinkedHashMap<>();
+        for (SolvingStatistics st : partResults) {
+            st.getBuildDurations().forEach((k, d) -> res.merge(k, d, Long::sum));
+        }
+        return res;
+    }
+
     @Override
     public long getStart() {
         return start;
@@ -65,5 +65,9 @@ public class ElementSubSetTest {
         for (VM v : p1) {
             Assert.assertEquals(v.id() % 2, 0);
         }
+
+        //test toArray()
+        Assert.assertEquals(p1.toArray(), values.subList(0, 5).toArray());
+        Assert.assertEquals(new ArrayList<>(p1), values.subList(0, 5));
     }
 }
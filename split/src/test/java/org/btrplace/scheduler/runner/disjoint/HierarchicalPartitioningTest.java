@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2017 University Nice Sophia Antipolis
+ *
+ * This file is part of btrplace.
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.btrplace.scheduler.runner.disjoint;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Among;
+import org.btrplace.model.constraint.Ban;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.constraint.Spread;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.MigrateVM;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultChocoScheduler;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Unit tests for {@link HierarchicalPartitioning}.
+ *
+ * @author Fabien Hermenier
+ */
+public class HierarchicalPartitioningTest {
+
+    private List<Collection<Node>> racks;
+
+    /**
+     * 4 racks of 5 nodes, 2 VMs per node and 10 VMs to launch.
+     */
+    private Model makeModel() {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        ShareableResource cpu = new ShareableResource("cpu", 4, 1);
+        mo.attach(cpu);
+        racks = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            List<Node> rack = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                Node n = mo.newNode();
+                map.addOnlineNode(n);
+                mo.getAttributes().put(n, "rack", "r" + r);
+                map.addRunningVM(mo.newVM(), n);
+                map.addRunningVM(mo.newVM(), n);
+                rack.add(n);
+            }
+            racks.add(rack);
+        }
+        for (int i = 0; i < 10; i++) {
+            map.addReadyVM(mo.newVM());
+        }
+        return mo;
+    }
+
+    private static void check(Instance i, ReconfigurationPlan p) {
+        Assert.assertNotNull(p);
+        Assert.assertNotNull(p.getResult());
+        for (SatConstraint c : i.getSatConstraints()) {
+            Assert.assertTrue(c.isSatisfied(p), c + " is not satisfied");
+        }
+    }
+
+    @Test
+    public void testGroupsFromAttribute() throws SchedulerException {
+        Model mo = makeModel();
+        List<VM> ready = new ArrayList<>(mo.getMapping().getReadyVMs());
+        Instance i = new Instance(mo, new ArrayList<>(Running.newRunning(ready)), new MinMTTR());
+        i.getSatConstraints().add(new Among(ready.subList(0, 5), racks));
+        i.getSatConstraints().add(new Spread(new HashSet<>(ready.subList(5, 10))));
+
+        HierarchicalPartitioning hp = new HierarchicalPartitioning("rack");
+        hp.setWorkersCount(2);
+        DefaultChocoScheduler s = new DefaultChocoScheduler();
+        s.setInstanceSolver(hp);
+        ReconfigurationPlan p = s.solve(i);
+        check(i, p);
+        Assert.assertEquals(hp.getGroups().size(), 4);
+        Assert.assertNotNull(hp.getCoarseStatistics());
+        Assert.assertEquals(hp.getStatistics().getNbParts(), 4);
+        Assert.assertEquals(p.getSize(), 10);
+    }
+
+    @Test
+    public void testGroupsFromConstraints() throws SchedulerException {
+        Model mo = makeModel();
+        List<VM> ready = new ArrayList<>(mo.getMapping().getReadyVMs());
+        Instance i = new Instance(mo, new ArrayList<>(Running.newRunning(ready)), new MinMTTR());
+        i.getSatConstraints().add(new Among(ready.subList(0, 5), racks.subList(0, 2)));
+
+        HierarchicalPartitioning hp = new HierarchicalPartitioning();
+        DefaultChocoScheduler s = new DefaultChocoScheduler();
+        s.setInstanceSolver(hp);
+        ReconfigurationPlan p = s.solve(i);
+        check(i, p);
+        //The 2 racks, then the other nodes
+        Assert.assertEquals(hp.getGroups().size(), 3);
+        Assert.assertEquals(hp.getGroups().get(2).size(), 10);
+    }
+
+    @Test
+    public void testMoveToAnotherGroup() throws SchedulerException {
+        Model mo = makeModel();
+        Mapping map = mo.getMapping();
+        Node src = racks.get(0).iterator().next();
+        VM v = map.getRunningVMs(src).iterator().next();
+        Instance i = new Instance(mo, new ArrayList<>(), new MinMTTR());
+        i.getSatConstraints().add(new Fence(v, racks.get(3)));
+
+        HierarchicalPartitioning hp = new HierarchicalPartitioning("rack");
+        DefaultChocoScheduler s = new DefaultChocoScheduler();
+        s.setInstanceSolver(hp);
+        ReconfigurationPlan p = s.solve(i);
+        check(i, p);
+        Assert.assertEquals(p.getSize(), 1);
+        Action a = p.getActions().iterator().next();
+        Assert.assertTrue(a instanceof MigrateVM);
+        MigrateVM m = (MigrateVM) a;
+        Assert.assertEquals(m.getVM(), v);
+        Assert.assertEquals(m.getSourceNode(), src);
+        Assert.assertTrue(racks.get(3).contains(m.getDestinationNode()));
+        //The model is left untouched
+        Assert.assertEquals(map.getVMLocation(v), src);
+        Assert.assertEquals(map.getNbVMs(), 50);
+    }
+
+    @Test
+    public void testMigrationDuration() throws SchedulerException {
+        Model mo = makeModel();
+        Mapping map = mo.getMapping();
+        Node src = racks.get(0).iterator().next();
+        VM v = map.getRunningVMs(src).iterator().next();
+        mo.getAttributes().put(v, "boot", 2);
+        mo.getAttributes().put(v, "migrate", 5);
+        Instance i = new Instance(mo, new ArrayList<>(), new MinMTTR());
+        i.getSatConstraints().add(new Fence(v, racks.get(3)));
+
+        HierarchicalPartitioning hp = new HierarchicalPartitioning("rack");
+        DefaultChocoScheduler s = new DefaultChocoScheduler();
+        s.setInstanceSolver(hp);
+        ReconfigurationPlan p = s.solve(i);
+        check(i, p);
+        Assert.assertEquals(hp.getStatistics().getNbParts(), 4);
+        MigrateVM m = (MigrateVM) p.getActions().iterator().next();
+        Assert.assertEquals(m.getEnd() - m.getStart(), 5);
+        Assert.assertEquals(p.getDuration(), 5);
+        //The attribute is left untouched
+        Assert.assertEquals(mo.getAttributes().get(v, "boot", -1), 2);
+    }
+
+    @Test
+    public void testInfeasibleGroup() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        ShareableResource cpu = new ShareableResource("cpu", 4, 1);
+        mo.attach(cpu);
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        map.on(n0, n1);
+        mo.getAttributes().put(n0, "rack", "r0");
+        mo.getAttributes().put(n1, "rack", "r1");
+        //A sleeping VM to resume, ignored at the coarse level
+        VM sleeping = mo.newVM();
+        map.addSleepingVM(sleeping, n0);
+        cpu.setConsumption(sleeping, 2);
+        VM running = mo.newVM();
+        map.addRunningVM(running, n1);
+        cpu.setConsumption(running, 2);
+        VM ready = mo.newVM();
+        map.addReadyVM(ready);
+        cpu.setConsumption(ready, 3);
+        Instance i = new Instance(mo, new ArrayList<>(), new MinMTTR());
+        i.getSatConstraints().add(new Running(sleeping));
+        i.getSatConstraints().add(new Running(ready));
+
+        HierarchicalPartitioning hp = new HierarchicalPartitioning("rack");
+        DefaultChocoScheduler s = new DefaultChocoScheduler();
+        s.setInstanceSolver(hp);
+        ReconfigurationPlan p = s.solve(i);
+        //The coarse level puts the ready VM in the first rack, that cannot host it with the resumed VM
+        Assert.assertNotNull(hp.getCoarseStatistics());
+        check(i, p);
+        Assert.assertEquals(hp.getStatistics().getNbParts(), 1);
+    }
+
+    @Test
+    public void testInvalidMergedPlan() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        Node n0 = mo.newNode();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        map.on(n0, n1, n2);
+        mo.getAttributes().put(n0, "rack", "r0");
+        mo.getAttributes().put(n1, "rack", "r0");
+        mo.getAttributes().put(n2, "rack", "r1");
+        VM a = mo.newVM();
+        VM b = mo.newVM();
+        map.addRunningVM(a, n0);
+        map.addRunningVM(b, n1);
+        Instance i = new Instance(mo, new ArrayList<>(), new MinMTTR());
+        i.getSatConstraints().add(new Spread(new HashSet<>(Arrays.asList(a, b)), true));
+        i.getSatConstraints().add(new Fence(a, Collections.singleton(n2)));
+        i.getSatConstraints().add(new Ban(b, Collections.singleton(n1)));
+
+        HierarchicalPartitioning hp = new HierarchicalPartitioning("rack");
+        DefaultChocoScheduler s = new DefaultChocoScheduler();
+        s.setInstanceSolver(hp);
+        ReconfigurationPlan p = s.solve(i);
+        //In the first rack, the ghost of a is not involved in the spread so b arrives on n0 too early
+        Assert.assertNotNull(hp.getCoarseStatistics());
+        check(i, p);
+        Assert.assertEquals(hp.getStatistics().getNbParts(), 1);
+    }
+
+    @Test
+    public void testTimeLimit() throws SchedulerException {
+        Model mo = makeModel();
+        VM v = mo.getMapping().getRunningVMs(racks.get(0).iterator().next()).iterator().next();
+        Instance i = new Instance(mo, new ArrayList<>(), new MinMTTR());
+        i.getSatConstraints().add(new Fence(v, racks.get(3)));
+
+        HierarchicalPartitioning hp = new HierarchicalPartitioning("rack");
+        DefaultChocoScheduler s = new DefaultChocoScheduler();
+        s.setInstanceSolver(hp);
+        s.setTimeLimit(10);
+        ReconfigurationPlan p = s.solve(i);
+        check(i, p);
+        //A fifth for the coarse level, the groups get half of the remaining time
+        Assert.assertEquals(hp.getCoarseStatistics().getParameters().getTimeLimit(), 2);
+        Assert.assertEquals(hp.getStatistics().getNbParts(), 4);
+        Assert.assertEquals(s.getTimeLimit(), 10);
+    }
+
+    @Test
+    public void testSingleGroup() throws SchedulerException {
+        Model mo = makeModel();
+        Instance i = new Instance(mo, new ArrayList<>(Running.newRunning(mo.getMapping().getReadyVMs())), new MinMTTR());
+        HierarchicalPartitioning hp = new HierarchicalPartitioning();
+        DefaultChocoScheduler s = new DefaultChocoScheduler();
+        s.setInstanceSolver(hp);
+        ReconfigurationPlan p = s.solve(i);
+        check(i, p);
+        Assert.assertEquals(hp.getGroups().size(), 1);
+        Assert.assertNull(hp.getCoarseStatistics());
+    }
+}